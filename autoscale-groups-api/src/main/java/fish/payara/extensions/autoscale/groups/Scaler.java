@@ -43,6 +43,7 @@ import com.sun.enterprise.util.StringUtils;
 import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ProgressStatus;
 import org.glassfish.hk2.api.ServiceLocator;
 import org.glassfish.internal.api.Globals;
 import org.jvnet.hk2.annotations.Contract;
@@ -67,6 +68,9 @@ public abstract class Scaler {
     @Inject
     protected ScalingGroups scalingGroups;
 
+    @Inject
+    protected ScalingGroupsIndex scalingGroupsIndex;
+
     @Inject
     protected DeploymentGroups deploymentGroups;
 
@@ -93,6 +97,61 @@ public abstract class Scaler {
      */
     public abstract ActionReport scaleDown(int numberOfInstancesToRemove, ScalingGroup scalingGroup);
 
+    /**
+     * Scale up the number of instances in the given Deployment Group by the specified amount, reporting progress to the
+     * given {@link ProgressStatus}. Implementations which don't report progress needn't override this method.
+     *
+     * @param numberOfNewInstances The number of instances to scale the Deployment Group up in size by.
+     * @param scalingGroup         The {@link ScalingGroup Scaling Group} config to use for scaling.
+     * @param progressStatus       The {@link ProgressStatus} to report the progress of each instance to.
+     * @return An {@link ActionReport} detailing the outcome of the operation
+     */
+    public ActionReport scaleUp(int numberOfNewInstances, ScalingGroup scalingGroup, ProgressStatus progressStatus) {
+        return scaleUp(numberOfNewInstances, scalingGroup);
+    }
+
+    /**
+     * Scale down the number of instances in the given Deployment Group by the specified amount, reporting progress to
+     * the given {@link ProgressStatus}. Implementations which don't report progress needn't override this method.
+     *
+     * @param numberOfInstancesToRemove The number of instances to scale the Deployment Group down in size by.
+     * @param scalingGroup              The {@link ScalingGroup Scaling Group} config to use for scaling.
+     * @param progressStatus            The {@link ProgressStatus} to report the progress of each instance to.
+     * @return An {@link ActionReport} detailing the outcome of the operation
+     */
+    public ActionReport scaleDown(int numberOfInstancesToRemove, ScalingGroup scalingGroup,
+            ProgressStatus progressStatus) {
+        return scaleDown(numberOfInstancesToRemove, scalingGroup);
+    }
+
+    /**
+     * Works out which instances would be created or removed to scale the given Deployment Group by the specified
+     * amount, without running any commands or changing any config. Implementations should keep this cheap, avoiding
+     * any remote calls, since it may be called as often as every time the requested quantity changes.
+     *
+     * @param instanceDelta The number of instances to scale by: positive to scale up, negative to scale down.
+     * @param scalingGroup  The {@link ScalingGroup Scaling Group} config to plan against.
+     * @return The {@link ScalingPlan} for the operation
+     * @throws CommandValidationException If the operation would fail validation, or this Scaler can't plan operations
+     */
+    public ScalingPlan plan(int instanceDelta, ScalingGroup scalingGroup) throws CommandValidationException {
+        throw new CommandValidationException(getClass().getSimpleName() + " does not support planning scaling " +
+                "operations");
+    }
+
+    /**
+     * Cleans up anything this Scaler holds for the given Scaling Group outside of its Deployment Group, such as
+     * instances kept in reserve, before the Scaling Group is deleted. Implementations which don't hold anything
+     * needn't override this method.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} about to be deleted.
+     * @param actionReport The {@link ActionReport} to add the outcome of the clean up to. If it has failures once this
+     *                     method returns, the Scaling Group is not deleted.
+     */
+    public void cleanUp(ScalingGroup scalingGroup, ActionReport actionReport) {
+        // Nothing to clean up by default
+    }
+
     public Class<? extends ScalingGroup> getScalingGroupClass() {
         return getClass().getAnnotation(ScalerFor.class).value();
     }
@@ -126,6 +185,14 @@ public abstract class Scaler {
             }
         }
 
+        if (scalingGroupsIndex == null) {
+            scalingGroupsIndex = serviceLocator.getService(ScalingGroupsIndex.class);
+
+            if (scalingGroupsIndex == null) {
+                throw new CommandValidationException("Could not find or initialise Scaling Groups index!");
+            }
+        }
+
         if (deploymentGroups == null) {
             deploymentGroups = serviceLocator.getService(DeploymentGroups.class);
 
@@ -0,0 +1,134 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups;
+
+import org.glassfish.hk2.api.DynamicConfigurationListener;
+import org.glassfish.hk2.api.ServiceHandle;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the installed {@link Scaler} services, keyed by the {@link ScalingGroup} type they handle as declared
+ * by their {@link ScalerFor} metadata. The registry is built on first use and rebuilt on the next lookup after any
+ * change to the services of the {@link ServiceLocator}, such as a plugin being installed.
+ */
+@Service
+@Singleton
+public class ScalerRegistry implements DynamicConfigurationListener {
+
+    private static final Logger LOGGER = Logger.getLogger(ScalerRegistry.class.getName());
+
+    @Inject
+    private ServiceLocator serviceLocator;
+
+    private volatile Map<String, ServiceHandle<Scaler>> scalers;
+
+    @Override
+    public void configurationChanged() {
+        scalers = null;
+    }
+
+    /**
+     * Gets the {@link Scaler} implementation service for the type of the given {@link ScalingGroup Scaling Group}.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to get the {@link Scaler} for
+     * @return The matching {@link Scaler}, or null if there isn't one
+     */
+    public Scaler getScaler(ScalingGroup scalingGroup) {
+        Map<String, ServiceHandle<Scaler>> currentScalers = getScalers();
+
+        // Since we're working with a ConfigBeanProxy we can't simply do getClass() since this would return
+        // the proxy class. Instead, we check the interfaces of this proxy for the scaling group config bean
+        // interface being proxied (e.g. NodesScalingGroup)
+        for (Class<?> scalingGroupInterface : scalingGroup.getClass().getInterfaces()) {
+            ServiceHandle<Scaler> scalerHandle = currentScalers.get(scalingGroupInterface.getName());
+            if (scalerHandle != null) {
+                return scalerHandle.getService();
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, ServiceHandle<Scaler>> getScalers() {
+        Map<String, ServiceHandle<Scaler>> currentScalers = scalers;
+        if (currentScalers == null) {
+            synchronized (this) {
+                currentScalers = scalers;
+                if (currentScalers == null) {
+                    currentScalers = buildScalers();
+                    scalers = currentScalers;
+                }
+            }
+        }
+        return currentScalers;
+    }
+
+    private Map<String, ServiceHandle<Scaler>> buildScalers() {
+        Map<String, ServiceHandle<Scaler>> scalerHandles = new HashMap<>();
+        for (ServiceHandle<Scaler> scalerHandle : serviceLocator.getAllServiceHandles(Scaler.class)) {
+            List<String> scalingGroupClassNames = scalerHandle.getActiveDescriptor().getMetadata().get("ScalerFor");
+
+            // Fall back to reading the annotation if the descriptor wasn't generated with the metadata
+            if (scalingGroupClassNames == null || scalingGroupClassNames.isEmpty()) {
+                scalingGroupClassNames = Collections.singletonList(
+                        scalerHandle.getService().getScalingGroupClass().getName());
+            }
+
+            for (String scalingGroupClassName : scalingGroupClassNames) {
+                ServiceHandle<Scaler> existingHandle = scalerHandles.putIfAbsent(scalingGroupClassName, scalerHandle);
+                if (existingHandle != null) {
+                    LOGGER.warning("Multiple Scalers found for " + scalingGroupClassName + ", using " +
+                            existingHandle.getActiveDescriptor().getImplementation());
+                }
+            }
+        }
+        return Collections.unmodifiableMap(scalerHandles);
+    }
+}
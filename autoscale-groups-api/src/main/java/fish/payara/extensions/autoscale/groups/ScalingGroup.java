@@ -44,11 +44,16 @@ import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
 import org.jvnet.hk2.config.Attribute;
 import org.jvnet.hk2.config.ConfigBeanProxy;
 import org.jvnet.hk2.config.Configured;
+import org.jvnet.hk2.config.DuckTyped;
+import org.jvnet.hk2.config.Element;
 
 import javax.validation.Payload;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import java.beans.PropertyVetoException;
+import java.util.List;
 
 import static org.glassfish.config.support.Constants.NAME_SERVER_REGEX;
 
@@ -87,4 +92,164 @@ public interface ScalingGroup extends ConfigBeanProxy, Payload {
     @NotNull
     String getDeploymentGroupRef();
     void setDeploymentGroupRef(String deploymentGroupRef) throws PropertyVetoException;
+
+    /**
+     * Whether the scaling controller should automatically scale this group. If disabled, the group will only be scaled
+     * by explicit use of the scale commands.
+     *
+     * @return true if the scaling controller should manage this group
+     */
+    @Attribute(defaultValue = "false", dataType = Boolean.class)
+    String getAutoScalingEnabled();
+    void setAutoScalingEnabled(String autoScalingEnabled) throws PropertyVetoException;
+
+    /**
+     * The minimum number of instances the scaling controller will keep in the Deployment Group.
+     *
+     * @return The minimum number of instances
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getMinInstances();
+    void setMinInstances(String minInstances) throws PropertyVetoException;
+
+    /**
+     * The maximum number of instances the scaling controller will allow in the Deployment Group.
+     *
+     * @return The maximum number of instances
+     */
+    @Attribute(defaultValue = "100", dataType = Integer.class)
+    @Min(value = 0)
+    String getMaxInstances();
+    void setMaxInstances(String maxInstances) throws PropertyVetoException;
+
+    /**
+     * The number of instances the scaling controller should reconcile the Deployment Group to. If not set, the
+     * controller will take the current number of instances as the desired number. This value will be adjusted by the
+     * controller whenever a scaling threshold is breached.
+     *
+     * @return The desired number of instances, or null if not set
+     */
+    @Attribute(dataType = Integer.class)
+    @Min(value = 0)
+    String getDesiredInstances();
+    void setDesiredInstances(String desiredInstances) throws PropertyVetoException;
+
+    /**
+     * The load percentage above which the scaling controller will add an instance to the Deployment Group.
+     *
+     * @return The scale up threshold, as a percentage
+     */
+    @Attribute(defaultValue = "80", dataType = Integer.class)
+    @Min(value = 0)
+    @Max(value = 100)
+    String getScaleUpThreshold();
+    void setScaleUpThreshold(String scaleUpThreshold) throws PropertyVetoException;
+
+    /**
+     * The load percentage below which the scaling controller will remove an instance from the Deployment Group.
+     *
+     * @return The scale down threshold, as a percentage
+     */
+    @Attribute(defaultValue = "20", dataType = Integer.class)
+    @Min(value = 0)
+    @Max(value = 100)
+    String getScaleDownThreshold();
+    void setScaleDownThreshold(String scaleDownThreshold) throws PropertyVetoException;
+
+    /**
+     * The minimum gap, in percentage points, between the scale up and scale down thresholds. Keeping the thresholds
+     * apart stops a load close to one of them from scaling the group up and straight back down again.
+     *
+     * @return The hysteresis band, as a percentage
+     */
+    @Attribute(defaultValue = "10", dataType = Integer.class)
+    @Min(value = 0)
+    @Max(value = 100)
+    String getHysteresisBand();
+    void setHysteresisBand(String hysteresisBand) throws PropertyVetoException;
+
+    /**
+     * The time in seconds after a scale up during which further scale ups of this group are skipped. A value of 0
+     * disables the cooldown.
+     *
+     * @return The scale up cooldown, in seconds
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getScaleUpCooldown();
+    void setScaleUpCooldown(String scaleUpCooldown) throws PropertyVetoException;
+
+    /**
+     * The time in seconds after any scale operation during which scale downs of this group are skipped. Since it's
+     * counted from scale ups as well as scale downs, setting this higher than the scale up cooldown stops a group from
+     * being scaled back down straight after it has been scaled up. A value of 0 disables the cooldown.
+     *
+     * @return The scale down cooldown, in seconds
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getScaleDownCooldown();
+    void setScaleDownCooldown(String scaleDownCooldown) throws PropertyVetoException;
+
+    /**
+     * Whether the scaling controller should scale this group up ahead of forecast load, using a seasonal forecast of
+     * the load history of the group. Scaling down remains driven by the current load.
+     *
+     * @return true if the group should be scaled predictively
+     */
+    @Attribute(defaultValue = "false", dataType = Boolean.class)
+    String getPredictiveScalingEnabled();
+    void setPredictiveScalingEnabled(String predictiveScalingEnabled) throws PropertyVetoException;
+
+    /**
+     * How far ahead in seconds to forecast the load of this group when scaling predictively. This should cover the
+     * time it takes to create and start instances.
+     *
+     * @return The prediction lead time, in seconds
+     */
+    @Attribute(defaultValue = "600", dataType = Integer.class)
+    @Min(value = 1)
+    String getPredictionLeadTime();
+    void setPredictionLeadTime(String predictionLeadTime) throws PropertyVetoException;
+
+    /**
+     * The length in seconds of the repeating pattern in the load of this group, used when scaling predictively. A full
+     * season of load history is needed before any forecast is made.
+     *
+     * @return The season length, in seconds
+     */
+    @Attribute(defaultValue = "86400", dataType = Integer.class)
+    @Min(value = 1)
+    String getSeasonLength();
+    void setSeasonLength(String seasonLength) throws PropertyVetoException;
+
+    /**
+     * The schedules on which this group is scaled to a set number of instances.
+     *
+     * @return The list of schedules
+     */
+    @Element("scaling-schedule")
+    List<ScalingSchedule> getScalingSchedules();
+
+    /**
+     * Return the {@link ScalingSchedule} with the specified name.
+     *
+     * @param name The name of the schedule
+     * @return The schedule, or null if there's no schedule with that name
+     */
+    @DuckTyped
+    ScalingSchedule getScalingSchedule(String name);
+
+    class Duck {
+        public static ScalingSchedule getScalingSchedule(ScalingGroup scalingGroup, String name) {
+            for (ScalingSchedule scalingSchedule : scalingGroup.getScalingSchedules()) {
+                if (scalingSchedule.getName().equals(name)) {
+                    return scalingSchedule;
+                }
+            }
+
+            return null;
+        }
+    }
 }
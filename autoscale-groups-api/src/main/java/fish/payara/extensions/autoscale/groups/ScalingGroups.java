@@ -74,6 +74,14 @@ public interface ScalingGroups extends DomainExtension {
     @DuckTyped
     ScalingGroup getScalingGroup(String name);
 
+    /**
+     * Return all {@link ScalingGroup Scaling Groups} of the specified type. This scans the config, so prefer
+     * {@link ScalingGroupsIndex#getScalingGroupsOfType(Class)} outside of config transactions.
+     *
+     * @param type The {@link ScalingGroup} sub-interface to match against
+     * @param <T> The type of {@link ScalingGroup}
+     * @return The list of matching {@link ScalingGroup Scaling Groups}
+     */
     @DuckTyped
     <T extends ScalingGroup> List<T> getScalingGroupsOfType(Class<T> type);
 
@@ -91,10 +99,8 @@ public interface ScalingGroups extends DomainExtension {
         public static <T extends ScalingGroup> List<T> getScalingGroupsOfType(ScalingGroups scalingGroups, Class<T> type) {
             List<T> scalingGroupsOfTypeT = new ArrayList<>();
             for (ScalingGroup scalingGroup : scalingGroups.getScalingGroups()) {
-                try {
+                if (type.isInstance(scalingGroup)) {
                     scalingGroupsOfTypeT.add(type.cast(scalingGroup));
-                } catch (Exception e) {
-                    // Wrong type - Do nothing
                 }
             }
             return scalingGroupsOfTypeT;
@@ -0,0 +1,236 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups;
+
+import org.glassfish.hk2.api.PostConstruct;
+import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.ConfigBeanProxy;
+import org.jvnet.hk2.config.ConfigListener;
+import org.jvnet.hk2.config.ConfigSupport;
+import org.jvnet.hk2.config.ObservableBean;
+import org.jvnet.hk2.config.UnprocessedChangeEvents;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.beans.PropertyChangeEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the {@link ScalingGroup Scaling Groups} of the domain, by name, by
+ * {@link fish.payara.enterprise.config.serverbeans.DeploymentGroup Deployment Group} reference, and by type. The index
+ * listens for changes to the {@link ScalingGroups} config and is rebuilt whenever a Scaling Group is added, removed,
+ * or modified, so lookups never need to scan the config.
+ */
+@Service
+@Singleton
+public class ScalingGroupsIndex implements ConfigListener, PostConstruct {
+
+    @Inject
+    private ScalingGroups scalingGroups;
+
+    private volatile Index index = new Index(Collections.emptyList());
+
+    // The Scaling Groups this index is listening to, so that rebuilds don't add the listener again
+    private final Set<ScalingGroup> listenedScalingGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public void postConstruct() {
+        if (scalingGroups != null) {
+            listenTo(scalingGroups);
+        }
+        rebuild();
+    }
+
+    @Override
+    public UnprocessedChangeEvents changed(PropertyChangeEvent[] propertyChangeEvents) {
+        rebuild();
+        return null;
+    }
+
+    /**
+     * Return the {@link ScalingGroup} with the specified name.
+     *
+     * @param name The name of the {@link ScalingGroup} to return
+     * @return The {@link ScalingGroup} with the matching name, or null if no match found
+     */
+    public ScalingGroup getScalingGroup(String name) {
+        ScalingGroup scalingGroup = index.byName.get(name);
+        if (scalingGroup == null && isStale()) {
+            scalingGroup = rebuild().byName.get(name);
+        }
+        return scalingGroup;
+    }
+
+    /**
+     * Return the {@link ScalingGroup} which references the specified
+     * {@link fish.payara.enterprise.config.serverbeans.DeploymentGroup Deployment Group}.
+     *
+     * @param deploymentGroupRef The name of the Deployment Group
+     * @return The {@link ScalingGroup} referencing the Deployment Group, or null if no match found
+     */
+    public ScalingGroup getScalingGroupForDeploymentGroup(String deploymentGroupRef) {
+        ScalingGroup scalingGroup = index.byDeploymentGroupRef.get(deploymentGroupRef);
+        if (scalingGroup == null && isStale()) {
+            scalingGroup = rebuild().byDeploymentGroupRef.get(deploymentGroupRef);
+        }
+        return scalingGroup;
+    }
+
+    /**
+     * Return all {@link ScalingGroup Scaling Groups} of the specified type.
+     *
+     * @param type The {@link ScalingGroup} sub-interface to match against
+     * @param <T> The type of {@link ScalingGroup}
+     * @return An unmodifiable list of the matching {@link ScalingGroup Scaling Groups}, empty if there are none
+     */
+    public <T extends ScalingGroup> List<T> getScalingGroupsOfType(Class<T> type) {
+        return index.getScalingGroupsOfType(type);
+    }
+
+    /**
+     * Return all {@link ScalingGroup Scaling Groups} of the domain.
+     *
+     * @return An unmodifiable list of all {@link ScalingGroup Scaling Groups}
+     */
+    public List<ScalingGroup> getScalingGroups() {
+        return index.all;
+    }
+
+    // Change events are delivered after the transaction commits, so a command looking up a group it has only just
+    // created can get here first. Groups are compared by identity, since a group may have been replaced by another
+    // without the number of groups changing
+    private boolean isStale() {
+        if (scalingGroups == null) {
+            return false;
+        }
+
+        List<ScalingGroup> currentScalingGroups = scalingGroups.getScalingGroups();
+        List<ScalingGroup> indexedScalingGroups = index.all;
+        if (currentScalingGroups.size() != indexedScalingGroups.size()) {
+            return true;
+        }
+        for (int i = 0; i < currentScalingGroups.size(); i++) {
+            if (currentScalingGroups.get(i) != indexedScalingGroups.get(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized Index rebuild() {
+        List<ScalingGroup> allScalingGroups = scalingGroups == null ?
+                Collections.emptyList() : new ArrayList<>(scalingGroups.getScalingGroups());
+
+        // Changes to the attributes of a Scaling Group are only reported to listeners of that Scaling Group
+        Set<ScalingGroup> currentScalingGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        currentScalingGroups.addAll(allScalingGroups);
+        for (ScalingGroup scalingGroup : currentScalingGroups) {
+            if (listenedScalingGroups.add(scalingGroup)) {
+                listenTo(scalingGroup);
+            }
+        }
+        for (ScalingGroup scalingGroup : new ArrayList<>(listenedScalingGroups)) {
+            if (!currentScalingGroups.contains(scalingGroup)) {
+                listenedScalingGroups.remove(scalingGroup);
+                stopListeningTo(scalingGroup);
+            }
+        }
+
+        index = new Index(allScalingGroups);
+        return index;
+    }
+
+    private void listenTo(ConfigBeanProxy configBeanProxy) {
+        Object configBean = ConfigSupport.getImpl(configBeanProxy);
+        if (configBean instanceof ObservableBean) {
+            ((ObservableBean) configBean).addListener(this);
+        }
+    }
+
+    private void stopListeningTo(ConfigBeanProxy configBeanProxy) {
+        Object configBean = ConfigSupport.getImpl(configBeanProxy);
+        if (configBean instanceof ObservableBean) {
+            ((ObservableBean) configBean).removeListener(this);
+        }
+    }
+
+    /**
+     * Immutable snapshot of the Scaling Groups config. The by-type lists are filled in lazily, since the set of types
+     * queried is small and fixed by the installed plugins.
+     */
+    private static class Index {
+
+        private final List<ScalingGroup> all;
+        private final Map<String, ScalingGroup> byName = new HashMap<>();
+        private final Map<String, ScalingGroup> byDeploymentGroupRef = new HashMap<>();
+        private final Map<Class<?>, List<? extends ScalingGroup>> byType = new ConcurrentHashMap<>();
+
+        private Index(List<ScalingGroup> scalingGroups) {
+            all = Collections.unmodifiableList(scalingGroups);
+            for (ScalingGroup scalingGroup : scalingGroups) {
+                byName.put(scalingGroup.getName(), scalingGroup);
+                if (scalingGroup.getDeploymentGroupRef() != null) {
+                    byDeploymentGroupRef.put(scalingGroup.getDeploymentGroupRef(), scalingGroup);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends ScalingGroup> List<T> getScalingGroupsOfType(Class<T> type) {
+            return (List<T>) byType.computeIfAbsent(type, key -> {
+                List<T> scalingGroupsOfTypeT = new ArrayList<>();
+                for (ScalingGroup scalingGroup : all) {
+                    if (type.isInstance(scalingGroup)) {
+                        scalingGroupsOfTypeT.add(type.cast(scalingGroup));
+                    }
+                }
+                return Collections.unmodifiableList(scalingGroupsOfTypeT);
+            });
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The instances a {@link Scaler} would create, take or remove to scale a {@link ScalingGroup Scaling Group} by a given
+ * number of instances, as worked out by {@link Scaler#plan(int, ScalingGroup)} without changing anything.
+ */
+public class ScalingPlan {
+
+    public enum Action {
+        /**
+         * An existing instance would be taken from the warm pool of the scaling group and started
+         */
+        TAKE_FROM_POOL,
+        /**
+         * A new instance would be created and started
+         */
+        CREATE,
+        /**
+         * The instance would be stopped and parked in the warm pool of the scaling group
+         */
+        PARK,
+        /**
+         * The instance would be stopped and deleted
+         */
+        DELETE
+    }
+
+    private final String scalingGroupName;
+    private final int instanceDelta;
+    private final List<PlannedInstance> plannedInstances = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    /**
+     * @param scalingGroupName The name of the scaling group being planned for
+     * @param instanceDelta The number of instances to scale by: positive to scale up, negative to scale down
+     */
+    public ScalingPlan(String scalingGroupName, int instanceDelta) {
+        this.scalingGroupName = scalingGroupName;
+        this.instanceDelta = instanceDelta;
+    }
+
+    public String getScalingGroupName() {
+        return scalingGroupName;
+    }
+
+    public int getInstanceDelta() {
+        return instanceDelta;
+    }
+
+    public List<PlannedInstance> getPlannedInstances() {
+        return Collections.unmodifiableList(plannedInstances);
+    }
+
+    public List<String> getWarnings() {
+        return Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * @param action What would be done to the instance
+     * @param instanceName The name of the instance, or null if it doesn't exist yet
+     * @param location Where the instance is or would be, e.g. the name of its node
+     */
+    public void addInstance(Action action, String instanceName, String location) {
+        plannedInstances.add(new PlannedInstance(action, instanceName, location));
+    }
+
+    /**
+     * @param warning Something which would stop the operation going exactly as requested, e.g. too few instances
+     */
+    public void addWarning(String warning) {
+        warnings.add(warning);
+    }
+
+    /**
+     * @return A Map representation of the plan, for use as an extra property of an action report
+     */
+    public Map<String, Object> toMap() {
+        List<Map<String, Object>> plannedInstancesInfo = new ArrayList<>();
+        for (PlannedInstance plannedInstance : plannedInstances) {
+            Map<String, Object> plannedInstanceInfo = new HashMap<>();
+            plannedInstanceInfo.put("action", plannedInstance.getAction().name());
+            if (plannedInstance.getInstanceName() != null) {
+                plannedInstanceInfo.put("instanceName", plannedInstance.getInstanceName());
+            }
+            plannedInstanceInfo.put("location", plannedInstance.getLocation());
+            plannedInstancesInfo.add(plannedInstanceInfo);
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("scalingGroupName", scalingGroupName);
+        map.put("instanceDelta", instanceDelta);
+        map.put("instances", plannedInstancesInfo);
+        map.put("warnings", new ArrayList<>(warnings));
+        return map;
+    }
+
+    /**
+     * A single instance of a {@link ScalingPlan}.
+     */
+    public static class PlannedInstance {
+
+        private final Action action;
+        private final String instanceName;
+        private final String location;
+
+        public PlannedInstance(Action action, String instanceName, String location) {
+            this.action = action;
+            this.instanceName = instanceName;
+            this.location = location;
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        public String getInstanceName() {
+            return instanceName;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups;
+
+import org.jvnet.hk2.config.Attribute;
+import org.jvnet.hk2.config.ConfigBeanProxy;
+import org.jvnet.hk2.config.Configured;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.beans.PropertyVetoException;
+
+/**
+ * A schedule on which a {@link ScalingGroup Scaling Group} is scaled to a set number of instances, for example to
+ * scale up ahead of a daily peak in traffic.
+ */
+@Configured
+public interface ScalingSchedule extends ConfigBeanProxy {
+
+    @Attribute(key = true, required = true)
+    @NotNull
+    String getName();
+    void setName(String name) throws PropertyVetoException;
+
+    /**
+     * The five field cron expression (minute, hour, day of month, month, and day of week) of when to scale the group,
+     * evaluated in the time zone of the DAS.
+     *
+     * @return The cron expression
+     */
+    @Attribute(required = true)
+    @NotNull
+    String getCron();
+    void setCron(String cron) throws PropertyVetoException;
+
+    /**
+     * The number of instances to scale the group to when the schedule fires. This is bounded by the minimum and
+     * maximum instances of the group.
+     *
+     * @return The desired number of instances
+     */
+    @Attribute(required = true, dataType = Integer.class)
+    @NotNull
+    @Min(value = 0)
+    String getDesiredInstances();
+    void setDesiredInstances(String desiredInstances) throws PropertyVetoException;
+}
@@ -55,7 +55,7 @@ import javax.inject.Inject;
  *
  * @author Andrew Pielage
  */
-public abstract class CreateScalingGroupCommand extends ScalingGroupCommand {
+public abstract class CreateScalingGroupCommand extends ScalingGroupAttributesCommand {
 
     @Param(name = "deploymentGroup", alias = "deploymentgroup")
     protected String deploymentGroupRef;
@@ -74,7 +74,7 @@ public abstract class CreateScalingGroupCommand extends ScalingGroupCommand {
         super.validateParams();
 
         // Check that the scaling group name isn't a duplicate
-        if (scalingGroups.getScalingGroup(name) != null) {
+        if (scalingGroupsIndex.getScalingGroup(name) != null) {
             throw new CommandValidationException("Scaling group with name " + name + " already exists");
         }
 
@@ -84,12 +84,11 @@ public abstract class CreateScalingGroupCommand extends ScalingGroupCommand {
                     " is not valid or doesn't exist");
         }
 
-        // Search through the scaling groups, checking for any duplicates of the deployment group ref
-        for (ScalingGroup scalingGroup : scalingGroups.getScalingGroups()) {
-            if (scalingGroup.getDeploymentGroupRef().equals(deploymentGroupRef)) {
-                throw new CommandValidationException("Deployment Group " + deploymentGroupRef + " is already in use " +
-                        "by " + scalingGroup.getName());
-            }
+        // Check that the deployment group ref isn't already in use
+        ScalingGroup existingScalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(deploymentGroupRef);
+        if (existingScalingGroup != null) {
+            throw new CommandValidationException("Deployment Group " + deploymentGroupRef + " is already in use " +
+                    "by " + existingScalingGroup.getName());
         }
 
         // Check the config is valid and exists
@@ -99,6 +98,16 @@ public abstract class CreateScalingGroupCommand extends ScalingGroupCommand {
         if (configs.getConfigByName(configRef) == null) {
             throw new CommandValidationException("Config name " + configRef + " does not exist");
         }
-    }
 
+        // Check the scaling limits, falling back to the config bean defaults for any not provided
+        validateScalingLimits(
+                minInstances != null ? minInstances : 0,
+                maxInstances != null ? maxInstances : 100,
+                desiredInstances,
+                scaleUpThreshold != null ? scaleUpThreshold : 80,
+                scaleDownThreshold != null ? scaleDownThreshold : 20,
+                hysteresisBand != null ? hysteresisBand : 10);
+        validateCooldowns(scaleUpCooldown, scaleDownCooldown);
+        validatePrediction(predictionLeadTime, seasonLength);
+    }
 }
@@ -54,7 +54,7 @@ public abstract class GetScalingGroupConfigurationCommand extends ScalingGroupCo
     protected void validateParams() throws CommandValidationException {
         super.validateParams();
 
-        if (scalingGroups.getScalingGroup(name) == null) {
+        if (scalingGroupsIndex.getScalingGroup(name) == null) {
             throw new CommandValidationException("Scaling group with name " + name + " does not exist");
         }
     }
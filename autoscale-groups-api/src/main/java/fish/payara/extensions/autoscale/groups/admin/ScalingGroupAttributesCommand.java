@@ -0,0 +1,135 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.admin;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.glassfish.api.Param;
+
+import java.beans.PropertyVetoException;
+
+/**
+ * Parent class for the Scaling Groups commands which configure a Scaling Group, i.e. the "create" and "set" commands,
+ * containing the parameters for the automatic scaling attributes common to every type of Scaling Group.
+ */
+public abstract class ScalingGroupAttributesCommand extends ScalingGroupCommand {
+
+    @Param(name = "autoScalingEnabled", alias = "autoscalingenabled", optional = true)
+    protected Boolean autoScalingEnabled;
+
+    @Param(name = "minInstances", alias = "mininstances", optional = true)
+    protected Integer minInstances;
+
+    @Param(name = "maxInstances", alias = "maxinstances", optional = true)
+    protected Integer maxInstances;
+
+    @Param(name = "desiredInstances", alias = "desiredinstances", optional = true)
+    protected Integer desiredInstances;
+
+    @Param(name = "scaleUpThreshold", alias = "scaleupthreshold", optional = true)
+    protected Integer scaleUpThreshold;
+
+    @Param(name = "scaleDownThreshold", alias = "scaledownthreshold", optional = true)
+    protected Integer scaleDownThreshold;
+
+    @Param(name = "hysteresisBand", alias = "hysteresisband", optional = true)
+    protected Integer hysteresisBand;
+
+    @Param(name = "scaleUpCooldown", alias = "scaleupcooldown", optional = true)
+    protected Integer scaleUpCooldown;
+
+    @Param(name = "scaleDownCooldown", alias = "scaledowncooldown", optional = true)
+    protected Integer scaleDownCooldown;
+
+    @Param(name = "predictiveScalingEnabled", alias = "predictivescalingenabled", optional = true)
+    protected Boolean predictiveScalingEnabled;
+
+    @Param(name = "predictionLeadTime", alias = "predictionleadtime", optional = true)
+    protected Integer predictionLeadTime;
+
+    @Param(name = "seasonLength", alias = "seasonlength", optional = true)
+    protected Integer seasonLength;
+
+    /**
+     * Sets the automatic scaling attributes which were provided as parameters on the given
+     * {@link ScalingGroup Scaling Group}. Intended to be called from within a config transaction.
+     *
+     * @param scalingGroupProxy The writeable {@link ScalingGroup Scaling Group} proxy
+     * @throws PropertyVetoException If any of the attributes could not be set
+     */
+    protected void applyScalingAttributes(ScalingGroup scalingGroupProxy) throws PropertyVetoException {
+        if (autoScalingEnabled != null) {
+            scalingGroupProxy.setAutoScalingEnabled(autoScalingEnabled.toString());
+        }
+        if (minInstances != null) {
+            scalingGroupProxy.setMinInstances(minInstances.toString());
+        }
+        if (maxInstances != null) {
+            scalingGroupProxy.setMaxInstances(maxInstances.toString());
+        }
+        if (desiredInstances != null) {
+            scalingGroupProxy.setDesiredInstances(desiredInstances.toString());
+        }
+        if (scaleUpThreshold != null) {
+            scalingGroupProxy.setScaleUpThreshold(scaleUpThreshold.toString());
+        }
+        if (scaleDownThreshold != null) {
+            scalingGroupProxy.setScaleDownThreshold(scaleDownThreshold.toString());
+        }
+        if (hysteresisBand != null) {
+            scalingGroupProxy.setHysteresisBand(hysteresisBand.toString());
+        }
+        if (scaleUpCooldown != null) {
+            scalingGroupProxy.setScaleUpCooldown(scaleUpCooldown.toString());
+        }
+        if (scaleDownCooldown != null) {
+            scalingGroupProxy.setScaleDownCooldown(scaleDownCooldown.toString());
+        }
+        if (predictiveScalingEnabled != null) {
+            scalingGroupProxy.setPredictiveScalingEnabled(predictiveScalingEnabled.toString());
+        }
+        if (predictionLeadTime != null) {
+            scalingGroupProxy.setPredictionLeadTime(predictionLeadTime.toString());
+        }
+        if (seasonLength != null) {
+            scalingGroupProxy.setSeasonLength(seasonLength.toString());
+        }
+    }
+}
@@ -42,6 +42,7 @@ package fish.payara.extensions.autoscale.groups.admin;
 
 import com.sun.enterprise.util.StringUtils;
 import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
 import org.glassfish.api.Param;
 import org.glassfish.api.admin.AdminCommand;
 import org.glassfish.api.admin.CommandValidationException;
@@ -62,9 +63,94 @@ public abstract class ScalingGroupCommand implements AdminCommand {
     @Inject
     protected ScalingGroups scalingGroups;
 
+    @Inject
+    protected ScalingGroupsIndex scalingGroupsIndex;
+
     protected void validateParams() throws CommandValidationException {
         if (!StringUtils.ok(name)) {
             throw new CommandValidationException("Name " + name + " is not valid");
         }
     }
+
+    /**
+     * Validates that the instance limits and thresholds of a {@link fish.payara.extensions.autoscale.groups.ScalingGroup
+     * Scaling Group} are consistent with each other.
+     *
+     * @param minInstances The minimum number of instances
+     * @param maxInstances The maximum number of instances
+     * @param desiredInstances The desired number of instances, may be null
+     * @param scaleUpThreshold The scale up threshold
+     * @param scaleDownThreshold The scale down threshold
+     * @param hysteresisBand The minimum gap between the scale up and scale down thresholds
+     * @throws CommandValidationException If any of the values are invalid
+     */
+    protected void validateScalingLimits(int minInstances, int maxInstances, Integer desiredInstances,
+            int scaleUpThreshold, int scaleDownThreshold, int hysteresisBand)
+            throws CommandValidationException {
+        if (minInstances < 0 || maxInstances < 0) {
+            throw new CommandValidationException("Minimum and maximum instances cannot be negative");
+        }
+
+        if (minInstances > maxInstances) {
+            throw new CommandValidationException("Minimum instances " + minInstances +
+                    " cannot be greater than maximum instances " + maxInstances);
+        }
+
+        if (desiredInstances != null && (desiredInstances < minInstances || desiredInstances > maxInstances)) {
+            throw new CommandValidationException("Desired instances " + desiredInstances +
+                    " must be between " + minInstances + " and " + maxInstances);
+        }
+
+        if (scaleUpThreshold < 0 || scaleUpThreshold > 100 || scaleDownThreshold < 0 || scaleDownThreshold > 100) {
+            throw new CommandValidationException("Scale thresholds must be between 0 and 100");
+        }
+
+        if (scaleDownThreshold >= scaleUpThreshold) {
+            throw new CommandValidationException("Scale down threshold " + scaleDownThreshold +
+                    " must be less than the scale up threshold " + scaleUpThreshold);
+        }
+
+        if (hysteresisBand < 0 || hysteresisBand > 100) {
+            throw new CommandValidationException("Hysteresis band must be between 0 and 100");
+        }
+
+        if (scaleDownThreshold > scaleUpThreshold - hysteresisBand) {
+            throw new CommandValidationException("Scale down threshold " + scaleDownThreshold +
+                    " must be at least the hysteresis band of " + hysteresisBand + " below the scale up threshold " +
+                    scaleUpThreshold + ", either move the thresholds apart or lower the hysteresis band");
+        }
+    }
+
+    /**
+     * Validates the cooldowns of a {@link fish.payara.extensions.autoscale.groups.ScalingGroup Scaling Group}.
+     *
+     * @param scaleUpCooldown The scale up cooldown in seconds, may be null if not being set
+     * @param scaleDownCooldown The scale down cooldown in seconds, may be null if not being set
+     * @throws CommandValidationException If either cooldown is negative
+     */
+    protected void validateCooldowns(Integer scaleUpCooldown, Integer scaleDownCooldown)
+            throws CommandValidationException {
+        if ((scaleUpCooldown != null && scaleUpCooldown < 0) || (scaleDownCooldown != null && scaleDownCooldown < 0)) {
+            throw new CommandValidationException("Cooldowns cannot be negative");
+        }
+    }
+
+    /**
+     * Validates the predictive scaling settings of a {@link fish.payara.extensions.autoscale.groups.ScalingGroup
+     * Scaling Group}.
+     *
+     * @param predictionLeadTime The prediction lead time in seconds, may be null if not being set
+     * @param seasonLength The season length in seconds, may be null if not being set
+     * @throws CommandValidationException If either value is less than 1
+     */
+    protected void validatePrediction(Integer predictionLeadTime, Integer seasonLength)
+            throws CommandValidationException {
+        if (predictionLeadTime != null && predictionLeadTime < 1) {
+            throw new CommandValidationException("Prediction lead time must be at least 1 second");
+        }
+
+        if (seasonLength != null && seasonLength < 1) {
+            throw new CommandValidationException("Season length must be at least 1 second");
+        }
+    }
 }
@@ -55,7 +55,7 @@ import javax.inject.Inject;
  *
  * @author Andrew Pielage
  */
-public abstract class SetScalingGroupConfigurationCommand extends ScalingGroupCommand {
+public abstract class SetScalingGroupConfigurationCommand extends ScalingGroupAttributesCommand {
 
     @Param(name = "deploymentGroup", alias = "deploymentgroup", optional = true)
     protected String deploymentGroupRef;
@@ -74,7 +74,8 @@ public abstract class SetScalingGroupConfigurationCommand extends ScalingGroupCo
         super.validateParams();
 
         // Check the scaling group actually exists
-        if (scalingGroups.getScalingGroup(name) == null) {
+        ScalingGroup existingScalingGroup = scalingGroupsIndex.getScalingGroup(name);
+        if (existingScalingGroup == null) {
             throw new CommandValidationException("Scaling group with name " + name + " does not exist");
         }
 
@@ -84,12 +85,11 @@ public abstract class SetScalingGroupConfigurationCommand extends ScalingGroupCo
                 throw new CommandValidationException("Deployment Group " + deploymentGroupRef + " does not exist");
             }
 
-            // Search through the scaling groups, checking for any duplicates of the deployment group ref
-            for (ScalingGroup scalingGroup : scalingGroups.getScalingGroups()) {
-                if (!scalingGroup.getName().equals(name) && scalingGroup.getDeploymentGroupRef().equals(deploymentGroupRef)) {
-                    throw new CommandValidationException("Deployment Group " + deploymentGroupRef + " is already in " +
-                            "use by " + scalingGroup.getName());
-                }
+            // Check that the deployment group ref isn't already in use by another scaling group
+            ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(deploymentGroupRef);
+            if (scalingGroup != null && !scalingGroup.getName().equals(name)) {
+                throw new CommandValidationException("Deployment Group " + deploymentGroupRef + " is already in " +
+                        "use by " + scalingGroup.getName());
             }
         }
 
@@ -99,6 +99,21 @@ public abstract class SetScalingGroupConfigurationCommand extends ScalingGroupCo
                 throw new CommandValidationException("Config name " + configRef + " is not valid or doesn't exist");
             }
         }
-    }
 
+        // Check the scaling limits, falling back to the existing configuration for any not provided
+        String existingDesiredInstances = existingScalingGroup.getDesiredInstances();
+        validateScalingLimits(
+                minInstances != null ? minInstances : Integer.parseInt(existingScalingGroup.getMinInstances()),
+                maxInstances != null ? maxInstances : Integer.parseInt(existingScalingGroup.getMaxInstances()),
+                desiredInstances != null ? desiredInstances :
+                        (StringUtils.ok(existingDesiredInstances) ? Integer.valueOf(existingDesiredInstances) : null),
+                scaleUpThreshold != null ? scaleUpThreshold :
+                        Integer.parseInt(existingScalingGroup.getScaleUpThreshold()),
+                scaleDownThreshold != null ? scaleDownThreshold :
+                        Integer.parseInt(existingScalingGroup.getScaleDownThreshold()),
+                hysteresisBand != null ? hysteresisBand :
+                        Integer.parseInt(existingScalingGroup.getHysteresisBand()));
+        validateCooldowns(scaleUpCooldown, scaleDownCooldown);
+        validatePrediction(predictionLeadTime, seasonLength);
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.benchmarks;
+
+import fish.payara.extensions.autoscale.groups.nodes.NodesPlacementPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the instance placement and scale down victim selection of the Nodes Scaler over synthetic sets of nodes
+ * and instances. Instances are spread unevenly across the nodes so that the planner has to rebalance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodesPlacementBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int nodes;
+
+    @Param({"100", "1000", "5000"})
+    private int instances;
+
+    @Param({"1", "10", "100"})
+    private int quantity;
+
+    private Map<String, Integer> nodesInstanceBalance;
+    private Map<String, List<String>> nodesInstances;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        nodesInstances = new LinkedHashMap<>();
+        for (int node = 0; node < nodes; node++) {
+            nodesInstances.put("node-" + node, new ArrayList<>());
+        }
+
+        // Skew the instances towards the lower numbered nodes
+        for (int instance = 0; instance < instances; instance++) {
+            int node = (int) (Math.abs(random.nextGaussian()) * nodes / 3) % nodes;
+            nodesInstances.get("node-" + node).add("instance-" + instance);
+        }
+
+        nodesInstanceBalance = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> nodeInstances : nodesInstances.entrySet()) {
+            nodesInstanceBalance.put(nodeInstances.getKey(), nodeInstances.getValue().size());
+        }
+    }
+
+    @Benchmark
+    public Map<String, Integer> planPlacement() {
+        return NodesPlacementPlanner.planPlacement(quantity, nodesInstanceBalance, null);
+    }
+
+    @Benchmark
+    public List<String> planRemoval() {
+        return NodesPlacementPlanner.planRemoval(quantity, nodesInstances);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.benchmarks;
+
+import com.sun.enterprise.config.serverbeans.Domain;
+import com.sun.enterprise.config.serverbeans.Server;
+import com.sun.enterprise.config.serverbeans.Servers;
+import com.sun.enterprise.v3.common.PlainTextActionReporter;
+import fish.payara.extensions.autoscale.groups.core.ScalingExecutorService;
+import fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.admin.CommandRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.security.auth.Subject;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ScaleCommandHelper} running a command across instances on the shared
+ * {@link ScalingExecutorService}, against a stub {@link CommandRunner} whose commands take the configured latency.
+ * With the default admin thread pool the executor has two threads, so this measures how well the fan-out overlaps
+ * slow commands.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScaleCommandFanOutBenchmark {
+
+    @Param({"4", "16", "64"})
+    private int instanceCount;
+
+    @Param({"0", "10", "50"})
+    private long commandLatencyMillis;
+
+    private ScalingExecutorService scalingExecutorService;
+    private ScaleCommandHelper scaleCommandHelper;
+    private List<String> instanceNames;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Map<String, Server> servers = new HashMap<>();
+        instanceNames = new ArrayList<>();
+        for (int i = 0; i < instanceCount; i++) {
+            String instanceName = "instance-" + i;
+            Map<String, Object> answers = new HashMap<>();
+            answers.put("getName", instanceName);
+            answers.put("getNodeRef", "node-" + (i % 4));
+            answers.put("getAdminHost", "host-" + (i % 4));
+            servers.put(instanceName, ConfigBeanStubs.stub(Server.class, answers));
+            instanceNames.add(instanceName);
+        }
+
+        Servers serversBean = ConfigBeanStubs.stub(Servers.class, Collections.singletonMap("getServer",
+                (ConfigBeanStubs.Answer) args -> servers.get((String) args[0])));
+        Domain domain = ConfigBeanStubs.stub(Domain.class, Collections.singletonMap("getServers", serversBean));
+
+        // Normally injected by HK2
+        scalingExecutorService = new ScalingExecutorService();
+        Field domainField = ScalingExecutorService.class.getDeclaredField("domain");
+        domainField.setAccessible(true);
+        domainField.set(scalingExecutorService, domain);
+        scalingExecutorService.postConstruct();
+
+        scaleCommandHelper = new ScaleCommandHelper(domain, createCommandRunner(), new Subject(),
+                scalingExecutorService);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scalingExecutorService.preDestroy();
+    }
+
+    @Benchmark
+    public ActionReport runCommandInParallelAcrossInstances() {
+        return scaleCommandHelper.runCommandInParallelAcrossInstances("benchmark-command", null, instanceNames);
+    }
+
+    private CommandRunner createCommandRunner() {
+        Map<String, Object> runnerAnswers = new HashMap<>();
+        runnerAnswers.put("getActionReport", (ConfigBeanStubs.Answer) args -> new PlainTextActionReporter());
+        runnerAnswers.put("getCommandInvocation", (ConfigBeanStubs.Answer) args -> {
+            ActionReport actionReport = (ActionReport) args[1];
+
+            Map<String, Object> invocationAnswers = new HashMap<>();
+            CommandRunner.CommandInvocation[] invocation = new CommandRunner.CommandInvocation[1];
+            invocationAnswers.put("parameters", (ConfigBeanStubs.Answer) parameters -> invocation[0]);
+            invocationAnswers.put("execute", (ConfigBeanStubs.Answer) executeArgs -> {
+                if (commandLatencyMillis > 0) {
+                    Thread.sleep(commandLatencyMillis);
+                }
+                actionReport.setActionExitCode(ActionReport.ExitCode.SUCCESS);
+                return null;
+            });
+            invocation[0] = ConfigBeanStubs.stub(CommandRunner.CommandInvocation.class, invocationAnswers);
+            return invocation[0];
+        });
+        return ConfigBeanStubs.stub(CommandRunner.class, runnerAnswers);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.benchmarks;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.nodes.NodesScalingGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link ScalingGroups.Duck} lookups against the {@link ScalingGroupsIndex} lookups over a domain with
+ * the given number of Scaling Groups, half of which are {@link NodesScalingGroup Nodes Scaling Groups}. Lookups by
+ * name target the last group, the worst case for a scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingGroupsLookupBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int scalingGroupCount;
+
+    private ScalingGroups scalingGroups;
+    private ScalingGroupsIndex scalingGroupsIndex;
+    private String lastScalingGroupName;
+    private String lastDeploymentGroupRef;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        List<ScalingGroup> scalingGroupList = new ArrayList<>();
+        for (int i = 0; i < scalingGroupCount; i++) {
+            Map<String, Object> answers = new HashMap<>();
+            answers.put("getName", "scaling-group-" + i);
+            answers.put("getDeploymentGroupRef", "deployment-group-" + i);
+            scalingGroupList.add(ConfigBeanStubs.stub(i % 2 == 0 ? NodesScalingGroup.class : ScalingGroup.class,
+                    answers));
+        }
+        lastScalingGroupName = "scaling-group-" + (scalingGroupCount - 1);
+        lastDeploymentGroupRef = "deployment-group-" + (scalingGroupCount - 1);
+
+        List<ScalingGroup> unmodifiableScalingGroupList = Collections.unmodifiableList(scalingGroupList);
+        scalingGroups = ConfigBeanStubs.stub(ScalingGroups.class,
+                Collections.singletonMap("getScalingGroups", unmodifiableScalingGroupList));
+
+        // Normally built by HK2 from the config, which also registers it as a listener of the config beans. The stubs
+        // aren't real config beans, so the index is built directly instead
+        scalingGroupsIndex = new ScalingGroupsIndex();
+        Constructor<?> indexConstructor = Class.forName(ScalingGroupsIndex.class.getName() + "$Index")
+                .getDeclaredConstructor(List.class);
+        indexConstructor.setAccessible(true);
+        Field indexField = ScalingGroupsIndex.class.getDeclaredField("index");
+        indexField.setAccessible(true);
+        indexField.set(scalingGroupsIndex, indexConstructor.newInstance(unmodifiableScalingGroupList));
+    }
+
+    @Benchmark
+    public ScalingGroup getScalingGroup() {
+        return ScalingGroups.Duck.getScalingGroup(scalingGroups, lastScalingGroupName);
+    }
+
+    @Benchmark
+    public List<NodesScalingGroup> getScalingGroupsOfType() {
+        return ScalingGroups.Duck.getScalingGroupsOfType(scalingGroups, NodesScalingGroup.class);
+    }
+
+    @Benchmark
+    public ScalingGroup indexGetScalingGroup() {
+        return scalingGroupsIndex.getScalingGroup(lastScalingGroupName);
+    }
+
+    @Benchmark
+    public ScalingGroup indexGetScalingGroupForDeploymentGroup() {
+        return scalingGroupsIndex.getScalingGroupForDeploymentGroup(lastDeploymentGroupRef);
+    }
+
+    @Benchmark
+    public List<NodesScalingGroup> indexGetScalingGroupsOfType() {
+        return scalingGroupsIndex.getScalingGroupsOfType(NodesScalingGroup.class);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * A standard five field cron expression: minute, hour, day of month, month, and day of week. Each field may be a
+ * wildcard ({@code *}), a value, a range ({@code 1-5}), a step ({@code *}{@code /15} or {@code 0-30/10}), or a comma
+ * separated list of these. Months and days of the week may also be given by their three letter English names, and
+ * Sunday may be given as either 0 or 7.
+ *
+ * As with cron, if both the day of month and day of week are restricted, a day matches if either of them match.
+ */
+public class CronExpression {
+
+    private static final String[] MONTH_NAMES = {"JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP",
+            "OCT", "NOV", "DEC"};
+    private static final String[] DAY_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    // How far ahead to search for the next fire time before deciding that the expression can never fire, e.g. 30 FEB
+    private static final int MAX_YEARS_AHEAD = 5;
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean daysOfMonthRestricted;
+    private final boolean daysOfWeekRestricted;
+
+    private CronExpression(String expression) {
+        this.expression = expression;
+
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression " + expression +
+                    " must have five fields: minute, hour, day of month, month, and day of week");
+        }
+
+        minutes = parseField(fields[0], 0, 59, null, 0);
+        hours = parseField(fields[1], 0, 23, null, 0);
+        daysOfMonth = parseField(fields[2], 1, 31, null, 0);
+        months = parseField(fields[3], 1, 12, MONTH_NAMES, 1);
+        daysOfWeek = parseField(fields[4], 0, 7, DAY_NAMES, 0);
+        // Sunday can be either 0 or 7
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+
+        daysOfMonthRestricted = !fields[2].startsWith("*");
+        daysOfWeekRestricted = !fields[4].startsWith("*");
+    }
+
+    /**
+     * Parses a cron expression.
+     *
+     * @param expression The cron expression
+     * @return The parsed expression
+     * @throws IllegalArgumentException If the expression is not valid
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null) {
+            throw new IllegalArgumentException("Cron expression cannot be null");
+        }
+        return new CronExpression(expression);
+    }
+
+    /**
+     * Gets the first time after the given time at which this expression fires.
+     *
+     * @param after The time to search from, exclusive
+     * @return The next fire time, or null if the expression never fires
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime candidate = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int maxYear = candidate.getYear() + MAX_YEARS_AHEAD;
+
+        while (candidate.getYear() <= maxYear) {
+            if (!months.get(candidate.getMonthValue())) {
+                candidate = candidate.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(candidate)) {
+                candidate = candidate.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(candidate.getHour())) {
+                candidate = candidate.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(candidate.getMinute())) {
+                candidate = candidate.plusMinutes(1);
+            } else {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean matchesDay(ZonedDateTime candidate) {
+        boolean dayOfMonthMatches = daysOfMonth.get(candidate.getDayOfMonth());
+        // DayOfWeek is Monday = 1 to Sunday = 7, cron is Sunday = 0 to Saturday = 6
+        boolean dayOfWeekMatches = daysOfWeek.get(candidate.getDayOfWeek().getValue() % 7);
+
+        if (daysOfMonthRestricted && daysOfWeekRestricted) {
+            return dayOfMonthMatches || dayOfWeekMatches;
+        }
+        return dayOfMonthMatches && dayOfWeekMatches;
+    }
+
+    private BitSet parseField(String field, int min, int max, String[] names, int firstNameValue) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                // A step can't usefully be larger than the field, and capping it keeps the loop below from overflowing
+                step = parseValue(part.substring(slash + 1), 1, max - min + 1, null, 0);
+                part = part.substring(0, slash);
+            }
+
+            int start;
+            int end;
+            if (part.equals("*")) {
+                start = min;
+                end = max;
+            } else {
+                int dash = part.indexOf('-');
+                if (dash >= 0) {
+                    start = parseValue(part.substring(0, dash), min, max, names, firstNameValue);
+                    end = parseValue(part.substring(dash + 1), min, max, names, firstNameValue);
+                    if (end < start) {
+                        throw new IllegalArgumentException("Invalid range " + part + " in cron expression " +
+                                expression);
+                    }
+                } else {
+                    start = parseValue(part, min, max, names, firstNameValue);
+                    // A single value with a step, e.g. 5/15, means from that value to the maximum
+                    end = slash >= 0 ? max : start;
+                }
+            }
+
+            for (int value = start; value <= end; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private int parseValue(String value, int min, int max, String[] names, int firstNameValue) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(value)) {
+                    return i + firstNameValue;
+                }
+            }
+        }
+
+        int parsedValue;
+        try {
+            parsedValue = Integer.parseInt(value);
+        } catch (NumberFormatException numberFormatException) {
+            throw new IllegalArgumentException("Invalid value " + value + " in cron expression " + expression);
+        }
+
+        if (parsedValue < min || parsedValue > max) {
+            throw new IllegalArgumentException("Value " + value + " in cron expression " + expression +
+                    " must be between " + min + " and " + max);
+        }
+        return parsedValue;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.util.Properties;
+
+/**
+ * Online additive Holt-Winters (triple exponential smoothing) forecaster for a single, evenly spaced series of load
+ * samples. The first full season of samples is used to initialise the level and seasonal components, after which each
+ * sample updates the model in constant time without retaining any history.
+ *
+ * The forecaster also measures its own accuracy at the forecast horizon: each forecast made is held until the sample
+ * it predicted arrives, and the error between the two is accumulated.
+ *
+ * The state of the forecaster can be written to and read back from {@link Properties}, so that it can outlive a
+ * restart. Not thread safe.
+ */
+public class HoltWintersForecaster {
+
+    private final double alpha;
+    private final double beta;
+    private final double gamma;
+    private final int seasonLength;
+    private final int horizon;
+
+    private final double[] seasonal;
+    private final double[] pendingForecasts;
+
+    private long samples;
+    private double level;
+    private double trend;
+
+    // The first sample which a forecast has been made for, and so can be scored
+    private long scoredFrom;
+
+    private long errorSamples;
+    private double absoluteErrorSum;
+    private double squaredErrorSum;
+    private double absolutePercentageErrorSum;
+    private long percentageErrorSamples;
+
+    /**
+     * @param alpha The smoothing factor of the level, between 0 and 1
+     * @param beta The smoothing factor of the trend, between 0 and 1
+     * @param gamma The smoothing factor of the seasonal component, between 0 and 1
+     * @param seasonLength The number of samples in a season
+     * @param horizon The number of samples ahead to forecast
+     */
+    public HoltWintersForecaster(double alpha, double beta, double gamma, int seasonLength, int horizon) {
+        if (seasonLength < 2) {
+            throw new IllegalArgumentException("Season length must be at least 2 samples");
+        }
+        if (horizon < 1) {
+            throw new IllegalArgumentException("Forecast horizon must be at least 1 sample");
+        }
+
+        this.alpha = alpha;
+        this.beta = beta;
+        this.gamma = gamma;
+        this.seasonLength = seasonLength;
+        this.horizon = horizon;
+        this.seasonal = new double[seasonLength];
+        this.pendingForecasts = new double[horizon];
+        this.scoredFrom = (long) seasonLength + horizon;
+    }
+
+    /**
+     * Adds the next sample of the series, updating the model.
+     *
+     * @param value The sample
+     */
+    public void update(double value) {
+        int seasonIndex = (int) (samples % seasonLength);
+
+        if (samples < seasonLength) {
+            // Still collecting the first season, hold the raw values in the seasonal array until it's full
+            seasonal[seasonIndex] = value;
+            samples++;
+            if (samples == seasonLength) {
+                initialise();
+            }
+            return;
+        }
+
+        // Score the forecast which was made for this sample, if there is one
+        int pendingIndex = (int) (samples % horizon);
+        if (samples >= scoredFrom) {
+            recordError(pendingForecasts[pendingIndex], value);
+        }
+
+        double previousLevel = level;
+        level = alpha * (value - seasonal[seasonIndex]) + (1 - alpha) * (level + trend);
+        trend = beta * (level - previousLevel) + (1 - beta) * trend;
+        seasonal[seasonIndex] = gamma * (value - level) + (1 - gamma) * seasonal[seasonIndex];
+        samples++;
+
+        pendingForecasts[pendingIndex] = forecast();
+    }
+
+    /**
+     * Advances the series past samples which were missed, for example while the DAS was down, so that the seasonal
+     * component stays in step with the clock. The level and trend are left as they were, and the forecasts made before
+     * the gap aren't scored. If the first season hasn't been collected yet, it's started again.
+     *
+     * @param count The number of samples missed
+     */
+    public void skip(long count) {
+        if (count < 1) {
+            return;
+        }
+
+        if (!isReady()) {
+            samples = 0;
+            return;
+        }
+
+        samples += count;
+        scoredFrom = samples + horizon;
+    }
+
+    private void initialise() {
+        double sum = 0;
+        for (double value : seasonal) {
+            sum += value;
+        }
+        level = sum / seasonLength;
+        trend = 0;
+        for (int i = 0; i < seasonLength; i++) {
+            seasonal[i] -= level;
+        }
+    }
+
+    private void recordError(double forecast, double actual) {
+        double error = actual - forecast;
+        errorSamples++;
+        absoluteErrorSum += Math.abs(error);
+        squaredErrorSum += error * error;
+        if (actual != 0) {
+            absolutePercentageErrorSum += Math.abs(error / actual);
+            percentageErrorSamples++;
+        }
+    }
+
+    /**
+     * @return true once a full season of samples has been collected and forecasts can be made
+     */
+    public boolean isReady() {
+        return samples >= seasonLength;
+    }
+
+    /**
+     * @return The forecast of the sample the horizon ahead of the latest sample, or {@link Double#NaN} if the
+     *         forecaster isn't ready
+     */
+    public double forecast() {
+        if (!isReady()) {
+            return Double.NaN;
+        }
+        // The latest sample has index samples - 1, so the forecast is for index samples - 1 + horizon
+        return level + horizon * trend + seasonal[(int) ((samples - 1 + horizon) % seasonLength)];
+    }
+
+    /**
+     * Writes the state of the forecaster to the given properties, each key starting with the given prefix.
+     *
+     * @param properties The properties to write to
+     * @param prefix The prefix of the keys
+     */
+    public void writeTo(Properties properties, String prefix) {
+        properties.setProperty(prefix + "seasonLength", String.valueOf(seasonLength));
+        properties.setProperty(prefix + "horizon", String.valueOf(horizon));
+        properties.setProperty(prefix + "samples", String.valueOf(samples));
+        properties.setProperty(prefix + "level", String.valueOf(level));
+        properties.setProperty(prefix + "trend", String.valueOf(trend));
+        properties.setProperty(prefix + "scoredFrom", String.valueOf(scoredFrom));
+        properties.setProperty(prefix + "seasonal", join(seasonal));
+        properties.setProperty(prefix + "pendingForecasts", join(pendingForecasts));
+        properties.setProperty(prefix + "errorSamples", String.valueOf(errorSamples));
+        properties.setProperty(prefix + "absoluteErrorSum", String.valueOf(absoluteErrorSum));
+        properties.setProperty(prefix + "squaredErrorSum", String.valueOf(squaredErrorSum));
+        properties.setProperty(prefix + "absolutePercentageErrorSum", String.valueOf(absolutePercentageErrorSum));
+        properties.setProperty(prefix + "percentageErrorSamples", String.valueOf(percentageErrorSamples));
+    }
+
+    /**
+     * Reads back a forecaster written by {@link #writeTo(Properties, String)}.
+     *
+     * @param properties The properties to read from
+     * @param prefix The prefix of the keys
+     * @param alpha The smoothing factor of the level, between 0 and 1
+     * @param beta The smoothing factor of the trend, between 0 and 1
+     * @param gamma The smoothing factor of the seasonal component, between 0 and 1
+     * @return The forecaster
+     * @throws IllegalArgumentException If the properties don't hold a valid forecaster
+     */
+    public static HoltWintersForecaster readFrom(Properties properties, String prefix, double alpha, double beta,
+            double gamma) {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(alpha, beta, gamma,
+                Integer.parseInt(getProperty(properties, prefix + "seasonLength")),
+                Integer.parseInt(getProperty(properties, prefix + "horizon")));
+        forecaster.samples = Long.parseLong(getProperty(properties, prefix + "samples"));
+        forecaster.level = Double.parseDouble(getProperty(properties, prefix + "level"));
+        forecaster.trend = Double.parseDouble(getProperty(properties, prefix + "trend"));
+        forecaster.scoredFrom = Long.parseLong(getProperty(properties, prefix + "scoredFrom"));
+        split(getProperty(properties, prefix + "seasonal"), forecaster.seasonal);
+        split(getProperty(properties, prefix + "pendingForecasts"), forecaster.pendingForecasts);
+        forecaster.errorSamples = Long.parseLong(getProperty(properties, prefix + "errorSamples"));
+        forecaster.absoluteErrorSum = Double.parseDouble(getProperty(properties, prefix + "absoluteErrorSum"));
+        forecaster.squaredErrorSum = Double.parseDouble(getProperty(properties, prefix + "squaredErrorSum"));
+        forecaster.absolutePercentageErrorSum = Double.parseDouble(
+                getProperty(properties, prefix + "absolutePercentageErrorSum"));
+        forecaster.percentageErrorSamples = Long.parseLong(getProperty(properties,
+                prefix + "percentageErrorSamples"));
+
+        if (forecaster.samples < 0) {
+            throw new IllegalArgumentException("Invalid number of samples: " + forecaster.samples);
+        }
+        return forecaster;
+    }
+
+    private static String getProperty(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing forecaster property " + key);
+        }
+        return value;
+    }
+
+    private static String join(double[] values) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                joined.append(',');
+            }
+            joined.append(values[i]);
+        }
+        return joined.toString();
+    }
+
+    private static void split(String joined, double[] values) {
+        String[] parts = joined.split(",");
+        if (parts.length != values.length) {
+            throw new IllegalArgumentException("Expected " + values.length + " values but found " + parts.length);
+        }
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i]);
+        }
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public int getSeasonLength() {
+        return seasonLength;
+    }
+
+    public int getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * @return The current level of the series, or {@link Double#NaN} if the forecaster isn't ready
+     */
+    public double getLevel() {
+        return isReady() ? level : Double.NaN;
+    }
+
+    /**
+     * @return The current trend of the series per sample, or {@link Double#NaN} if the forecaster isn't ready
+     */
+    public double getTrend() {
+        return isReady() ? trend : Double.NaN;
+    }
+
+    /**
+     * @return The number of forecasts which have been scored against the sample they predicted
+     */
+    public long getErrorSamples() {
+        return errorSamples;
+    }
+
+    /**
+     * @return The mean absolute error of the scored forecasts, or {@link Double#NaN} if none have been scored
+     */
+    public double getMeanAbsoluteError() {
+        return errorSamples == 0 ? Double.NaN : absoluteErrorSum / errorSamples;
+    }
+
+    /**
+     * @return The root mean squared error of the scored forecasts, or {@link Double#NaN} if none have been scored
+     */
+    public double getRootMeanSquaredError() {
+        return errorSamples == 0 ? Double.NaN : Math.sqrt(squaredErrorSum / errorSamples);
+    }
+
+    /**
+     * @return The mean absolute percentage error of the scored forecasts, or {@link Double#NaN} if none have been
+     *         scored against a non-zero sample
+     */
+    public double getMeanAbsolutePercentageError() {
+        return percentageErrorSamples == 0 ? Double.NaN :
+                100 * absolutePercentageErrorSum / percentageErrorSamples;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+/**
+ * Snapshot of how busy a single instance is, as collected by the {@link InstanceLoadProbe}. Each figure is -1 if it
+ * couldn't be collected, for example because monitoring isn't enabled on the instance or it didn't respond.
+ */
+public class InstanceLoad {
+
+    private final String instanceName;
+    private final long activeRequests;
+    private final long activeSessions;
+    private final long busyThreads;
+    private final long maxThreads;
+
+    public InstanceLoad(String instanceName, long activeRequests, long activeSessions, long busyThreads,
+            long maxThreads) {
+        this.instanceName = instanceName;
+        this.activeRequests = activeRequests;
+        this.activeSessions = activeSessions;
+        this.busyThreads = busyThreads;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param instanceName The name of the instance
+     * @return An InstanceLoad for an instance whose load couldn't be collected
+     */
+    public static InstanceLoad unknown(String instanceName) {
+        return new InstanceLoad(instanceName, -1, -1, -1, -1);
+    }
+
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    public long getActiveRequests() {
+        return activeRequests;
+    }
+
+    public long getActiveSessions() {
+        return activeSessions;
+    }
+
+    public long getBusyThreads() {
+        return busyThreads;
+    }
+
+    public long getMaxThreads() {
+        return maxThreads;
+    }
+
+    /**
+     * @return The percentage of the request processing threads of the instance which are busy, or {@link Double#NaN}
+     *         if it couldn't be determined
+     */
+    public double getUtilisation() {
+        if (busyThreads < 0 || maxThreads < 1) {
+            return Double.NaN;
+        }
+        return Math.min(100, 100.0 * busyThreads / maxThreads);
+    }
+
+    /**
+     * @return true if none of the figures could be collected
+     */
+    public boolean isUnknown() {
+        return activeRequests < 0 && activeSessions < 0 && busyThreads < 0;
+    }
+
+    /**
+     * Combines the figures into a single score for comparing instances, ignoring any which couldn't be collected.
+     * Since active sessions are the most disruptive to lose, they count double.
+     *
+     * @return The load score of the instance, or -1 if the load is unknown
+     */
+    public long getScore() {
+        if (isUnknown()) {
+            return -1;
+        }
+        return Math.max(0, activeRequests) + 2 * Math.max(0, activeSessions) + Math.max(0, busyThreads);
+    }
+
+    @Override
+    public String toString() {
+        return instanceName + "[activeRequests=" + activeRequests + ", activeSessions=" + activeSessions +
+                ", busyThreads=" + busyThreads + ", maxThreads=" + maxThreads + "]";
+    }
+}
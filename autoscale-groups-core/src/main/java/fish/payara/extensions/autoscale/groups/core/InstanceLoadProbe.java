@@ -0,0 +1,251 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.admin.CommandRunner;
+import org.glassfish.api.admin.ParameterMap;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.glassfish.internal.api.InternalSystemAdministrator;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service which collects the live load of instances from their monitoring data using the {@code get --monitor}
+ * command, fetching every statistic of an instance with a single command.
+ *
+ * Instances are probed in parallel on a small pool of their own rather than on the {@link ScalingExecutorService}, so
+ * that a full fan-out pool can't make the thread asking for the load, such as the metrics collector, run the probes
+ * itself. The number of instances probed at once is configurable using the {@value #THREADS_PROP} system property;
+ * any further probes wait for a thread.
+ *
+ * Monitoring of the HTTP service, web container and thread pools needs to be enabled on the instances for their load
+ * to be known. The time to wait for all instances to respond is configurable using the {@value #TIMEOUT_PROP} system
+ * property, in milliseconds.
+ */
+@Service
+@Singleton
+public class InstanceLoadProbe implements PostConstruct, PreDestroy {
+
+    public static final String TIMEOUT_PROP = "fish.payara.autoscale.loadprobe.timeout";
+    public static final int TIMEOUT_DEFAULT = 10000;
+    public static final String THREADS_PROP = "fish.payara.autoscale.loadprobe.threads";
+    public static final int THREADS_DEFAULT = 4;
+
+    // Monitoring dotted names, relative to the instance, in the order InstanceLoad takes them. Wildcards cover every
+    // listener
+    private static final String[] PATTERNS = {
+            ".http-service.*.request.countopenconnections-count",
+            ".web.session.activesessionscurrent-current",
+            ".network.*.thread-pool.currentthreadsbusy-count",
+            ".network.*.thread-pool.maxthreads-count"
+    };
+
+    private static final Logger LOGGER = Logger.getLogger(InstanceLoadProbe.class.getName());
+
+    @Inject
+    private CommandRunner commandRunner;
+
+    @Inject
+    private InternalSystemAdministrator internalSystemAdministrator;
+
+    private ThreadPoolExecutor threadPoolExecutor;
+
+    @Override
+    public void postConstruct() {
+        int threads = Integer.getInteger(THREADS_PROP, THREADS_DEFAULT);
+        if (threads < 1) {
+            LOGGER.warning(THREADS_PROP + " property evaluated to less than 1, defaulting to " + THREADS_DEFAULT);
+            threads = THREADS_DEFAULT;
+        }
+
+        // Probes which are still queued when their caller gives up are cancelled, so the queue drains by itself
+        AtomicInteger threadCounter = new AtomicInteger();
+        threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "autoscale-groups-load-probe-" +
+                            threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void preDestroy() {
+        threadPoolExecutor.shutdownNow();
+    }
+
+    /**
+     * Collects the load of each of the given instances in parallel. Instances which don't respond in time, or which
+     * fail to report their monitoring data, have an {@link InstanceLoad#unknown(String) unknown} load.
+     *
+     * @param instanceNames The names of the instances to probe
+     * @return A Map of instance name to its load, containing every requested instance
+     */
+    public Map<String, InstanceLoad> getLoad(List<String> instanceNames) {
+        List<Future<InstanceLoad>> probes = new ArrayList<>(instanceNames.size());
+        for (String instanceName : instanceNames) {
+            probes.add(threadPoolExecutor.submit(() -> probe(instanceName)));
+        }
+
+        int timeout = Integer.getInteger(TIMEOUT_PROP, TIMEOUT_DEFAULT);
+        if (timeout < 1) {
+            LOGGER.warning(TIMEOUT_PROP + " property evaluated to less than 1, defaulting to " + TIMEOUT_DEFAULT);
+            timeout = TIMEOUT_DEFAULT;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        // Sized so that it never needs to be resized
+        Map<String, InstanceLoad> instanceLoads = new HashMap<>(instanceNames.size() * 4 / 3 + 1);
+        for (int i = 0; i < instanceNames.size(); i++) {
+            String instanceName = instanceNames.get(i);
+            Future<InstanceLoad> probe = probes.get(i);
+            InstanceLoad instanceLoad;
+            try {
+                instanceLoad = probe.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException interruptedException) {
+                probes.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                instanceLoad = InstanceLoad.unknown(instanceName);
+            } catch (ExecutionException | TimeoutException exception) {
+                probe.cancel(true);
+                LOGGER.log(Level.FINE, "Could not collect the load of instance " + instanceName, exception);
+                instanceLoad = InstanceLoad.unknown(instanceName);
+            }
+            instanceLoads.put(instanceName, instanceLoad);
+        }
+
+        return instanceLoads;
+    }
+
+    private InstanceLoad probe(String instanceName) {
+        long[] values = sumValues(getMonitoringValues(instanceName));
+        InstanceLoad instanceLoad = new InstanceLoad(instanceName, values[0], values[1], values[2], values[3]);
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Collected load " + instanceLoad);
+        }
+        return instanceLoad;
+    }
+
+    /**
+     * Runs {@code get --monitor} for every pattern of the given instance at once.
+     *
+     * @param instanceName The name of the instance
+     * @return The output of the command, or null if it failed without any output
+     */
+    private String getMonitoringValues(String instanceName) {
+        ActionReport actionReport = commandRunner.getActionReport("plain");
+        ParameterMap parameterMap = new ParameterMap();
+        parameterMap.add("monitor", "true");
+        // Primary parameter is called DEFAULT, regardless of its actual name
+        for (String pattern : PATTERNS) {
+            parameterMap.add("DEFAULT", instanceName + pattern);
+        }
+
+        CommandRunner.CommandInvocation commandInvocation = commandRunner.getCommandInvocation(
+                "get", actionReport, internalSystemAdministrator.getSubject());
+        commandInvocation.parameters(parameterMap);
+        commandInvocation.execute();
+
+        // A pattern which matches nothing, such as when one kind of monitoring is disabled, fails the command but
+        // leaves the values of the other patterns in the output
+        return actionReport.getMessage();
+    }
+
+    /**
+     * Sums the values of each {@code name = value} line of the output of {@code get --monitor}, separately for each
+     * pattern. Each line is matched to a pattern by the name of its statistic.
+     *
+     * @param output The output of the command, may be null
+     * @return The sum of the matching values of each pattern, in the order of {@link #PATTERNS}, or -1 for those
+     * without any
+     */
+    static long[] sumValues(String output) {
+        long[] sums = new long[PATTERNS.length];
+        Arrays.fill(sums, -1);
+        if (output == null) {
+            return sums;
+        }
+
+        for (String line : output.split("\n")) {
+            int separator = line.lastIndexOf('=');
+            if (separator < 0) {
+                continue;
+            }
+
+            String name = line.substring(0, separator).trim();
+            for (int i = 0; i < PATTERNS.length; i++) {
+                // The statistic is the last part of the dotted name, after any wildcards
+                if (!name.endsWith(PATTERNS[i].substring(PATTERNS[i].lastIndexOf('.')))) {
+                    continue;
+                }
+
+                try {
+                    sums[i] = Math.max(0, sums[i]) + Long.parseLong(line.substring(separator + 1).trim());
+                } catch (NumberFormatException numberFormatException) {
+                    // Not a count, ignore it
+                }
+                break;
+            }
+        }
+        return sums;
+    }
+}
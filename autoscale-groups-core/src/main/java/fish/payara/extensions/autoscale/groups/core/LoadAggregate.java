@@ -0,0 +1,111 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+/**
+ * Rolling aggregate of a single {@link LoadRingBuffer.Metric} over a window of samples, as returned by
+ * {@link LoadRingBuffer#aggregate(LoadRingBuffer.Metric, long)}. All values are {@link Double#NaN} if there were no
+ * samples in the window.
+ */
+public class LoadAggregate {
+
+    private final LoadRingBuffer.Metric metric;
+    private final int count;
+    private final double mean;
+    private final double min;
+    private final double max;
+    private final double last;
+    private final long lastTimestamp;
+
+    public LoadAggregate(LoadRingBuffer.Metric metric, int count, double mean, double min, double max, double last,
+            long lastTimestamp) {
+        this.metric = metric;
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+        this.last = last;
+        this.lastTimestamp = lastTimestamp;
+    }
+
+    public LoadRingBuffer.Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return The number of samples aggregated
+     */
+    public int getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return The value of the newest sample in the window
+     */
+    public double getLast() {
+        return last;
+    }
+
+    /**
+     * @return The time the newest sample in the window was taken, in milliseconds since the epoch, or 0 if there were
+     *         no samples
+     */
+    public long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    public String toString() {
+        return metric + "[count=" + count + ", mean=" + mean + ", min=" + min + ", max=" + max + ", last=" + last + "]";
+    }
+}
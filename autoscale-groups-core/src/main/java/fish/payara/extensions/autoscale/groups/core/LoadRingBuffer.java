@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed capacity ring buffer of load samples for a single {@link fish.payara.extensions.autoscale.groups.ScalingGroup
+ * Scaling Group}. Samples are held in preallocated primitive arrays, one per {@link Metric}, so adding a sample
+ * allocates nothing; once full, the oldest sample is overwritten. Values which couldn't be collected are held as
+ * {@link Double#NaN} and are left out of aggregates.
+ */
+public class LoadRingBuffer {
+
+    public enum Metric {
+        /**
+         * The average percentage of busy request processing threads across the instances of the group.
+         */
+        UTILISATION,
+        /**
+         * The total open HTTP connections across the instances of the group.
+         */
+        ACTIVE_REQUESTS,
+        /**
+         * The total active sessions across the instances of the group.
+         */
+        ACTIVE_SESSIONS,
+        /**
+         * The total busy request processing threads across the instances of the group.
+         */
+        BUSY_THREADS,
+        /**
+         * The number of instances in the group.
+         */
+        INSTANCES
+    }
+
+    private final long[] timestamps;
+    private final double[][] values;
+    private int next;
+    private int size;
+
+    /**
+     * @param capacity The maximum number of samples to hold
+     */
+    public LoadRingBuffer(int capacity) {
+        timestamps = new long[capacity];
+        values = new double[Metric.values().length][capacity];
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest sample if the buffer is full.
+     *
+     * @param timestamp The time the sample was taken, in milliseconds since the epoch
+     * @param utilisation The value of {@link Metric#UTILISATION}
+     * @param activeRequests The value of {@link Metric#ACTIVE_REQUESTS}
+     * @param activeSessions The value of {@link Metric#ACTIVE_SESSIONS}
+     * @param busyThreads The value of {@link Metric#BUSY_THREADS}
+     * @param instances The value of {@link Metric#INSTANCES}
+     */
+    public synchronized void add(long timestamp, double utilisation, double activeRequests, double activeSessions,
+            double busyThreads, double instances) {
+        timestamps[next] = timestamp;
+        values[Metric.UTILISATION.ordinal()][next] = utilisation;
+        values[Metric.ACTIVE_REQUESTS.ordinal()][next] = activeRequests;
+        values[Metric.ACTIVE_SESSIONS.ordinal()][next] = activeSessions;
+        values[Metric.BUSY_THREADS.ordinal()][next] = busyThreads;
+        values[Metric.INSTANCES.ordinal()][next] = instances;
+
+        next = (next + 1) % timestamps.length;
+        if (size < timestamps.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Aggregates the samples of a metric taken within the given window, walking back from the newest sample.
+     *
+     * @param metric The metric to aggregate
+     * @param since The time from which to include samples, in milliseconds since the epoch
+     * @return The aggregate of the samples, which has a count of 0 if there were none
+     */
+    public synchronized LoadAggregate aggregate(Metric metric, long since) {
+        double[] metricValues = values[metric.ordinal()];
+        int count = 0;
+        double sum = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        double last = Double.NaN;
+        long lastTimestamp = 0;
+
+        for (int i = 0; i < size; i++) {
+            int index = (next - 1 - i + timestamps.length) % timestamps.length;
+            if (timestamps[index] < since) {
+                break;
+            }
+
+            double value = metricValues[index];
+            if (Double.isNaN(value)) {
+                continue;
+            }
+
+            if (count == 0) {
+                last = value;
+                lastTimestamp = timestamps[index];
+                min = value;
+                max = value;
+            } else {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            sum += value;
+            count++;
+        }
+
+        return new LoadAggregate(metric, count, count == 0 ? Double.NaN : sum / count, min, max, last, lastTimestamp);
+    }
+
+    /**
+     * Gets the mean of the samples of a metric taken within the given window, without allocating an aggregate.
+     *
+     * @param metric The metric to average
+     * @param since The time from which to include samples, in milliseconds since the epoch
+     * @return The mean of the samples, or {@link Double#NaN} if there were none
+     */
+    public synchronized double mean(Metric metric, long since) {
+        double[] metricValues = values[metric.ordinal()];
+        int count = 0;
+        double sum = 0;
+
+        for (int i = 0; i < size; i++) {
+            int index = (next - 1 - i + timestamps.length) % timestamps.length;
+            if (timestamps[index] < since) {
+                break;
+            }
+
+            double value = metricValues[index];
+            if (!Double.isNaN(value)) {
+                sum += value;
+                count++;
+            }
+        }
+
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    /**
+     * @return The number of samples held
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum number of samples which can be held
+     */
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public synchronized void clear() {
+        Arrays.fill(timestamps, 0);
+        next = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import com.sun.enterprise.util.StringUtils;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalerRegistry;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.ScalingMetricProvider;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.StartupRunLevel;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.runlevel.RunLevel;
+import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.ConfigSupport;
+import org.jvnet.hk2.config.TransactionFailure;
+
+import javax.inject.Inject;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_DEFAULT;
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_PROP;
+
+/**
+ * DAS service which periodically evaluates every {@link ScalingGroup Scaling Group} with automatic scaling enabled,
+ * reconciling the number of instances in its {@link DeploymentGroup Deployment Group} to the desired number of
+ * instances using the {@link Scaler} configured for the group.
+ *
+ * The desired number of instances is taken from the {@link ScalingGroup Scaling Group} config, and is adjusted (and
+ * persisted) whenever the load reported by a {@link ScalingMetricProvider} breaches the scale up or scale down threshold
+ * of the group. The desired number of instances is always kept within the minimum and maximum bounds of the group.
+ *
+ * Each load sample is also recorded with the {@link ScalingForecastService}. For groups with predictive scaling
+ * enabled, the desired number of instances is raised to what the forecast demand needs, so that instances
+ * are started ahead of a rise in load rather than after it.
+ *
+ * Scale operations are run in the background, so that a long running operation against one group doesn't hold up the
+ * evaluation of the others. A group which is still being scaled is not scaled again until its operation has finished.
+ */
+@Service(name = "scaling-controller")
+@RunLevel(value = StartupRunLevel.VAL, mode = RunLevel.RUNLEVEL_MODE_NON_VALIDATING)
+public class ScalingController implements PostConstruct, PreDestroy {
+
+    public static final String CONTROLLER_INTERVAL_PROP = "fish.payara.autoscale.controller.interval";
+    public static final int CONTROLLER_INTERVAL_DEFAULT = 30;
+
+    private static final Logger LOGGER = Logger.getLogger(ScalingController.class.getName());
+
+    @Inject
+    private ServiceLocator serviceLocator;
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    @Inject
+    private ScalingOperationService scalingOperationService;
+
+    @Inject
+    private ScalerRegistry scalerRegistry;
+
+    @Inject
+    private ScalingForecastService scalingForecastService;
+
+    private ScheduledExecutorService scheduledExecutorService;
+    private int interval;
+
+    @Override
+    public void postConstruct() {
+        // Scaling is driven exclusively from the DAS
+        if (!serverEnvironment.isDas()) {
+            return;
+        }
+
+        interval = Integer.getInteger(CONTROLLER_INTERVAL_PROP, CONTROLLER_INTERVAL_DEFAULT);
+        if (interval < 1) {
+            LOGGER.warning(CONTROLLER_INTERVAL_PROP + " property evaluated to less than 1, defaulting to " +
+                    CONTROLLER_INTERVAL_DEFAULT);
+            interval = CONTROLLER_INTERVAL_DEFAULT;
+        }
+
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autoscale-groups-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Use a fixed delay rather than a fixed rate so that a long running scale operation doesn't cause a backlog
+        scheduledExecutorService.scheduleWithFixedDelay(this::evaluateScalingGroups, interval, interval,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void preDestroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Evaluates each {@link ScalingGroup Scaling Group} which has automatic scaling enabled. Any exceptions are caught
+     * and logged so as to not cancel future executions of the controller.
+     */
+    void evaluateScalingGroups() {
+        try {
+            ScalingGroups scalingGroups = serviceLocator.getService(ScalingGroups.class);
+            if (scalingGroups == null) {
+                return;
+            }
+
+            for (ScalingGroup scalingGroup : scalingGroups.getScalingGroups()) {
+                if (!Boolean.parseBoolean(scalingGroup.getAutoScalingEnabled())) {
+                    continue;
+                }
+
+                try {
+                    evaluateScalingGroup(scalingGroup);
+                } catch (Exception exception) {
+                    LOGGER.log(Level.WARNING, "Encountered an error evaluating Scaling Group " +
+                            scalingGroup.getName(), exception);
+                }
+            }
+        } catch (Exception exception) {
+            LOGGER.log(Level.WARNING, "Encountered an error evaluating Scaling Groups", exception);
+        }
+    }
+
+    /**
+     * Determines the desired number of instances for the given {@link ScalingGroup Scaling Group} and scales its
+     * {@link DeploymentGroup Deployment Group} up or down to match.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to evaluate
+     */
+    private void evaluateScalingGroup(ScalingGroup scalingGroup) {
+        DeploymentGroups deploymentGroups = serviceLocator.getService(DeploymentGroups.class);
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+        if (deploymentGroup == null) {
+            LOGGER.warning("Scaling Group " + scalingGroup.getName() + " references Deployment Group " +
+                    scalingGroup.getDeploymentGroupRef() + " which does not appear to exist, skipping");
+            return;
+        }
+
+        int currentInstances = deploymentGroup.getInstances().size();
+        Integer configuredDesiredInstances = StringUtils.ok(scalingGroup.getDesiredInstances()) ?
+                Integer.valueOf(scalingGroup.getDesiredInstances()) : null;
+
+        int desiredInstances = determineDesiredInstances(scalingGroup, currentInstances,
+                configuredDesiredInstances != null ? configuredDesiredInstances : currentInstances);
+
+        if (configuredDesiredInstances == null || desiredInstances != configuredDesiredInstances) {
+            persistDesiredInstances(scalingGroup, desiredInstances);
+        }
+
+        if (desiredInstances == currentInstances) {
+            return;
+        }
+
+        Scaler scaler = scalerRegistry.getScaler(scalingGroup);
+        if (scaler == null) {
+            LOGGER.warning("Could not find a Scaler for Scaling Group " + scalingGroup.getName() + ", skipping");
+            return;
+        }
+
+        // Let the operation in flight finish before acting on the new desired instances
+        if (scalingOperationService.isScaling(scalingGroup.getName())) {
+            LOGGER.fine("Scaling Group " + scalingGroup.getName() + " is still being scaled, skipping");
+            return;
+        }
+
+        // Don't attempt to scale by more than a single scale operation allows, any remainder is picked up next tick
+        int maxScale = Integer.getInteger(AUTOSCALE_MAXSCALE_PROP, AUTOSCALE_MAXSCALE_DEFAULT);
+        if (maxScale < 1) {
+            maxScale = AUTOSCALE_MAXSCALE_DEFAULT;
+        }
+
+        ScalingOperation scalingOperation;
+        if (desiredInstances > currentInstances) {
+            int quantity = Math.min(desiredInstances - currentInstances, maxScale);
+            LOGGER.info("Scaling up Scaling Group " + scalingGroup.getName() + " by " + quantity + " instance(s)");
+            scalingOperation = scalingOperationService.executeAsync(ScalingOperation.Type.SCALE_UP, quantity,
+                    scalingGroup, scaler);
+        } else {
+            int quantity = Math.min(currentInstances - desiredInstances, maxScale);
+            LOGGER.info("Scaling down Scaling Group " + scalingGroup.getName() + " by " + quantity + " instance(s)");
+            scalingOperation = scalingOperationService.executeAsync(ScalingOperation.Type.SCALE_DOWN, quantity,
+                    scalingGroup, scaler);
+        }
+
+        // Desired instances has already been persisted, so a rejected operation is retried once the cooldown expires
+        scalingOperation.whenFinished().thenAccept(finishedOperation -> {
+            if (finishedOperation.getState() == ScalingOperation.State.REJECTED) {
+                return;
+            }
+
+            ActionReport actionReport = finishedOperation.getActionReport();
+            if (actionReport.hasFailures()) {
+                LOGGER.warning("Encountered failures scaling Scaling Group " + scalingGroup.getName() + ": " +
+                        actionReport.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Determines the number of instances the {@link ScalingGroup Scaling Group} should have, adjusting the desired
+     * number of instances if the load of the group is outside of its thresholds.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to evaluate
+     * @param currentInstances The number of instances currently in the Deployment Group
+     * @param desiredInstances The currently desired number of instances
+     * @return The number of instances the group should be scaled to
+     */
+    private int determineDesiredInstances(ScalingGroup scalingGroup, int currentInstances, int desiredInstances) {
+        double load = getLoad(scalingGroup);
+        if (!Double.isNaN(load)) {
+            scalingForecastService.record(scalingGroup, load, currentInstances, interval);
+        }
+
+        int predictedInstances = 0;
+        if (Boolean.parseBoolean(scalingGroup.getPredictiveScalingEnabled())) {
+            predictedInstances = scalingForecastService.getPredictedInstances(scalingGroup);
+            LOGGER.fine("Forecast demand on Scaling Group " + scalingGroup.getName() + " needs " +
+                    predictedInstances + " instance(s)");
+        }
+
+        return determineDesiredInstances(currentInstances, desiredInstances, load,
+                Integer.parseInt(scalingGroup.getScaleUpThreshold()),
+                Integer.parseInt(scalingGroup.getScaleDownThreshold()), predictedInstances,
+                Integer.parseInt(scalingGroup.getMinInstances()), Integer.parseInt(scalingGroup.getMaxInstances()));
+    }
+
+    /**
+     * Adjusts the desired number of instances by one instance if the load is outside of the thresholds, raises it to
+     * the number of instances the forecast demand needs, and keeps it within the minimum and maximum instances.
+     *
+     * @param currentInstances The number of instances currently in the Deployment Group
+     * @param desiredInstances The currently desired number of instances
+     * @param load The load of the group as a percentage, or {@link Double#NaN} if no load data is available
+     * @param scaleUpThreshold The load above which to scale up
+     * @param scaleDownThreshold The load below which to scale down
+     * @param predictedInstances The number of instances the forecast demand needs, or 0 if there's no forecast
+     * @param minInstances The minimum number of instances
+     * @param maxInstances The maximum number of instances
+     * @return The number of instances the group should be scaled to
+     */
+    static int determineDesiredInstances(int currentInstances, int desiredInstances, double load,
+            int scaleUpThreshold, int scaleDownThreshold, int predictedInstances, int minInstances, int maxInstances) {
+        if (load > scaleUpThreshold) {
+            desiredInstances = Math.max(desiredInstances, currentInstances + 1);
+        } else if (load < scaleDownThreshold) {
+            desiredInstances = Math.min(desiredInstances, currentInstances - 1);
+        }
+
+        desiredInstances = Math.max(desiredInstances, predictedInstances);
+        return Math.max(minInstances, Math.min(maxInstances, desiredInstances));
+    }
+
+    /**
+     * Gets the load of the {@link ScalingGroup Scaling Group} from the first {@link ScalingMetricProvider} which has
+     * load data available for it.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to get the load of
+     * @return The load as a percentage, or {@link Double#NaN} if no load data is available
+     */
+    private double getLoad(ScalingGroup scalingGroup) {
+        for (ScalingMetricProvider scalingMetricProvider : serviceLocator.getAllServices(ScalingMetricProvider.class)) {
+            double load = scalingMetricProvider.getLoad(scalingGroup);
+            if (!Double.isNaN(load)) {
+                return load;
+            }
+        }
+
+        return Double.NaN;
+    }
+
+    private void persistDesiredInstances(ScalingGroup scalingGroup, int desiredInstances) {
+        try {
+            ConfigSupport.apply(scalingGroupProxy -> {
+                scalingGroupProxy.setDesiredInstances(String.valueOf(desiredInstances));
+                return scalingGroupProxy;
+            }, scalingGroup);
+        } catch (TransactionFailure transactionFailure) {
+            LOGGER.log(Level.WARNING, "Could not update desired instances of Scaling Group " +
+                    scalingGroup.getName(), transactionFailure);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service which enforces the scale up and scale down cooldowns of each {@link ScalingGroup Scaling Group}, so that
+ * repeated requests to scale a group don't make it flap.
+ *
+ * Each group is either idle or cooling down after a scale up or scale down, and only an idle group may be scaled. The
+ * {@link ScalingOperationService} already runs one operation per group at a time, so this service only needs to track
+ * when each group was last scaled. Requests to scale a group which is cooling down are rejected. The desired number
+ * of instances of the group has already been updated by the command which made the request though, so if
+ * auto-scaling is enabled for the group the {@link ScalingController} scales it once the cooldown has passed.
+ *
+ * For load driven scaling, the hysteresis band of a group keeps its scale down threshold far enough below its scale up
+ * threshold that one scale doesn't immediately trigger the other. For requests, the scale down cooldown is counted from
+ * the last scale operation in either direction, so a group which has just scaled up isn't scaled straight back down.
+ *
+ * The time each group was last scaled is persisted to the {@value #STATE_FILE_NAME} file in the config directory of the
+ * domain, so that cooldowns survive a restart of the DAS.
+ */
+@Service
+@Singleton
+public class ScalingCooldownService {
+
+    public static final String STATE_FILE_NAME = "autoscale-groups-cooldowns.properties";
+
+    private static final String LAST_SCALE_UP_SUFFIX = ".lastScaleUp";
+    private static final String LAST_SCALE_DOWN_SUFFIX = ".lastScaleDown";
+    private static final Logger LOGGER = Logger.getLogger(ScalingCooldownService.class.getName());
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    private final Map<String, ScalingGroupState> states = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Checks whether the given scaling group may be scaled in the given direction.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param type The direction to scale the group in
+     * @return null if the group may be scaled, otherwise the reason it may not be
+     */
+    public String admit(ScalingGroup scalingGroup, ScalingOperation.Type type) {
+        ScalingGroupState state = getState(scalingGroup.getName());
+        synchronized (state) {
+            long cooldownEnd = type == ScalingOperation.Type.SCALE_UP ?
+                    state.lastScaleUpTime + TimeUnit.SECONDS.toMillis(
+                            Integer.parseInt(scalingGroup.getScaleUpCooldown())) :
+                    Math.max(state.lastScaleUpTime, state.lastScaleDownTime) + TimeUnit.SECONDS.toMillis(
+                            Integer.parseInt(scalingGroup.getScaleDownCooldown()));
+            long remainingCooldown = cooldownEnd - System.currentTimeMillis();
+            if (remainingCooldown > 0) {
+                long remainingSeconds = TimeUnit.MILLISECONDS.toSeconds(remainingCooldown + 999);
+                ScalingOperation.Type lastType = state.lastScaleUpTime >= state.lastScaleDownTime ?
+                        ScalingOperation.Type.SCALE_UP : ScalingOperation.Type.SCALE_DOWN;
+                return type + " of Scaling Group " + scalingGroup.getName() + " rejected, the group was recently " +
+                        "scaled by a " + lastType + " and is cooling down for another " + remainingSeconds + " seconds";
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Records that an operation on the given scaling group has finished. If it changed the group, its cooldown starts
+     * now.
+     *
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     * @param type The direction the group was scaled in
+     * @param scaled Whether the operation changed the group, false if it failed outright
+     */
+    public void finished(String scalingGroupName, ScalingOperation.Type type, boolean scaled) {
+        if (!scaled) {
+            return;
+        }
+
+        ScalingGroupState state = getState(scalingGroupName);
+        synchronized (state) {
+            if (type == ScalingOperation.Type.SCALE_UP) {
+                state.lastScaleUpTime = System.currentTimeMillis();
+            } else {
+                state.lastScaleDownTime = System.currentTimeMillis();
+            }
+        }
+        save();
+    }
+
+    /**
+     * Forgets the cooldown state of a scaling group, for example because it has been deleted.
+     *
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     */
+    public void remove(String scalingGroupName) {
+        if (states.remove(scalingGroupName) != null) {
+            save();
+        }
+    }
+
+    private ScalingGroupState getState(String scalingGroupName) {
+        if (!loaded) {
+            load();
+        }
+        return states.computeIfAbsent(scalingGroupName, name -> new ScalingGroupState());
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        File stateFile = getStateFile();
+        Properties properties;
+        try {
+            properties = StateFiles.load(stateFile);
+        } catch (IOException ioException) {
+            LOGGER.log(Level.WARNING, "Could not read Scaling Group cooldowns from " + stateFile +
+                    ", cooldowns will start from scratch", ioException);
+            properties = new Properties();
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                if (key.endsWith(LAST_SCALE_UP_SUFFIX)) {
+                    states.computeIfAbsent(key.substring(0, key.length() - LAST_SCALE_UP_SUFFIX.length()),
+                            name -> new ScalingGroupState()).lastScaleUpTime =
+                            Long.parseLong(properties.getProperty(key));
+                } else if (key.endsWith(LAST_SCALE_DOWN_SUFFIX)) {
+                    states.computeIfAbsent(key.substring(0, key.length() - LAST_SCALE_DOWN_SUFFIX.length()),
+                            name -> new ScalingGroupState()).lastScaleDownTime =
+                            Long.parseLong(properties.getProperty(key));
+                }
+            } catch (NumberFormatException numberFormatException) {
+                LOGGER.log(Level.FINE, "Ignoring invalid Scaling Group cooldown entry " + key,
+                        numberFormatException);
+            }
+        }
+
+        loaded = true;
+    }
+
+    /**
+     * Writes the last scale times of every scaling group to the state file, replacing it atomically so that a crash
+     * can't leave a partially written file behind.
+     */
+    private synchronized void save() {
+        Properties properties = new Properties();
+        for (Map.Entry<String, ScalingGroupState> state : states.entrySet()) {
+            synchronized (state.getValue()) {
+                if (state.getValue().lastScaleUpTime > 0) {
+                    properties.setProperty(state.getKey() + LAST_SCALE_UP_SUFFIX,
+                            String.valueOf(state.getValue().lastScaleUpTime));
+                }
+                if (state.getValue().lastScaleDownTime > 0) {
+                    properties.setProperty(state.getKey() + LAST_SCALE_DOWN_SUFFIX,
+                            String.valueOf(state.getValue().lastScaleDownTime));
+                }
+            }
+        }
+
+        File stateFile = getStateFile();
+        try {
+            StateFiles.store(properties, stateFile,
+                    "Last scale times of each Scaling Group, used to enforce cooldowns");
+        } catch (IOException ioException) {
+            LOGGER.log(Level.WARNING, "Could not persist Scaling Group cooldowns to " + stateFile, ioException);
+        }
+    }
+
+    private File getStateFile() {
+        return new File(serverEnvironment.getConfigDirPath(), STATE_FILE_NAME);
+    }
+
+    /**
+     * The cooldown state of a single scaling group. Guarded by its own lock.
+     */
+    private static class ScalingGroupState {
+        private long lastScaleUpTime;
+        private long lastScaleDownTime;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import com.sun.enterprise.config.serverbeans.Config;
+import com.sun.enterprise.config.serverbeans.Domain;
+import com.sun.enterprise.v3.admin.adapter.AdminEndpointDecider;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Domain-wide executor used for fanning out commands across instances while scaling. The executor is bounded, sized
+ * once from the admin thread pool of the DAS, and exposes its statistics over JMX using the
+ * {@link ScalingExecutorServiceMXBean} interface.
+ *
+ * If the queue of the executor is full, tasks will be run by the submitting thread.
+ *
+ * The long running tasks which coordinate the scaling of a single Scaling Group, such as running its scaling
+ * operations or refilling its warm pool, are run on a second bounded pool through
+ * {@link #executeOperation(Runnable)}. These wait on the tasks they fan out, so running them on the fan-out pool could
+ * leave every thread waiting on tasks which can't get a thread. The size of this pool is configurable using the
+ * {@value #OPERATION_THREADS_PROP} system property.
+ */
+@Service
+@Singleton
+public class ScalingExecutorService implements ScalingExecutorServiceMXBean, PostConstruct, PreDestroy {
+
+    public static final String QUEUE_CAPACITY_PROP = "fish.payara.autoscale.executor.queuecapacity";
+    public static final int QUEUE_CAPACITY_DEFAULT = 1000;
+    public static final String OPERATION_THREADS_PROP = "fish.payara.autoscale.executor.operationthreads";
+    public static final int OPERATION_THREADS_DEFAULT = 4;
+    public static final String OBJECT_NAME = "fish.payara.extensions.autoscale.groups:type=ScalingExecutorService";
+
+    private static final int ADMIN_DEFAULT_POOL_SIZE = 5;
+    private static final Logger LOGGER = Logger.getLogger(ScalingExecutorService.class.getName());
+
+    @Inject
+    private Domain domain;
+
+    private ThreadPoolExecutor threadPoolExecutor;
+    private int queueCapacity;
+    private ThreadPoolExecutor operationThreadPoolExecutor;
+
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder totalQueueWaitTime = new LongAdder();
+    private final LongAdder totalTaskLatency = new LongAdder();
+    private final AtomicLong maxTaskLatency = new AtomicLong();
+    private final LongAdder completedOperationTasks = new LongAdder();
+
+    @Override
+    public void postConstruct() {
+        // Use half of the admin thread pool, so that we don't starve the admin threads running the commands
+        int poolSize = Math.max(1, getAdminThreadPoolSize() / 2);
+
+        queueCapacity = Integer.getInteger(QUEUE_CAPACITY_PROP, QUEUE_CAPACITY_DEFAULT);
+        if (queueCapacity < 1) {
+            LOGGER.warning(QUEUE_CAPACITY_PROP + " property evaluated to less than 1, defaulting to " +
+                    QUEUE_CAPACITY_DEFAULT);
+            queueCapacity = QUEUE_CAPACITY_DEFAULT;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "autoscale-groups-executor-" +
+                            threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        int operationThreads = Integer.getInteger(OPERATION_THREADS_PROP, OPERATION_THREADS_DEFAULT);
+        if (operationThreads < 1) {
+            LOGGER.warning(OPERATION_THREADS_PROP + " property evaluated to less than 1, defaulting to " +
+                    OPERATION_THREADS_DEFAULT);
+            operationThreads = OPERATION_THREADS_DEFAULT;
+        }
+
+        // There's at most one operation task per Scaling Group at a time, so the queue is bounded by the groups
+        AtomicInteger operationThreadCounter = new AtomicInteger();
+        operationThreadPoolExecutor = new ThreadPoolExecutor(operationThreads, operationThreads, 60L,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "autoscale-groups-operation-" +
+                            operationThreadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        operationThreadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException jmException) {
+            LOGGER.log(Level.WARNING, "Could not register Scaling Executor Service MBean", jmException);
+        }
+    }
+
+    @Override
+    public void preDestroy() {
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException jmException) {
+            LOGGER.log(Level.FINE, "Could not unregister Scaling Executor Service MBean", jmException);
+        }
+
+        threadPoolExecutor.shutdownNow();
+        operationThreadPoolExecutor.shutdownNow();
+    }
+
+    /**
+     * Executes a long running task which coordinates the scaling of a single Scaling Group on the operation pool.
+     *
+     * @param task The task to execute
+     * @throws java.util.concurrent.RejectedExecutionException If the executor has been shut down
+     */
+    public void executeOperation(Runnable task) {
+        operationThreadPoolExecutor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                completedOperationTasks.increment();
+            }
+        });
+    }
+
+    /**
+     * Submits a task for execution, recording how long it spent waiting for a thread and executing.
+     *
+     * @param task The task to execute
+     * @return A {@link Future} which can be used to cancel the task
+     */
+    public Future<?> submit(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Submits a task which returns a result for execution, recording how long it spent waiting for a thread and
+     * executing.
+     *
+     * @param task The task to execute
+     * @param <T> The type of the result of the task
+     * @return A {@link Future} which can be used to get the result of the task or cancel it
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        long submitTime = System.nanoTime();
+        return threadPoolExecutor.submit(() -> {
+            long startTime = System.nanoTime();
+            totalQueueWaitTime.add(startTime - submitTime);
+            try {
+                return task.call();
+            } finally {
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                totalTaskLatency.add(latency);
+                maxTaskLatency.accumulateAndGet(latency, Math::max);
+                completedTasks.increment();
+            }
+        });
+    }
+
+    @Override
+    public int getPoolSize() {
+        return threadPoolExecutor.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    @Override
+    public double getAverageQueueWaitTime() {
+        long completed = completedTasks.sum();
+        return completed == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueWaitTime.sum()) / (double) completed;
+    }
+
+    @Override
+    public double getAverageTaskLatency() {
+        long completed = completedTasks.sum();
+        return completed == 0 ? 0 : totalTaskLatency.sum() / (double) completed;
+    }
+
+    @Override
+    public long getMaxTaskLatency() {
+        return maxTaskLatency.get();
+    }
+
+    @Override
+    public int getOperationPoolSize() {
+        return operationThreadPoolExecutor.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getActiveOperationThreads() {
+        return operationThreadPoolExecutor.getActiveCount();
+    }
+
+    @Override
+    public int getOperationQueueDepth() {
+        return operationThreadPoolExecutor.getQueue().size();
+    }
+
+    @Override
+    public long getCompletedOperationTasks() {
+        return completedOperationTasks.sum();
+    }
+
+    /**
+     * Get the size of the admin threadpool
+     */
+    private int getAdminThreadPoolSize() {
+        // Get the DAS configuration
+        Config config = domain.getConfigNamed("server-config");
+
+        // Check for null - standalone instances may not have server-config
+        if (config == null) {
+            return ADMIN_DEFAULT_POOL_SIZE;
+        }
+
+        return new AdminEndpointDecider(config).getMaxThreadPoolSize();
+    }
+}
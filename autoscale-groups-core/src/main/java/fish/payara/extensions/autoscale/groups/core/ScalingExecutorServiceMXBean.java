@@ -0,0 +1,107 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+/**
+ * Management interface exposing the statistics of the {@link ScalingExecutorService}.
+ */
+public interface ScalingExecutorServiceMXBean {
+
+    /**
+     * @return The maximum number of threads used to execute scaling tasks
+     */
+    int getPoolSize();
+
+    /**
+     * @return The number of threads currently executing a scaling task
+     */
+    int getActiveThreads();
+
+    /**
+     * @return The number of scaling tasks waiting for a thread
+     */
+    int getQueueDepth();
+
+    /**
+     * @return The maximum number of scaling tasks which can wait for a thread
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return The number of scaling tasks which have finished executing
+     */
+    long getCompletedTasks();
+
+    /**
+     * @return The average time in milliseconds scaling tasks have spent waiting for a thread
+     */
+    double getAverageQueueWaitTime();
+
+    /**
+     * @return The average time in milliseconds scaling tasks have spent executing
+     */
+    double getAverageTaskLatency();
+
+    /**
+     * @return The longest time in milliseconds a scaling task has spent executing
+     */
+    long getMaxTaskLatency();
+
+    /**
+     * @return The maximum number of threads used to run scaling operations and warm pool refills
+     */
+    int getOperationPoolSize();
+
+    /**
+     * @return The number of threads currently running a scaling operation or warm pool refill
+     */
+    int getActiveOperationThreads();
+
+    /**
+     * @return The number of scaling operations and warm pool refills waiting for a thread
+     */
+    int getOperationQueueDepth();
+
+    /**
+     * @return The number of scaling operations and warm pool refills which have finished running
+     */
+    long getCompletedOperationTasks();
+}
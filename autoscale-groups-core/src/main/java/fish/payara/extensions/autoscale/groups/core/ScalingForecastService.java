@@ -0,0 +1,261 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.hk2.api.PreDestroy;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service which keeps a {@link HoltWintersForecaster} of the demand on each {@link ScalingGroup Scaling Group}, fed by
+ * the {@link ScalingController} each time it evaluates the group, and uses it to estimate how many instances a group
+ * will need its prediction lead time ahead.
+ *
+ * The demand on a group is its load multiplied by its number of instances, so that the forecast isn't thrown off by
+ * the group being scaled: doubling the instances of a group halves its load, but leaves its demand the same. Dividing
+ * the forecast demand by the scale up threshold gives the number of instances which keep the load under it.
+ *
+ * The season length and lead time of a group are converted into a number of samples using the interval of the
+ * controller. If either changes, the forecaster of the group is started again from scratch.
+ *
+ * The forecasters are persisted to the {@value #STATE_FILE_NAME} file in the config directory of the domain every few
+ * minutes and on shutdown, so that a restart of the DAS doesn't cost a season of history. Samples missed while the DAS
+ * was down are skipped over, keeping each season in step with the clock.
+ */
+@Service
+@Singleton
+public class ScalingForecastService implements PreDestroy {
+
+    public static final String STATE_FILE_NAME = "autoscale-groups-forecasts.properties";
+
+    // Smoothing factors: a fairly responsive level, a slow moving trend, and a seasonal shape which adapts over days
+    private static final double ALPHA = 0.2;
+    private static final double BETA = 0.01;
+    private static final double GAMMA = 0.1;
+
+    private static final String FORECASTER_SUFFIX = ".forecaster.";
+    private static final String SEASON_LENGTH_SUFFIX = FORECASTER_SUFFIX + "seasonLength";
+    private static final String LAST_SAMPLE_SUFFIX = ".lastSample";
+    private static final long SAVE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+    private static final Logger LOGGER = Logger.getLogger(ScalingForecastService.class.getName());
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    private final Map<String, HoltWintersForecaster> forecasters = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastSampleTimes = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private volatile long lastSaveTime;
+
+    @Override
+    public void preDestroy() {
+        if (loaded) {
+            save();
+        }
+    }
+
+    /**
+     * Adds a load sample of the group to its forecaster.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} the sample is for
+     * @param load The load of the group as a percentage
+     * @param instances The number of instances the group had when the load was measured
+     * @param sampleInterval The time between samples, in seconds
+     */
+    public void record(ScalingGroup scalingGroup, double load, int instances, int sampleInterval) {
+        if (!loaded) {
+            load();
+        }
+
+        int seasonLength = Math.max(2, Integer.parseInt(scalingGroup.getSeasonLength()) / sampleInterval);
+        int horizon = Math.max(1, (Integer.parseInt(scalingGroup.getPredictionLeadTime()) + sampleInterval - 1) /
+                sampleInterval);
+
+        String scalingGroupName = scalingGroup.getName();
+        HoltWintersForecaster forecaster = forecasters.compute(scalingGroupName, (name, existing) ->
+                existing != null && existing.getSeasonLength() == seasonLength && existing.getHorizon() == horizon ?
+                        existing : new HoltWintersForecaster(ALPHA, BETA, GAMMA, seasonLength, horizon));
+        long now = System.currentTimeMillis();
+        synchronized (forecaster) {
+            Long lastSampleTime = lastSampleTimes.put(scalingGroupName, now);
+            if (lastSampleTime != null) {
+                forecaster.skip(Math.round((now - lastSampleTime) / (sampleInterval * 1000.0)) - 1);
+            }
+            forecaster.update(load * instances);
+        }
+
+        if (now - lastSaveTime >= SAVE_INTERVAL) {
+            save();
+        }
+    }
+
+    /**
+     * Gets the forecaster of the group, for reporting on. The returned forecaster must only be read while holding its
+     * lock.
+     *
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     * @return The forecaster of the group, or null if no samples have been recorded for it
+     */
+    public HoltWintersForecaster getForecaster(String scalingGroupName) {
+        if (!loaded) {
+            load();
+        }
+        return forecasters.get(scalingGroupName);
+    }
+
+    /**
+     * Estimates how many instances the group will need at its prediction lead time, so that its load stays below its
+     * scale up threshold under the forecast demand.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to estimate the instances of
+     * @return The predicted number of instances, or -1 if no forecast is available yet
+     */
+    public int getPredictedInstances(ScalingGroup scalingGroup) {
+        HoltWintersForecaster forecaster = getForecaster(scalingGroup.getName());
+        if (forecaster == null) {
+            return -1;
+        }
+
+        double forecastDemand;
+        synchronized (forecaster) {
+            forecastDemand = forecaster.forecast();
+        }
+        if (Double.isNaN(forecastDemand)) {
+            return -1;
+        }
+
+        int scaleUpThreshold = Math.max(1, Integer.parseInt(scalingGroup.getScaleUpThreshold()));
+        return (int) Math.ceil(Math.max(0, forecastDemand) / scaleUpThreshold);
+    }
+
+    /**
+     * Forgets the forecaster of a scaling group, for example because it has been deleted.
+     *
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     */
+    public void remove(String scalingGroupName) {
+        lastSampleTimes.remove(scalingGroupName);
+        if (forecasters.remove(scalingGroupName) != null) {
+            save();
+        }
+    }
+
+    private synchronized void load() {
+        if (loaded) {
+            return;
+        }
+
+        File stateFile = getStateFile();
+        Properties properties;
+        try {
+            properties = StateFiles.load(stateFile);
+        } catch (IOException ioException) {
+            LOGGER.log(Level.WARNING, "Could not read Scaling Group forecasts from " + stateFile +
+                    ", forecasts will start from scratch", ioException);
+            properties = new Properties();
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(SEASON_LENGTH_SUFFIX)) {
+                continue;
+            }
+
+            String scalingGroupName = key.substring(0, key.length() - SEASON_LENGTH_SUFFIX.length());
+            try {
+                forecasters.put(scalingGroupName, HoltWintersForecaster.readFrom(properties,
+                        scalingGroupName + FORECASTER_SUFFIX, ALPHA, BETA, GAMMA));
+                String lastSampleTime = properties.getProperty(scalingGroupName + LAST_SAMPLE_SUFFIX);
+                if (lastSampleTime != null) {
+                    lastSampleTimes.put(scalingGroupName, Long.parseLong(lastSampleTime));
+                }
+            } catch (IllegalArgumentException illegalArgumentException) {
+                LOGGER.log(Level.FINE, "Ignoring invalid forecast of Scaling Group " + scalingGroupName,
+                        illegalArgumentException);
+            }
+        }
+
+        lastSaveTime = System.currentTimeMillis();
+        loaded = true;
+    }
+
+    /**
+     * Writes the forecasters of every scaling group to the state file, replacing it atomically so that a crash can't
+     * leave a partially written file behind.
+     */
+    private synchronized void save() {
+        lastSaveTime = System.currentTimeMillis();
+
+        Properties properties = new Properties();
+        for (Map.Entry<String, HoltWintersForecaster> forecaster : forecasters.entrySet()) {
+            synchronized (forecaster.getValue()) {
+                forecaster.getValue().writeTo(properties, forecaster.getKey() + FORECASTER_SUFFIX);
+            }
+            Long lastSampleTime = lastSampleTimes.get(forecaster.getKey());
+            if (lastSampleTime != null) {
+                properties.setProperty(forecaster.getKey() + LAST_SAMPLE_SUFFIX, String.valueOf(lastSampleTime));
+            }
+        }
+
+        File stateFile = getStateFile();
+        try {
+            StateFiles.store(properties, stateFile,
+                    "Demand forecasters of each Scaling Group, used for predictive scaling");
+        } catch (IOException ioException) {
+            LOGGER.log(Level.WARNING, "Could not persist Scaling Group forecasts to " + stateFile, ioException);
+        }
+    }
+
+    private File getStateFile() {
+        return new File(serverEnvironment.getConfigDirPath(), STATE_FILE_NAME);
+    }
+}
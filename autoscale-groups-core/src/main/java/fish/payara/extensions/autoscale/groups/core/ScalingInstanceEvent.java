@@ -0,0 +1,173 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A change in the state of a single instance during a {@link ScalingOperation}, such as an instance having been
+ * created or started. Events are reported to the {@link ScalingOperationProgressStatus} of the operation, which streams
+ * them to any listeners as they happen.
+ */
+public class ScalingInstanceEvent {
+
+    /**
+     * The name of the event fired on the {@link org.glassfish.api.admin.AdminCommandEventBroker event broker} of a
+     * scale command, which is streamed to REST clients as a server-sent event.
+     */
+    public static final String EVENT_NAME = "AutoScaleGroups/instance";
+
+    public enum State {
+        CREATED,
+        STARTING,
+        STARTED,
+        FAILED,
+        STOPPED,
+        DELETED
+    }
+
+    private final String instanceName;
+    private final String nodeName;
+    private final State state;
+    private final String message;
+    private final long timestamp = System.currentTimeMillis();
+
+    public ScalingInstanceEvent(String instanceName, String nodeName, State state, String message) {
+        this.instanceName = instanceName;
+        this.nodeName = nodeName;
+        this.state = state;
+        this.message = message;
+    }
+
+    /**
+     * @return The name of the instance, or null if the instance failed before it was named, such as when it couldn't
+     *         be created
+     */
+    public String getInstanceName() {
+        return instanceName;
+    }
+
+    /**
+     * @return The name of the node of the instance, or null if not known
+     */
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Converts the event into a map for use in the extra properties of an
+     * {@link org.glassfish.api.ActionReport ActionReport}.
+     *
+     * @return A map containing the details of the event
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> eventInfo = new HashMap<>();
+        eventInfo.put("instance", instanceName);
+        eventInfo.put("node", nodeName);
+        eventInfo.put("state", state.toString());
+        eventInfo.put("message", message);
+        eventInfo.put("timestamp", timestamp);
+        return eventInfo;
+    }
+
+    /**
+     * @return The event as a JSON object, as sent to REST clients
+     */
+    public String toJson() {
+        return "{\"instance\":" + toJsonString(instanceName) +
+                ",\"node\":" + toJsonString(nodeName) +
+                ",\"state\":" + toJsonString(state.toString()) +
+                ",\"message\":" + toJsonString(message) +
+                ",\"timestamp\":" + timestamp + "}";
+    }
+
+    private static String toJsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder json = new StringBuilder("\"");
+        for (char character : value.toCharArray()) {
+            switch (character) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (character < 0x20) {
+                        json.append(String.format("\\u%04x", (int) character));
+                    } else {
+                        json.append(character);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return (instanceName == null ? "" : instanceName + ": ") + state + (message == null ? "" : " - " + message);
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import com.sun.enterprise.config.serverbeans.Server;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.ScalingMetricProvider;
+import org.glassfish.api.StartupRunLevel;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.runlevel.RunLevel;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static fish.payara.extensions.autoscale.groups.core.ScalingController.CONTROLLER_INTERVAL_DEFAULT;
+import static fish.payara.extensions.autoscale.groups.core.ScalingController.CONTROLLER_INTERVAL_PROP;
+
+/**
+ * DAS service which polls the load of every instance of every {@link ScalingGroup Scaling Group} in parallel on a
+ * fixed interval, using the {@link InstanceLoadProbe}, and keeps the totals of each group in a {@link LoadRingBuffer}.
+ *
+ * As a {@link ScalingMetricProvider}, it gives the {@link ScalingController} the average thread pool utilisation of a
+ * group since the controller last evaluated it. Rolling aggregates of each metric are available through
+ * {@link #getAggregate(String, LoadRingBuffer.Metric, long)}.
+ *
+ * The collections used to gather the instances of each group are kept between polls and only grow, so besides the
+ * probing itself, which runs monitoring commands, a poll only allocates the snapshot of the latest instance loads.
+ *
+ * The polling interval in seconds and the number of samples held per group are configurable using the
+ * {@value #COLLECTOR_INTERVAL_PROP} and {@value #COLLECTOR_CAPACITY_PROP} system properties.
+ */
+@Service(name = "scaling-metrics-collector")
+@RunLevel(value = StartupRunLevel.VAL, mode = RunLevel.RUNLEVEL_MODE_NON_VALIDATING)
+public class ScalingMetricsCollector implements ScalingMetricProvider, PostConstruct, PreDestroy {
+
+    public static final String COLLECTOR_INTERVAL_PROP = "fish.payara.autoscale.collector.interval";
+    public static final int COLLECTOR_INTERVAL_DEFAULT = 10;
+    public static final String COLLECTOR_CAPACITY_PROP = "fish.payara.autoscale.collector.capacity";
+    public static final int COLLECTOR_CAPACITY_DEFAULT = 360;
+
+    private static final Logger LOGGER = Logger.getLogger(ScalingMetricsCollector.class.getName());
+
+    @Inject
+    private ServiceLocator serviceLocator;
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    @Inject
+    private ScalingGroupsIndex scalingGroupsIndex;
+
+    @Inject
+    private InstanceLoadProbe instanceLoadProbe;
+
+    private final Map<String, LoadRingBuffer> loadRingBuffers = new ConcurrentHashMap<>();
+
+    // Reused by every poll, and so only touched by the collector thread
+    private final Map<String, List<String>> scalingGroupsInstances = new HashMap<>();
+    private final Set<String> polledScalingGroupNames = new HashSet<>();
+    private final Set<String> polledInstanceNames = new HashSet<>();
+    private final List<String> instanceNames = new ArrayList<>();
+    private volatile Map<String, InstanceLoad> latestInstanceLoads = Collections.emptyMap();
+    private int capacity = COLLECTOR_CAPACITY_DEFAULT;
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Override
+    public void postConstruct() {
+        // Scaling is driven exclusively from the DAS
+        if (!serverEnvironment.isDas()) {
+            return;
+        }
+
+        int interval = Integer.getInteger(COLLECTOR_INTERVAL_PROP, COLLECTOR_INTERVAL_DEFAULT);
+        if (interval < 1) {
+            LOGGER.warning(COLLECTOR_INTERVAL_PROP + " property evaluated to less than 1, defaulting to " +
+                    COLLECTOR_INTERVAL_DEFAULT);
+            interval = COLLECTOR_INTERVAL_DEFAULT;
+        }
+
+        capacity = Integer.getInteger(COLLECTOR_CAPACITY_PROP, COLLECTOR_CAPACITY_DEFAULT);
+        if (capacity < 1) {
+            LOGGER.warning(COLLECTOR_CAPACITY_PROP + " property evaluated to less than 1, defaulting to " +
+                    COLLECTOR_CAPACITY_DEFAULT);
+            capacity = COLLECTOR_CAPACITY_DEFAULT;
+        }
+
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autoscale-groups-metrics-collector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutorService.scheduleWithFixedDelay(this::collect, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void preDestroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Polls the load of the instances of every scaling group in a single parallel batch, adding a sample to the ring
+     * buffer of each group. Any exceptions are caught and logged so as to not cancel future executions.
+     */
+    void collect() {
+        try {
+            DeploymentGroups deploymentGroups = serviceLocator.getService(DeploymentGroups.class);
+            if (deploymentGroups == null) {
+                return;
+            }
+
+            polledScalingGroupNames.clear();
+            polledInstanceNames.clear();
+            instanceNames.clear();
+            for (ScalingGroup scalingGroup : scalingGroupsIndex.getScalingGroups()) {
+                DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(
+                        scalingGroup.getDeploymentGroupRef());
+                if (deploymentGroup == null) {
+                    continue;
+                }
+
+                List<String> scalingGroupInstances = scalingGroupsInstances.computeIfAbsent(scalingGroup.getName(),
+                        name -> new ArrayList<>());
+                scalingGroupInstances.clear();
+                for (Server instance : deploymentGroup.getInstances()) {
+                    scalingGroupInstances.add(instance.getName());
+                    if (polledInstanceNames.add(instance.getName())) {
+                        instanceNames.add(instance.getName());
+                    }
+                }
+                polledScalingGroupNames.add(scalingGroup.getName());
+            }
+
+            // Forget about any groups which have been deleted
+            scalingGroupsInstances.keySet().retainAll(polledScalingGroupNames);
+            loadRingBuffers.keySet().retainAll(polledScalingGroupNames);
+
+            Map<String, InstanceLoad> instanceLoads = instanceLoadProbe.getLoad(instanceNames);
+            latestInstanceLoads = Collections.unmodifiableMap(instanceLoads);
+            long timestamp = System.currentTimeMillis();
+            for (Map.Entry<String, List<String>> scalingGroupInstances : scalingGroupsInstances.entrySet()) {
+                addSample(scalingGroupInstances.getKey(), scalingGroupInstances.getValue(), instanceLoads, timestamp);
+            }
+        } catch (Exception exception) {
+            LOGGER.log(Level.WARNING, "Encountered an error collecting Scaling Group metrics", exception);
+        }
+    }
+
+    private void addSample(String scalingGroupName, List<String> instanceNames, Map<String, InstanceLoad> instanceLoads,
+            long timestamp) {
+        double utilisationSum = 0;
+        int utilisationCount = 0;
+        long activeRequests = -1;
+        long activeSessions = -1;
+        long busyThreads = -1;
+
+        for (int i = 0; i < instanceNames.size(); i++) {
+            InstanceLoad instanceLoad = instanceLoads.get(instanceNames.get(i));
+            if (instanceLoad == null) {
+                continue;
+            }
+
+            double utilisation = instanceLoad.getUtilisation();
+            if (!Double.isNaN(utilisation)) {
+                utilisationSum += utilisation;
+                utilisationCount++;
+            }
+            activeRequests = addKnown(activeRequests, instanceLoad.getActiveRequests());
+            activeSessions = addKnown(activeSessions, instanceLoad.getActiveSessions());
+            busyThreads = addKnown(busyThreads, instanceLoad.getBusyThreads());
+        }
+
+        loadRingBuffers.computeIfAbsent(scalingGroupName, name -> new LoadRingBuffer(capacity)).add(timestamp,
+                utilisationCount == 0 ? Double.NaN : utilisationSum / utilisationCount,
+                activeRequests < 0 ? Double.NaN : activeRequests,
+                activeSessions < 0 ? Double.NaN : activeSessions,
+                busyThreads < 0 ? Double.NaN : busyThreads,
+                instanceNames.size());
+    }
+
+    private static long addKnown(long total, long value) {
+        if (value < 0) {
+            return total;
+        }
+        return Math.max(0, total) + value;
+    }
+
+    /**
+     * Gets the average utilisation of the group over the interval of the {@link ScalingController}.
+     *
+     * @param scalingGroup The {@link ScalingGroup} to get the load of
+     * @return The load as a percentage between 0 and 100, or {@link Double#NaN} if no load has been collected
+     */
+    @Override
+    public double getLoad(ScalingGroup scalingGroup) {
+        int controllerInterval = Integer.getInteger(CONTROLLER_INTERVAL_PROP, CONTROLLER_INTERVAL_DEFAULT);
+        if (controllerInterval < 1) {
+            controllerInterval = CONTROLLER_INTERVAL_DEFAULT;
+        }
+
+        LoadRingBuffer loadRingBuffer = loadRingBuffers.get(scalingGroup.getName());
+        if (loadRingBuffer == null) {
+            return Double.NaN;
+        }
+        return loadRingBuffer.mean(LoadRingBuffer.Metric.UTILISATION,
+                System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(controllerInterval));
+    }
+
+    /**
+     * Gets the load of each instance as of the last poll, which is at most one polling interval old. Useful for
+     * anything which needs the load of instances cheaply and can live with it being slightly out of date.
+     *
+     * @return A Map of instance name to its load, which is empty if nothing has been collected yet
+     */
+    public Map<String, InstanceLoad> getLatestInstanceLoads() {
+        return latestInstanceLoads;
+    }
+
+    /**
+     * Gets the rolling aggregate of a metric of a scaling group.
+     *
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     * @param metric The metric to aggregate
+     * @param window How far back to aggregate, in milliseconds
+     * @return The aggregate, which has a count of 0 if no samples have been collected in the window
+     */
+    public LoadAggregate getAggregate(String scalingGroupName, LoadRingBuffer.Metric metric, long window) {
+        LoadRingBuffer loadRingBuffer = loadRingBuffers.get(scalingGroupName);
+        if (loadRingBuffer == null) {
+            return new LoadAggregate(metric, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN, 0);
+        }
+        return loadRingBuffer.aggregate(metric, System.currentTimeMillis() - window);
+    }
+}
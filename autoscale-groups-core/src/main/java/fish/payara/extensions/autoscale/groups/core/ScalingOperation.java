@@ -0,0 +1,249 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.glassfish.api.ActionReport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A single scale up or scale down of a {@link fish.payara.extensions.autoscale.groups.ScalingGroup Scaling Group},
+ * tracked by the {@link ScalingOperationService} so that its progress and outcome can be queried while it runs in the
+ * background.
+ *
+ * An operation either scales by a quantity of instances, or to a target number of instances. The type and quantity of
+ * an operation with a target are estimated when it's submitted, and worked out again from the live size of the
+ * Deployment Group when it runs.
+ */
+public class ScalingOperation {
+
+    public enum Type {
+        SCALE_UP("scale-up"),
+        SCALE_DOWN("scale-down");
+
+        private final String commandName;
+
+        Type(String commandName) {
+            this.commandName = commandName;
+        }
+
+        @Override
+        public String toString() {
+            return commandName;
+        }
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        REJECTED
+    }
+
+    private final String id;
+    private final Integer targetInstances;
+    private final String scalingGroupName;
+    private final String deploymentGroupName;
+    private final ScalingOperationProgressStatus progressStatus = new ScalingOperationProgressStatus();
+    private final long submittedTime = System.currentTimeMillis();
+    private final CompletableFuture<ScalingOperation> completion = new CompletableFuture<>();
+
+    private volatile Type type;
+    private volatile int quantity;
+    private volatile State state = State.QUEUED;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile ActionReport actionReport;
+    private volatile String coalescedOperationId;
+
+    ScalingOperation(String id, Type type, int quantity, String scalingGroupName, String deploymentGroupName) {
+        this(id, type, quantity, null, scalingGroupName, deploymentGroupName);
+    }
+
+    ScalingOperation(String id, Type type, int quantity, Integer targetInstances, String scalingGroupName,
+            String deploymentGroupName) {
+        this.id = id;
+        this.type = type;
+        this.quantity = quantity;
+        this.targetInstances = targetInstances;
+        this.scalingGroupName = scalingGroupName;
+        this.deploymentGroupName = deploymentGroupName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return The number of instances the operation scales its Deployment Group to, or null if it scales up or down by
+     *         its quantity instead
+     */
+    public Integer getTargetInstances() {
+        return targetInstances;
+    }
+
+    public String getScalingGroupName() {
+        return scalingGroupName;
+    }
+
+    public String getDeploymentGroupName() {
+        return deploymentGroupName;
+    }
+
+    public ScalingOperationProgressStatus getProgressStatus() {
+        return progressStatus;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getSubmittedTime() {
+        return submittedTime;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * @return The {@link ActionReport} produced by the scale operation, or null if it hasn't finished
+     */
+    public ActionReport getActionReport() {
+        return actionReport;
+    }
+
+    /**
+     * @return The ID of the operation this operation was coalesced into along with other concurrent requests to scale
+     *         the same group, or null if it ran on its own
+     */
+    public String getCoalescedOperationId() {
+        return coalescedOperationId;
+    }
+
+    /**
+     * Waits for the operation to finish.
+     *
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void awaitFinished() throws InterruptedException {
+        try {
+            completion.get();
+        } catch (ExecutionException executionException) {
+            // Never completed exceptionally
+        }
+    }
+
+    /**
+     * @return A {@link CompletionStage} which completes with this operation once it has finished
+     */
+    public CompletionStage<ScalingOperation> whenFinished() {
+        return completion;
+    }
+
+    /**
+     * @return true if the operation has either completed, failed, or was rejected
+     */
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.REJECTED;
+    }
+
+    /**
+     * @return How long the operation has been running for in milliseconds, or how long it ran for if it has finished
+     */
+    public long getDuration() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    void started() {
+        startTime = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    void finished(ActionReport actionReport) {
+        this.actionReport = actionReport;
+        endTime = System.currentTimeMillis();
+        state = actionReport.getActionExitCode() == ActionReport.ExitCode.FAILURE
+                || (actionReport.hasFailures() && !actionReport.hasSuccesses()) ? State.FAILED : State.COMPLETED;
+        progressStatus.complete();
+        completion.complete(this);
+    }
+
+    void rejected(ActionReport actionReport) {
+        this.actionReport = actionReport;
+        startTime = System.currentTimeMillis();
+        endTime = startTime;
+        state = State.REJECTED;
+        progressStatus.complete();
+        completion.complete(this);
+    }
+
+    /**
+     * Sets how far an operation with a target number of instances scales, once it's known how many instances its
+     * Deployment Group has when it runs.
+     */
+    void resolved(Type type, int quantity) {
+        this.type = type;
+        this.quantity = quantity;
+    }
+
+    void coalescedInto(String operationId) {
+        coalescedOperationId = operationId;
+    }
+}
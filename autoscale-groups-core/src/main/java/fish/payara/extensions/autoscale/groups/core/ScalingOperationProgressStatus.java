@@ -0,0 +1,189 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.glassfish.api.admin.ProgressStatus;
+import org.glassfish.api.admin.progress.ProgressStatusImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link org.glassfish.api.admin.ProgressStatus ProgressStatus} of a {@link ScalingOperation}, which retains the
+ * progress messages and {@link ScalingInstanceEvent instance events} reported against it so that the progress of each
+ * instance can be queried after the fact.
+ *
+ * Progress can also be streamed as it happens: progress messages and steps are forwarded to the progress status of the
+ * command which ran the operation, if any, and instance events are passed to the registered listeners.
+ */
+public class ScalingOperationProgressStatus extends ProgressStatusImpl {
+
+    private static final int MAX_MESSAGES = 1000;
+    private static final Logger LOGGER = Logger.getLogger(ScalingOperationProgressStatus.class.getName());
+
+    private final Deque<String> messages = new ArrayDeque<>();
+    private final Deque<ScalingInstanceEvent> instanceEvents = new ArrayDeque<>();
+    private final List<Consumer<ScalingInstanceEvent>> instanceEventListeners = new ArrayList<>();
+    private final List<ProgressStatus> forwardProgressStatuses = new ArrayList<>();
+
+    /**
+     * Reports a change in the state of an instance to the given progress status. If the progress status is that of a
+     * {@link ScalingOperation}, an {@link ScalingInstanceEvent} is recorded and streamed to its listeners, otherwise
+     * only the progress message is reported.
+     *
+     * @param progressStatus The progress status to report to, may be null
+     * @param instanceName The name of the instance, may be null if it isn't known
+     * @param nodeName The name of the node of the instance, may be null if it isn't known
+     * @param state The new state of the instance
+     * @param steps The number of steps of progress made
+     * @param message The progress message
+     */
+    public static void instanceStateChanged(ProgressStatus progressStatus, String instanceName, String nodeName,
+            ScalingInstanceEvent.State state, int steps, String message) {
+        if (progressStatus instanceof ScalingOperationProgressStatus) {
+            ((ScalingOperationProgressStatus) progressStatus).instanceStateChanged(
+                    new ScalingInstanceEvent(instanceName, nodeName, state, message), steps);
+        } else if (progressStatus != null) {
+            progressStatus.progress(steps, message);
+        }
+    }
+
+    private void instanceStateChanged(ScalingInstanceEvent instanceEvent, int steps) {
+        progress(steps, instanceEvent.getMessage());
+        recordInstanceEvent(instanceEvent);
+    }
+
+    /**
+     * Records an instance event and passes it to the listeners, without reporting any progress. Used to pass on the
+     * events of an operation which this one was coalesced into, whose progress is already forwarded.
+     *
+     * @param instanceEvent The event to record
+     */
+    void recordInstanceEvent(ScalingInstanceEvent instanceEvent) {
+        List<Consumer<ScalingInstanceEvent>> listeners;
+        synchronized (this) {
+            if (instanceEvents.size() == MAX_MESSAGES) {
+                instanceEvents.removeFirst();
+            }
+            instanceEvents.addLast(instanceEvent);
+            listeners = new ArrayList<>(instanceEventListeners);
+        }
+
+        // Don't hold the lock while calling out, since the listeners may be slow
+        for (Consumer<ScalingInstanceEvent> listener : listeners) {
+            try {
+                listener.accept(instanceEvent);
+            } catch (RuntimeException runtimeException) {
+                LOGGER.log(Level.FINE, "Instance event listener failed", runtimeException);
+            }
+        }
+    }
+
+    /**
+     * Forwards all progress reported from now on to the given progress status, such as that of the command running the
+     * operation, so that it can be streamed to clients. Progress may be forwarded to more than one progress status.
+     *
+     * @param progressStatus The progress status to forward to
+     */
+    public synchronized void forwardTo(ProgressStatus progressStatus) {
+        forwardProgressStatuses.add(progressStatus);
+    }
+
+    /**
+     * Registers a listener which is called with every {@link ScalingInstanceEvent} reported from now on.
+     *
+     * @param listener The listener to register
+     */
+    public synchronized void addInstanceEventListener(Consumer<ScalingInstanceEvent> listener) {
+        instanceEventListeners.add(listener);
+    }
+
+    @Override
+    public synchronized void setTotalStepCount(int totalStepCount) {
+        super.setTotalStepCount(totalStepCount);
+
+        for (ProgressStatus forwardProgressStatus : forwardProgressStatuses) {
+            forwardProgressStatus.setTotalStepCount(totalStepCount);
+        }
+    }
+
+    @Override
+    public synchronized void progress(int steps, String message, boolean spinner) {
+        super.progress(steps, message, spinner);
+
+        if (message != null) {
+            if (messages.size() == MAX_MESSAGES) {
+                messages.removeFirst();
+            }
+            messages.addLast(message);
+        }
+
+        for (ProgressStatus forwardProgressStatus : forwardProgressStatuses) {
+            forwardProgressStatus.progress(steps, message, spinner);
+        }
+    }
+
+    /**
+     * @return The number of steps which have been completed
+     */
+    public synchronized int getCompletedStepCount() {
+        return Math.max(0, getTotalStepCount() - getRemainingStepCount());
+    }
+
+    /**
+     * @return The progress messages reported so far, oldest first
+     */
+    public synchronized List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+    /**
+     * @return The instance events reported so far, oldest first
+     */
+    public synchronized List<ScalingInstanceEvent> getInstanceEvents() {
+        return new ArrayList<>(instanceEvents);
+    }
+}
@@ -0,0 +1,614 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.admin.CommandRunner;
+import org.glassfish.api.admin.ProgressStatus;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_DEFAULT;
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_PROP;
+
+/**
+ * Service which runs {@link ScalingOperation Scaling Operations}, either waiting for them to finish or in the
+ * background, and keeps track of them so that their progress can be queried.
+ *
+ * Operations are queued per {@link ScalingGroup Scaling Group}: only one operation runs against a group at a time,
+ * while different groups are scaled independently of each other. Any operations which queue up against a group while
+ * it's being scaled are coalesced into a single operation for their net change in instances, so that concurrent
+ * requests neither pile onto the same nodes nor create instances only to delete them again. If the requests cancel
+ * each other out, nothing is run at all. A request to scale to a target number of instances is worked out against the
+ * size of the Deployment Group when the batch runs, and overrides any requests queued before it, so that concurrent
+ * requests for the same target don't add up. A coalesced operation may be larger than a single scale is allowed to be
+ * (see {@link Scaler#AUTOSCALE_MAXSCALE_PROP}), in which case it is run against the {@link Scaler} in steps no larger
+ * than that.
+ *
+ * Operations are admitted by the {@link ScalingCooldownService} both when they're submitted and again before they run,
+ * since a cooldown may have started while they were queued, and are rejected without touching the {@link Scaler} if
+ * their Scaling Group is cooling down.
+ *
+ * Only a limited number of finished operations are retained, configurable using the
+ * {@value #RETAINED_OPERATIONS_PROP} system property.
+ */
+@Service
+@Singleton
+public class ScalingOperationService {
+
+    public static final String RETAINED_OPERATIONS_PROP = "fish.payara.autoscale.operations.retained";
+    public static final int RETAINED_OPERATIONS_DEFAULT = 100;
+
+    private static final Logger LOGGER = Logger.getLogger(ScalingOperationService.class.getName());
+
+    @Inject
+    private CommandRunner commandRunner;
+
+    @Inject
+    private ScalingCooldownService scalingCooldownService;
+
+    @Inject
+    private ScalingExecutorService scalingExecutorService;
+
+    @Inject
+    private DeploymentGroups deploymentGroups;
+
+    private final AtomicLong operationIdCounter = new AtomicLong();
+    private final Map<String, ScalingOperation> operations = new LinkedHashMap<>();
+    private final Map<String, ScalingGroupQueue> scalingGroupQueues = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a scale operation, waiting for it to finish.
+     *
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scaler The {@link Scaler} to scale the group with
+     * @return The finished {@link ScalingOperation}, which may have been rejected, or the unfinished operation if the
+     *         calling thread was interrupted while waiting
+     */
+    public ScalingOperation execute(ScalingOperation.Type type, int quantity, ScalingGroup scalingGroup,
+            Scaler scaler) {
+        return execute(type, quantity, scalingGroup, scaler, null, null);
+    }
+
+    /**
+     * Runs a scale operation, waiting for it to finish and streaming its progress as it runs.
+     *
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scaler The {@link Scaler} to scale the group with
+     * @param progressStatus The progress status to forward the progress of the operation to, such as that of the
+     *                       command running it, may be null
+     * @param instanceEventListener A listener to call with each {@link ScalingInstanceEvent} of the operation as it
+     *                              happens, may be null
+     * @return The finished {@link ScalingOperation}, which may have been rejected, or the unfinished operation if the
+     *         calling thread was interrupted while waiting
+     */
+    public ScalingOperation execute(ScalingOperation.Type type, int quantity, ScalingGroup scalingGroup,
+            Scaler scaler, ProgressStatus progressStatus, Consumer<ScalingInstanceEvent> instanceEventListener) {
+        ScalingOperation scalingOperation = executeAsync(type, quantity, scalingGroup, scaler, progressStatus,
+                instanceEventListener);
+        try {
+            scalingOperation.awaitFinished();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+        return scalingOperation;
+    }
+
+    /**
+     * Submits a scale operation to be run in the background.
+     *
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scaler The {@link Scaler} to scale the group with
+     * @return The queued {@link ScalingOperation}, which can be used to track the progress of the operation, or the
+     *         rejected operation if the Scaling Group is cooling down
+     */
+    public ScalingOperation executeAsync(ScalingOperation.Type type, int quantity, ScalingGroup scalingGroup,
+            Scaler scaler) {
+        return executeAsync(type, quantity, scalingGroup, scaler, null, null);
+    }
+
+    /**
+     * Submits a scale operation to be run in the background, streaming its progress as it runs. The operation is
+     * checked against the cooldown of its Scaling Group before it's queued, and again before it runs, so a rejection
+     * is known as soon as this returns.
+     *
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scaler The {@link Scaler} to scale the group with
+     * @param progressStatus The progress status to forward the progress of the operation to, such as that of the
+     *                       command running it, may be null
+     * @param instanceEventListener A listener to call with each {@link ScalingInstanceEvent} of the operation as it
+     *                              happens, may be null
+     * @return The queued {@link ScalingOperation}, which can be used to track the progress of the operation, or the
+     *         rejected operation if the Scaling Group is cooling down
+     */
+    public ScalingOperation executeAsync(ScalingOperation.Type type, int quantity, ScalingGroup scalingGroup,
+            Scaler scaler, ProgressStatus progressStatus, Consumer<ScalingInstanceEvent> instanceEventListener) {
+        return submit(createOperation(type, quantity, null, scalingGroup), scalingGroup, scaler, progressStatus,
+                instanceEventListener);
+    }
+
+    /**
+     * Submits an operation to scale to a target number of instances to be run in the background, streaming its
+     * progress as it runs. How far to scale is worked out from the size of the Deployment Group when the operation
+     * runs, so that several requests for the same target queued against the group don't add up.
+     *
+     * @param targetInstances The number of instances to scale the Deployment Group of the Scaling Group to
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scaler The {@link Scaler} to scale the group with
+     * @param progressStatus The progress status to forward the progress of the operation to, such as that of the
+     *                       command running it, may be null
+     * @param instanceEventListener A listener to call with each {@link ScalingInstanceEvent} of the operation as it
+     *                              happens, may be null
+     * @return The queued {@link ScalingOperation}, which can be used to track the progress of the operation, or the
+     *         rejected operation if the Scaling Group is cooling down
+     */
+    public ScalingOperation executeTargetAsync(int targetInstances, ScalingGroup scalingGroup, Scaler scaler,
+            ProgressStatus progressStatus, Consumer<ScalingInstanceEvent> instanceEventListener) {
+        int change = targetInstances - getCurrentInstances(scalingGroup);
+        return submit(createOperation(change < 0 ? ScalingOperation.Type.SCALE_DOWN : ScalingOperation.Type.SCALE_UP,
+                Math.abs(change), targetInstances, scalingGroup), scalingGroup, scaler, progressStatus,
+                instanceEventListener);
+    }
+
+    private ScalingOperation submit(ScalingOperation scalingOperation, ScalingGroup scalingGroup, Scaler scaler,
+            ProgressStatus progressStatus, Consumer<ScalingInstanceEvent> instanceEventListener) {
+        if (progressStatus != null) {
+            scalingOperation.getProgressStatus().forwardTo(progressStatus);
+        }
+        if (instanceEventListener != null) {
+            scalingOperation.getProgressStatus().addInstanceEventListener(instanceEventListener);
+        }
+
+        if (admit(scalingOperation, scalingGroup)) {
+            enqueue(scalingOperation, scalingGroup, scaler);
+        }
+        return scalingOperation;
+    }
+
+    /**
+     * @param scalingGroupName The name of the {@link ScalingGroup Scaling Group}
+     * @return true if an operation is running or queued against the Scaling Group
+     */
+    public boolean isScaling(String scalingGroupName) {
+        ScalingGroupQueue scalingGroupQueue = scalingGroupQueues.get(scalingGroupName);
+        return scalingGroupQueue != null && scalingGroupQueue.isBusy();
+    }
+
+    /**
+     * @param id The ID of the operation
+     * @return The {@link ScalingOperation} with the given ID, or null if there's no such operation
+     */
+    public ScalingOperation getOperation(String id) {
+        synchronized (operations) {
+            return operations.get(id);
+        }
+    }
+
+    /**
+     * @return All retained {@link ScalingOperation Scaling Operations}, oldest first
+     */
+    public List<ScalingOperation> getOperations() {
+        synchronized (operations) {
+            return new ArrayList<>(operations.values());
+        }
+    }
+
+    private ScalingOperation createOperation(ScalingOperation.Type type, int quantity, Integer targetInstances,
+            ScalingGroup scalingGroup) {
+        ScalingOperation scalingOperation = new ScalingOperation(
+                String.valueOf(operationIdCounter.incrementAndGet()), type, quantity, targetInstances,
+                scalingGroup.getName(), scalingGroup.getDeploymentGroupRef());
+
+        synchronized (operations) {
+            operations.put(scalingOperation.getId(), scalingOperation);
+            pruneOperations();
+        }
+
+        return scalingOperation;
+    }
+
+    /**
+     * Adds the operation to the queue of its scaling group, starting a worker to process the queue if the group isn't
+     * already being scaled.
+     */
+    private void enqueue(ScalingOperation scalingOperation, ScalingGroup scalingGroup, Scaler scaler) {
+        ScalingGroupQueue scalingGroupQueue = scalingGroupQueues.computeIfAbsent(scalingGroup.getName(),
+                scalingGroupName -> new ScalingGroupQueue());
+        if (!scalingGroupQueue.offer(new PendingOperation(scalingOperation, scalingGroup, scaler))) {
+            // Will be picked up, and coalesced with anything else waiting, once the current operation finishes
+            return;
+        }
+
+        try {
+            scalingExecutorService.executeOperation(() -> processQueue(scalingGroupQueue));
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            // Shutting down, fail everything queued rather than leaving it to wait for a worker which never comes
+            for (PendingOperation pendingOperation : scalingGroupQueue.stop()) {
+                ActionReport actionReport = commandRunner.getActionReport("plain");
+                actionReport.setMessage("Scaling operation " + pendingOperation.scalingOperation.getId() +
+                        " could not be run, the scaling executor has been shut down");
+                actionReport.setFailureCause(rejectedExecutionException);
+                actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+                pendingOperation.scalingOperation.finished(actionReport);
+            }
+        }
+    }
+
+    /**
+     * Runs the pending operations of a scaling group until there are none left, taking everything which has queued up
+     * while the previous operation ran as a single batch.
+     */
+    private void processQueue(ScalingGroupQueue scalingGroupQueue) {
+        List<PendingOperation> batch;
+        while ((batch = scalingGroupQueue.poll()) != null) {
+            try {
+                runBatch(batch);
+            } catch (RuntimeException runtimeException) {
+                LOGGER.log(Level.SEVERE, "Encountered an error running scaling operations", runtimeException);
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of operations against the same scaling group. A single operation is run as is, while several are
+     * coalesced into one new operation for their net change. The progress of the coalesced operation is passed on to
+     * each of them, and each finishes with its own report pointing at the coalesced operation, which keeps the output
+     * of the scale.
+     */
+    private void runBatch(List<PendingOperation> batch) {
+        // Use the latest request, since the scaling group config may have changed in between
+        PendingOperation latest = batch.get(batch.size() - 1);
+        int currentInstances = getCurrentInstances(latest.scalingGroup);
+        int netChange = getNetChange(batch, currentInstances);
+        if (batch.size() == 1) {
+            ScalingOperation scalingOperation = latest.scalingOperation;
+            if (scalingOperation.getTargetInstances() != null) {
+                if (netChange == 0) {
+                    ActionReport actionReport = commandRunner.getActionReport("plain");
+                    actionReport.setMessage("Deployment Group " + scalingOperation.getDeploymentGroupName() +
+                            " already has " + currentInstances + " instance(s), nothing to do");
+                    scalingOperation.started();
+                    scalingOperation.finished(actionReport);
+                    return;
+                }
+                scalingOperation.resolved(netChange > 0 ? ScalingOperation.Type.SCALE_UP :
+                        ScalingOperation.Type.SCALE_DOWN, Math.abs(netChange));
+            }
+
+            if (admit(scalingOperation, latest.scalingGroup)) {
+                run(scalingOperation, latest.scalingGroup, latest.scaler);
+            }
+            return;
+        }
+
+        if (netChange == 0) {
+            for (PendingOperation pendingOperation : batch) {
+                ActionReport actionReport = commandRunner.getActionReport("plain");
+                actionReport.setMessage("Scaling operation " + pendingOperation.scalingOperation.getId() +
+                        " was cancelled out by " + (batch.size() - 1) + " concurrent request(s) to scale " +
+                        "Scaling Group " + latest.scalingGroup.getName() + ", nothing to do");
+                pendingOperation.scalingOperation.started();
+                pendingOperation.scalingOperation.finished(actionReport);
+            }
+            return;
+        }
+
+        ScalingOperation coalescedOperation = createOperation(netChange > 0 ?
+                ScalingOperation.Type.SCALE_UP : ScalingOperation.Type.SCALE_DOWN, Math.abs(netChange), null,
+                latest.scalingGroup);
+        LOGGER.fine(() -> "Coalesced " + batch.size() + " requests to scale Scaling Group " +
+                latest.scalingGroup.getName() + " into operation " + coalescedOperation.getId() + " to " +
+                coalescedOperation.getType() + " by " + coalescedOperation.getQuantity());
+        for (PendingOperation pendingOperation : batch) {
+            ScalingOperation scalingOperation = pendingOperation.scalingOperation;
+            scalingOperation.coalescedInto(coalescedOperation.getId());
+            scalingOperation.started();
+            scalingOperation.getProgressStatus().progress("Coalesced with " + (batch.size() - 1) +
+                    " concurrent request(s) into operation " + coalescedOperation.getId() + " to " +
+                    coalescedOperation.getType() + " by " + coalescedOperation.getQuantity());
+            coalescedOperation.getProgressStatus().forwardTo(scalingOperation.getProgressStatus());
+            coalescedOperation.getProgressStatus().addInstanceEventListener(
+                    scalingOperation.getProgressStatus()::recordInstanceEvent);
+        }
+
+        if (admit(coalescedOperation, latest.scalingGroup)) {
+            run(coalescedOperation, latest.scalingGroup, latest.scaler);
+        }
+
+        ActionReport coalescedActionReport = coalescedOperation.getActionReport();
+        for (PendingOperation pendingOperation : batch) {
+            ScalingOperation scalingOperation = pendingOperation.scalingOperation;
+            ActionReport actionReport = commandRunner.getActionReport("plain");
+            actionReport.setActionExitCode(coalescedActionReport.getActionExitCode());
+            actionReport.setMessage("Scaling operation " + scalingOperation.getId() + " was coalesced with " +
+                    (batch.size() - 1) + " concurrent request(s) into operation " + coalescedOperation.getId() +
+                    " with a net change of " + (netChange > 0 ? "+" : "") + netChange + " instance(s), which ");
+            if (coalescedOperation.getState() == ScalingOperation.State.REJECTED) {
+                actionReport.appendMessage("was rejected: " + coalescedActionReport.getMessage());
+                scalingOperation.rejected(actionReport);
+            } else {
+                actionReport.appendMessage(coalescedOperation.getState() == ScalingOperation.State.FAILED ?
+                        "failed" : "completed");
+                actionReport.appendMessage(". Use get-scaling-operation " + coalescedOperation.getId() +
+                        " to see its output.");
+                scalingOperation.finished(actionReport);
+            }
+        }
+    }
+
+    /**
+     * Works out the net change in instances of a batch of operations. An operation with a target number of instances
+     * overrides everything queued before it, since the target is where the group should end up regardless.
+     *
+     * @param batch The operations, in the order they were submitted
+     * @param currentInstances The number of instances the Deployment Group has now
+     * @return The net change in instances: positive to scale up, negative to scale down, or 0 if there's nothing to do
+     */
+    static int getNetChange(List<PendingOperation> batch, int currentInstances) {
+        int netChange = 0;
+        for (PendingOperation pendingOperation : batch) {
+            ScalingOperation scalingOperation = pendingOperation.scalingOperation;
+            if (scalingOperation.getTargetInstances() != null) {
+                netChange = scalingOperation.getTargetInstances() - currentInstances;
+            } else {
+                netChange += scalingOperation.getType() == ScalingOperation.Type.SCALE_UP ?
+                        scalingOperation.getQuantity() : -scalingOperation.getQuantity();
+            }
+        }
+        return netChange;
+    }
+
+    /**
+     * @return The number of instances in the Deployment Group of the Scaling Group, or 0 if it doesn't exist
+     */
+    private int getCurrentInstances(ScalingGroup scalingGroup) {
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+        return deploymentGroup == null ? 0 : deploymentGroup.getInstances().size();
+    }
+
+    /**
+     * Checks the operation against the cooldown of its scaling group, rejecting it if it may not run.
+     *
+     * @return true if the operation may run
+     */
+    private boolean admit(ScalingOperation scalingOperation, ScalingGroup scalingGroup) {
+        String rejection = scalingCooldownService.admit(scalingGroup, scalingOperation.getType());
+        if (rejection == null) {
+            return true;
+        }
+
+        LOGGER.fine(rejection);
+        ActionReport actionReport = commandRunner.getActionReport("plain");
+        actionReport.setMessage(rejection);
+        actionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+        scalingOperation.rejected(actionReport);
+        return false;
+    }
+
+    private void run(ScalingOperation scalingOperation, ScalingGroup scalingGroup, Scaler scaler) {
+        scalingOperation.started();
+
+        int maxScale = Integer.getInteger(AUTOSCALE_MAXSCALE_PROP, AUTOSCALE_MAXSCALE_DEFAULT);
+        if (maxScale < 1) {
+            maxScale = AUTOSCALE_MAXSCALE_DEFAULT;
+        }
+
+        ActionReport actionReport;
+        if (scalingOperation.getQuantity() <= maxScale) {
+            actionReport = runStep(scalingOperation, scalingOperation.getQuantity(), scalingGroup, scaler);
+        } else {
+            // Only coalesced operations and targets can get here, scale them in steps which the Scaler will accept
+            actionReport = commandRunner.getActionReport("plain");
+            actionReport.setActionExitCode(ActionReport.ExitCode.SUCCESS);
+            actionReport.setMessage("Scaling operation " + scalingOperation.getId() + " run in steps of at most " +
+                    maxScale + " instance(s)");
+            int remainingQuantity = scalingOperation.getQuantity();
+            for (int quantity : getSteps(scalingOperation.getQuantity(), maxScale)) {
+                ActionReport stepActionReport = runStep(scalingOperation, quantity, scalingGroup, scaler);
+                remainingQuantity -= quantity;
+                actionReport.appendMessage("\n" + scalingOperation.getType() + " by " + quantity + ": " +
+                        stepActionReport.getMessage());
+
+                if (stepActionReport.getActionExitCode() != ActionReport.ExitCode.SUCCESS) {
+                    actionReport.setActionExitCode(stepActionReport.getActionExitCode());
+                    if (stepActionReport.getFailureCause() != null) {
+                        actionReport.setFailureCause(stepActionReport.getFailureCause());
+                    }
+                }
+                if (stepActionReport.getActionExitCode() == ActionReport.ExitCode.FAILURE) {
+                    actionReport.appendMessage("\nStopped with " + remainingQuantity + " instance(s) left to " +
+                            scalingOperation.getType());
+                    break;
+                }
+            }
+        }
+
+        scalingOperation.finished(actionReport);
+        scalingCooldownService.finished(scalingGroup.getName(), scalingOperation.getType(),
+                scalingOperation.getState() == ScalingOperation.State.COMPLETED);
+    }
+
+    /**
+     * Splits the quantity of an operation into the steps to run it in, none of which are larger than the maximum.
+     *
+     * @param quantity The number of instances to scale up or down by
+     * @param maxScale The maximum number of instances a single step may scale by
+     * @return The number of instances to scale by in each step, in order
+     */
+    static List<Integer> getSteps(int quantity, int maxScale) {
+        List<Integer> steps = new ArrayList<>();
+        for (int remainingQuantity = quantity; remainingQuantity > 0; remainingQuantity -= maxScale) {
+            steps.add(Math.min(remainingQuantity, maxScale));
+        }
+        return steps;
+    }
+
+    private ActionReport runStep(ScalingOperation scalingOperation, int quantity, ScalingGroup scalingGroup,
+            Scaler scaler) {
+        ActionReport actionReport;
+        try {
+            if (scalingOperation.getType() == ScalingOperation.Type.SCALE_UP) {
+                actionReport = scaler.scaleUp(quantity, scalingGroup, scalingOperation.getProgressStatus());
+            } else {
+                actionReport = scaler.scaleDown(quantity, scalingGroup, scalingOperation.getProgressStatus());
+            }
+        } catch (RuntimeException runtimeException) {
+            LOGGER.log(Level.SEVERE, "Encountered an error running scaling operation " + scalingOperation.getId(),
+                    runtimeException);
+            actionReport = commandRunner.getActionReport("plain");
+            actionReport.setMessage("Scaling operation " + scalingOperation.getId() + " failed");
+            actionReport.setFailureCause(runtimeException);
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+        }
+        return actionReport;
+    }
+
+    /**
+     * Removes the oldest finished operations if there are more than the retention limit. Must be called while holding
+     * the lock on the operations map.
+     */
+    private void pruneOperations() {
+        int retainedOperations = Integer.getInteger(RETAINED_OPERATIONS_PROP, RETAINED_OPERATIONS_DEFAULT);
+        int excess = operations.size() - Math.max(1, retainedOperations);
+
+        Iterator<ScalingOperation> iterator = operations.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * The operations waiting to scale a single scaling group, and whether a worker is running them. The queue is
+     * either idle, or running until a worker finds it empty. Guarded by its own lock.
+     */
+    static class ScalingGroupQueue {
+        private final List<PendingOperation> pendingOperations = new ArrayList<>();
+        private boolean running;
+
+        /**
+         * Adds an operation to the queue, marking it as running if it was idle.
+         *
+         * @return true if the queue was idle, in which case the caller must start a worker to run it
+         */
+        synchronized boolean offer(PendingOperation pendingOperation) {
+            pendingOperations.add(pendingOperation);
+            if (running) {
+                return false;
+            }
+            running = true;
+            return true;
+        }
+
+        /**
+         * Takes everything which has queued up as a single batch, marking the queue as idle if there's nothing.
+         *
+         * @return The batch, or null if the queue is empty, in which case the worker must stop
+         */
+        synchronized List<PendingOperation> poll() {
+            if (pendingOperations.isEmpty()) {
+                running = false;
+                return null;
+            }
+            List<PendingOperation> batch = new ArrayList<>(pendingOperations);
+            pendingOperations.clear();
+            return batch;
+        }
+
+        /**
+         * Marks the queue as idle after a worker couldn't be started for it, taking away its operations.
+         *
+         * @return The operations which were waiting, which will now never run
+         */
+        synchronized List<PendingOperation> stop() {
+            List<PendingOperation> abandoned = new ArrayList<>(pendingOperations);
+            pendingOperations.clear();
+            running = false;
+            return abandoned;
+        }
+
+        /**
+         * @return true if the queue is running or has operations waiting
+         */
+        synchronized boolean isBusy() {
+            return running || !pendingOperations.isEmpty();
+        }
+    }
+
+    static class PendingOperation {
+        private final ScalingOperation scalingOperation;
+        private final ScalingGroup scalingGroup;
+        private final Scaler scaler;
+
+        PendingOperation(ScalingOperation scalingOperation, ScalingGroup scalingGroup, Scaler scaler) {
+            this.scalingOperation = scalingOperation;
+            this.scalingGroup = scalingGroup;
+            this.scaler = scaler;
+        }
+    }
+}
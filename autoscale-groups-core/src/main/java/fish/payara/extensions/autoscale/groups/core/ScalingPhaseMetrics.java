@@ -0,0 +1,208 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import com.sun.enterprise.util.StringUtils;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records timers and failure counters for each phase of a scaling operation, such as validation or the creation of
+ * instances, and for each command run against an instance. Timers are tagged by scaling group and, where a phase runs
+ * against a single node, by node.
+ *
+ * The timings are exposed over JMX using the {@link ScalingPhaseMetricsMXBean} interface, and can be rendered in the
+ * Prometheus text exposition format with {@link #getPrometheusText()}.
+ */
+@Service
+@Singleton
+public class ScalingPhaseMetrics implements ScalingPhaseMetricsMXBean, PostConstruct, PreDestroy {
+
+    public static final String OBJECT_NAME = "fish.payara.extensions.autoscale.groups:type=ScalingPhaseMetrics";
+
+    private static final String METRIC_PREFIX = "autoscale_groups_phase";
+    private static final Logger LOGGER = Logger.getLogger(ScalingPhaseMetrics.class.getName());
+
+    private final Map<String, ScalingPhaseTimer> phaseTimers = new ConcurrentHashMap<>();
+
+    @Override
+    public void postConstruct() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException jmException) {
+            LOGGER.log(Level.WARNING, "Could not register Scaling Phase Metrics MBean", jmException);
+        }
+    }
+
+    @Override
+    public void preDestroy() {
+        try {
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException jmException) {
+            LOGGER.log(Level.FINE, "Could not unregister Scaling Phase Metrics MBean", jmException);
+        }
+    }
+
+    /**
+     * Records a single run of a phase, which started at the given time and finished now.
+     *
+     * @param phase The name of the phase
+     * @param scalingGroup The name of the scaling group the phase ran for
+     * @param node The name of the node the phase ran against, or null if it didn't run against a single node
+     * @param startTime When the phase started, as given by {@link System#nanoTime()}
+     * @param success Whether the phase completed successfully
+     */
+    public void record(String phase, String scalingGroup, String node, long startTime, boolean success) {
+        long duration = System.nanoTime() - startTime;
+        String key = phase + '\u0000' + scalingGroup + '\u0000' + (node == null ? "" : node);
+        phaseTimers.computeIfAbsent(key, timerKey -> new ScalingPhaseTimer(phase, scalingGroup, node))
+                .record(duration, success);
+    }
+
+    /**
+     * Discards the timers of a scaling group, for example once it has been deleted.
+     *
+     * @param scalingGroup The name of the scaling group
+     */
+    public void remove(String scalingGroup) {
+        phaseTimers.values().removeIf(phaseTimer -> phaseTimer.getScalingGroup().equals(scalingGroup));
+    }
+
+    @Override
+    public List<ScalingPhaseTimer> getPhaseTimers() {
+        List<ScalingPhaseTimer> sortedPhaseTimers = new ArrayList<>(phaseTimers.values());
+        sortedPhaseTimers.sort(Comparator.comparing(ScalingPhaseTimer::getScalingGroup)
+                .thenComparing(ScalingPhaseTimer::getPhase)
+                .thenComparing(ScalingPhaseTimer::getNode));
+        return sortedPhaseTimers;
+    }
+
+    /**
+     * Gets the timers of a single scaling group.
+     *
+     * @param scalingGroup The name of the scaling group
+     * @return The timers of every phase and node recorded for the scaling group
+     */
+    public List<ScalingPhaseTimer> getPhaseTimers(String scalingGroup) {
+        List<ScalingPhaseTimer> scalingGroupPhaseTimers = getPhaseTimers();
+        scalingGroupPhaseTimers.removeIf(phaseTimer -> !phaseTimer.getScalingGroup().equals(scalingGroup));
+        return scalingGroupPhaseTimers;
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return toPrometheusText(getPhaseTimers());
+    }
+
+    @Override
+    public void reset() {
+        phaseTimers.clear();
+    }
+
+    /**
+     * Renders the given timers in the Prometheus text exposition format: each phase is exposed as a summary of its
+     * duration in seconds, along with a gauge of its longest duration and a counter of its failures.
+     *
+     * @param phaseTimers The timers to render
+     * @return The timers in the Prometheus text exposition format
+     */
+    public static String toPrometheusText(List<ScalingPhaseTimer> phaseTimers) {
+        StringBuilder durations = new StringBuilder();
+        StringBuilder maxDurations = new StringBuilder();
+        StringBuilder failures = new StringBuilder();
+
+        durations.append("# HELP ").append(METRIC_PREFIX).append("_seconds Time spent in each phase of scaling operations\n");
+        durations.append("# TYPE ").append(METRIC_PREFIX).append("_seconds summary\n");
+        maxDurations.append("# HELP ").append(METRIC_PREFIX).append("_max_seconds Longest time spent in each phase of scaling operations\n");
+        maxDurations.append("# TYPE ").append(METRIC_PREFIX).append("_max_seconds gauge\n");
+        failures.append("# HELP ").append(METRIC_PREFIX).append("_failures_total Number of failed runs of each phase of scaling operations\n");
+        failures.append("# TYPE ").append(METRIC_PREFIX).append("_failures_total counter\n");
+
+        for (ScalingPhaseTimer phaseTimer : phaseTimers) {
+            String labels = getPrometheusLabels(phaseTimer);
+            durations.append(METRIC_PREFIX).append("_seconds_count").append(labels).append(' ')
+                    .append(phaseTimer.getCount()).append('\n');
+            durations.append(METRIC_PREFIX).append("_seconds_sum").append(labels).append(' ')
+                    .append(phaseTimer.getTotalTime() / 1000).append('\n');
+            maxDurations.append(METRIC_PREFIX).append("_max_seconds").append(labels).append(' ')
+                    .append(phaseTimer.getMaxTime() / 1000).append('\n');
+            failures.append(METRIC_PREFIX).append("_failures_total").append(labels).append(' ')
+                    .append(phaseTimer.getFailures()).append('\n');
+        }
+
+        return durations.append(maxDurations).append(failures).toString();
+    }
+
+    private static String getPrometheusLabels(ScalingPhaseTimer phaseTimer) {
+        StringBuilder labels = new StringBuilder("{phase=\"").append(escapeLabelValue(phaseTimer.getPhase()))
+                .append("\",scaling_group=\"").append(escapeLabelValue(phaseTimer.getScalingGroup())).append('"');
+        if (StringUtils.ok(phaseTimer.getNode())) {
+            labels.append(",node=\"").append(escapeLabelValue(phaseTimer.getNode())).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static String escapeLabelValue(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
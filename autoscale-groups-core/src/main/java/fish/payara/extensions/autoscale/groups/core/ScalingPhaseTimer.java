@@ -0,0 +1,139 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates how many times a phase of a scaling operation has run, how many of those runs failed, and how long they
+ * took. Each timer is tagged with the phase, the scaling group, and optionally the node it ran against.
+ */
+public class ScalingPhaseTimer {
+
+    private final String phase;
+    private final String scalingGroup;
+    private final String node;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    public ScalingPhaseTimer(String phase, String scalingGroup, String node) {
+        this.phase = phase;
+        this.scalingGroup = scalingGroup;
+        this.node = node;
+    }
+
+    /**
+     * Records a single run of the phase.
+     *
+     * @param duration How long the phase took, in nanoseconds
+     * @param success Whether the phase completed successfully
+     */
+    void record(long duration, boolean success) {
+        count.increment();
+        if (!success) {
+            failures.increment();
+        }
+        totalTime.add(duration);
+        maxTime.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * @return The name of the phase
+     */
+    public String getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return The name of the scaling group the phase ran for
+     */
+    public String getScalingGroup() {
+        return scalingGroup;
+    }
+
+    /**
+     * @return The name of the node the phase ran against, or an empty String if it didn't run against a single node
+     */
+    public String getNode() {
+        return node == null ? "" : node;
+    }
+
+    /**
+     * @return The number of times the phase has run
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The number of times the phase has failed
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return The total time in milliseconds spent in the phase
+     */
+    public double getTotalTime() {
+        return totalTime.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @return The average time in milliseconds spent in the phase
+     */
+    public double getAverageTime() {
+        long runs = count.sum();
+        return runs == 0 ? 0 : getTotalTime() / runs;
+    }
+
+    /**
+     * @return The longest time in milliseconds spent in the phase
+     */
+    public double getMaxTime() {
+        return maxTime.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
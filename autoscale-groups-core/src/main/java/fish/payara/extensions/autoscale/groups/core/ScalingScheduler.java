@@ -0,0 +1,293 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalerRegistry;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.ScalingSchedule;
+import org.glassfish.api.StartupRunLevel;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.glassfish.hk2.api.PostConstruct;
+import org.glassfish.hk2.api.PreDestroy;
+import org.glassfish.hk2.api.ServiceLocator;
+import org.glassfish.hk2.runlevel.RunLevel;
+import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.ConfigSupport;
+import org.jvnet.hk2.config.TransactionFailure;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_DEFAULT;
+import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_PROP;
+
+/**
+ * DAS service which fires the {@link ScalingSchedule Scaling Schedules} of each {@link ScalingGroup Scaling Group},
+ * scaling the group to the number of instances of the schedule using the {@link Scaler} configured for the group.
+ *
+ * Schedules are evaluated once a minute. When a schedule fires, the desired number of instances of the group is
+ * updated so that the {@link ScalingController} works from the scheduled size, and a scale operation towards it is
+ * submitted straight away. Scale operations are run in the background, so that a long running operation doesn't hold
+ * up the schedules of other groups. The group is checked against its scheduled size again on the following minutes,
+ * until it's reached: a group which is still being scaled is left alone until its operation has finished, and a
+ * rejected operation, for example because the group is cooling down, or a group further from the scheduled size than
+ * a single scale operation allows, is scaled again from its live size. A failed operation isn't retried.
+ */
+@Service(name = "scaling-scheduler")
+@RunLevel(value = StartupRunLevel.VAL, mode = RunLevel.RUNLEVEL_MODE_NON_VALIDATING)
+public class ScalingScheduler implements PostConstruct, PreDestroy {
+
+    private static final Logger LOGGER = Logger.getLogger(ScalingScheduler.class.getName());
+
+    @Inject
+    private ServiceLocator serviceLocator;
+
+    @Inject
+    private ServerEnvironment serverEnvironment;
+
+    @Inject
+    private ScalingGroupsIndex scalingGroupsIndex;
+
+    @Inject
+    private ScalingOperationService scalingOperationService;
+
+    @Inject
+    private ScalerRegistry scalerRegistry;
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    // Only accessed from the scheduler thread
+    private ZonedDateTime lastEvaluation;
+    private final Map<String, Integer> pendingScheduledInstances = new HashMap<>();
+    private final Map<String, ScalingOperation> scheduledOperations = new HashMap<>();
+
+    @Override
+    public void postConstruct() {
+        // Scaling is driven exclusively from the DAS
+        if (!serverEnvironment.isDas()) {
+            return;
+        }
+
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autoscale-groups-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Evaluate just after the start of each minute. Schedules which would have fired while the DAS was down are
+        // not caught up on
+        lastEvaluation = ZonedDateTime.now();
+        long initialDelay = Duration.between(lastEvaluation,
+                lastEvaluation.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1)).toMillis() + 1000;
+        scheduledExecutorService.scheduleAtFixedRate(this::evaluateSchedules, initialDelay,
+                TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void preDestroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Fires any schedules which are due since the last evaluation and reconciles the groups still waiting to reach
+     * their scheduled size. Any exceptions are caught and logged so as to not cancel future executions.
+     */
+    void evaluateSchedules() {
+        ZonedDateTime now = ZonedDateTime.now();
+        try {
+            Set<String> scalingGroupNames = new HashSet<>();
+            for (ScalingGroup scalingGroup : scalingGroupsIndex.getScalingGroups()) {
+                scalingGroupNames.add(scalingGroup.getName());
+                try {
+                    ScalingSchedule firedSchedule = getFiredSchedule(scalingGroup, lastEvaluation, now);
+                    if (firedSchedule != null) {
+                        LOGGER.info("Scaling Schedule " + firedSchedule.getName() + " of Scaling Group " +
+                                scalingGroup.getName() + " fired, scaling to " +
+                                firedSchedule.getDesiredInstances() + " instance(s)");
+                        pendingScheduledInstances.put(scalingGroup.getName(),
+                                Integer.valueOf(firedSchedule.getDesiredInstances()));
+                        scheduledOperations.remove(scalingGroup.getName());
+                    }
+
+                    Integer scheduledInstances = pendingScheduledInstances.get(scalingGroup.getName());
+                    if (scheduledInstances != null && reconcile(scalingGroup, scheduledInstances)) {
+                        pendingScheduledInstances.remove(scalingGroup.getName());
+                    }
+                } catch (Exception exception) {
+                    LOGGER.log(Level.WARNING, "Encountered an error evaluating the schedules of Scaling Group " +
+                            scalingGroup.getName(), exception);
+                }
+            }
+
+            // Forget about any groups which have been deleted
+            pendingScheduledInstances.keySet().retainAll(scalingGroupNames);
+            scheduledOperations.keySet().retainAll(pendingScheduledInstances.keySet());
+        } catch (Exception exception) {
+            LOGGER.log(Level.WARNING, "Encountered an error evaluating Scaling Schedules", exception);
+        } finally {
+            lastEvaluation = now;
+        }
+    }
+
+    /**
+     * Gets the schedule of the group which fired between the two given times. If more than one fired, the one which
+     * fired last wins.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to check the schedules of
+     * @param from The time of the last evaluation, exclusive
+     * @param to The time of this evaluation, inclusive
+     * @return The schedule which fired, or null if none did
+     */
+    private ScalingSchedule getFiredSchedule(ScalingGroup scalingGroup, ZonedDateTime from, ZonedDateTime to) {
+        ScalingSchedule firedSchedule = null;
+        ZonedDateTime firedTime = null;
+        for (ScalingSchedule scalingSchedule : scalingGroup.getScalingSchedules()) {
+            ZonedDateTime fireTime;
+            try {
+                fireTime = CronExpression.parse(scalingSchedule.getCron()).next(from);
+            } catch (IllegalArgumentException illegalArgumentException) {
+                LOGGER.log(Level.FINE, "Skipping Scaling Schedule " + scalingSchedule.getName() + " of Scaling Group " +
+                        scalingGroup.getName(), illegalArgumentException);
+                continue;
+            }
+
+            if (fireTime != null && !fireTime.isAfter(to) && (firedTime == null || !fireTime.isBefore(firedTime))) {
+                firedSchedule = scalingSchedule;
+                firedTime = fireTime;
+            }
+        }
+        return firedSchedule;
+    }
+
+    /**
+     * Submits an operation to scale the group towards the scheduled number of instances, bounded by its minimum and
+     * maximum instances, unless the group is still being scaled.
+     *
+     * @param scalingGroup The {@link ScalingGroup Scaling Group} to scale
+     * @param scheduledInstances The number of instances the schedule wants
+     * @return true if the group has reached its scheduled size, or can't be scaled any further, false if it should be
+     *         checked again on the next evaluation
+     */
+    private boolean reconcile(ScalingGroup scalingGroup, int scheduledInstances) {
+        int desiredInstances = Math.max(Integer.parseInt(scalingGroup.getMinInstances()),
+                Math.min(Integer.parseInt(scalingGroup.getMaxInstances()), scheduledInstances));
+        if (!String.valueOf(desiredInstances).equals(scalingGroup.getDesiredInstances())) {
+            persistDesiredInstances(scalingGroup, desiredInstances);
+        }
+
+        // Let the operation in flight finish, the group is checked against its live size again next time
+        if (scalingOperationService.isScaling(scalingGroup.getName())) {
+            LOGGER.fine("Scaling Group " + scalingGroup.getName() + " is still being scaled, skipping");
+            return false;
+        }
+
+        ScalingOperation previousOperation = scheduledOperations.remove(scalingGroup.getName());
+        if (previousOperation != null && previousOperation.getActionReport().hasFailures()) {
+            LOGGER.warning("Encountered failures scaling Scaling Group " + scalingGroup.getName() +
+                    " to its scheduled size: " + previousOperation.getActionReport().getMessage());
+            return true;
+        }
+
+        DeploymentGroups deploymentGroups = serviceLocator.getService(DeploymentGroups.class);
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+        if (deploymentGroup == null) {
+            LOGGER.warning("Scaling Group " + scalingGroup.getName() + " references Deployment Group " +
+                    scalingGroup.getDeploymentGroupRef() + " which does not appear to exist, skipping");
+            return true;
+        }
+
+        int currentInstances = deploymentGroup.getInstances().size();
+        if (currentInstances == desiredInstances) {
+            return true;
+        }
+
+        Scaler scaler = scalerRegistry.getScaler(scalingGroup);
+        if (scaler == null) {
+            LOGGER.warning("Could not find a Scaler for Scaling Group " + scalingGroup.getName() + ", skipping");
+            return true;
+        }
+
+        int maxScale = Integer.getInteger(AUTOSCALE_MAXSCALE_PROP, AUTOSCALE_MAXSCALE_DEFAULT);
+        if (maxScale < 1) {
+            maxScale = AUTOSCALE_MAXSCALE_DEFAULT;
+        }
+
+        int quantity = Math.min(Math.abs(desiredInstances - currentInstances), maxScale);
+        ScalingOperation.Type type = desiredInstances > currentInstances ?
+                ScalingOperation.Type.SCALE_UP : ScalingOperation.Type.SCALE_DOWN;
+        ScalingOperation scalingOperation = scalingOperationService.executeAsync(type, quantity, scalingGroup,
+                scaler);
+        // A rejected operation is simply tried again, whereas the outcome of any other is checked next time
+        if (scalingOperation.getState() != ScalingOperation.State.REJECTED) {
+            scheduledOperations.put(scalingGroup.getName(), scalingOperation);
+        }
+        return false;
+    }
+
+    private void persistDesiredInstances(ScalingGroup scalingGroup, int desiredInstances) {
+        try {
+            ConfigSupport.apply(scalingGroupProxy -> {
+                scalingGroupProxy.setDesiredInstances(String.valueOf(desiredInstances));
+                return scalingGroupProxy;
+            }, scalingGroup);
+        } catch (TransactionFailure transactionFailure) {
+            LOGGER.log(Level.WARNING, "Could not update desired instances of Scaling Group " +
+                    scalingGroup.getName(), transactionFailure);
+        }
+    }
+}
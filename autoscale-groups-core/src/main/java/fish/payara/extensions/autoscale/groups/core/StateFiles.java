@@ -0,0 +1,95 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Reads and writes the properties files in the config directory of the domain which services keep their state in, so
+ * that it survives a restart of the DAS. A state file is always replaced atomically, so that a crash can't leave a
+ * partially written file behind.
+ */
+final class StateFiles {
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private StateFiles() {
+    }
+
+    /**
+     * Reads a state file.
+     *
+     * @param stateFile The state file to read
+     * @return The properties in the state file, or no properties if it doesn't exist
+     * @throws IOException If the state file exists, but could not be read
+     */
+    static Properties load(File stateFile) throws IOException {
+        Properties properties = new Properties();
+        if (stateFile.isFile()) {
+            try (InputStream inputStream = Files.newInputStream(stateFile.toPath())) {
+                properties.load(inputStream);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Replaces a state file, by writing the properties to a temporary file next to it and then moving that over it.
+     *
+     * @param properties The properties to write
+     * @param stateFile The state file to replace
+     * @param comments A description of the state, written at the top of the file
+     * @throws IOException If the state file could not be written, in which case it's left as it was
+     */
+    static void store(Properties properties, File stateFile, String comments) throws IOException {
+        Path tempFile = stateFile.toPath().resolveSibling(stateFile.getName() + TEMP_FILE_SUFFIX);
+        try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+            properties.store(outputStream, comments);
+        }
+        Files.move(tempFile, stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
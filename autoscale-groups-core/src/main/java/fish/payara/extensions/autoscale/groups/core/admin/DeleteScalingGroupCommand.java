@@ -39,8 +39,14 @@
  */
 package fish.payara.extensions.autoscale.groups.core.admin;
 
+import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalerRegistry;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
 import fish.payara.extensions.autoscale.groups.ScalingGroups;
 import fish.payara.extensions.autoscale.groups.admin.ScalingGroupCommand;
+import fish.payara.extensions.autoscale.groups.core.ScalingCooldownService;
+import fish.payara.extensions.autoscale.groups.core.ScalingForecastService;
+import fish.payara.extensions.autoscale.groups.core.ScalingPhaseMetrics;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.admin.AdminCommandContext;
 import org.glassfish.api.admin.CommandValidationException;
@@ -53,10 +59,13 @@ import org.jvnet.hk2.annotations.Service;
 import org.jvnet.hk2.config.ConfigSupport;
 import org.jvnet.hk2.config.TransactionFailure;
 
+import javax.inject.Inject;
+
 /**
- * Command for deleting a {@link fish.payara.extensions.autoscale.groups.ScalingGroup Scaling Group}. Outside of any
- * unique clean up an extension may wish to perform upon deletion, this command should suffice for deleting a
- * {@link fish.payara.extensions.autoscale.groups.ScalingGroup} and so is not included in the API.
+ * Command for deleting a {@link fish.payara.extensions.autoscale.groups.ScalingGroup Scaling Group}. Any unique clean
+ * up an extension may wish to perform upon deletion is done by its {@link Scaler#cleanUp(ScalingGroup, ActionReport)}
+ * before the config is removed, so this command should suffice for deleting a
+ * {@link fish.payara.extensions.autoscale.groups.ScalingGroup} and is not included in the API.
  *
  * @author Andrew Pielage
  */
@@ -72,6 +81,18 @@ import org.jvnet.hk2.config.TransactionFailure;
 })
 public class DeleteScalingGroupCommand extends ScalingGroupCommand {
 
+    @Inject
+    private ScalerRegistry scalerRegistry;
+
+    @Inject
+    private ScalingCooldownService scalingCooldownService;
+
+    @Inject
+    private ScalingForecastService scalingForecastService;
+
+    @Inject
+    private ScalingPhaseMetrics scalingPhaseMetrics;
+
     @Override
     public void execute(AdminCommandContext adminCommandContext) {
         try {
@@ -82,6 +103,20 @@ public class DeleteScalingGroupCommand extends ScalingGroupCommand {
             return;
         }
 
+        // Let the Scaler remove anything it holds outside of the Deployment Group, so that nothing is orphaned
+        ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroup(name);
+        Scaler scaler = scalerRegistry.getScaler(scalingGroup);
+        if (scaler != null) {
+            ActionReport cleanUpActionReport = adminCommandContext.getActionReport().addSubActionsReport();
+            scaler.cleanUp(scalingGroup, cleanUpActionReport);
+            if (cleanUpActionReport.hasFailures()) {
+                adminCommandContext.getActionReport().setMessage("Could not clean up Scaling Group " + name +
+                        ", it has not been deleted");
+                adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                return;
+            }
+        }
+
         try {
             ConfigSupport.apply(scalingGroupsProxy -> {
                 scalingGroupsProxy.getScalingGroups().remove(scalingGroupsProxy.getScalingGroup(name));
@@ -91,14 +126,20 @@ public class DeleteScalingGroupCommand extends ScalingGroupCommand {
         } catch (TransactionFailure transactionFailure) {
             adminCommandContext.getActionReport().setFailureCause(transactionFailure);
             adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
         }
+
+        // Don't let a new scaling group with the same name inherit the cooldown or load history of this one
+        scalingCooldownService.remove(name);
+        scalingForecastService.remove(name);
+        scalingPhaseMetrics.remove(name);
     }
 
     @Override
     protected void validateParams() throws CommandValidationException {
         super.validateParams();
 
-        if (scalingGroups.getScalingGroup(name) == null) {
+        if (scalingGroupsIndex.getScalingGroup(name) == null) {
             throw new CommandValidationException("Scaling group with name " + name + " does not exist");
         }
     }
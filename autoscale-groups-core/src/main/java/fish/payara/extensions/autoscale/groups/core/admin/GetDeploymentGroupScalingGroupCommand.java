@@ -86,15 +86,7 @@ public class GetDeploymentGroupScalingGroupCommand extends ScalingGroupCommand {
             return;
         }
 
-        ScalingGroup scalingGroup = null;
-
-        // Search through the scaling groups, checking for the one with a reference to our requested deployment group
-        for (ScalingGroup scalingGroupIterator : scalingGroups.getScalingGroups()) {
-            if (scalingGroupIterator.getDeploymentGroupRef().equals(name)) {
-                scalingGroup = scalingGroupIterator;
-                break;
-            }
-        }
+        ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(name);
 
         if (scalingGroup == null) {
             // Don't mark as a failure - it is acceptable for a deployment group to not have a scaling group
@@ -0,0 +1,163 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.admin.ScalingGroupCommand;
+import fish.payara.extensions.autoscale.groups.core.HoltWintersForecaster;
+import fish.payara.extensions.autoscale.groups.core.ScalingForecastService;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Gets the demand forecast of a {@link ScalingGroup Scaling Group} used for predictive scaling, along with the error of
+ * past forecasts so that how far the forecast can be trusted can be judged. Demand is the load of the group multiplied
+ * by its number of instances.
+ */
+@Service(name = "get-scaling-forecast")
+@PerLookup
+@ExecuteOn(RuntimeType.DAS)
+@CommandLock(CommandLock.LockType.NONE)
+@RestEndpoints({
+        @RestEndpoint(configBean = ScalingGroups.class,
+                opType = RestEndpoint.OpType.GET,
+                path = "get-scaling-forecast",
+                description = "Gets the demand forecast of a Scaling Group")
+})
+public class GetScalingForecastCommand extends ScalingGroupCommand {
+
+    @Inject
+    private ScalingForecastService scalingForecastService;
+
+    @Inject
+    private DeploymentGroups deploymentGroups;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        try {
+            validateParams();
+        } catch (CommandValidationException commandValidationException) {
+            adminCommandContext.getActionReport().setFailureCause(commandValidationException);
+            adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroup(name);
+        ActionReport actionReport = adminCommandContext.getActionReport();
+        actionReport.setMessage("Scaling Group: " + name);
+        actionReport.appendMessage("\nPredictive Scaling Enabled: " + scalingGroup.getPredictiveScalingEnabled());
+
+        HoltWintersForecaster forecaster = scalingForecastService.getForecaster(name);
+        if (forecaster == null) {
+            actionReport.appendMessage("\nNo load history has been collected for this Scaling Group");
+            return;
+        }
+
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+        int currentInstances = deploymentGroup == null ? 0 : deploymentGroup.getInstances().size();
+        int predictedInstances = scalingForecastService.getPredictedInstances(scalingGroup);
+
+        Map<String, Object> forecastInfo = new HashMap<>();
+        synchronized (forecaster) {
+            forecastInfo.put("samples", forecaster.getSamples());
+            forecastInfo.put("seasonLength", forecaster.getSeasonLength());
+            forecastInfo.put("horizon", forecaster.getHorizon());
+            forecastInfo.put("ready", forecaster.isReady());
+            forecastInfo.put("level", forecaster.getLevel());
+            forecastInfo.put("trend", forecaster.getTrend());
+            forecastInfo.put("forecastDemand", forecaster.forecast());
+            forecastInfo.put("errorSamples", forecaster.getErrorSamples());
+            forecastInfo.put("meanAbsoluteError", forecaster.getMeanAbsoluteError());
+            forecastInfo.put("rootMeanSquaredError", forecaster.getRootMeanSquaredError());
+            forecastInfo.put("meanAbsolutePercentageError", forecaster.getMeanAbsolutePercentageError());
+        }
+        forecastInfo.put("currentInstances", currentInstances);
+        forecastInfo.put("predictedInstances", predictedInstances);
+
+        actionReport.appendMessage("\nSamples: " + forecastInfo.get("samples") + " (season of " +
+                forecastInfo.get("seasonLength") + ", forecasting " + forecastInfo.get("horizon") + " ahead)");
+        actionReport.appendMessage("\nReady: " + forecastInfo.get("ready"));
+        actionReport.appendMessage("\nLevel: " + format(forecastInfo.get("level")));
+        actionReport.appendMessage("\nTrend: " + format(forecastInfo.get("trend")));
+        actionReport.appendMessage("\nForecast Demand: " + format(forecastInfo.get("forecastDemand")));
+        actionReport.appendMessage("\nCurrent Instances: " + currentInstances);
+        actionReport.appendMessage("\nPredicted Instances: " + (predictedInstances < 0 ? "-" : predictedInstances));
+        actionReport.appendMessage("\nScored Forecasts: " + forecastInfo.get("errorSamples"));
+        actionReport.appendMessage("\nMean Absolute Error: " + format(forecastInfo.get("meanAbsoluteError")));
+        actionReport.appendMessage("\nRoot Mean Squared Error: " + format(forecastInfo.get("rootMeanSquaredError")));
+        actionReport.appendMessage("\nMean Absolute Percentage Error: " +
+                format(forecastInfo.get("meanAbsolutePercentageError")));
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingForecast", forecastInfo);
+        actionReport.setExtraProperties(extraProperties);
+    }
+
+    @Override
+    protected void validateParams() throws CommandValidationException {
+        super.validateParams();
+
+        if (scalingGroupsIndex.getScalingGroup(name) == null) {
+            throw new CommandValidationException("Scaling group with name " + name + " does not exist");
+        }
+    }
+
+    private static String format(Object value) {
+        double doubleValue = (Double) value;
+        return Double.isNaN(doubleValue) ? "-" : String.format("%.2f", doubleValue);
+    }
+}
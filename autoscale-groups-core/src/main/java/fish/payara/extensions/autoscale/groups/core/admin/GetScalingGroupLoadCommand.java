@@ -0,0 +1,151 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import com.sun.enterprise.util.ColumnFormatter;
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.admin.ScalingGroupCommand;
+import fish.payara.extensions.autoscale.groups.core.LoadAggregate;
+import fish.payara.extensions.autoscale.groups.core.LoadRingBuffer;
+import fish.payara.extensions.autoscale.groups.core.ScalingMetricsCollector;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets the rolling aggregates of the load collected for a
+ * {@link fish.payara.extensions.autoscale.groups.ScalingGroup Scaling Group} by the {@link ScalingMetricsCollector}.
+ */
+@Service(name = "get-scaling-group-load")
+@PerLookup
+@ExecuteOn(RuntimeType.DAS)
+@CommandLock(CommandLock.LockType.NONE)
+@RestEndpoints({
+        @RestEndpoint(configBean = ScalingGroups.class,
+                opType = RestEndpoint.OpType.GET,
+                path = "get-scaling-group-load",
+                description = "Gets the collected load of a Scaling Group")
+})
+public class GetScalingGroupLoadCommand extends ScalingGroupCommand {
+
+    @Param(name = "window", optional = true, defaultValue = "300")
+    private int window;
+
+    @Inject
+    private ScalingMetricsCollector scalingMetricsCollector;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        try {
+            validateParams();
+        } catch (CommandValidationException commandValidationException) {
+            adminCommandContext.getActionReport().setFailureCause(commandValidationException);
+            adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        ColumnFormatter columnFormatter = new ColumnFormatter(new String[]{
+                "Metric", "Samples", "Mean", "Min", "Max", "Last"});
+        List<Map<String, Object>> aggregatesInfo = new ArrayList<>();
+        for (LoadRingBuffer.Metric metric : LoadRingBuffer.Metric.values()) {
+            LoadAggregate loadAggregate = scalingMetricsCollector.getAggregate(name, metric,
+                    TimeUnit.SECONDS.toMillis(window));
+            columnFormatter.addRow(new Object[]{
+                    metric,
+                    loadAggregate.getCount(),
+                    format(loadAggregate.getMean()),
+                    format(loadAggregate.getMin()),
+                    format(loadAggregate.getMax()),
+                    format(loadAggregate.getLast())
+            });
+
+            Map<String, Object> aggregateInfo = new HashMap<>();
+            aggregateInfo.put("metric", metric.toString());
+            aggregateInfo.put("count", loadAggregate.getCount());
+            aggregateInfo.put("mean", loadAggregate.getMean());
+            aggregateInfo.put("min", loadAggregate.getMin());
+            aggregateInfo.put("max", loadAggregate.getMax());
+            aggregateInfo.put("last", loadAggregate.getLast());
+            aggregateInfo.put("lastTimestamp", loadAggregate.getLastTimestamp());
+            aggregatesInfo.add(aggregateInfo);
+        }
+
+        adminCommandContext.getActionReport().setMessage("Load of Scaling Group " + name + " over the last " +
+                window + " seconds:\n" + columnFormatter.toString());
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingGroupLoad", aggregatesInfo);
+        adminCommandContext.getActionReport().setExtraProperties(extraProperties);
+    }
+
+    @Override
+    protected void validateParams() throws CommandValidationException {
+        super.validateParams();
+
+        if (scalingGroupsIndex.getScalingGroup(name) == null) {
+            throw new CommandValidationException("Scaling group with name " + name + " does not exist");
+        }
+
+        if (window < 1) {
+            throw new CommandValidationException("Window must be at least 1 second");
+        }
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.2f", value);
+    }
+}
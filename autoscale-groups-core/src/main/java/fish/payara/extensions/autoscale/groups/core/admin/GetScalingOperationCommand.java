@@ -0,0 +1,164 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.core.ScalingInstanceEvent;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperation;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationService;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommand;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Gets the state and per-instance progress of a {@link ScalingOperation}, as submitted by the scale commands.
+ */
+@Service(name = "get-scaling-operation")
+@PerLookup
+@ExecuteOn(RuntimeType.DAS)
+@CommandLock(CommandLock.LockType.NONE)
+@RestEndpoints({
+        @RestEndpoint(configBean = ScalingGroups.class,
+                opType = RestEndpoint.OpType.GET,
+                path = "get-scaling-operation",
+                description = "Gets the progress of a scaling operation")
+})
+public class GetScalingOperationCommand implements AdminCommand {
+
+    @Param(name = "id", primary = true)
+    private String id;
+
+    @Inject
+    private ScalingOperationService scalingOperationService;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        ScalingOperation scalingOperation = scalingOperationService.getOperation(id);
+        if (scalingOperation == null) {
+            adminCommandContext.getActionReport().setMessage("Scaling operation " + id + " does not exist");
+            adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        Map<String, Object> scalingOperationInfo = toMap(scalingOperation);
+        List<String> messages = scalingOperation.getProgressStatus().getMessages();
+
+        ActionReport actionReport = adminCommandContext.getActionReport();
+        actionReport.setMessage("Scaling Operation: " + scalingOperation.getId());
+        actionReport.appendMessage("\nType: " + scalingOperation.getType());
+        actionReport.appendMessage("\nScaling Group: " + scalingOperation.getScalingGroupName());
+        actionReport.appendMessage("\nDeployment Group: " + scalingOperation.getDeploymentGroupName());
+        actionReport.appendMessage("\nQuantity: " + scalingOperation.getQuantity());
+        if (scalingOperation.getTargetInstances() != null) {
+            actionReport.appendMessage("\nTarget Instances: " + scalingOperation.getTargetInstances());
+        }
+        actionReport.appendMessage("\nState: " + scalingOperation.getState());
+        if (scalingOperation.getCoalescedOperationId() != null) {
+            actionReport.appendMessage("\nCoalesced Into: " + scalingOperation.getCoalescedOperationId());
+        }
+        actionReport.appendMessage("\nProgress: " + scalingOperationInfo.get("completedSteps") + "/" +
+                scalingOperationInfo.get("totalSteps"));
+        actionReport.appendMessage("\nDuration (ms): " + scalingOperation.getDuration());
+        for (String message : messages) {
+            actionReport.appendMessage("\n    " + message);
+        }
+
+        if (scalingOperation.isFinished() && scalingOperation.getActionReport().getMessage() != null) {
+            actionReport.appendMessage("\nResult: " + scalingOperation.getActionReport().getMessage());
+        }
+
+        scalingOperationInfo.put("progress", messages);
+        List<Map<String, Object>> instanceEventsInfo = new ArrayList<>();
+        for (ScalingInstanceEvent instanceEvent : scalingOperation.getProgressStatus().getInstanceEvents()) {
+            instanceEventsInfo.add(instanceEvent.toMap());
+        }
+        scalingOperationInfo.put("instanceEvents", instanceEventsInfo);
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingOperation", scalingOperationInfo);
+        actionReport.setExtraProperties(extraProperties);
+    }
+
+    /**
+     * Converts a {@link ScalingOperation} into a map for use in the extra properties of an {@link ActionReport}.
+     *
+     * @param scalingOperation The {@link ScalingOperation} to convert
+     * @return A map containing the details of the operation
+     */
+    static Map<String, Object> toMap(ScalingOperation scalingOperation) {
+        int totalSteps = Math.max(0, scalingOperation.getProgressStatus().getTotalStepCount());
+
+        Map<String, Object> scalingOperationInfo = new HashMap<>();
+        scalingOperationInfo.put("id", scalingOperation.getId());
+        scalingOperationInfo.put("type", scalingOperation.getType().toString());
+        scalingOperationInfo.put("scalingGroup", scalingOperation.getScalingGroupName());
+        scalingOperationInfo.put("deploymentGroup", scalingOperation.getDeploymentGroupName());
+        scalingOperationInfo.put("quantity", scalingOperation.getQuantity());
+        if (scalingOperation.getTargetInstances() != null) {
+            scalingOperationInfo.put("targetInstances", scalingOperation.getTargetInstances());
+        }
+        scalingOperationInfo.put("state", scalingOperation.getState().toString());
+        scalingOperationInfo.put("completedSteps", Math.min(totalSteps,
+                scalingOperation.getProgressStatus().getCompletedStepCount()));
+        scalingOperationInfo.put("totalSteps", totalSteps);
+        scalingOperationInfo.put("submittedTime", scalingOperation.getSubmittedTime());
+        scalingOperationInfo.put("duration", scalingOperation.getDuration());
+        if (scalingOperation.getCoalescedOperationId() != null) {
+            scalingOperationInfo.put("coalescedInto", scalingOperation.getCoalescedOperationId());
+        }
+        return scalingOperationInfo;
+    }
+}
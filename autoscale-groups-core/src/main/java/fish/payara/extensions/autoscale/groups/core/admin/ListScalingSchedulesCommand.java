@@ -0,0 +1,154 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import com.sun.enterprise.util.ColumnFormatter;
+import com.sun.enterprise.util.StringUtils;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.ScalingSchedule;
+import fish.payara.extensions.autoscale.groups.core.CronExpression;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommand;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+
+import javax.inject.Inject;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Lists the {@link ScalingSchedule Scaling Schedules} of every {@link ScalingGroup Scaling Group}, or of a single
+ * group, along with when each will next fire.
+ */
+@Service(name = "list-scaling-schedules")
+@PerLookup
+@ExecuteOn(RuntimeType.DAS)
+@CommandLock(CommandLock.LockType.NONE)
+@RestEndpoints({
+        @RestEndpoint(configBean = ScalingGroups.class,
+                opType = RestEndpoint.OpType.GET,
+                path = "list-scaling-schedules",
+                description = "Lists Scaling Schedules and their next fire times")
+})
+public class ListScalingSchedulesCommand implements AdminCommand {
+
+    @Param(name = "scalingGroup", alias = "scalinggroup", optional = true)
+    private String scalingGroupName;
+
+    @Inject
+    private ScalingGroupsIndex scalingGroupsIndex;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        List<ScalingGroup> scalingGroups;
+        if (StringUtils.ok(scalingGroupName)) {
+            ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroup(scalingGroupName);
+            if (scalingGroup == null) {
+                adminCommandContext.getActionReport().setMessage("Scaling group with name " + scalingGroupName +
+                        " does not exist");
+                adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                return;
+            }
+            scalingGroups = Collections.singletonList(scalingGroup);
+        } else {
+            scalingGroups = scalingGroupsIndex.getScalingGroups();
+        }
+
+        ColumnFormatter columnFormatter = new ColumnFormatter(new String[]{
+                "Scaling Group", "Name", "Cron", "Desired Instances", "Next Fire Time"});
+        List<Map<String, Object>> scalingSchedulesInfo = new ArrayList<>();
+        ZonedDateTime now = ZonedDateTime.now();
+        for (ScalingGroup scalingGroup : scalingGroups) {
+            for (ScalingSchedule scalingSchedule : scalingGroup.getScalingSchedules()) {
+                String nextFireTime;
+                try {
+                    ZonedDateTime next = CronExpression.parse(scalingSchedule.getCron()).next(now);
+                    nextFireTime = next == null ? "never" : next.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+                } catch (IllegalArgumentException illegalArgumentException) {
+                    nextFireTime = "invalid cron expression";
+                }
+
+                String[] outputValues = {
+                        scalingGroup.getName(),
+                        scalingSchedule.getName(),
+                        scalingSchedule.getCron(),
+                        scalingSchedule.getDesiredInstances(),
+                        nextFireTime
+                };
+                columnFormatter.addRow(outputValues);
+
+                Map<String, Object> scalingScheduleInfo = new HashMap<>();
+                scalingScheduleInfo.put("scalingGroup", outputValues[0]);
+                scalingScheduleInfo.put("name", outputValues[1]);
+                scalingScheduleInfo.put("cron", outputValues[2]);
+                scalingScheduleInfo.put("desiredInstances", outputValues[3]);
+                scalingScheduleInfo.put("nextFireTime", outputValues[4]);
+                scalingSchedulesInfo.add(scalingScheduleInfo);
+            }
+        }
+
+        if (scalingSchedulesInfo.isEmpty()) {
+            adminCommandContext.getActionReport().setMessage("No scaling schedules found");
+            return;
+        }
+
+        adminCommandContext.getActionReport().setMessage(columnFormatter.toString());
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingSchedules", scalingSchedulesInfo);
+        adminCommandContext.getActionReport().setExtraProperties(extraProperties);
+    }
+}
@@ -40,16 +40,33 @@
 
 package fish.payara.extensions.autoscale.groups.core.admin;
 
+import com.sun.enterprise.util.ColumnFormatter;
 import com.sun.enterprise.util.StringUtils;
 import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
 import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalerRegistry;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
 import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.ScalingPlan;
+import fish.payara.extensions.autoscale.groups.core.ScalingInstanceEvent;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperation;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationService;
+import org.glassfish.api.ActionReport;
 import org.glassfish.api.Param;
 import org.glassfish.api.admin.AdminCommand;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.AdminCommandEventBroker;
 import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ProgressStatus;
 import org.glassfish.hk2.api.ServiceLocator;
+import org.jvnet.hk2.config.ConfigSupport;
+import org.jvnet.hk2.config.TransactionFailure;
 
 import javax.inject.Inject;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_DEFAULT;
@@ -62,11 +79,16 @@ import static fish.payara.extensions.autoscale.groups.Scaler.AUTOSCALE_MAXSCALE_
  */
 public abstract class ScaleCommand implements AdminCommand {
 
+    private static final Logger LOGGER = Logger.getLogger(ScaleCommand.class.getName());
+
     @Param(name = "target", primary = true)
     protected String target;
 
-    @Param(name = "quantity", shortName = "q", optional = true, defaultValue = "1")
-    protected int quantity;
+    @Param(name = "async", optional = true, defaultValue = "false")
+    protected boolean async;
+
+    @Param(name = "dryRun", alias = "dryrun", optional = true, defaultValue = "false")
+    protected boolean dryRun;
 
     @Inject
     protected ServiceLocator serviceLocator;
@@ -77,6 +99,15 @@ public abstract class ScaleCommand implements AdminCommand {
     @Inject
     protected ScalingGroups scalingGroups;
 
+    @Inject
+    protected ScalingGroupsIndex scalingGroupsIndex;
+
+    @Inject
+    protected ScalingOperationService scalingOperationService;
+
+    @Inject
+    protected ScalerRegistry scalerRegistry;
+
     protected void validateParams() throws CommandValidationException {
         if (deploymentGroups == null) {
             deploymentGroups = serviceLocator.getService(DeploymentGroups.class);
@@ -96,6 +127,13 @@ public abstract class ScaleCommand implements AdminCommand {
             }
         }
 
+        if (scalingGroupsIndex == null) {
+            scalingGroupsIndex = serviceLocator.getService(ScalingGroupsIndex.class);
+            if (scalingGroupsIndex == null) {
+                throw new CommandValidationException("Could not find ScalingGroupsIndex service!");
+            }
+        }
+
         if (!StringUtils.ok(target)) {
             throw new CommandValidationException("Target must be a valid Deployment Group!");
         }
@@ -103,7 +141,25 @@ public abstract class ScaleCommand implements AdminCommand {
         if (deploymentGroups.getDeploymentGroup(target) == null) {
             throw new CommandValidationException(("Deployment Group does not exist!"));
         }
+    }
+
+    /**
+     * Checks that the number of instances to scale by is within the maximum a single operation may scale by.
+     *
+     * @param quantity The number of instances to scale up or down by
+     * @throws CommandValidationException If the quantity is less than 1 or greater than the maximum
+     */
+    protected void validateQuantity(int quantity) throws CommandValidationException {
+        int maxScale = getMaxScale();
+        if (quantity < 1 || quantity > maxScale) {
+            throw new CommandValidationException("Quantity must be greater than 0 and no more than " + maxScale + "!");
+        }
+    }
 
+    /**
+     * @return The maximum number of instances a single operation may scale by
+     */
+    protected static int getMaxScale() {
         int maxScale = Integer.getInteger(AUTOSCALE_MAXSCALE_PROP, AUTOSCALE_MAXSCALE_DEFAULT);
 
         if (maxScale < 1) {
@@ -113,8 +169,202 @@ public abstract class ScaleCommand implements AdminCommand {
             maxScale = AUTOSCALE_MAXSCALE_DEFAULT;
         }
 
-        if (quantity < 1 || quantity > maxScale) {
-            throw new CommandValidationException("Quantity must be greater than 0!");
+        return maxScale;
+    }
+
+    /**
+     * Checks that the number of instances a Deployment Group is being scaled to is within the bounds of its
+     * {@link ScalingGroup Scaling Group}.
+     *
+     * @param instances The number of instances the Deployment Group would have
+     * @param scalingGroup The Scaling Group of the Deployment Group
+     * @throws CommandValidationException If the number of instances is below the minimum or above the maximum
+     */
+    protected static void validateInstances(int instances, ScalingGroup scalingGroup)
+            throws CommandValidationException {
+        int minInstances = Integer.parseInt(scalingGroup.getMinInstances());
+        int maxInstances = Integer.parseInt(scalingGroup.getMaxInstances());
+        if (instances < minInstances || instances > maxInstances) {
+            throw new CommandValidationException("Instances must be between the minimum (" + minInstances +
+                    ") and maximum (" + maxInstances + ") instances of Scaling Group " + scalingGroup.getName() +
+                    ", but would be " + instances);
+        }
+    }
+
+    /**
+     * Records the number of instances a Deployment Group is being scaled to as the desired instances of its
+     * {@link ScalingGroup Scaling Group}, if it isn't already.
+     *
+     * @param scalingGroup The Scaling Group to update
+     * @param desiredInstances The number of instances the Deployment Group is being scaled to
+     * @throws TransactionFailure If the Scaling Group could not be updated
+     */
+    protected static void updateDesiredInstances(ScalingGroup scalingGroup, int desiredInstances)
+            throws TransactionFailure {
+        if (!String.valueOf(desiredInstances).equals(scalingGroup.getDesiredInstances())) {
+            ConfigSupport.apply(scalingGroupProxy -> {
+                scalingGroupProxy.setDesiredInstances(String.valueOf(desiredInstances));
+                return scalingGroupProxy;
+            }, scalingGroup);
         }
     }
+
+    /**
+     * Scales the target {@link fish.payara.enterprise.config.serverbeans.DeploymentGroup Deployment Group} up or down
+     * using the {@link Scaler} of its {@link ScalingGroup Scaling Group}. If the command was run in async mode, this
+     * method returns as soon as the operation has been submitted, reporting the ID of the operation. If the command was
+     * run in dry run mode, the plan of the operation is reported instead, and nothing is scaled. The Deployment Group
+     * may not be scaled outside of the minimum and maximum instances of its Scaling Group.
+     *
+     * Once the operation has been admitted, the size the Deployment Group is being scaled to is recorded as the desired
+     * instances of its Scaling Group, so that the scaling controller and scheduler reconcile towards it rather than
+     * undoing the manual scale. An operation rejected by the cooldown of the group leaves the desired instances alone.
+     *
+     * @param adminCommandContext The context of the command
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     */
+    protected void scale(AdminCommandContext adminCommandContext, ScalingOperation.Type type, int quantity) {
+        scale(adminCommandContext, type, quantity, false);
+    }
+
+    /**
+     * Scales the target {@link fish.payara.enterprise.config.serverbeans.DeploymentGroup Deployment Group} as
+     * {@link #scale(AdminCommandContext, ScalingOperation.Type, int)} does, either by the quantity, or to the number of
+     * instances the Deployment Group currently has plus or minus the quantity. Scaling to a target number of instances
+     * is worked out again when the operation runs, so that concurrent requests for the same target don't add up.
+     *
+     * @param adminCommandContext The context of the command
+     * @param type Whether to scale up or down
+     * @param quantity The number of instances to scale up or down by
+     * @param toTarget Whether to scale to the resulting number of instances rather than by the quantity
+     */
+    protected void scale(AdminCommandContext adminCommandContext, ScalingOperation.Type type, int quantity,
+            boolean toTarget) {
+        ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(target);
+        if (scalingGroup != null) {
+            // Get the Scaler implementation service for this scaling group type
+            Scaler scaler = scalerRegistry.getScaler(scalingGroup);
+            if (scaler != null) {
+                int currentInstances = deploymentGroups.getDeploymentGroup(target).getInstances().size();
+                int desiredInstances = type == ScalingOperation.Type.SCALE_UP ? currentInstances + quantity :
+                        currentInstances - quantity;
+                try {
+                    validateInstances(desiredInstances, scalingGroup);
+                } catch (CommandValidationException commandValidationException) {
+                    adminCommandContext.getActionReport().setFailureCause(commandValidationException);
+                    adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                    return;
+                }
+
+                if (dryRun) {
+                    try {
+                        reportPlan(adminCommandContext.getActionReport(), target, scaler.plan(
+                                type == ScalingOperation.Type.SCALE_UP ? quantity : -quantity, scalingGroup));
+                    } catch (CommandValidationException commandValidationException) {
+                        adminCommandContext.getActionReport().setFailureCause(commandValidationException);
+                        adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                    }
+                    return;
+                }
+
+                // Stream the progress of each instance to the client as it happens
+                AdminCommandEventBroker eventBroker = async ? null : adminCommandContext.getEventBroker();
+                ProgressStatus progressStatus = async ? null : adminCommandContext.getProgressStatus();
+                Consumer<ScalingInstanceEvent> instanceEventListener = eventBroker == null ? null :
+                        instanceEvent -> eventBroker.fireEvent(ScalingInstanceEvent.EVENT_NAME, instanceEvent.toJson());
+                ScalingOperation scalingOperation = toTarget ?
+                        scalingOperationService.executeTargetAsync(desiredInstances, scalingGroup, scaler,
+                                progressStatus, instanceEventListener) :
+                        scalingOperationService.executeAsync(type, quantity, scalingGroup, scaler, progressStatus,
+                                instanceEventListener);
+                // Operations are admitted when submitted, so a cooling down group is known about straight away
+                if (scalingOperation.getState() == ScalingOperation.State.REJECTED) {
+                    adminCommandContext.setActionReport(scalingOperation.getActionReport());
+                    return;
+                }
+
+                try {
+                    updateDesiredInstances(scalingGroup, desiredInstances);
+                } catch (TransactionFailure transactionFailure) {
+                    // The operation is already underway, so carry on with it
+                    LOGGER.log(Level.WARNING, "Could not update desired instances of Scaling Group " +
+                            scalingGroup.getName(), transactionFailure);
+                }
+
+                if (async) {
+                    adminCommandContext.getActionReport().setMessage("Submitted " + type + " operation " +
+                            scalingOperation.getId() + " for Deployment Group " + target +
+                            ". Use get-scaling-operation to query its progress.");
+
+                    Properties extraProperties = new Properties();
+                    extraProperties.put("operationId", scalingOperation.getId());
+                    adminCommandContext.getActionReport().setExtraProperties(extraProperties);
+                    return;
+                }
+
+                try {
+                    scalingOperation.awaitFinished();
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    adminCommandContext.getActionReport().setMessage("Interrupted while waiting for " + type +
+                            " operation " + scalingOperation.getId() + " to finish. Use get-scaling-operation to " +
+                            "query its progress.");
+                    adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.WARNING);
+                    return;
+                }
+                adminCommandContext.setActionReport(scalingOperation.getActionReport());
+
+                if (adminCommandContext.getActionReport().hasFailures()) {
+                    if (adminCommandContext.getActionReport().hasSuccesses()) {
+                        adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.WARNING);
+                    } else {
+                        adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                    }
+                } else if (adminCommandContext.getActionReport().hasWarnings()) {
+                    adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.WARNING);
+                }
+                return;
+            }
+        }
+
+        // If we've got to here, there was no match
+        adminCommandContext.getActionReport().setMessage(
+                "Deployment group does not appear to have a configured scaling group.");
+        adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+    }
+
+    /**
+     * Adds the instances a {@link ScalingPlan} would add or remove to the given action report, as a table and as the
+     * "scalingPlan" extra property. The report is marked as a warning if the plan has any warnings.
+     *
+     * @param actionReport The action report to add the plan to
+     * @param deploymentGroupName The name of the Deployment Group the plan is for
+     * @param scalingPlan The plan to report
+     */
+    static void reportPlan(ActionReport actionReport, String deploymentGroupName, ScalingPlan scalingPlan) {
+        ColumnFormatter columnFormatter = new ColumnFormatter(new String[]{"Action", "Instance", "Location"});
+        for (ScalingPlan.PlannedInstance plannedInstance : scalingPlan.getPlannedInstances()) {
+            columnFormatter.addRow(new Object[]{
+                    plannedInstance.getAction(),
+                    plannedInstance.getInstanceName() == null ? "-" : plannedInstance.getInstanceName(),
+                    plannedInstance.getLocation() == null ? "-" : plannedInstance.getLocation()
+            });
+        }
+
+        StringBuilder message = new StringBuilder("Dry run of scaling Deployment Group " + deploymentGroupName +
+                " by " + (scalingPlan.getInstanceDelta() > 0 ? "+" : "") + scalingPlan.getInstanceDelta() +
+                ", nothing was changed:\n" + columnFormatter);
+        for (String warning : scalingPlan.getWarnings()) {
+            message.append("\n").append(warning);
+        }
+        actionReport.setMessage(message.toString());
+        if (!scalingPlan.getWarnings().isEmpty()) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+        }
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingPlan", scalingPlan.toMap());
+        actionReport.setExtraProperties(extraProperties);
+    }
 }
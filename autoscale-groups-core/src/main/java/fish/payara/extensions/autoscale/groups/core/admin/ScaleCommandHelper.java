@@ -41,14 +41,16 @@
 package fish.payara.extensions.autoscale.groups.core.admin;
 
 import com.sun.enterprise.admin.remote.RemoteRestAdminCommand;
-import com.sun.enterprise.config.serverbeans.Config;
 import com.sun.enterprise.config.serverbeans.Domain;
 import com.sun.enterprise.config.serverbeans.Server;
 import com.sun.enterprise.config.serverbeans.Servers;
-import com.sun.enterprise.v3.admin.adapter.AdminEndpointDecider;
 import com.sun.enterprise.v3.admin.cluster.ClusterCommandHelper;
 import com.sun.enterprise.v3.admin.cluster.CommandRunnable;
 import com.sun.enterprise.v3.admin.cluster.Strings;
+import fish.payara.extensions.autoscale.groups.core.ScalingExecutorService;
+import fish.payara.extensions.autoscale.groups.core.ScalingInstanceEvent;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationProgressStatus;
+import fish.payara.extensions.autoscale.groups.core.ScalingPhaseMetrics;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.admin.AdminCommandContext;
 import org.glassfish.api.admin.CommandException;
@@ -59,14 +61,18 @@ import org.glassfish.api.admin.progress.ProgressStatusImpl;
 
 import javax.security.auth.Subject;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.logging.Level.FINE;
 import static org.glassfish.api.ActionReport.ExitCode.FAILURE;
 import static org.glassfish.api.ActionReport.ExitCode.SUCCESS;
@@ -76,28 +82,64 @@ import static org.glassfish.api.ActionReport.ExitCode.WARNING;
  * Helper class used for more efficiently executing commands across multiple instances.
  * Inspired by {@link ClusterCommandHelper}.
  *
+ * Running a command across instances has a single deadline, shared by every attempt on every instance, after which
+ * anything still running is cancelled. Failed attempts are retried with an exponential backoff and jitter, as long as
+ * the retry can start before the deadline. Only {@code start-instance} is retried by default, since the other commands
+ * aren't safe to repeat. The deadline, number of retries, and initial backoff can be set for all commands, or for a
+ * single command, using system properties: for example {@code fish.payara.autoscale.command.retries} or
+ * {@code fish.payara.autoscale.command.start-instance.timeout}.
+ *
  * @author Andrew Pielage
  */
 public class ScaleCommandHelper {
 
-    private static final int ADMIN_DEFAULT_POOL_SIZE = 5;
+    public static final String COMMAND_PROP_PREFIX = "fish.payara.autoscale.command.";
+    public static final String TIMEOUT_SUFFIX = "timeout";
+    public static final String RETRIES_SUFFIX = "retries";
+    public static final int RETRIES_DEFAULT = 0;
+    public static final int START_INSTANCE_RETRIES_DEFAULT = 2;
+    public static final String BACKOFF_SUFFIX = "backoff";
+    public static final long BACKOFF_DEFAULT = 1000;
+
+    static final long MAX_BACKOFF = 30000;
     private static final Logger LOGGER = Logger.getLogger(ScaleCommandHelper.class.getName());
 
     private Domain domain;
     private CommandRunner commandRunner;
     private Subject subject;
-
-    private ProgressStatus progressStatus;
+    private ScalingExecutorService scalingExecutorService;
+    private ScalingPhaseMetrics scalingPhaseMetrics;
+    private String scalingGroupName;
 
     /**
      * Construct a ScaleCommandHelper
      *
      * @param commandRunner A CommandRunner to use for running commands
+     * @param scalingExecutorService The shared executor to run the commands on
      */
-    public ScaleCommandHelper(Domain domain, CommandRunner commandRunner, Subject subject) {
+    public ScaleCommandHelper(Domain domain, CommandRunner commandRunner, Subject subject,
+            ScalingExecutorService scalingExecutorService) {
+        this(domain, commandRunner, subject, scalingExecutorService, null, null);
+    }
+
+    /**
+     * Construct a ScaleCommandHelper which records how long each command spends waiting for a thread and executing
+     * on each instance, and how long is spent waiting for the responses.
+     *
+     * @param commandRunner A CommandRunner to use for running commands
+     * @param scalingExecutorService The shared executor to run the commands on
+     * @param scalingPhaseMetrics The metrics to record the command timings to, may be null
+     * @param scalingGroupName The name of the scaling group to tag the command timings with
+     */
+    public ScaleCommandHelper(Domain domain, CommandRunner commandRunner, Subject subject,
+            ScalingExecutorService scalingExecutorService, ScalingPhaseMetrics scalingPhaseMetrics,
+            String scalingGroupName) {
         this.domain = domain;
         this.commandRunner = commandRunner;
         this.subject = subject;
+        this.scalingExecutorService = scalingExecutorService;
+        this.scalingPhaseMetrics = scalingPhaseMetrics;
+        this.scalingGroupName = scalingGroupName;
     }
 
     public ActionReport runCommandInParallelAcrossInstances(String commandName, ParameterMap parameterMap,
@@ -106,6 +148,11 @@ public class ScaleCommandHelper {
                 commandRunner.getActionReport("plain"));
     }
 
+    public ActionReport runCommandInParallelAcrossInstances(String commandName, ParameterMap parameterMap,
+            List<String> targetNames, ActionReport actionReport) {
+        return runCommandInParallelAcrossInstances(commandName, parameterMap, targetNames, actionReport, null);
+    }
+
     /**
      * Loop a subset of instances and execute a command for each one.
      * Inspired by {@link ClusterCommandHelper#runCommand(String, ParameterMap, String, AdminCommandContext, boolean)}.
@@ -115,14 +162,12 @@ public class ScaleCommandHelper {
      *            executed for a server instance, the instance name is set as the DEFAULT parameter (operand)
      * @param targetNames The instance names of the cluster or deployment group to run the command against.
      * @param actionReport The action report that all action reports generated by this command will be added to.
+     * @param progressStatus The progress status to report the outcome of the command on each instance to. May be null,
+     *            in which case progress is not reported outside of this helper.
      * @return An ActionReport containing the results
      */
     public ActionReport runCommandInParallelAcrossInstances(String commandName, ParameterMap parameterMap,
-            List<String> targetNames, ActionReport actionReport) {
-        // When we started
-        long startTime = System.currentTimeMillis();
-
-
+            List<String> targetNames, ActionReport actionReport, ProgressStatus progressStatus) {
         // Check the instances exist
         Servers servers = domain.getServers();
         List<Server> targetServers = new ArrayList<>();
@@ -142,10 +187,12 @@ public class ScaleCommandHelper {
         // We will save the name of the instances that worked and did not work so we can summarize our results.
         StringBuilder failedServerNames = new StringBuilder();
         StringBuilder succeededServerNames = new StringBuilder();
-        List<String> waitingForServerNames = new ArrayList<>();
+        List<String> timedOutServerNames = new ArrayList<>();
         ClusterCommandHelper.ReportResult reportResult = new ClusterCommandHelper.ReportResult();
         boolean failureOccurred = false;
-        progressStatus = new ProgressStatusImpl();
+        if (progressStatus == null) {
+            progressStatus = new ProgressStatusImpl();
+        }
 
         // Save command output to return in ActionReport
         StringBuilder output = new StringBuilder();
@@ -154,32 +201,37 @@ public class ScaleCommandHelper {
         ClusterCommandHelper clusterCommandHelper = new ClusterCommandHelper(domain, commandRunner);
         targetServers = clusterCommandHelper.optimizeServerListOrder(targetServers);
 
-        // Holds responses from the threads running the command
-        ArrayBlockingQueue<CommandRunnable> responseQueue = new ArrayBlockingQueue<>(nInstances);
+        // Holds responses from the threads running the command. Cancelled attempts may still respond, so this is
+        // unbounded rather than sized to the number of instances
+        BlockingQueue<CommandRunnable> responseQueue = new LinkedBlockingQueue<>();
 
-        // Make the thread pool use the smaller of the number of instances or half the admin thread pool size
-        int threadPoolSize = Math.min(nInstances, getAdminThreadPoolSize() / 2);
-        if (threadPoolSize < 1) {
-            threadPoolSize = 1;
+        if (parameterMap == null) {
+            parameterMap = new ParameterMap();
         }
 
-        ExecutorService threadPool = Executors.newFixedThreadPool(threadPoolSize);
+        long commandTimeout = getCommandTimeout(commandName);
+        int maxRetries = getCommandRetries(commandName);
+        long initialBackoff = getCommandProperty(commandName, BACKOFF_SUFFIX, BACKOFF_DEFAULT);
 
-        if (parameterMap == null) {
-            parameterMap = new ParameterMap();
+        LOGGER.info(String.format("Executing %s on %d instances using a thread pool of size %d: %s", commandName,
+                nInstances, scalingExecutorService.getPoolSize(),
+                targetServers.stream().map(Server::getName).collect(Collectors.joining(", "))));
+        if (LOGGER.isLoggable(FINE)) {
+            LOGGER.fine(String.format("%s command timeout: %d ms, retries: %d, initial backoff: %d ms", commandName,
+                    commandTimeout, maxRetries, initialBackoff));
         }
 
-        LOGGER.info(String.format(
-                "Executing %s on %d instances using a thread pool of size %d: %s", commandName, nInstances,
-                threadPoolSize, targetServers.stream().map(Server::getName).collect(Collectors.joining(", "))));
+        // Every attempt on every instance has to finish within the timeout
+        long deadline = System.nanoTime() + MILLISECONDS.toNanos(commandTimeout);
 
-        progressStatus.setTotalStepCount(nInstances);
+        // The progress status may be shared across several commands, so add to rather than overwrite its steps
+        progressStatus.setTotalStepCount(Math.max(0, progressStatus.getTotalStepCount()) + nInstances);
         progressStatus.progress(Strings.get("cluster.command.executing", commandName, nInstances));
 
         // Loop through instance names, construct the command for each instance name, and hand it off to the threadpool.
+        Map<String, InstanceCommand> instanceCommands = new LinkedHashMap<>();
         for (Server server : targetServers) {
             String serverName = server.getName();
-            waitingForServerNames.add(serverName);
 
             ParameterMap instanceParameterMap = new ParameterMap(parameterMap);
             // Set the instance name as the operand for the commnd
@@ -187,48 +239,79 @@ public class ScaleCommandHelper {
 
             ActionReport instanceReport = actionReport.addSubActionsReport();
             instanceReport.setActionExitCode(SUCCESS);
-            CommandRunner.CommandInvocation invocation = commandRunner.getCommandInvocation(commandName, instanceReport,
-                    subject);
-            invocation.parameters(instanceParameterMap);
 
             String msg = commandName + " " + serverName;
             LOGGER.info(msg);
 
-            // Wrap the command invocation in a runnable and hand it off
-            // to the thread pool
-            CommandRunnable cmdRunnable = new CommandRunnable(invocation, instanceReport, responseQueue);
-            cmdRunnable.setName(serverName);
-            threadPool.execute(cmdRunnable);
+            InstanceCommand instanceCommand = new InstanceCommand(serverName, server.getNodeRef(),
+                    instanceParameterMap, instanceReport);
+            instanceCommands.put(serverName, instanceCommand);
+            submitAttempt(commandName, instanceCommand, responseQueue);
+            if (commandName.equals("start-instance")) {
+                ScalingOperationProgressStatus.instanceStateChanged(progressStatus, serverName,
+                        instanceCommand.nodeName, ScalingInstanceEvent.State.STARTING, 0, serverName + ": starting");
+            }
         }
+        long responseWaitStartTime = System.nanoTime();
 
         if (LOGGER.isLoggable(FINE)) {
             LOGGER.fine(String.format("%s commands queued, waiting for responses", commandName));
         }
 
-        // Make sure we don't wait longer than the admin read timeout. Set our limit to be 3 seconds less.
-        long adminTimeout = RemoteRestAdminCommand.getReadTimeout() - 3000;
-        if (adminTimeout <= 0) {
-            // This should never be the case
-            adminTimeout = 57 * 1000;
-        }
-
-        if (LOGGER.isLoggable(FINE)) {
-            LOGGER.fine(String.format("Initial command timeout: %d ms", adminTimeout));
-        }
+        // Now go get results from the response queue, cancelling any attempts still running at the deadline and
+        // resubmitting any failed attempts once their backoff has passed
+        int remainingInstances = nInstances;
+        while (remainingInstances > 0) {
+            long now = System.nanoTime();
+            long nextEventTime = deadline;
+            for (InstanceCommand instanceCommand : instanceCommands.values()) {
+                if (instanceCommand.finished) {
+                    continue;
+                }
+
+                if (now - deadline >= 0) {
+                    // Cancel the straggler so that it doesn't hold onto a thread of the shared executor
+                    if (instanceCommand.future != null) {
+                        instanceCommand.future.cancel(true);
+                    }
+                    instanceCommand.finished = true;
+                    remainingInstances--;
+                    timedOutServerNames.add(instanceCommand.serverName);
+
+                    String msg = instanceCommand.serverName + ": " + commandName + " timed out after " +
+                            commandTimeout + "ms and " + instanceCommand.attempts + " attempt(s), and was cancelled";
+                    LOGGER.warning(msg);
+                    instanceCommand.instanceReport.setActionExitCode(FAILURE);
+                    instanceCommand.instanceReport.setMessage(msg);
+                    ScalingOperationProgressStatus.instanceStateChanged(progressStatus, instanceCommand.serverName,
+                            instanceCommand.nodeName, ScalingInstanceEvent.State.FAILED, 1, msg);
+                    continue;
+                }
+
+                if (instanceCommand.future == null) {
+                    // Waiting to retry
+                    if (now - instanceCommand.retryTime >= 0) {
+                        submitAttempt(commandName, instanceCommand, responseQueue);
+                    } else {
+                        nextEventTime = Math.min(nextEventTime, instanceCommand.retryTime);
+                    }
+                }
+            }
 
-        // Now go get results from the response queue.
-        for (int n = 0; n < nInstances; n++) {
-            long timeLeft = adminTimeout - (System.currentTimeMillis() - startTime);
-            if (timeLeft < 0) {
-                timeLeft = 0;
+            if (remainingInstances == 0) {
+                break;
             }
-            CommandRunnable cmdRunnable = null;
+
+            CommandRunnable cmdRunnable;
             try {
-                cmdRunnable = responseQueue.poll(timeLeft, MILLISECONDS);
+                cmdRunnable = responseQueue.poll(Math.max(0, nextEventTime - System.nanoTime()), NANOSECONDS);
             } catch (InterruptedException e) {
                 // This thread has been interrupted. Abort
-                threadPool.shutdownNow();
-                String msg = Strings.get("cluster.command.interrupted", targetNames, n, nInstances, commandName);
+                instanceCommands.values().stream()
+                        .filter(instanceCommand -> instanceCommand.future != null)
+                        .forEach(instanceCommand -> instanceCommand.future.cancel(true));
+                String msg = Strings.get("cluster.command.interrupted", targetNames, nInstances - remainingInstances,
+                        nInstances, commandName);
                 LOGGER.warning(msg);
                 failureOccurred = true;
                 // Re-establish interrupted state on thread
@@ -237,15 +320,49 @@ public class ScaleCommandHelper {
             }
 
             if (cmdRunnable == null) {
-                // We've timed out.
-                break;
+                // A deadline or retry is due
+                continue;
             }
+
             String cname = cmdRunnable.getName();
-            waitingForServerNames.remove(cname);
-            ActionReport instanceReport = cmdRunnable.getActionReport();
+            InstanceCommand instanceCommand = instanceCommands.get(cname);
+            if (instanceCommand == null || instanceCommand.finished || instanceCommand.commandRunnable != cmdRunnable) {
+                // A response from an attempt which has already been cancelled
+                continue;
+            }
+            instanceCommand.future = null;
+
+            ActionReport attemptReport = cmdRunnable.getActionReport();
             if (LOGGER.isLoggable(FINE)) {
-                LOGGER.fine(String.format("Instance %d of %d (%s) has responded with %s", n + 1, nInstances, cname,
-                        instanceReport.getActionExitCode()));
+                LOGGER.fine(String.format("Instance %s has responded to attempt %d with %s", cname,
+                        instanceCommand.attempts, attemptReport.getActionExitCode()));
+            }
+
+            // Back off exponentially with jitter before retrying, so that retries across instances don't clump. Don't
+            // bother retrying if the retry couldn't start before the deadline
+            long backoff = getBackoff(initialBackoff, instanceCommand.attempts);
+            long retryTime = System.nanoTime() + MILLISECONDS.toNanos(backoff);
+            if (shouldRetry(attemptReport.getActionExitCode(), instanceCommand.attempts, maxRetries, retryTime,
+                    deadline)) {
+                instanceCommand.retryTime = retryTime;
+
+                String msg = cname + ": " + commandName + " attempt " + instanceCommand.attempts + " of " +
+                        (maxRetries + 1) + " failed, retrying in " + backoff + "ms: " + attemptReport.getMessage();
+                LOGGER.warning(msg);
+                ActionReport retryReport = instanceCommand.instanceReport.addSubActionsReport();
+                retryReport.setActionExitCode(WARNING);
+                retryReport.setMessage(msg);
+                progressStatus.progress(msg);
+                continue;
+            }
+
+            instanceCommand.finished = true;
+            remainingInstances--;
+            ActionReport instanceReport = instanceCommand.instanceReport;
+            instanceReport.setActionExitCode(attemptReport.getActionExitCode());
+            instanceReport.setMessage(attemptReport.getMessage());
+            if (attemptReport.getFailureCause() != null) {
+                instanceReport.setFailureCause(attemptReport.getFailureCause());
             }
 
             if (instanceReport.getActionExitCode() != SUCCESS) {
@@ -256,15 +373,26 @@ public class ScaleCommandHelper {
                 String msg = cname + ": " + instanceReport.getMessage();
                 LOGGER.severe(msg);
                 msg = Strings.get("cluster.command.instancesFailed", commandName, cname);
-                progressStatus.progress(1, msg);
+                ScalingOperationProgressStatus.instanceStateChanged(progressStatus, cname, instanceCommand.nodeName,
+                        ScalingInstanceEvent.State.FAILED, 1, msg);
             } else {
                 // Command worked. Note that too.
                 succeededServerNames.append(cname).append(" ");
                 reportResult.succeededServerNames.add(cname);
-                progressStatus.progress(1, cname);
+                String msg = cname + ": " + commandName + " succeeded";
+                ScalingInstanceEvent.State succeededState = getSucceededState(commandName);
+                if (succeededState != null) {
+                    ScalingOperationProgressStatus.instanceStateChanged(progressStatus, cname,
+                            instanceCommand.nodeName, succeededState, 1, msg);
+                } else {
+                    progressStatus.progress(1, msg);
+                }
             }
         }
 
+        recordPhase(commandName + "-response-wait", null, responseWaitStartTime,
+                !failureOccurred && timedOutServerNames.isEmpty());
+
         actionReport.setActionExitCode(SUCCESS);
 
         if (failureOccurred) {
@@ -292,36 +420,165 @@ public class ScaleCommandHelper {
             }
         }
 
-        // Check for server that did not respond
-        if (!waitingForServerNames.isEmpty()) {
+        // Check for servers that did not respond in time
+        if (!timedOutServerNames.isEmpty()) {
             String msg = Strings.get("cluster.command.instancesTimedOut", commandName,
-                    waitingForServerNames.stream().map(Object::toString)
-                            .collect(Collectors.joining(", ")));
+                    String.join(", ", timedOutServerNames));
             LOGGER.warning(msg);
             if (output.length() > 0) {
                 output.append("\n");
             }
             output.append(msg);
-            actionReport.setActionExitCode(WARNING);
+            if (actionReport.getActionExitCode() != FAILURE) {
+                actionReport.setActionExitCode(WARNING);
+            }
         }
 
         actionReport.setMessage(output.toString());
-        threadPool.shutdown();
         return actionReport;
     }
 
     /**
-     * Get the size of the admin threadpool
+     * Submits a new attempt of the command for an instance. Each attempt gets its own action report, so that a failed
+     * attempt which is retried doesn't leave a failure in the report of the instance.
+     */
+    private void submitAttempt(String commandName, InstanceCommand instanceCommand,
+            BlockingQueue<CommandRunnable> responseQueue) {
+        ActionReport attemptReport = commandRunner.getActionReport("plain");
+        attemptReport.setActionExitCode(SUCCESS);
+        CommandRunner.CommandInvocation invocation = commandRunner.getCommandInvocation(commandName, attemptReport,
+                subject);
+        invocation.parameters(instanceCommand.parameterMap);
+
+        // Wrap the command invocation in a runnable and hand it off to the thread pool
+        CommandRunnable cmdRunnable = new CommandRunnable(invocation, attemptReport, responseQueue);
+        cmdRunnable.setName(instanceCommand.serverName);
+
+        instanceCommand.attempts++;
+        instanceCommand.commandRunnable = cmdRunnable;
+        long submitTime = System.nanoTime();
+        instanceCommand.future = scalingExecutorService.submit(() -> {
+            recordPhase(commandName + "-queue-wait", instanceCommand.nodeName, submitTime, true);
+            long commandStartTime = System.nanoTime();
+            try {
+                cmdRunnable.run();
+            } finally {
+                recordPhase(commandName, instanceCommand.nodeName, commandStartTime,
+                        attemptReport.getActionExitCode() == SUCCESS);
+            }
+        });
+    }
+
+    /**
+     * Gets the state an instance is in once the given command has succeeded on it.
+     *
+     * @return The state of the instance, or null if the command doesn't change the state of the instance
+     */
+    private static ScalingInstanceEvent.State getSucceededState(String commandName) {
+        switch (commandName) {
+            case "start-instance":
+                return ScalingInstanceEvent.State.STARTED;
+            case "stop-instance":
+                return ScalingInstanceEvent.State.STOPPED;
+            case "delete-instance":
+                return ScalingInstanceEvent.State.DELETED;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Whether a failed attempt should be retried: only failures are retried, at most the given number of times, and
+     * only if the retry would start before the deadline.
+     *
+     * @param exitCode The exit code of the attempt
+     * @param attempts The number of attempts made so far, including this one
+     * @param maxRetries The maximum number of retries after the first attempt
+     * @param retryTime The {@link System#nanoTime()} at which the retry would start
+     * @param deadline The {@link System#nanoTime()} after which no more attempts are made
+     * @return true if the command should be attempted again
+     */
+    static boolean shouldRetry(ActionReport.ExitCode exitCode, int attempts, int maxRetries, long retryTime,
+            long deadline) {
+        return exitCode == FAILURE && attempts <= maxRetries && retryTime - deadline < 0;
+    }
+
+    /**
+     * Gets how long to wait before the next attempt: the initial backoff doubled for each failed attempt, capped at
+     * {@value #MAX_BACKOFF}ms, with "equal jitter" applied so that the wait is between half and all of that.
+     */
+    static long getBackoff(long initialBackoff, int failedAttempts) {
+        long backoff = Math.min(MAX_BACKOFF, initialBackoff << Math.min(failedAttempts - 1, 30));
+        long halfBackoff = backoff / 2;
+        return halfBackoff + ThreadLocalRandom.current().nextLong(backoff - halfBackoff + 1);
+    }
+
+    /**
+     * Gets the time allowed for a command across every instance and attempt. By default this is slightly less than
+     * the admin read timeout, so that a synchronous scale command can still report back before its client gives up.
+     */
+    static long getCommandTimeout(String commandName) {
+        // Make sure we don't wait longer than the admin read timeout. Set our limit to be 3 seconds less.
+        long adminTimeout = RemoteRestAdminCommand.getReadTimeout() - 3000;
+        if (adminTimeout <= 0) {
+            // This should never be the case
+            adminTimeout = 57 * 1000;
+        }
+
+        long commandTimeout = getCommandProperty(commandName, TIMEOUT_SUFFIX, adminTimeout);
+        return commandTimeout < 1 ? adminTimeout : commandTimeout;
+    }
+
+    static int getCommandRetries(String commandName) {
+        // Starting an instance which is already starting is harmless, whereas creating or deleting one twice isn't
+        int retriesDefault = commandName.equals("start-instance") ? START_INSTANCE_RETRIES_DEFAULT : RETRIES_DEFAULT;
+        return (int) Math.min(Integer.MAX_VALUE, getCommandProperty(commandName, RETRIES_SUFFIX, retriesDefault));
+    }
+
+    /**
+     * Gets a setting of the retry policy, which can be overridden for a single command using
+     * {@value #COMMAND_PROP_PREFIX}{@code <command-name>.<setting>}, or for all commands using
+     * {@value #COMMAND_PROP_PREFIX}{@code <setting>}. Negative values are ignored.
      */
-    private int getAdminThreadPoolSize() {
-        // Get the DAS configuration
-        Config config = domain.getConfigNamed("server-config");
+    static long getCommandProperty(String commandName, String suffix, long defaultValue) {
+        Long value = Long.getLong(COMMAND_PROP_PREFIX + commandName + "." + suffix,
+                Long.getLong(COMMAND_PROP_PREFIX + suffix, defaultValue));
+        if (value < 0) {
+            LOGGER.warning(COMMAND_PROP_PREFIX + suffix + " property for " + commandName +
+                    " evaluated to less than 0, defaulting to " + defaultValue);
+            return defaultValue;
+        }
+        return value;
+    }
 
-        // Check for null - standalone instances may not have server-config
-        if (config == null) {
-            return ADMIN_DEFAULT_POOL_SIZE;
+    private void recordPhase(String phase, String nodeName, long startTime, boolean success) {
+        if (scalingPhaseMetrics != null) {
+            scalingPhaseMetrics.record(phase, scalingGroupName, nodeName, startTime, success);
         }
+    }
 
-        return new AdminEndpointDecider(config).getMaxThreadPoolSize();
+    /**
+     * The state of the command on a single instance across all of its attempts.
+     */
+    private static class InstanceCommand {
+
+        private final String serverName;
+        private final String nodeName;
+        private final ParameterMap parameterMap;
+        private final ActionReport instanceReport;
+
+        private int attempts;
+        private CommandRunnable commandRunnable;
+        private Future<?> future;
+        private long retryTime;
+        private boolean finished;
+
+        private InstanceCommand(String serverName, String nodeName, ParameterMap parameterMap,
+                ActionReport instanceReport) {
+            this.serverName = serverName;
+            this.nodeName = nodeName;
+            this.parameterMap = parameterMap;
+            this.instanceReport = instanceReport;
+        }
     }
 }
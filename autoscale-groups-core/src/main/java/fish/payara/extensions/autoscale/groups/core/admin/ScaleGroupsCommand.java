@@ -0,0 +1,477 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import com.sun.enterprise.util.ColumnFormatter;
+import com.sun.enterprise.util.StringUtils;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
+import fish.payara.extensions.autoscale.groups.Scaler;
+import fish.payara.extensions.autoscale.groups.ScalerRegistry;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroupsIndex;
+import fish.payara.extensions.autoscale.groups.ScalingPlan;
+import fish.payara.extensions.autoscale.groups.core.ScalingExecutorService;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperation;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationService;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommand;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.TransactionFailure;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asadmin Command for scaling several {@link DeploymentGroup Deployment Groups} in one go. Each Deployment Group is
+ * given either a signed delta (e.g. <code>dg1=+2</code> or <code>dg2=-1</code>) or a target number of instances
+ * (e.g. <code>dg3=5</code>).
+ *
+ * Every Deployment Group is validated before anything is scaled, so a mistake in one entry fails the whole command
+ * rather than leaving the domain half scaled. The scaling operations are then run in parallel, with no more than
+ * <code>maxConcurrency</code> Deployment Groups scaling at any one time, and their results are aggregated into a single
+ * {@link ActionReport} with a sub report per Deployment Group. In dry run mode, the plan of each Deployment Group is
+ * reported instead, and nothing is changed.
+ *
+ * Scaling operations run on the operation threads of the {@link ScalingExecutorService}, so no more Deployment Groups
+ * than there are operation threads can actually scale at once (see
+ * {@link ScalingExecutorService#OPERATION_THREADS_PROP}). A <code>maxConcurrency</code> above that is rejected, while
+ * the default taken from {@value #MAX_CONCURRENCY_PROP} is capped to it.
+ *
+ * As with scale-to, a target number of instances is worked out against the size of the Deployment Group when its
+ * operation runs, and the size each Deployment Group is being scaled to is recorded as the desired instances of its
+ * Scaling Group once its operation has been admitted.
+ */
+@Service(name = "scale-groups")
+@PerLookup
+@CommandLock(CommandLock.LockType.NONE) // Defer locking to any chained commands
+@ExecuteOn(RuntimeType.DAS)
+@RestEndpoints({
+        @RestEndpoint(configBean = DeploymentGroups.class,
+                opType = RestEndpoint.OpType.POST,
+                path = "scale-groups",
+                description = "Scales several Deployment Groups in parallel")
+})
+public class ScaleGroupsCommand implements AdminCommand {
+
+    public static final String MAX_CONCURRENCY_PROP = "fish.payara.autoscale.bulk.maxconcurrency";
+    public static final int MAX_CONCURRENCY_DEFAULT = 4;
+
+    private static final Logger LOGGER = Logger.getLogger(ScaleGroupsCommand.class.getName());
+
+    @Param(name = "deploymentGroups", alias = "deploymentgroups", separator = ':')
+    private Properties deploymentGroupScales;
+
+    @Param(name = "maxConcurrency", alias = "maxconcurrency", optional = true)
+    private Integer maxConcurrency;
+
+    @Param(name = "dryRun", alias = "dryrun", optional = true, defaultValue = "false")
+    private boolean dryRun;
+
+    @Inject
+    private DeploymentGroups deploymentGroups;
+
+    @Inject
+    private ScalingGroupsIndex scalingGroupsIndex;
+
+    @Inject
+    private ScalingOperationService scalingOperationService;
+
+    @Inject
+    private ScalerRegistry scalerRegistry;
+
+    @Inject
+    private ScalingExecutorService scalingExecutorService;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        ActionReport actionReport = adminCommandContext.getActionReport();
+
+        if (deploymentGroupScales == null || deploymentGroupScales.isEmpty()) {
+            actionReport.setMessage("No Deployment Groups given to scale!");
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        int operationPoolSize = scalingExecutorService.getOperationPoolSize();
+        int concurrency = getMaxConcurrency(operationPoolSize);
+        if (concurrency < 1 || concurrency > operationPoolSize) {
+            actionReport.setMessage("Max concurrency must be greater than 0 and no more than the " + operationPoolSize +
+                    " scaling operation thread(s), which can be raised using the " +
+                    ScalingExecutorService.OPERATION_THREADS_PROP + " system property!");
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        // Validate every entry before scaling anything
+        List<GroupScale> groupScales = new ArrayList<>();
+        List<String> validationErrors = new ArrayList<>();
+        for (String deploymentGroupName : deploymentGroupScales.stringPropertyNames()) {
+            String error = validate(deploymentGroupName, deploymentGroupScales.getProperty(deploymentGroupName),
+                    groupScales);
+            if (error != null) {
+                validationErrors.add(deploymentGroupName + ": " + error);
+            }
+        }
+
+        if (!validationErrors.isEmpty()) {
+            actionReport.setMessage("Nothing was scaled, as the following Deployment Groups failed validation:\n" +
+                    String.join("\n", validationErrors));
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        if (dryRun) {
+            reportPlans(actionReport, groupScales);
+            return;
+        }
+
+        boolean interrupted = submit(groupScales, concurrency);
+
+        // Wait for everything submitted to finish before reporting
+        if (!interrupted) {
+            for (GroupScale groupScale : groupScales) {
+                if (groupScale.scalingOperation == null) {
+                    continue;
+                }
+
+                try {
+                    groupScale.scalingOperation.awaitFinished();
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                    break;
+                }
+            }
+        }
+
+        report(actionReport, groupScales, interrupted);
+    }
+
+    /**
+     * Validates the requested scale for a Deployment Group, adding it to the list of scales to perform if valid.
+     *
+     * @param deploymentGroupName The name of the Deployment Group
+     * @param value Either a signed delta or a target number of instances
+     * @param groupScales The list of scales to add to
+     * @return A description of why the entry is invalid, or null if it's valid
+     */
+    private String validate(String deploymentGroupName, String value, List<GroupScale> groupScales) {
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(deploymentGroupName);
+        if (deploymentGroup == null) {
+            return "Deployment Group does not exist!";
+        }
+
+        ScalingGroup scalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(deploymentGroupName);
+        if (scalingGroup == null) {
+            return "Deployment group does not appear to have a configured scaling group.";
+        }
+
+        Scaler scaler = scalerRegistry.getScaler(scalingGroup);
+        if (scaler == null) {
+            return "Could not find a Scaler for Scaling Group " + scalingGroup.getName();
+        }
+
+        if (!StringUtils.ok(value)) {
+            return "No delta or target number of instances given!";
+        }
+
+        value = value.trim();
+        int currentInstances = deploymentGroup.getInstances().size();
+        int targetInstances;
+        try {
+            targetInstances = getTargetInstances(value, currentInstances);
+        } catch (NumberFormatException numberFormatException) {
+            return "\"" + value + "\" is not a valid delta or target number of instances!";
+        }
+
+        try {
+            ScaleCommand.validateInstances(targetInstances, scalingGroup);
+        } catch (CommandValidationException commandValidationException) {
+            return commandValidationException.getMessage();
+        }
+
+        int maxScale = ScaleCommand.getMaxScale();
+        if (Math.abs(targetInstances - currentInstances) > maxScale) {
+            return "Cannot scale by more than " + maxScale + " instances in a single operation!";
+        }
+
+        groupScales.add(new GroupScale(deploymentGroupName, scalingGroup, scaler, currentInstances,
+                targetInstances, isTarget(value)));
+        return null;
+    }
+
+    /**
+     * @param value Either a signed delta or a target number of instances
+     * @return true if the value is a target number of instances rather than a delta
+     */
+    static boolean isTarget(String value) {
+        return value.charAt(0) != '+' && value.charAt(0) != '-';
+    }
+
+    /**
+     * Works out the number of instances a Deployment Group is being scaled to.
+     *
+     * @param value Either a signed delta, such as +2 or -1, or a target number of instances, with no whitespace
+     * @param currentInstances The number of instances the Deployment Group has now
+     * @return The number of instances to scale the Deployment Group to
+     * @throws NumberFormatException If the value is neither an optional sign followed by digits, nor fits in an int
+     */
+    static int getTargetInstances(String value, int currentInstances) {
+        String digits = isTarget(value) ? value : value.substring(1);
+        if (digits.isEmpty() || !digits.chars().allMatch(character -> character >= '0' && character <= '9')) {
+            throw new NumberFormatException("Not a delta or target number of instances: " + value);
+        }
+
+        int amount = Integer.parseInt(digits);
+        if (isTarget(value)) {
+            return amount;
+        }
+        return value.charAt(0) == '+' ? currentInstances + amount : currentInstances - amount;
+    }
+
+    /**
+     * Submits a scaling operation for each Deployment Group which needs one, waiting for a permit from the concurrency
+     * budget before each submission. Permits are handed back as each operation finishes. The size each Deployment
+     * Group is being scaled to is recorded as the desired instances of its Scaling Group once its operation has been
+     * admitted, in the same way as the scale commands.
+     *
+     * @param groupScales The scales to perform
+     * @param concurrency The maximum number of Deployment Groups to scale at once
+     * @return true if interrupted while waiting to submit an operation
+     */
+    private boolean submit(List<GroupScale> groupScales, int concurrency) {
+        Semaphore budget = new Semaphore(concurrency);
+        for (GroupScale groupScale : groupScales) {
+            int delta = groupScale.targetInstances - groupScale.currentInstances;
+            if (delta == 0) {
+                continue;
+            }
+
+            try {
+                budget.acquire();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+
+            if (groupScale.target) {
+                groupScale.scalingOperation = scalingOperationService.executeTargetAsync(groupScale.targetInstances,
+                        groupScale.scalingGroup, groupScale.scaler, null, null);
+            } else {
+                groupScale.scalingOperation = scalingOperationService.executeAsync(
+                        delta > 0 ? ScalingOperation.Type.SCALE_UP : ScalingOperation.Type.SCALE_DOWN,
+                        Math.abs(delta), groupScale.scalingGroup, groupScale.scaler);
+            }
+            groupScale.scalingOperation.whenFinished().thenRun(budget::release);
+
+            if (groupScale.scalingOperation.getState() != ScalingOperation.State.REJECTED) {
+                try {
+                    ScaleCommand.updateDesiredInstances(groupScale.scalingGroup, groupScale.targetInstances);
+                } catch (TransactionFailure transactionFailure) {
+                    // The operation is already underway, so carry on with it
+                    LOGGER.log(Level.WARNING, "Could not update desired instances of Scaling Group " +
+                            groupScale.scalingGroup.getName(), transactionFailure);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Reports the plan of each Deployment Group as a sub report, without scaling anything.
+     *
+     * @param actionReport The action report to add the plans to
+     * @param groupScales The validated scales to plan
+     */
+    private void reportPlans(ActionReport actionReport, List<GroupScale> groupScales) {
+        List<Map<String, Object>> scalingPlansInfo = new ArrayList<>();
+        for (GroupScale groupScale : groupScales) {
+            ActionReport subReport = actionReport.addSubActionsReport();
+            int delta = groupScale.targetInstances - groupScale.currentInstances;
+            if (delta == 0) {
+                subReport.setMessage("Deployment Group " + groupScale.deploymentGroupName + " already has " +
+                        groupScale.targetInstances + " instance(s), nothing to do.");
+                continue;
+            }
+
+            try {
+                ScalingPlan scalingPlan = groupScale.scaler.plan(delta, groupScale.scalingGroup);
+                ScaleCommand.reportPlan(subReport, groupScale.deploymentGroupName, scalingPlan);
+                scalingPlansInfo.add(scalingPlan.toMap());
+            } catch (CommandValidationException commandValidationException) {
+                subReport.setMessage(groupScale.deploymentGroupName + ": " + commandValidationException.getMessage());
+                subReport.setFailureCause(commandValidationException);
+                subReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            }
+        }
+
+        actionReport.setMessage("Dry run of scaling " + groupScales.size() + " Deployment Group(s), nothing was " +
+                "changed.");
+        if (actionReport.hasFailures()) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+        } else if (actionReport.hasWarnings()) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+        }
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingPlans", scalingPlansInfo);
+        actionReport.setExtraProperties(extraProperties);
+    }
+
+    private void report(ActionReport actionReport, List<GroupScale> groupScales, boolean interrupted) {
+        ColumnFormatter columnFormatter = new ColumnFormatter(new String[]{
+                "Deployment Group", "Instances", "Target", "Operation", "State"});
+        List<Map<String, Object>> scalingOperationsInfo = new ArrayList<>();
+        int failed = 0;
+        int unfinished = 0;
+        for (GroupScale groupScale : groupScales) {
+            ScalingOperation scalingOperation = groupScale.scalingOperation;
+            ActionReport subReport = actionReport.addSubActionsReport();
+            if (scalingOperation == null) {
+                if (groupScale.targetInstances == groupScale.currentInstances) {
+                    subReport.setMessage("Deployment Group " + groupScale.deploymentGroupName + " already has " +
+                            groupScale.targetInstances + " instance(s), nothing to do.");
+                } else {
+                    subReport.setMessage("Deployment Group " + groupScale.deploymentGroupName +
+                            " was not scaled, as the command was interrupted.");
+                    subReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+                    unfinished++;
+                }
+            } else if (!scalingOperation.isFinished()) {
+                subReport.setMessage(scalingOperation.getType() + " operation " + scalingOperation.getId() +
+                        " for Deployment Group " + groupScale.deploymentGroupName + " is still running. Use " +
+                        "get-scaling-operation to query its progress.");
+                subReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+                unfinished++;
+            } else {
+                ActionReport operationReport = scalingOperation.getActionReport();
+                subReport.setMessage(groupScale.deploymentGroupName + ": " + operationReport.getMessage());
+                subReport.setActionExitCode(operationReport.getActionExitCode());
+                if (operationReport.getFailureCause() != null) {
+                    subReport.setFailureCause(operationReport.getFailureCause());
+                }
+                if (scalingOperation.getState() != ScalingOperation.State.COMPLETED) {
+                    failed++;
+                }
+            }
+
+            columnFormatter.addRow(new Object[]{
+                    groupScale.deploymentGroupName,
+                    groupScale.currentInstances,
+                    groupScale.targetInstances,
+                    scalingOperation == null ? "-" : scalingOperation.getId(),
+                    scalingOperation == null ? "-" : scalingOperation.getState()
+            });
+            if (scalingOperation != null) {
+                scalingOperationsInfo.add(GetScalingOperationCommand.toMap(scalingOperation));
+            }
+        }
+
+        actionReport.setMessage(columnFormatter.toString());
+        if (failed > 0 && failed == scalingOperationsInfo.size()) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+        } else if (failed > 0 || unfinished > 0) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+        }
+
+        Properties extraProperties = new Properties();
+        extraProperties.put("scalingOperations", scalingOperationsInfo);
+        actionReport.setExtraProperties(extraProperties);
+    }
+
+    /**
+     * Gets the maximum number of Deployment Groups to scale at once, either as given to the command, or from
+     * {@value #MAX_CONCURRENCY_PROP} capped to the number of operation threads.
+     */
+    private int getMaxConcurrency(int operationPoolSize) {
+        if (maxConcurrency != null) {
+            return maxConcurrency;
+        }
+
+        int concurrency = Integer.getInteger(MAX_CONCURRENCY_PROP, MAX_CONCURRENCY_DEFAULT);
+        if (concurrency < 1) {
+            LOGGER.warning(MAX_CONCURRENCY_PROP + " property evaluated to less than 1, defaulting to " +
+                    MAX_CONCURRENCY_DEFAULT);
+            concurrency = MAX_CONCURRENCY_DEFAULT;
+        }
+        return Math.min(concurrency, operationPoolSize);
+    }
+
+    /**
+     * The validated scale of a single Deployment Group, and the operation submitted for it.
+     */
+    private static class GroupScale {
+        private final String deploymentGroupName;
+        private final ScalingGroup scalingGroup;
+        private final Scaler scaler;
+        private final int currentInstances;
+        private final int targetInstances;
+        private final boolean target;
+        private ScalingOperation scalingOperation;
+
+        GroupScale(String deploymentGroupName, ScalingGroup scalingGroup, Scaler scaler, int currentInstances,
+                int targetInstances, boolean target) {
+            this.deploymentGroupName = deploymentGroupName;
+            this.scalingGroup = scalingGroup;
+            this.scaler = scaler;
+            this.currentInstances = currentInstances;
+            this.targetInstances = targetInstances;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperation;
+import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
+import org.glassfish.api.admin.AdminCommandContext;
+import org.glassfish.api.admin.CommandLock;
+import org.glassfish.api.admin.CommandValidationException;
+import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.Progress;
+import org.glassfish.api.admin.RestEndpoint;
+import org.glassfish.api.admin.RestEndpoints;
+import org.glassfish.api.admin.RestParam;
+import org.glassfish.api.admin.RuntimeType;
+import org.glassfish.hk2.api.PerLookup;
+import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.TransactionFailure;
+
+import java.util.Properties;
+
+/**
+ * Asadmin Command for scaling a {@link DeploymentGroup Deployment Group} to a target number of instances using its
+ * configured {@link ScalingGroup Scaling Group}. The difference from the current number of instances is worked out
+ * here, and the Deployment Group is scaled up or down by that difference. If the Deployment Group already has the
+ * target number of instances, nothing is done, so running the command again with the same target is safe. The
+ * difference is worked out again when the operation runs, so concurrent requests for the same target don't add up.
+ *
+ * The target is also set as the desired number of instances of the Scaling Group, so that the scaling controller and
+ * scheduler reconcile towards it rather than undoing it.
+ */
+@Service(name = "scale-to")
+@PerLookup
+@CommandLock(CommandLock.LockType.NONE) // Defer locking to any chained commands
+@Progress
+@ExecuteOn(RuntimeType.DAS)
+@RestEndpoints({
+        @RestEndpoint(configBean = DeploymentGroup.class,
+                opType = RestEndpoint.OpType.POST,
+                path = "scale-to",
+                description = "Scales a Deployment Group to a target number of instances",
+                params = {
+                        @RestParam(name = "id", value = "$parent")
+                }
+        )
+})
+public class ScaleToCommand extends ScaleCommand {
+
+    @Param(name = "instances")
+    private int instances;
+
+    @Override
+    public void execute(AdminCommandContext adminCommandContext) {
+        ScalingGroup scalingGroup;
+        int currentInstances;
+        try {
+            validateParams();
+
+            scalingGroup = scalingGroupsIndex.getScalingGroupForDeploymentGroup(target);
+            if (scalingGroup == null) {
+                throw new CommandValidationException(
+                        "Deployment group does not appear to have a configured scaling group.");
+            }
+
+            validateInstances(instances, scalingGroup);
+
+            currentInstances = deploymentGroups.getDeploymentGroup(target).getInstances().size();
+            if (instances != currentInstances) {
+                validateQuantity(Math.abs(instances - currentInstances));
+            }
+        } catch (CommandValidationException commandValidationException) {
+            adminCommandContext.getActionReport().setFailureCause(commandValidationException);
+            adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        if (instances == currentInstances) {
+            // A dry run mustn't change anything, including the desired instances
+            if (!dryRun) {
+                try {
+                    updateDesiredInstances(scalingGroup, instances);
+                } catch (TransactionFailure transactionFailure) {
+                    adminCommandContext.getActionReport().setMessage(
+                            "Could not update desired instances of Scaling Group " + scalingGroup.getName());
+                    adminCommandContext.getActionReport().setFailureCause(transactionFailure);
+                    adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+                    return;
+                }
+            }
+
+            adminCommandContext.getActionReport().setMessage("Deployment Group " + target + " already has " +
+                    instances + " instance(s), nothing to do.");
+
+            Properties extraProperties = new Properties();
+            extraProperties.put("instances", instances);
+            adminCommandContext.getActionReport().setExtraProperties(extraProperties);
+            return;
+        }
+
+        if (instances > currentInstances) {
+            scale(adminCommandContext, ScalingOperation.Type.SCALE_UP, instances - currentInstances, true);
+        } else {
+            scale(adminCommandContext, ScalingOperation.Type.SCALE_DOWN, currentInstances - instances, true);
+        }
+    }
+}
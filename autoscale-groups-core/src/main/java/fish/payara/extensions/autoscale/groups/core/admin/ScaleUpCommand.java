@@ -41,15 +41,16 @@
 package fish.payara.extensions.autoscale.groups.core.admin;
 
 import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
-import fish.payara.enterprise.config.serverbeans.DeploymentGroups;
-import fish.payara.extensions.autoscale.groups.Scaler;
 import fish.payara.extensions.autoscale.groups.ScalingGroup;
 import fish.payara.extensions.autoscale.groups.ScalingGroups;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperation;
 import org.glassfish.api.ActionReport;
+import org.glassfish.api.Param;
 import org.glassfish.api.admin.AdminCommandContext;
 import org.glassfish.api.admin.CommandLock;
 import org.glassfish.api.admin.CommandValidationException;
 import org.glassfish.api.admin.ExecuteOn;
+import org.glassfish.api.admin.Progress;
 import org.glassfish.api.admin.RestEndpoint;
 import org.glassfish.api.admin.RestEndpoints;
 import org.glassfish.api.admin.RestParam;
@@ -57,8 +58,6 @@ import org.glassfish.api.admin.RuntimeType;
 import org.glassfish.hk2.api.PerLookup;
 import org.jvnet.hk2.annotations.Service;
 
-import java.util.List;
-
 /**
  * Asadmin Command for scaling up the number of instances within a {@link DeploymentGroup Deployment Group} using its
  * configured {@link ScalingGroup Scaling Group}.
@@ -74,6 +73,7 @@ import java.util.List;
 @Service(name = "scale-up")
 @PerLookup
 @CommandLock(CommandLock.LockType.NONE) // Defer locking to any chained commands
+@Progress
 @ExecuteOn(RuntimeType.DAS)
 @RestEndpoints({
         @RestEndpoint(configBean = DeploymentGroup.class,
@@ -87,47 +87,20 @@ import java.util.List;
 })
 public class ScaleUpCommand extends ScaleCommand {
 
+    @Param(name = "quantity", shortName = "q", optional = true, defaultValue = "1")
+    private int quantity;
+
     @Override
     public void execute(AdminCommandContext adminCommandContext) {
         try {
             validateParams();
+            validateQuantity(quantity);
         } catch (CommandValidationException commandValidationException) {
             adminCommandContext.getActionReport().setFailureCause(commandValidationException);
             adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
             return;
         }
 
-        for (ScalingGroup scalingGroup : scalingGroups.getScalingGroups()) {
-            if (scalingGroup.getDeploymentGroupRef().equals(target)) {
-                // Get the Scaler implementation service for this scaling group type
-                List<Scaler> scalerServices = serviceLocator.getAllServices(Scaler.class);
-                for (Scaler scalerService : scalerServices) {
-                    // Since we're working with a ConfigBeanProxy we can't simply do getClass() since this would return
-                    // the proxy class. Instead, we can grab the interfaces of this proxy to what's actually being
-                    // proxied. In this case, each ConfigBeanProxy *should* only only have a single interface: the
-                    // scaling group config bean interface that we're trying to compare (e.g. NodesScalingGroup)
-                    if (scalerService.getScalingGroupClass().equals(scalingGroup.getClass().getInterfaces()[0])) {
-                        adminCommandContext.setActionReport(scalerService.scaleUp(quantity, scalingGroup));
-
-                        if (adminCommandContext.getActionReport().hasFailures()) {
-                            if (adminCommandContext.getActionReport().hasSuccesses()) {
-                                adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.WARNING);
-                            } else {
-                                adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
-                            }
-                        } else if (adminCommandContext.getActionReport().hasWarnings()) {
-                            adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.WARNING);
-                        }
-                        return;
-                    }
-                }
-                break;
-            }
-        }
-
-        // If we've got to here, there was no match
-        adminCommandContext.getActionReport().setMessage(
-                "Deployment group does not appear to have a configured scaling group.");
-        adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
+        scale(adminCommandContext, ScalingOperation.Type.SCALE_UP, quantity);
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+public class CronExpressionTest {
+
+    @Test
+    public void everyMinuteFiresOnTheNextMinute() {
+        assertNext("* * * * *", time(2021, 1, 1, 10, 15, 30), time(2021, 1, 1, 10, 16));
+        assertNext("* * * * *", time(2021, 1, 1, 10, 16), time(2021, 1, 1, 10, 17));
+    }
+
+    @Test
+    public void fixedTimeRollsOverToTheNextDay() {
+        assertNext("30 2 * * *", time(2021, 1, 1, 1, 0), time(2021, 1, 1, 2, 30));
+        assertNext("30 2 * * *", time(2021, 1, 1, 3, 0), time(2021, 1, 2, 2, 30));
+        assertNext("59 23 31 12 *", time(2021, 12, 31, 23, 59), time(2022, 12, 31, 23, 59));
+    }
+
+    @Test
+    public void stepsAndRanges() {
+        assertNext("*/15 * * * *", time(2021, 1, 1, 10, 16), time(2021, 1, 1, 10, 30));
+        assertNext("*/15 * * * *", time(2021, 1, 1, 10, 45), time(2021, 1, 1, 11, 0));
+        assertNext("0-30/10 9 * * *", time(2021, 1, 1, 9, 21), time(2021, 1, 1, 9, 30));
+        assertNext("0-30/10 9 * * *", time(2021, 1, 1, 9, 30), time(2021, 1, 2, 9, 0));
+        // A single value with a step runs from that value to the maximum
+        assertNext("5/20 * * * *", time(2021, 1, 1, 10, 30), time(2021, 1, 1, 10, 45));
+        assertNext("5/20 * * * *", time(2021, 1, 1, 10, 45), time(2021, 1, 1, 11, 5));
+        assertNext("0 8-10,14 * * *", time(2021, 1, 1, 10, 0), time(2021, 1, 1, 14, 0));
+        // A step as large as the field fires once per period
+        assertNext("*/60 * * * *", time(2021, 1, 1, 10, 0), time(2021, 1, 1, 11, 0));
+    }
+
+    @Test
+    public void monthAndDayNames() {
+        // 1 February 2021 is a Monday
+        assertNext("0 0 * feb MON", time(2021, 1, 1, 0, 0), time(2021, 2, 1, 0, 0));
+        assertNext("0 0 * FEB mon", time(2021, 2, 1, 0, 0), time(2021, 2, 8, 0, 0));
+        assertNext("0 0 * * MON-FRI", time(2021, 1, 1, 12, 0), time(2021, 1, 4, 0, 0));
+    }
+
+    @Test
+    public void sundayCanBeZeroOrSeven() {
+        // 1 January 2021 is a Friday
+        assertNext("0 12 * * 0", time(2021, 1, 1, 0, 0), time(2021, 1, 3, 12, 0));
+        assertNext("0 12 * * 7", time(2021, 1, 1, 0, 0), time(2021, 1, 3, 12, 0));
+        assertNext("0 12 * * SUN", time(2021, 1, 1, 0, 0), time(2021, 1, 3, 12, 0));
+        assertNext("0 12 * * 5-7", time(2021, 1, 2, 13, 0), time(2021, 1, 3, 12, 0));
+    }
+
+    @Test
+    public void dayOfMonthAndDayOfWeekMatchEitherWhenBothRestricted() {
+        assertNext("0 0 15 * MON", time(2021, 1, 1, 0, 0), time(2021, 1, 4, 0, 0));
+        assertNext("0 0 15 * MON", time(2021, 1, 12, 0, 0), time(2021, 1, 15, 0, 0));
+        assertNext("0 0 15 * MON", time(2021, 1, 15, 0, 0), time(2021, 1, 18, 0, 0));
+    }
+
+    @Test
+    public void dayOfMonthAloneMustMatch() {
+        assertNext("0 0 15 * *", time(2021, 1, 1, 0, 0), time(2021, 1, 15, 0, 0));
+        assertNext("0 0 31 * *", time(2021, 2, 1, 0, 0), time(2021, 3, 31, 0, 0));
+        assertNext("0 0 29 2 *", time(2021, 1, 1, 0, 0), time(2024, 2, 29, 0, 0));
+    }
+
+    @Test
+    public void impossibleDateNeverFires() {
+        assertNull(CronExpression.parse("0 0 30 FEB *").next(time(2021, 1, 1, 0, 0)));
+    }
+
+    @Test
+    public void invalidExpressionsAreRejected() {
+        assertInvalid(null);
+        assertInvalid("");
+        assertInvalid("* * * *");
+        assertInvalid("* * * * * *");
+        assertInvalid("60 * * * *");
+        assertInvalid("* 24 * * *");
+        assertInvalid("* * 0 * *");
+        assertInvalid("* * * 13 *");
+        assertInvalid("* * * * 8");
+        assertInvalid("5-1 * * * *");
+        assertInvalid("* * * FOO *");
+        assertInvalid("a * * * *");
+        assertInvalid("*/0 * * * *");
+        assertInvalid("*/61 * * * *");
+        assertInvalid("1/2147483647 * * * *");
+    }
+
+    @Test
+    public void toStringIsTheExpression() {
+        assertEquals("*/5 * * * MON-FRI", CronExpression.parse("*/5 * * * MON-FRI").toString());
+    }
+
+    private static void assertNext(String expression, ZonedDateTime after, ZonedDateTime expected) {
+        assertEquals(expression + " after " + after, expected, CronExpression.parse(expression).next(after));
+    }
+
+    private static void assertInvalid(String expression) {
+        assertThrows(expression, IllegalArgumentException.class, () -> CronExpression.parse(expression));
+    }
+
+    private static ZonedDateTime time(int year, int month, int day, int hour, int minute) {
+        return time(year, month, day, hour, minute, 0);
+    }
+
+    private static ZonedDateTime time(int year, int month, int day, int hour, int minute, int second) {
+        return ZonedDateTime.of(year, month, day, hour, minute, second, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class HoltWintersForecasterTest {
+
+    private static final double DELTA = 1e-9;
+    private static final double[] SEASON = {10, 20, 30, 20};
+
+    @Test
+    public void invalidSeasonLengthOrHorizonIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HoltWintersForecaster(0.5, 0.1, 0.5, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new HoltWintersForecaster(0.5, 0.1, 0.5, 4, 0));
+    }
+
+    @Test
+    public void notReadyUntilFirstSeasonIsCollected() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, 4, 1);
+        for (int i = 0; i < 3; i++) {
+            forecaster.update(SEASON[i]);
+            assertFalse(forecaster.isReady());
+            assertTrue(Double.isNaN(forecaster.forecast()));
+            assertTrue(Double.isNaN(forecaster.getLevel()));
+            assertTrue(Double.isNaN(forecaster.getTrend()));
+        }
+
+        forecaster.update(SEASON[3]);
+        assertTrue(forecaster.isReady());
+        assertEquals(20, forecaster.getLevel(), DELTA);
+        assertEquals(0, forecaster.getTrend(), DELTA);
+        assertEquals(SEASON[0], forecaster.forecast(), DELTA);
+    }
+
+    @Test
+    public void constantSeriesForecastsTheConstant() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, 4, 2);
+        for (int i = 0; i < 20; i++) {
+            forecaster.update(7);
+        }
+
+        assertEquals(7, forecaster.forecast(), DELTA);
+        assertEquals(0, forecaster.getMeanAbsoluteError(), DELTA);
+        assertEquals(0, forecaster.getRootMeanSquaredError(), DELTA);
+        assertEquals(0, forecaster.getMeanAbsolutePercentageError(), DELTA);
+    }
+
+    @Test
+    public void seasonalPatternIsForecastAtTheHorizon() {
+        for (int horizon = 1; horizon <= 6; horizon++) {
+            HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, SEASON.length, horizon);
+            for (int i = 0; i < SEASON.length * 3; i++) {
+                forecaster.update(SEASON[i % SEASON.length]);
+                if (forecaster.isReady()) {
+                    assertEquals("Horizon " + horizon + " after sample " + i,
+                            SEASON[(i + horizon) % SEASON.length], forecaster.forecast(), DELTA);
+                }
+            }
+            assertEquals(0, forecaster.getMeanAbsoluteError(), DELTA);
+        }
+    }
+
+    @Test
+    public void trendIsFollowed() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.8, 0.8, 0.1, 2, 1);
+        // The first season mistakes part of the trend for seasonality, which takes a while to be smoothed out
+        for (int i = 0; i < 200; i++) {
+            forecaster.update(i);
+        }
+
+        assertEquals(1, forecaster.getTrend(), 0.01);
+        assertEquals(200, forecaster.forecast(), 0.1);
+    }
+
+    @Test
+    public void errorsAreScoredAgainstTheSamplesForecast() {
+        // With no smoothing the model stays as initialised by the first season, always forecasting 10
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0, 0, 0, 2, 1);
+        forecaster.update(10);
+        forecaster.update(10);
+        assertEquals(10, forecaster.forecast(), DELTA);
+
+        // No forecast was made for the first sample after the season, so it isn't scored
+        forecaster.update(12);
+        assertEquals(0, forecaster.getErrorSamples());
+        assertTrue(Double.isNaN(forecaster.getMeanAbsoluteError()));
+        assertTrue(Double.isNaN(forecaster.getRootMeanSquaredError()));
+        assertTrue(Double.isNaN(forecaster.getMeanAbsolutePercentageError()));
+
+        forecaster.update(12);
+        forecaster.update(7);
+        forecaster.update(10);
+        // A zero sample has no percentage error
+        forecaster.update(0);
+
+        assertEquals(4, forecaster.getErrorSamples());
+        assertEquals((2 + 3 + 0 + 10) / 4.0, forecaster.getMeanAbsoluteError(), DELTA);
+        assertEquals(Math.sqrt((4 + 9 + 0 + 100) / 4.0), forecaster.getRootMeanSquaredError(), DELTA);
+        assertEquals(100 * (2 / 12.0 + 3 / 7.0 + 0) / 3, forecaster.getMeanAbsolutePercentageError(), DELTA);
+    }
+
+    @Test
+    public void skipBeforeReadyRestartsTheFirstSeason() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, 3, 1);
+        forecaster.update(1);
+        forecaster.update(2);
+
+        forecaster.skip(0);
+        assertEquals(2, forecaster.getSamples());
+
+        forecaster.skip(5);
+        assertEquals(0, forecaster.getSamples());
+        assertFalse(forecaster.isReady());
+    }
+
+    @Test
+    public void skipKeepsTheSeasonInStepAndDoesNotScoreStaleForecasts() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, SEASON.length, 1);
+        for (int i = 0; i < SEASON.length * 2; i++) {
+            forecaster.update(SEASON[i % SEASON.length]);
+        }
+        long errorSamples = forecaster.getErrorSamples();
+
+        forecaster.skip(2);
+        assertEquals(SEASON.length * 2 + 2, forecaster.getSamples());
+        assertEquals(SEASON[(SEASON.length * 2 + 2) % SEASON.length], forecaster.forecast(), DELTA);
+
+        // The forecast pending before the gap was for a different sample, so the first sample after it isn't scored
+        forecaster.update(SEASON[2]);
+        assertEquals(errorSamples, forecaster.getErrorSamples());
+        forecaster.update(SEASON[3]);
+        assertEquals(errorSamples + 1, forecaster.getErrorSamples());
+        assertEquals(0, forecaster.getMeanAbsoluteError(), DELTA);
+    }
+
+    @Test
+    public void stateSurvivesWritingAndReadingBack() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.2, 0.3, 3, 2);
+        double[] series = {5, 9, 4, 6, 10, 3, 7, 11, 5, 6};
+        for (double value : series) {
+            forecaster.update(value);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("other", "value");
+        forecaster.writeTo(properties, "group.forecaster.");
+        HoltWintersForecaster readBack = HoltWintersForecaster.readFrom(properties, "group.forecaster.", 0.5, 0.2,
+                0.3);
+
+        assertEquals(forecaster.getSamples(), readBack.getSamples());
+        assertEquals(forecaster.getSeasonLength(), readBack.getSeasonLength());
+        assertEquals(forecaster.getHorizon(), readBack.getHorizon());
+        assertEquals(forecaster.getLevel(), readBack.getLevel(), 0);
+        assertEquals(forecaster.getTrend(), readBack.getTrend(), 0);
+        assertEquals(forecaster.getErrorSamples(), readBack.getErrorSamples());
+        assertEquals(forecaster.getMeanAbsoluteError(), readBack.getMeanAbsoluteError(), 0);
+        assertEquals(forecaster.getRootMeanSquaredError(), readBack.getRootMeanSquaredError(), 0);
+        assertEquals(forecaster.getMeanAbsolutePercentageError(), readBack.getMeanAbsolutePercentageError(), 0);
+
+        // Both carry on identically, including scoring the forecasts pending when the state was written
+        for (double value : series) {
+            forecaster.update(value);
+            readBack.update(value);
+            assertEquals(forecaster.forecast(), readBack.forecast(), 0);
+        }
+        assertEquals(forecaster.getErrorSamples(), readBack.getErrorSamples());
+        assertEquals(forecaster.getMeanAbsoluteError(), readBack.getMeanAbsoluteError(), 0);
+    }
+
+    @Test
+    public void invalidStateIsRejected() {
+        HoltWintersForecaster forecaster = new HoltWintersForecaster(0.5, 0.1, 0.5, 3, 1);
+        Properties properties = new Properties();
+        forecaster.writeTo(properties, "");
+
+        Properties missing = new Properties();
+        missing.putAll(properties);
+        missing.remove("level");
+        assertThrows(IllegalArgumentException.class,
+                () -> HoltWintersForecaster.readFrom(missing, "", 0.5, 0.1, 0.5));
+
+        Properties wrongSeason = new Properties();
+        wrongSeason.putAll(properties);
+        wrongSeason.setProperty("seasonal", "1.0,2.0");
+        assertThrows(IllegalArgumentException.class,
+                () -> HoltWintersForecaster.readFrom(wrongSeason, "", 0.5, 0.1, 0.5));
+
+        Properties negativeSamples = new Properties();
+        negativeSamples.putAll(properties);
+        negativeSamples.setProperty("samples", "-1");
+        assertThrows(IllegalArgumentException.class,
+                () -> HoltWintersForecaster.readFrom(negativeSamples, "", 0.5, 0.1, 0.5));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.extensions.autoscale.groups.core.LoadRingBuffer.Metric;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadRingBufferTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void emptyBufferHasNoSamples() {
+        LoadRingBuffer buffer = new LoadRingBuffer(4);
+        assertEquals(0, buffer.size());
+        assertEquals(4, buffer.capacity());
+
+        LoadAggregate aggregate = buffer.aggregate(Metric.UTILISATION, 0);
+        assertEquals(Metric.UTILISATION, aggregate.getMetric());
+        assertEquals(0, aggregate.getCount());
+        assertTrue(Double.isNaN(aggregate.getMean()));
+        assertTrue(Double.isNaN(aggregate.getMin()));
+        assertTrue(Double.isNaN(aggregate.getMax()));
+        assertTrue(Double.isNaN(aggregate.getLast()));
+        assertTrue(Double.isNaN(buffer.mean(Metric.UTILISATION, 0)));
+    }
+
+    @Test
+    public void aggregateKeepsEachMetricSeparate() {
+        LoadRingBuffer buffer = new LoadRingBuffer(4);
+        buffer.add(1000, 10, 1, 100, 5, 2);
+        buffer.add(2000, 30, 3, 300, 7, 2);
+        buffer.add(3000, 20, 2, 200, 6, 3);
+
+        LoadAggregate utilisation = buffer.aggregate(Metric.UTILISATION, 0);
+        assertEquals(3, utilisation.getCount());
+        assertEquals(20, utilisation.getMean(), DELTA);
+        assertEquals(10, utilisation.getMin(), DELTA);
+        assertEquals(30, utilisation.getMax(), DELTA);
+        assertEquals(20, utilisation.getLast(), DELTA);
+        assertEquals(3000, utilisation.getLastTimestamp());
+
+        assertEquals(2, buffer.aggregate(Metric.ACTIVE_REQUESTS, 0).getMean(), DELTA);
+        assertEquals(300, buffer.aggregate(Metric.ACTIVE_SESSIONS, 0).getMax(), DELTA);
+        assertEquals(5, buffer.aggregate(Metric.BUSY_THREADS, 0).getMin(), DELTA);
+        assertEquals(3, buffer.aggregate(Metric.INSTANCES, 0).getLast(), DELTA);
+    }
+
+    @Test
+    public void samplesBeforeTheWindowAreLeftOut() {
+        LoadRingBuffer buffer = new LoadRingBuffer(8);
+        buffer.add(1000, 90, 0, 0, 0, 1);
+        buffer.add(2000, 10, 0, 0, 0, 1);
+        buffer.add(3000, 20, 0, 0, 0, 1);
+
+        LoadAggregate aggregate = buffer.aggregate(Metric.UTILISATION, 2000);
+        assertEquals(2, aggregate.getCount());
+        assertEquals(15, aggregate.getMean(), DELTA);
+        assertEquals(20, aggregate.getMax(), DELTA);
+        assertEquals(15, buffer.mean(Metric.UTILISATION, 2000), DELTA);
+
+        assertEquals(0, buffer.aggregate(Metric.UTILISATION, 3001).getCount());
+        assertTrue(Double.isNaN(buffer.mean(Metric.UTILISATION, 3001)));
+    }
+
+    @Test
+    public void oldestSamplesAreOverwrittenOnceFull() {
+        LoadRingBuffer buffer = new LoadRingBuffer(3);
+        for (int i = 1; i <= 7; i++) {
+            buffer.add(i * 1000L, i, 0, 0, 0, 1);
+        }
+
+        assertEquals(3, buffer.size());
+        LoadAggregate aggregate = buffer.aggregate(Metric.UTILISATION, 0);
+        assertEquals(3, aggregate.getCount());
+        assertEquals(5, aggregate.getMin(), DELTA);
+        assertEquals(7, aggregate.getMax(), DELTA);
+        assertEquals(7, aggregate.getLast(), DELTA);
+        assertEquals(7000, aggregate.getLastTimestamp());
+        assertEquals(6, buffer.mean(Metric.UTILISATION, 0), DELTA);
+        assertEquals(6.5, buffer.mean(Metric.UTILISATION, 6000), DELTA);
+    }
+
+    @Test
+    public void missingValuesAreLeftOut() {
+        LoadRingBuffer buffer = new LoadRingBuffer(4);
+        buffer.add(1000, 10, Double.NaN, 0, 0, 1);
+        buffer.add(2000, Double.NaN, 4, 0, 0, 1);
+        buffer.add(3000, 30, 6, 0, 0, 1);
+        buffer.add(4000, Double.NaN, Double.NaN, 0, 0, 1);
+
+        LoadAggregate utilisation = buffer.aggregate(Metric.UTILISATION, 0);
+        assertEquals(2, utilisation.getCount());
+        assertEquals(20, utilisation.getMean(), DELTA);
+        // The last value is the newest one which was collected
+        assertEquals(30, utilisation.getLast(), DELTA);
+        assertEquals(3000, utilisation.getLastTimestamp());
+        assertEquals(20, buffer.mean(Metric.UTILISATION, 0), DELTA);
+        assertEquals(5, buffer.mean(Metric.ACTIVE_REQUESTS, 0), DELTA);
+        assertTrue(Double.isNaN(buffer.mean(Metric.UTILISATION, 3500)));
+    }
+
+    @Test
+    public void meanMatchesAggregate() {
+        LoadRingBuffer buffer = new LoadRingBuffer(5);
+        for (int i = 0; i < 12; i++) {
+            buffer.add(i * 1000L, i % 3 == 0 ? Double.NaN : i * 1.5, 0, 0, 0, 1);
+            for (long since = 0; since <= i * 1000L; since += 500) {
+                assertEquals(buffer.aggregate(Metric.UTILISATION, since).getMean(),
+                        buffer.mean(Metric.UTILISATION, since), DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void clearRemovesAllSamples() {
+        LoadRingBuffer buffer = new LoadRingBuffer(3);
+        buffer.add(1000, 10, 0, 0, 0, 1);
+        buffer.add(2000, 20, 0, 0, 0, 1);
+        buffer.clear();
+
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.aggregate(Metric.UTILISATION, 0).getCount());
+
+        buffer.add(3000, 40, 0, 0, 0, 1);
+        assertEquals(1, buffer.size());
+        assertEquals(40, buffer.mean(Metric.UTILISATION, 0), DELTA);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScalingControllerTest {
+
+    private static final int SCALE_UP_THRESHOLD = 80;
+    private static final int SCALE_DOWN_THRESHOLD = 20;
+    private static final int MIN_INSTANCES = 1;
+    private static final int MAX_INSTANCES = 5;
+
+    @Test
+    public void loadAboveThresholdAddsOneInstance() {
+        assertEquals(4, determineDesiredInstances(3, 3, 90, 0));
+    }
+
+    @Test
+    public void loadBelowThresholdRemovesOneInstance() {
+        assertEquals(2, determineDesiredInstances(3, 3, 10, 0));
+    }
+
+    @Test
+    public void loadWithinThresholdsKeepsDesiredInstances() {
+        assertEquals(3, determineDesiredInstances(3, 3, 50, 0));
+        assertEquals(4, determineDesiredInstances(3, 4, 50, 0));
+        assertEquals(3, determineDesiredInstances(3, 3, 80, 0));
+        assertEquals(3, determineDesiredInstances(3, 3, 20, 0));
+    }
+
+    @Test
+    public void missingLoadKeepsDesiredInstances() {
+        assertEquals(4, determineDesiredInstances(3, 4, Double.NaN, 0));
+    }
+
+    @Test
+    public void loadDoesNotUndoAPendingScaleInTheSameDirection() {
+        // Already scaling up to 5, high load shouldn't pull that back to 4
+        assertEquals(5, determineDesiredInstances(3, 5, 90, 0));
+        // Already scaling down to 1, low load shouldn't pull that back to 2
+        assertEquals(1, determineDesiredInstances(3, 1, 10, 0));
+    }
+
+    @Test
+    public void forecastDemandRaisesDesiredInstances() {
+        assertEquals(4, determineDesiredInstances(2, 2, 50, 4));
+        assertEquals(4, determineDesiredInstances(3, 3, 10, 4));
+        // The forecast never lowers the desired instances
+        assertEquals(4, determineDesiredInstances(3, 3, 90, 2));
+    }
+
+    @Test
+    public void desiredInstancesAreKeptWithinBounds() {
+        assertEquals(MAX_INSTANCES, determineDesiredInstances(5, 5, 90, 0));
+        assertEquals(MAX_INSTANCES, determineDesiredInstances(3, 3, 50, 8));
+        assertEquals(MIN_INSTANCES, determineDesiredInstances(1, 1, 10, 0));
+        assertEquals(MIN_INSTANCES, determineDesiredInstances(0, 0, 50, 0));
+    }
+
+    private static int determineDesiredInstances(int currentInstances, int desiredInstances, double load,
+            int predictedInstances) {
+        return ScalingController.determineDesiredInstances(currentInstances, desiredInstances, load,
+                SCALE_UP_THRESHOLD, SCALE_DOWN_THRESHOLD, predictedInstances, MIN_INSTANCES, MAX_INSTANCES);
+    }
+}
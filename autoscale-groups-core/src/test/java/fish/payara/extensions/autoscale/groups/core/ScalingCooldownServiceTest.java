@@ -0,0 +1,215 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.glassfish.api.admin.ServerEnvironment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static fish.payara.extensions.autoscale.groups.core.ScalingOperation.Type.SCALE_DOWN;
+import static fish.payara.extensions.autoscale.groups.core.ScalingOperation.Type.SCALE_UP;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScalingCooldownServiceTest {
+
+    private Path configDir;
+
+    @Before
+    public void createConfigDir() throws IOException {
+        configDir = Files.createTempDirectory("autoscale-groups-cooldowns");
+    }
+
+    @After
+    public void deleteConfigDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(configDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void idleGroupIsAdmitted() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        ScalingGroup scalingGroup = scalingGroup("group", "60", "60");
+
+        assertNull(cooldownService.admit(scalingGroup, SCALE_UP));
+        assertNull(cooldownService.admit(scalingGroup, SCALE_DOWN));
+    }
+
+    @Test
+    public void scaleUpStartsBothCooldowns() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        ScalingGroup scalingGroup = scalingGroup("group", "60", "60");
+
+        cooldownService.finished("group", SCALE_UP, true);
+
+        String rejection = cooldownService.admit(scalingGroup, SCALE_UP);
+        assertNotNull(rejection);
+        assertTrue(rejection, rejection.contains("cooling down"));
+        // The scale down cooldown counts from the last scale in either direction, so the group can't flap back down
+        assertNotNull(cooldownService.admit(scalingGroup, SCALE_DOWN));
+    }
+
+    @Test
+    public void scaleDownDoesNotStartTheScaleUpCooldown() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        ScalingGroup scalingGroup = scalingGroup("group", "60", "60");
+
+        cooldownService.finished("group", SCALE_DOWN, true);
+
+        assertNull(cooldownService.admit(scalingGroup, SCALE_UP));
+        assertNotNull(cooldownService.admit(scalingGroup, SCALE_DOWN));
+    }
+
+    @Test
+    public void zeroCooldownAdmitsStraightAway() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        ScalingGroup scalingGroup = scalingGroup("group", "0", "0");
+
+        cooldownService.finished("group", SCALE_UP, true);
+        cooldownService.finished("group", SCALE_DOWN, true);
+
+        assertNull(cooldownService.admit(scalingGroup, SCALE_UP));
+        assertNull(cooldownService.admit(scalingGroup, SCALE_DOWN));
+    }
+
+    @Test
+    public void failedOperationDoesNotStartACooldown() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        ScalingGroup scalingGroup = scalingGroup("group", "60", "60");
+
+        cooldownService.finished("group", SCALE_UP, false);
+
+        assertNull(cooldownService.admit(scalingGroup, SCALE_UP));
+        assertNull(cooldownService.admit(scalingGroup, SCALE_DOWN));
+        assertFalse(configDir.resolve(ScalingCooldownService.STATE_FILE_NAME).toFile().exists());
+    }
+
+    @Test
+    public void groupsCoolDownIndependently() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+
+        cooldownService.finished("group", SCALE_UP, true);
+
+        assertNotNull(cooldownService.admit(scalingGroup("group", "60", "60"), SCALE_UP));
+        assertNull(cooldownService.admit(scalingGroup("other", "60", "60"), SCALE_UP));
+    }
+
+    @Test
+    public void cooldownsSurviveARestart() throws ReflectiveOperationException {
+        createCooldownService().finished("group", SCALE_UP, true);
+        assertTrue(configDir.resolve(ScalingCooldownService.STATE_FILE_NAME).toFile().isFile());
+
+        ScalingCooldownService restartedCooldownService = createCooldownService();
+        assertNotNull(restartedCooldownService.admit(scalingGroup("group", "60", "60"), SCALE_UP));
+        assertNull(restartedCooldownService.admit(scalingGroup("other", "60", "60"), SCALE_UP));
+    }
+
+    @Test
+    public void removedGroupIsForgotten() throws ReflectiveOperationException {
+        ScalingCooldownService cooldownService = createCooldownService();
+        cooldownService.finished("group", SCALE_UP, true);
+
+        cooldownService.remove("group");
+
+        assertNull(cooldownService.admit(scalingGroup("group", "60", "60"), SCALE_UP));
+        assertNull(createCooldownService().admit(scalingGroup("group", "60", "60"), SCALE_UP));
+    }
+
+    @Test
+    public void invalidStateEntriesAreIgnored() throws IOException, ReflectiveOperationException {
+        Properties properties = new Properties();
+        properties.setProperty("group.lastScaleUp", "not a time");
+        properties.setProperty("other.lastScaleUp", String.valueOf(System.currentTimeMillis()));
+        try (OutputStream outputStream = Files.newOutputStream(
+                configDir.resolve(ScalingCooldownService.STATE_FILE_NAME))) {
+            properties.store(outputStream, null);
+        }
+
+        ScalingCooldownService cooldownService = createCooldownService();
+        assertNull(cooldownService.admit(scalingGroup("group", "60", "60"), SCALE_UP));
+        assertNotNull(cooldownService.admit(scalingGroup("other", "60", "60"), SCALE_UP));
+    }
+
+    private ScalingCooldownService createCooldownService() throws ReflectiveOperationException {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getConfigDirPath", configDir.toFile());
+
+        ScalingCooldownService cooldownService = new ScalingCooldownService();
+        Field serverEnvironment = ScalingCooldownService.class.getDeclaredField("serverEnvironment");
+        serverEnvironment.setAccessible(true);
+        serverEnvironment.set(cooldownService, stub(ServerEnvironment.class, answers));
+        return cooldownService;
+    }
+
+    private static ScalingGroup scalingGroup(String name, String scaleUpCooldown, String scaleDownCooldown) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getName", name);
+        answers.put("getScaleUpCooldown", scaleUpCooldown);
+        answers.put("getScaleDownCooldown", scaleDownCooldown);
+        return stub(ScalingGroup.class, answers);
+    }
+
+    /**
+     * Stubs an interface, answering its methods from a map of method name to return value and returning null for
+     * anything else.
+     */
+    private static <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return type.cast(Proxy.newProxyInstance(ScalingCooldownServiceTest.class.getClassLoader(),
+                new Class<?>[]{type}, (proxy, method, args) -> answers.get(method.getName())));
+    }
+}
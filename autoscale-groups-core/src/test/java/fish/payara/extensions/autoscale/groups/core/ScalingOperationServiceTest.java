@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core;
+
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationService.PendingOperation;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationService.ScalingGroupQueue;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static fish.payara.extensions.autoscale.groups.core.ScalingOperation.Type.SCALE_DOWN;
+import static fish.payara.extensions.autoscale.groups.core.ScalingOperation.Type.SCALE_UP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScalingOperationServiceTest {
+
+    private int operationIdCounter;
+
+    @Test
+    public void idleQueueNeedsAWorker() {
+        ScalingGroupQueue scalingGroupQueue = new ScalingGroupQueue();
+        assertFalse(scalingGroupQueue.isBusy());
+
+        assertTrue(scalingGroupQueue.offer(pendingOperation(SCALE_UP, 1)));
+        assertTrue(scalingGroupQueue.isBusy());
+    }
+
+    @Test
+    public void operationsQueuedWhileRunningAreTakenAsOneBatch() {
+        ScalingGroupQueue scalingGroupQueue = new ScalingGroupQueue();
+        PendingOperation first = pendingOperation(SCALE_UP, 1);
+        PendingOperation second = pendingOperation(SCALE_UP, 2);
+        PendingOperation third = pendingOperation(SCALE_DOWN, 1);
+
+        assertTrue(scalingGroupQueue.offer(first));
+        assertEquals(Collections.singletonList(first), scalingGroupQueue.poll());
+
+        // The first operation is running, so these wait for the same worker rather than starting another
+        assertFalse(scalingGroupQueue.offer(second));
+        assertFalse(scalingGroupQueue.offer(third));
+        assertTrue(scalingGroupQueue.isBusy());
+        assertEquals(Arrays.asList(second, third), scalingGroupQueue.poll());
+
+        // The worker stops once it finds the queue empty, so the next operation needs a new one
+        assertTrue(scalingGroupQueue.isBusy());
+        assertNull(scalingGroupQueue.poll());
+        assertFalse(scalingGroupQueue.isBusy());
+        assertTrue(scalingGroupQueue.offer(pendingOperation(SCALE_UP, 1)));
+    }
+
+    @Test
+    public void queueWhoseWorkerCouldNotStartGivesUpItsOperations() {
+        ScalingGroupQueue scalingGroupQueue = new ScalingGroupQueue();
+        PendingOperation first = pendingOperation(SCALE_UP, 1);
+        PendingOperation second = pendingOperation(SCALE_UP, 1);
+
+        assertTrue(scalingGroupQueue.offer(first));
+        assertEquals(Collections.singletonList(first), scalingGroupQueue.stop());
+        assertFalse(scalingGroupQueue.isBusy());
+
+        assertTrue(scalingGroupQueue.offer(second));
+        assertEquals(Collections.singletonList(second), scalingGroupQueue.poll());
+    }
+
+    @Test
+    public void batchIsCoalescedIntoItsNetChange() {
+        assertEquals(3, ScalingOperationService.getNetChange(Collections.singletonList(
+                pendingOperation(SCALE_UP, 3)), 5));
+        assertEquals(-3, ScalingOperationService.getNetChange(Collections.singletonList(
+                pendingOperation(SCALE_DOWN, 3)), 5));
+        assertEquals(4, ScalingOperationService.getNetChange(Arrays.asList(
+                pendingOperation(SCALE_UP, 3), pendingOperation(SCALE_DOWN, 1), pendingOperation(SCALE_UP, 2)), 5));
+        assertEquals(-3, ScalingOperationService.getNetChange(Arrays.asList(
+                pendingOperation(SCALE_DOWN, 5), pendingOperation(SCALE_UP, 2)), 5));
+    }
+
+    @Test
+    public void opposingOperationsCancelOut() {
+        List<PendingOperation> batch = Arrays.asList(pendingOperation(SCALE_UP, 2), pendingOperation(SCALE_DOWN, 1),
+                pendingOperation(SCALE_DOWN, 1));
+        assertEquals(0, ScalingOperationService.getNetChange(batch, 5));
+    }
+
+    @Test
+    public void targetIsWorkedOutAgainstTheCurrentInstances() {
+        // Submitted as a scale up by 5 when the group had 5 instances, but the group has since grown to 8
+        assertEquals(2, ScalingOperationService.getNetChange(Collections.singletonList(
+                targetOperation(10, 5)), 8));
+        assertEquals(-1, ScalingOperationService.getNetChange(Collections.singletonList(
+                targetOperation(10, 5)), 11));
+        assertEquals(0, ScalingOperationService.getNetChange(Collections.singletonList(
+                targetOperation(10, 5)), 10));
+    }
+
+    @Test
+    public void queuedTargetsCoalesceToTheTargetRatherThanAddingUp() {
+        List<PendingOperation> batch = Arrays.asList(targetOperation(10, 5), targetOperation(10, 5));
+        assertEquals(5, ScalingOperationService.getNetChange(batch, 5));
+    }
+
+    @Test
+    public void latestTargetOverridesEverythingQueuedBeforeIt() {
+        List<PendingOperation> batch = Arrays.asList(pendingOperation(SCALE_UP, 3), targetOperation(10, 5),
+                pendingOperation(SCALE_DOWN, 1), targetOperation(7, 5));
+        assertEquals(2, ScalingOperationService.getNetChange(batch, 5));
+    }
+
+    @Test
+    public void changesQueuedAfterATargetAreAddedToIt() {
+        List<PendingOperation> batch = Arrays.asList(targetOperation(10, 5), pendingOperation(SCALE_UP, 2),
+                pendingOperation(SCALE_DOWN, 1));
+        assertEquals(6, ScalingOperationService.getNetChange(batch, 5));
+    }
+
+    @Test
+    public void targetOperationIsResolvedWhenItRuns() {
+        ScalingOperation scalingOperation = new ScalingOperation("1", SCALE_UP, 5, 10, "group", "deployment-group");
+        assertEquals(Integer.valueOf(10), scalingOperation.getTargetInstances());
+
+        scalingOperation.resolved(SCALE_DOWN, 1);
+        assertEquals(SCALE_DOWN, scalingOperation.getType());
+        assertEquals(1, scalingOperation.getQuantity());
+        assertEquals(Integer.valueOf(10), scalingOperation.getTargetInstances());
+    }
+
+    @Test
+    public void operationWithinTheMaxScaleRunsInOneStep() {
+        assertEquals(Collections.singletonList(3), ScalingOperationService.getSteps(3, 100));
+        assertEquals(Collections.singletonList(100), ScalingOperationService.getSteps(100, 100));
+    }
+
+    @Test
+    public void operationBeyondTheMaxScaleRunsInSteps() {
+        assertEquals(Arrays.asList(100, 50), ScalingOperationService.getSteps(150, 100));
+        assertEquals(Arrays.asList(100, 100), ScalingOperationService.getSteps(200, 100));
+        assertEquals(Arrays.asList(2, 2, 2, 1), ScalingOperationService.getSteps(7, 2));
+        assertEquals(Arrays.asList(1, 1, 1), ScalingOperationService.getSteps(3, 1));
+    }
+
+    @Test
+    public void operationIsQueuedUntilStarted() {
+        ScalingOperation scalingOperation = new ScalingOperation("1", SCALE_UP, 2, "group", "deployment-group");
+        assertEquals(ScalingOperation.State.QUEUED, scalingOperation.getState());
+        assertFalse(scalingOperation.isFinished());
+        assertEquals(0, scalingOperation.getDuration());
+        assertNull(scalingOperation.getCoalescedOperationId());
+        assertNull(scalingOperation.getActionReport());
+        assertNull(scalingOperation.getTargetInstances());
+
+        scalingOperation.coalescedInto("7");
+        scalingOperation.started();
+        assertEquals(ScalingOperation.State.RUNNING, scalingOperation.getState());
+        assertFalse(scalingOperation.isFinished());
+        assertEquals("7", scalingOperation.getCoalescedOperationId());
+    }
+
+    private PendingOperation pendingOperation(ScalingOperation.Type type, int quantity) {
+        ScalingOperation scalingOperation = new ScalingOperation(String.valueOf(++operationIdCounter), type,
+                quantity, "group", "deployment-group");
+        return new PendingOperation(scalingOperation, null, null);
+    }
+
+    /**
+     * @return An operation to scale to the target instances, submitted when the group had the given instances
+     */
+    private PendingOperation targetOperation(int targetInstances, int submittedInstances) {
+        ScalingOperation scalingOperation = new ScalingOperation(String.valueOf(++operationIdCounter),
+                targetInstances < submittedInstances ? SCALE_DOWN : SCALE_UP,
+                Math.abs(targetInstances - submittedInstances), targetInstances, "group", "deployment-group");
+        return new PendingOperation(scalingOperation, null, null);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper.BACKOFF_SUFFIX;
+import static fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper.COMMAND_PROP_PREFIX;
+import static fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper.MAX_BACKOFF;
+import static fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper.RETRIES_SUFFIX;
+import static fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper.TIMEOUT_SUFFIX;
+import static org.glassfish.api.ActionReport.ExitCode.FAILURE;
+import static org.glassfish.api.ActionReport.ExitCode.SUCCESS;
+import static org.glassfish.api.ActionReport.ExitCode.WARNING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScaleCommandHelperTest {
+
+    @After
+    public void clearProperties() {
+        for (String suffix : new String[] { TIMEOUT_SUFFIX, RETRIES_SUFFIX, BACKOFF_SUFFIX }) {
+            System.clearProperty(COMMAND_PROP_PREFIX + suffix);
+            System.clearProperty(COMMAND_PROP_PREFIX + "start-instance." + suffix);
+        }
+    }
+
+    @Test
+    public void failureIsRetriedUntilRetriesRunOut() {
+        assertTrue(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, 0, 1000));
+        assertTrue(ScaleCommandHelper.shouldRetry(FAILURE, 2, 2, 0, 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(FAILURE, 3, 2, 0, 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(FAILURE, 1, 0, 0, 1000));
+    }
+
+    @Test
+    public void successAndWarningAreNotRetried() {
+        assertFalse(ScaleCommandHelper.shouldRetry(SUCCESS, 1, 2, 0, 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(WARNING, 1, 2, 0, 1000));
+    }
+
+    @Test
+    public void retryWhichWouldStartAtOrAfterTheDeadlineIsNotMade() {
+        assertTrue(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, 999, 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, 1000, 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, 1001, 1000));
+    }
+
+    @Test
+    public void retryDeadlineSurvivesNanoTimeOverflow() {
+        assertTrue(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, Long.MAX_VALUE, Long.MAX_VALUE + 1000));
+        assertFalse(ScaleCommandHelper.shouldRetry(FAILURE, 1, 2, Long.MAX_VALUE + 1000, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void backoffDoublesWithEqualJitter() {
+        for (int failedAttempts = 1; failedAttempts <= 4; failedAttempts++) {
+            long backoff = 1000L << (failedAttempts - 1);
+            for (int i = 0; i < 100; i++) {
+                long jittered = ScaleCommandHelper.getBackoff(1000, failedAttempts);
+                assertTrue(jittered + " below half of " + backoff, jittered >= backoff / 2);
+                assertTrue(jittered + " above " + backoff, jittered <= backoff);
+            }
+        }
+    }
+
+    @Test
+    public void backoffIsCapped() {
+        for (int failedAttempts : new int[] { 6, 31, 100, Integer.MAX_VALUE }) {
+            long jittered = ScaleCommandHelper.getBackoff(1000, failedAttempts);
+            assertTrue(jittered >= MAX_BACKOFF / 2);
+            assertTrue(jittered <= MAX_BACKOFF);
+        }
+    }
+
+    @Test
+    public void onlyStartInstanceIsRetriedByDefault() {
+        assertEquals(ScaleCommandHelper.START_INSTANCE_RETRIES_DEFAULT,
+                ScaleCommandHelper.getCommandRetries("start-instance"));
+        assertEquals(ScaleCommandHelper.RETRIES_DEFAULT, ScaleCommandHelper.getCommandRetries("stop-instance"));
+        assertEquals(ScaleCommandHelper.RETRIES_DEFAULT, ScaleCommandHelper.getCommandRetries("create-instance"));
+    }
+
+    @Test
+    public void commandPropertyOverridesGlobalProperty() {
+        System.setProperty(COMMAND_PROP_PREFIX + RETRIES_SUFFIX, "5");
+        System.setProperty(COMMAND_PROP_PREFIX + "start-instance." + RETRIES_SUFFIX, "1");
+
+        assertEquals(1, ScaleCommandHelper.getCommandRetries("start-instance"));
+        assertEquals(5, ScaleCommandHelper.getCommandRetries("stop-instance"));
+    }
+
+    @Test
+    public void negativePropertyIsIgnored() {
+        System.setProperty(COMMAND_PROP_PREFIX + "start-instance." + RETRIES_SUFFIX, "-1");
+        System.setProperty(COMMAND_PROP_PREFIX + BACKOFF_SUFFIX, "-100");
+
+        assertEquals(ScaleCommandHelper.START_INSTANCE_RETRIES_DEFAULT,
+                ScaleCommandHelper.getCommandRetries("start-instance"));
+        assertEquals(ScaleCommandHelper.BACKOFF_DEFAULT,
+                ScaleCommandHelper.getCommandProperty("start-instance", BACKOFF_SUFFIX,
+                        ScaleCommandHelper.BACKOFF_DEFAULT));
+    }
+
+    @Test
+    public void deadlineCanBeSetPerCommand() {
+        System.setProperty(COMMAND_PROP_PREFIX + TIMEOUT_SUFFIX, "20000");
+        System.setProperty(COMMAND_PROP_PREFIX + "start-instance." + TIMEOUT_SUFFIX, "90000");
+
+        assertEquals(90000, ScaleCommandHelper.getCommandTimeout("start-instance"));
+        assertEquals(20000, ScaleCommandHelper.getCommandTimeout("stop-instance"));
+    }
+}
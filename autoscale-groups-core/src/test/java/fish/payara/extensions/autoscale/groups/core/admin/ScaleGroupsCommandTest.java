@@ -0,0 +1,86 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.core.admin;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ScaleGroupsCommandTest {
+
+    @Test
+    public void signedValueIsADelta() {
+        assertFalse(ScaleGroupsCommand.isTarget("+2"));
+        assertFalse(ScaleGroupsCommand.isTarget("-1"));
+        assertEquals(5, ScaleGroupsCommand.getTargetInstances("+2", 3));
+        assertEquals(2, ScaleGroupsCommand.getTargetInstances("-1", 3));
+        assertEquals(3, ScaleGroupsCommand.getTargetInstances("+0", 3));
+    }
+
+    @Test
+    public void unsignedValueIsATarget() {
+        assertTrue(ScaleGroupsCommand.isTarget("5"));
+        assertEquals(5, ScaleGroupsCommand.getTargetInstances("5", 3));
+        assertEquals(0, ScaleGroupsCommand.getTargetInstances("0", 3));
+        assertEquals(7, ScaleGroupsCommand.getTargetInstances("007", 3));
+    }
+
+    @Test
+    public void valueWithMoreThanOneSignIsRejected() {
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("+-3", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("-+3", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("++3", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("--3", 3));
+    }
+
+    @Test
+    public void valueWhichIsNotANumberIsRejected() {
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("+", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("-", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("two", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("+2a", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("2.5", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("+ 2", 3));
+        assertThrows(NumberFormatException.class, () -> ScaleGroupsCommand.getTargetInstances("99999999999", 3));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.nodes;
+
+import org.jvnet.hk2.config.Attribute;
+import org.jvnet.hk2.config.ConfigBeanProxy;
+import org.jvnet.hk2.config.Configured;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.beans.PropertyVetoException;
+
+/**
+ * Placement settings for one of the nodes referenced by a {@link NodesScalingGroup}. Nodes without a configuration
+ * use the defaults.
+ */
+@Configured
+public interface NodeRefConfiguration extends ConfigBeanProxy {
+
+    /**
+     * The name of the {@link com.sun.enterprise.config.serverbeans.Node Node} this configuration applies to.
+     *
+     * @return The name of the node
+     */
+    @Attribute(key = true, required = true)
+    @NotNull
+    String getNodeRef();
+    void setNodeRef(String nodeRef) throws PropertyVetoException;
+
+    /**
+     * The relative capacity of the node. Instances are balanced across nodes by their number of instances per unit
+     * of weight, so a node with a weight of 4 will be given four times as many instances as a node with a weight of 1.
+     *
+     * @return The weight of the node
+     */
+    @Attribute(defaultValue = "1", dataType = Integer.class)
+    @Min(value = 1)
+    String getWeight();
+    void setWeight(String weight) throws PropertyVetoException;
+
+    /**
+     * The maximum number of instances of the Deployment Group which will be placed on the node. If not set, the node
+     * is unlimited.
+     *
+     * @return The maximum number of instances on the node, or null if unlimited
+     */
+    @Attribute(dataType = Integer.class)
+    @Min(value = 0)
+    String getMaxInstances();
+    void setMaxInstances(String maxInstances) throws PropertyVetoException;
+
+    /**
+     * The failure domain the node belongs to, such as the rack or zone it's in. Instances are spread evenly across
+     * failure domains before being spread across the nodes within them. If not set, the node is treated as its own
+     * failure domain.
+     *
+     * @return The name of the failure domain of the node, or null if it doesn't have one
+     */
+    @Attribute
+    String getFailureDomain();
+    void setFailureDomain(String failureDomain) throws PropertyVetoException;
+}
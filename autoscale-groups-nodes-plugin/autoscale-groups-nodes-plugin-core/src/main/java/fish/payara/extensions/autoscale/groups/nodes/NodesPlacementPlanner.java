@@ -0,0 +1,296 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.nodes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Plans which nodes instances should be created on, and which instances should be removed, to keep the instances of a
+ * {@link NodesScalingGroup} balanced across its nodes. The planner works purely on node and instance names so that it
+ * has no dependency on the domain config.
+ *
+ * If any nodes are labelled with a failure domain (e.g. a rack or zone), instances are first spread evenly across the
+ * failure domains, and then across the nodes within each failure domain. Unlabelled nodes are each treated as their
+ * own failure domain. Within a failure domain, nodes are balanced on their number of instances per unit of capacity,
+ * as given by their weight: a node with a weight of 4 is given four times as many instances as a node with a weight of
+ * 1. Nodes without a weight have a weight of 1.
+ *
+ * Ties are broken by the iteration order of the maps passed in, so callers should pass maps ordered by the node refs
+ * of the scaling group.
+ */
+public final class NodesPlacementPlanner {
+
+    private NodesPlacementPlanner() {
+    }
+
+    /**
+     * Plans how many new instances to place on each node, treating all nodes as having the same capacity.
+     *
+     * @see #planPlacement(int, Map, Map, Map, Map)
+     */
+    public static Map<String, Integer> planPlacement(int numberOfNewInstances,
+            Map<String, Integer> nodesInstanceBalance, Map<String, Integer> nodesInstanceLimits) {
+        return planPlacement(numberOfNewInstances, nodesInstanceBalance, nodesInstanceLimits, null, null);
+    }
+
+    /**
+     * Plans how many new instances to place on each node, always placing the next instance in the failure domain with
+     * the least instances, on the node of that failure domain which would have the least instances per unit of
+     * capacity after placing it.
+     *
+     * @param numberOfNewInstances The number of new instances to place
+     * @param nodesInstanceBalance The current number of instances on each node
+     * @param nodesInstanceLimits The maximum number of new instances which can be placed on each node, or null for no
+     *                            limits. Nodes missing from the map are unlimited.
+     * @param nodesWeights The capacity weight of each node, or null if all nodes have the same capacity
+     * @param nodesFailureDomains The failure domain of each node, or null if no nodes have a failure domain
+     * @return A Map of node name to the number of new instances to place on it. If every node hits its limit, fewer
+     * than the requested number of instances will have been placed.
+     */
+    public static Map<String, Integer> planPlacement(int numberOfNewInstances,
+            Map<String, Integer> nodesInstanceBalance, Map<String, Integer> nodesInstanceLimits,
+            Map<String, Integer> nodesWeights, Map<String, String> nodesFailureDomains) {
+        Comparator<NodeCount> leastLoadedNode = (first, second) -> {
+            // Compare (count + 1) / weight without dividing
+            int comparison = Long.compare((first.count + 1L) * second.weight, (second.count + 1L) * first.weight);
+            return comparison != 0 ? comparison : Integer.compare(first.order, second.order);
+        };
+
+        // Group the nodes which have space into their failure domains
+        Map<String, DomainCount> domains = new LinkedHashMap<>();
+        int order = 0;
+        for (Map.Entry<String, Integer> nodeBalance : nodesInstanceBalance.entrySet()) {
+            DomainCount domain = getDomain(domains, nodeBalance.getKey(), nodesFailureDomains, order,
+                    leastLoadedNode);
+            domain.count += nodeBalance.getValue();
+            if (getLimit(nodesInstanceLimits, nodeBalance.getKey()) > 0) {
+                domain.nodes.add(new NodeCount(nodeBalance.getKey(), nodeBalance.getValue(),
+                        getWeight(nodesWeights, nodeBalance.getKey()), order));
+            }
+            order++;
+        }
+
+        PriorityQueue<DomainCount> minHeap = new PriorityQueue<>(Math.max(1, domains.size()),
+                Comparator.comparingInt((DomainCount domainCount) -> domainCount.count)
+                        .thenComparingInt(domainCount -> domainCount.order));
+        for (DomainCount domain : domains.values()) {
+            if (!domain.nodes.isEmpty()) {
+                minHeap.add(domain);
+            }
+        }
+
+        Map<String, Integer> nodeInstanceCounts = new LinkedHashMap<>();
+        for (int instanceCounter = 0; instanceCounter < numberOfNewInstances && !minHeap.isEmpty(); instanceCounter++) {
+            // Get the least loaded node of the failure domain with the least instances
+            DomainCount minDomain = minHeap.poll();
+            NodeCount minNode = minDomain.nodes.poll();
+            int placed = nodeInstanceCounts.merge(minNode.node, 1, Integer::sum);
+
+            // Adjust the node balance, retiring the node if it's full, and the failure domain if all its nodes are
+            minNode.count++;
+            if (placed < getLimit(nodesInstanceLimits, minNode.node)) {
+                minDomain.nodes.add(minNode);
+            }
+
+            minDomain.count++;
+            if (!minDomain.nodes.isEmpty()) {
+                minHeap.add(minDomain);
+            }
+        }
+
+        return nodeInstanceCounts;
+    }
+
+    /**
+     * Plans which instances to remove, treating all nodes as having the same capacity.
+     *
+     * @see #planRemoval(int, Map, Map, Map, Map)
+     */
+    public static List<String> planRemoval(int numberOfInstancesToRemove, Map<String, List<String>> nodesInstances) {
+        return planRemoval(numberOfInstancesToRemove, nodesInstances, null, null, null);
+    }
+
+    /**
+     * Plans which instances to remove, always removing the next instance from the failure domain with the most
+     * instances, from the node of that failure domain which has the most instances per unit of capacity. Nodes holding
+     * more than their maximum number of instances are emptied down to their maximum first. Instances are taken from
+     * each node in the order given.
+     *
+     * @param numberOfInstancesToRemove The number of instances to remove
+     * @param nodesInstances The names of the instances on each node
+     * @param nodesWeights The capacity weight of each node, or null if all nodes have the same capacity
+     * @param nodesMaxInstances The maximum number of instances on each node, or null for no maximums. Nodes missing
+     *                          from the map are unlimited.
+     * @param nodesFailureDomains The failure domain of each node, or null if no nodes have a failure domain
+     * @return The names of the instances to remove, which will be fewer than requested if there aren't enough
+     */
+    public static List<String> planRemoval(int numberOfInstancesToRemove, Map<String, List<String>> nodesInstances,
+            Map<String, Integer> nodesWeights, Map<String, Integer> nodesMaxInstances,
+            Map<String, String> nodesFailureDomains) {
+        Comparator<NodeCount> mostLoadedNode = (first, second) -> {
+            int comparison = Boolean.compare(isOverLimit(second, nodesMaxInstances),
+                    isOverLimit(first, nodesMaxInstances));
+            if (comparison == 0) {
+                // Compare count / weight without dividing
+                comparison = Long.compare((long) second.count * first.weight, (long) first.count * second.weight);
+            }
+            return comparison != 0 ? comparison : Integer.compare(first.order, second.order);
+        };
+
+        // Group the nodes which have instances into their failure domains
+        Map<String, DomainCount> domains = new LinkedHashMap<>();
+        int order = 0;
+        for (Map.Entry<String, List<String>> nodeInstances : nodesInstances.entrySet()) {
+            if (!nodeInstances.getValue().isEmpty()) {
+                DomainCount domain = getDomain(domains, nodeInstances.getKey(), nodesFailureDomains, order,
+                        mostLoadedNode);
+                domain.count += nodeInstances.getValue().size();
+                domain.nodes.add(new NodeCount(nodeInstances.getKey(), nodeInstances.getValue().size(),
+                        getWeight(nodesWeights, nodeInstances.getKey()), order));
+            }
+            order++;
+        }
+
+        // Failure domains with a node over its limit go first, so that the node gets trimmed
+        PriorityQueue<DomainCount> maxHeap = new PriorityQueue<>(Math.max(1, domains.size()),
+                (first, second) -> {
+                    int comparison = Boolean.compare(isOverLimit(second.nodes.peek(), nodesMaxInstances),
+                            isOverLimit(first.nodes.peek(), nodesMaxInstances));
+                    if (comparison == 0) {
+                        comparison = Integer.compare(second.count, first.count);
+                    }
+                    return comparison != 0 ? comparison : Integer.compare(first.order, second.order);
+                });
+        maxHeap.addAll(domains.values());
+
+        List<String> instanceNames = new ArrayList<>(Math.max(0, numberOfInstancesToRemove));
+        while (instanceNames.size() < numberOfInstancesToRemove && !maxHeap.isEmpty()) {
+            // Pick the next instance from the most loaded node of the failure domain with the most instances
+            DomainCount maxDomain = maxHeap.poll();
+            NodeCount maxNode = maxDomain.nodes.poll();
+            List<String> nodeInstances = nodesInstances.get(maxNode.node);
+            instanceNames.add(nodeInstances.get(nodeInstances.size() - maxNode.count));
+
+            maxNode.count--;
+            if (maxNode.count > 0) {
+                maxDomain.nodes.add(maxNode);
+            }
+
+            maxDomain.count--;
+            if (!maxDomain.nodes.isEmpty()) {
+                maxHeap.add(maxDomain);
+            }
+        }
+
+        return instanceNames;
+    }
+
+    private static DomainCount getDomain(Map<String, DomainCount> domains, String node,
+            Map<String, String> nodesFailureDomains, int order, Comparator<NodeCount> nodeComparator) {
+        String domainName;
+        if (nodesFailureDomains == null || nodesFailureDomains.isEmpty()) {
+            // No failure domains, so balance across all nodes
+            domainName = "";
+        } else {
+            String failureDomain = nodesFailureDomains.get(node);
+            // Prefix the names so that an unlabelled node can't share a failure domain with a label of the same name
+            domainName = failureDomain != null ? "domain:" + failureDomain : "node:" + node;
+        }
+        return domains.computeIfAbsent(domainName, name -> new DomainCount(order, nodeComparator));
+    }
+
+    private static boolean isOverLimit(NodeCount nodeCount, Map<String, Integer> nodesMaxInstances) {
+        return nodeCount != null && nodeCount.count > getLimit(nodesMaxInstances, nodeCount.node);
+    }
+
+    private static int getLimit(Map<String, Integer> nodesInstanceLimits, String node) {
+        if (nodesInstanceLimits == null) {
+            return Integer.MAX_VALUE;
+        }
+        return nodesInstanceLimits.getOrDefault(node, Integer.MAX_VALUE);
+    }
+
+    private static int getWeight(Map<String, Integer> nodesWeights, String node) {
+        if (nodesWeights == null) {
+            return 1;
+        }
+        return Math.max(1, nodesWeights.getOrDefault(node, 1));
+    }
+
+    /**
+     * Mutable heap entry for a node. Entries are always polled before being modified and re-added, so the heaps stay
+     * ordered.
+     */
+    private static class NodeCount {
+
+        private final String node;
+        private final int weight;
+        private final int order;
+        private int count;
+
+        private NodeCount(String node, int count, int weight, int order) {
+            this.node = node;
+            this.count = count;
+            this.weight = weight;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Mutable heap entry for a failure domain, holding the heap of its nodes.
+     */
+    private static class DomainCount {
+
+        private final int order;
+        private final PriorityQueue<NodeCount> nodes;
+        private int count;
+
+        private DomainCount(int order, Comparator<NodeCount> nodeComparator) {
+            this.order = order;
+            this.nodes = new PriorityQueue<>(nodeComparator);
+        }
+    }
+}
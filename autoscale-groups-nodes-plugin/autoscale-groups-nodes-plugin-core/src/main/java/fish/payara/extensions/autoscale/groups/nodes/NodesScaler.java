@@ -48,22 +48,44 @@ import fish.payara.enterprise.config.serverbeans.DeploymentGroup;
 import fish.payara.extensions.autoscale.groups.Scaler;
 import fish.payara.extensions.autoscale.groups.ScalerFor;
 import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import fish.payara.extensions.autoscale.groups.ScalingPlan;
+import fish.payara.extensions.autoscale.groups.core.InstanceLoad;
+import fish.payara.extensions.autoscale.groups.core.InstanceLoadProbe;
+import fish.payara.extensions.autoscale.groups.core.ScalingExecutorService;
+import fish.payara.extensions.autoscale.groups.core.ScalingInstanceEvent;
+import fish.payara.extensions.autoscale.groups.core.ScalingMetricsCollector;
+import fish.payara.extensions.autoscale.groups.core.ScalingOperationProgressStatus;
+import fish.payara.extensions.autoscale.groups.core.ScalingPhaseMetrics;
 import fish.payara.extensions.autoscale.groups.core.admin.ScaleCommandHelper;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.admin.CommandException;
 import org.glassfish.api.admin.CommandRunner;
 import org.glassfish.api.admin.CommandValidationException;
 import org.glassfish.api.admin.ParameterMap;
+import org.glassfish.api.admin.ProgressStatus;
 import org.glassfish.internal.api.InternalSystemAdministrator;
 import org.jvnet.hk2.annotations.Service;
+import org.jvnet.hk2.config.ConfigSupport;
+import org.jvnet.hk2.config.TransactionFailure;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -85,8 +107,27 @@ public class NodesScaler extends Scaler {
     @Inject
     private Nodes nodes;
 
+    @Inject
+    private ScalingExecutorService scalingExecutorService;
+
+    @Inject
+    private InstanceLoadProbe instanceLoadProbe;
+
+    @Inject
+    private ScalingPhaseMetrics scalingPhaseMetrics;
+
     private static final Logger LOGGER = Logger.getLogger(NodesScaler.class.getName());
 
+    // How long to wait between checking whether instances being drained have finished their in-flight requests
+    private static final long DRAIN_POLL_INTERVAL = 1000;
+
+    // Names allocated to instances which are still being created, also used as the lock for allocating names
+    private final Set<String> reservedInstanceNames = new HashSet<>();
+
+    // Guards the warm pool of each scaling group, so that concurrent scale operations don't take the same instance
+    private final Map<String, Object> warmPoolLocks = new ConcurrentHashMap<>();
+    private final Set<String> resizingWarmPools = ConcurrentHashMap.newKeySet();
+
     @Override
     protected void validate(int numberOfInstances, ScalingGroup scalingGroup) throws CommandValidationException {
         super.validate(numberOfInstances, scalingGroup);
@@ -111,23 +152,36 @@ public class NodesScaler extends Scaler {
             }
         }
 
-        List<NodesScalingGroup> nodesScalingGroups = scalingGroups.getScalingGroupsOfType(NodesScalingGroup.class);
+        // Check that we have an executor to run commands in parallel with
+        if (scalingExecutorService == null) {
+            scalingExecutorService = serviceLocator.getService(ScalingExecutorService.class);
+
+            if (scalingExecutorService == null) {
+                throw new CommandValidationException(
+                        "Could not find or initialise ScalingExecutorService to execute commands with!");
+            }
+        }
+
+        // Check that we have a probe to collect the load of instances with
+        if (instanceLoadProbe == null) {
+            instanceLoadProbe = serviceLocator.getService(InstanceLoadProbe.class);
 
-        // Check that we actually have some nodes scaling groups
-        if (nodesScalingGroups.isEmpty()) {
-            throw new CommandValidationException("No Nodes Scaling Groups found!");
+            if (instanceLoadProbe == null) {
+                throw new CommandValidationException("Could not find or initialise InstanceLoadProbe!");
+            }
         }
 
-        // Check that the nodes scaling group exists
-        boolean exists = false;
-        for (NodesScalingGroup nodesScalingGroup : nodesScalingGroups) {
-            if (nodesScalingGroup.getName().equals(scalingGroup.getName())) {
-                exists = true;
-                break;
+        // Check that we have somewhere to record the timings of each phase to
+        if (scalingPhaseMetrics == null) {
+            scalingPhaseMetrics = serviceLocator.getService(ScalingPhaseMetrics.class);
+
+            if (scalingPhaseMetrics == null) {
+                throw new CommandValidationException("Could not find or initialise ScalingPhaseMetrics!");
             }
         }
 
-        if (!exists) {
+        // Check that the nodes scaling group exists
+        if (!(scalingGroupsIndex.getScalingGroup(scalingGroup.getName()) instanceof NodesScalingGroup)) {
             throw new CommandValidationException("Scaling Group " + scalingGroup.getName() +
                     " is not a Nodes Scaling Group.");
         }
@@ -151,133 +205,325 @@ public class NodesScaler extends Scaler {
                 throw new CommandValidationException("Node " + nodeRef + " does not appear to exist!");
             }
         }
-
-
     }
 
     @Override
     public ActionReport scaleUp(int numberOfNewInstances, ScalingGroup scalingGroup) {
+        return scaleUp(numberOfNewInstances, scalingGroup, null);
+    }
+
+    @Override
+    public ActionReport scaleUp(int numberOfNewInstances, ScalingGroup scalingGroup, ProgressStatus progressStatus) {
         ActionReport actionReport = commandRunner.getActionReport("plain");
+        long scaleUpStartTime = System.nanoTime();
         try {
             validate(numberOfNewInstances, scalingGroup);
+            recordPhase("validate", scalingGroup, null, scaleUpStartTime, true);
         } catch (CommandValidationException commandValidationException) {
+            recordPhase("validate", scalingGroup, null, scaleUpStartTime, false);
             actionReport.setMessage("Scale up operation cancelled: an error was encountered during validation");
             actionReport.setFailureCause(commandValidationException);
             actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
             return actionReport;
         }
 
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroup;
+        String phase = "take-pooled-instances";
+        long phaseStartTime = System.nanoTime();
         try {
-            // Create the instances (we currently fail out if we fail to create a single one)
-            List<String> instanceNames = createInstances(numberOfNewInstances, scalingGroup,
-                    actionReport.addSubActionsReport());
+            // Take as many instances as we can from the warm pool, since these only need starting
+            List<String> instanceNames = takePooledInstances(numberOfNewInstances, nodesScalingGroup,
+                    actionReport.addSubActionsReport(), progressStatus);
+            recordPhase(phase, scalingGroup, null, phaseStartTime, true);
+
+            // Create any remaining instances. If some fail to be created, any which were are still started below
+            // rather than being left behind stopped
+            if (instanceNames.size() < numberOfNewInstances) {
+                phase = "create-instances";
+                phaseStartTime = System.nanoTime();
+                DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(
+                        scalingGroup.getDeploymentGroupRef());
+                ActionReport createActionReport = actionReport.addSubActionsReport();
+                instanceNames.addAll(createInstances(numberOfNewInstances - instanceNames.size(), scalingGroup,
+                        deploymentGroup.getInstances(), true, createActionReport, progressStatus));
+                recordPhase(phase, scalingGroup, null, phaseStartTime, !createActionReport.hasFailures());
+            }
+
             // Attempt to start the instances
-            startInstances(instanceNames, actionReport.addSubActionsReport());
+            phase = "start-instances";
+            phaseStartTime = System.nanoTime();
+            ActionReport startActionReport = actionReport.addSubActionsReport();
+            startInstances(instanceNames, scalingGroup, startActionReport, progressStatus);
+            recordPhase(phase, scalingGroup, null, phaseStartTime, !startActionReport.hasFailures());
         } catch (CommandException commandException) {
+            recordPhase(phase, scalingGroup, null, phaseStartTime, false);
             actionReport.setFailureCause(commandException);
             actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
             return actionReport;
+        } finally {
+            resizeWarmPool(nodesScalingGroup);
+            recordPhase("scale-up", scalingGroup, null, scaleUpStartTime, !actionReport.hasFailures());
         }
 
         return actionReport;
     }
 
     /**
-     * Creates the requested number of instances using the {@link NodesScalingGroup scaling group} config
+     * Creates the requested number of instances using the {@link NodesScalingGroup scaling group} config.
+     *
+     * The placement of every instance is determined upfront, after which the instances are created using a work queue
+     * per node: the queues for each node are processed concurrently, with the instances of a single node being created
+     * one after another. The name of each instance is allocated up front in a single serialised step (see
+     * {@link #reserveInstanceName(ScalingGroup)}), so the create-instance commands running in parallel never race to
+     * register the same name, and their config changes are applied in their own config transactions.
+     *
+     * If any instance fails to be created, the remaining instances of every node are abandoned, but the queues are
+     * always waited on until they've finished so that every instance which was created is returned.
      *
      * @param numberOfNewInstances The number of instances to create
      * @param scalingGroup The scaling group we're creating the instances against
+     * @param existingInstances The existing instances to balance the new instances against
+     * @param addToDeploymentGroup Whether the instances should be created in the Deployment Group, or left outside of
+     *                             it for the warm pool
      * @param actionReport The action report we want to add out command outputs to
-     * @return A List containing the names of all created instances
-     * @throws CommandException If there's an error creating any instances.
+     * @param progressStatus The progress status to report each created instance to, may be null
+     * @return A List containing the names of all created instances. If any instances failed to be created the action
+     * report is marked as failed, and the list holds those which were created.
      */
     private List<String> createInstances(int numberOfNewInstances, ScalingGroup scalingGroup,
-            ActionReport actionReport) throws CommandException {
-        List<String> instanceNames = new ArrayList<>();
+            List<Server> existingInstances, boolean addToDeploymentGroup, ActionReport actionReport,
+            ProgressStatus progressStatus) {
+        // Determine how many instances to create on each node, balanced against the existing instances
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroup;
+        Map<String, Integer> nodeInstanceCounts = planNewInstances(numberOfNewInstances, nodesScalingGroup,
+                getNodesInstanceBalance(existingInstances, nodesScalingGroup.getNodeRefs()), addToDeploymentGroup);
 
-        // Get the starting balance of instances to nodes
-        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
-        Map<String, Integer> scalingGroupBalance = getNodesInstanceBalance(
-                deploymentGroup.getInstances(), ((NodesScalingGroup) scalingGroup).getNodeRefs());
+        int plannedInstances = nodeInstanceCounts.values().stream().mapToInt(Integer::intValue).sum();
+        if (plannedInstances < numberOfNewInstances) {
+            actionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+            actionReport.appendMessage("\nOnly " + plannedInstances + " of " + numberOfNewInstances +
+                    " instances can be created, since all nodes are at their maximum number of instances");
+        }
 
-        // Determine where to create each instance
-        int instanceCounter = 0;
-        while (instanceCounter < numberOfNewInstances) {
-            // Get the node with the least instances
-            Map.Entry<String, Integer> minNodeEntry = Collections.min(
-                    scalingGroupBalance.entrySet(), Comparator.comparing(Map.Entry::getValue));
+        if (progressStatus != null) {
+            progressStatus.setTotalStepCount(Math.max(0, progressStatus.getTotalStepCount()) + numberOfNewInstances);
+        }
 
+        List<String> instanceNames = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<CommandException> failure = new AtomicReference<>();
+
+        // Create a work queue for each node
+        List<Future<?>> nodeQueues = new ArrayList<>();
+        for (Map.Entry<String, Integer> nodeInstanceCount : nodeInstanceCounts.entrySet()) {
+            // Create the sub reports here rather than in the worker threads
+            List<ActionReport> subActionReports = new ArrayList<>();
+            for (int i = 0; i < nodeInstanceCount.getValue(); i++) {
+                subActionReports.add(actionReport.addSubActionsReport());
+            }
+
+            nodeQueues.add(scalingExecutorService.submit(() -> {
+                for (ActionReport subActionReport : subActionReports) {
+                    // Stop creating instances on this node if any of the other nodes have failed
+                    if (failure.get() != null) {
+                        return;
+                    }
+
+                    long createStartTime = System.nanoTime();
+                    try {
+                        String instanceName = createInstance(nodeInstanceCount.getKey(), scalingGroup,
+                                addToDeploymentGroup, subActionReport);
+                        recordPhase("create-instance", scalingGroup, nodeInstanceCount.getKey(), createStartTime,
+                                true);
+                        instanceNames.add(instanceName);
+                        ScalingOperationProgressStatus.instanceStateChanged(progressStatus, instanceName,
+                                nodeInstanceCount.getKey(), ScalingInstanceEvent.State.CREATED, 1,
+                                instanceName + ": created on node " + nodeInstanceCount.getKey());
+                    } catch (CommandException commandException) {
+                        recordPhase("create-instance", scalingGroup, nodeInstanceCount.getKey(), createStartTime,
+                                false);
+                        failure.compareAndSet(null, commandException);
+                        ScalingOperationProgressStatus.instanceStateChanged(progressStatus, null,
+                                nodeInstanceCount.getKey(), ScalingInstanceEvent.State.FAILED, 1,
+                                "Failed to create instance on node " + nodeInstanceCount.getKey() + ": " +
+                                        commandException.getMessage());
+                        return;
+                    }
+                }
+            }));
+        }
+
+        // Wait for every queue, even once one has failed, so that we know about every instance which was created
+        boolean interrupted = false;
+        for (Future<?> nodeQueue : nodeQueues) {
+            while (true) {
+                try {
+                    nodeQueue.get();
+                    break;
+                } catch (InterruptedException interruptedException) {
+                    // Stop the queues once their current instance has been created, but keep waiting for them
+                    interrupted = true;
+                    failure.compareAndSet(null, new CommandException("Interrupted while scaling up instances.",
+                            interruptedException));
+                } catch (ExecutionException executionException) {
+                    failure.compareAndSet(null, new CommandException("Encountered an error scaling up instances.",
+                            executionException.getCause()));
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure.get() != null) {
+            LOGGER.severe("Encountered an error scaling up instances. " +
+                    instanceNames.size() + " were created out of the requested " + numberOfNewInstances + ". " +
+                    "The error encountered was: " + failure.get().getMessage());
+            actionReport.appendMessage("\nOnly " + instanceNames.size() + " of " + numberOfNewInstances +
+                    " instances were created: " + failure.get().getMessage());
+            actionReport.setFailureCause(failure.get());
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+        }
+
+        return new ArrayList<>(instanceNames);
+    }
+
+    /**
+     * Determines how many new instances to create on each node of the scaling group.
+     *
+     * @param numberOfNewInstances The number of instances to place
+     * @param scalingGroup The scaling group we're placing the instances for
+     * @param scalingGroupBalance The current number of instances on each node, to balance the new instances against
+     * @param addToDeploymentGroup Whether the instances are for the Deployment Group, in which case the node instance
+     *                             limits apply, or for the warm pool
+     * @return A Map of node name to the number of instances to create on it, which may add up to fewer than requested
+     * if the nodes are at their maximum number of instances
+     */
+    private Map<String, Integer> planNewInstances(int numberOfNewInstances, NodesScalingGroup scalingGroup,
+            Map<String, Integer> scalingGroupBalance, boolean addToDeploymentGroup) {
+        // Node instance limits only apply to the Deployment Group
+        Map<String, Integer> nodesInstanceLimits = addToDeploymentGroup ?
+                getNodesInstanceLimits(scalingGroup, scalingGroupBalance) : null;
+        Map<String, String> nodesFailureDomains = getNodesFailureDomains(scalingGroup);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Placing " + numberOfNewInstances + " instances for Scaling Group " +
+                    scalingGroup.getName() + ", current failure domain balance: " +
+                    getFailureDomainsInstanceBalance(scalingGroupBalance, nodesFailureDomains));
+        }
+        return NodesPlacementPlanner.planPlacement(numberOfNewInstances, scalingGroupBalance, nodesInstanceLimits,
+                getNodesWeights(scalingGroup), nodesFailureDomains);
+    }
+
+    /**
+     * Creates a single instance on the given node.
+     *
+     * @param nodeRef The name of the node to create the instance on
+     * @param scalingGroup The scaling group we're creating the instance against
+     * @param addToDeploymentGroup Whether the instance should be added to the Deployment Group of the scaling group
+     * @param subActionReport The action report to add the command output to
+     * @return The name of the created instance
+     * @throws CommandException If there's an error creating the instance.
+     */
+    private String createInstance(String nodeRef, ScalingGroup scalingGroup, boolean addToDeploymentGroup,
+            ActionReport subActionReport) throws CommandException {
+        String instanceName = reserveInstanceName(scalingGroup);
+        try {
             // Create the parameter map for the create-instance command
             ParameterMap parameterMap = new ParameterMap();
-            parameterMap.add("deploymentgroup", scalingGroup.getDeploymentGroupRef());
+            if (addToDeploymentGroup) {
+                parameterMap.add("deploymentgroup", scalingGroup.getDeploymentGroupRef());
+            }
             if (!scalingGroup.getConfigRef().equals("default-config")) {
                 parameterMap.add("config", scalingGroup.getConfigRef());
             }
-            parameterMap.add("autoname", "true");
             parameterMap.add("terse", "true");
-            parameterMap.add("node", minNodeEntry.getKey());
+            parameterMap.add("node", nodeRef);
+            parameterMap.add("DEFAULT", instanceName);
 
-            // Execute the command with our parameters - we don't want to execute them in a parallel manner since
-            // we'll run into issues with locking on the config beans
-            ActionReport subActionReport = actionReport.addSubActionsReport();
             CommandRunner.CommandInvocation createInstanceCommand = commandRunner.getCommandInvocation(
                     "create-instance", subActionReport, internalSystemAdministrator.getSubject());
             createInstanceCommand.parameters(parameterMap);
             createInstanceCommand.execute();
 
-            // Check if we have any failures - we don't want to continue if any failed
             if (subActionReport.hasFailures()) {
-                LOGGER.severe("Encountered an error scaling up instances. " +
-                        instanceCounter + " were created out of the requested " + numberOfNewInstances + ". " +
-                        "The error encountered was: " + subActionReport.getFailureCause().getMessage());
-                throw new CommandException("Encountered an error scaling up instances.",
-                        subActionReport.getFailureCause());
+                throw new CommandException("Encountered an error scaling up instances. Could not create instance " +
+                        instanceName + " on node " + nodeRef, subActionReport.getFailureCause());
             }
 
-            // The output of the create-instance command with the "terse" option should be in the format
-            // "The instance, wibbles-bibbles, was created on host tiddles"
-            String actionReportMessage = subActionReport.getMessage();
-            if (actionReportMessage.contains("was created on host")) {
-                try {
-                    instanceNames.add(actionReportMessage.substring(
-                            actionReportMessage.indexOf(", ") + 2, actionReportMessage.lastIndexOf(", ")));
-                } catch (StringIndexOutOfBoundsException stringIndexOutOfBoundsException) {
-                    throw new CommandException(
-                            "Encountered an error scaling up instances. Could not determine instance name");
+            return instanceName;
+        } finally {
+            releaseInstanceName(instanceName);
+        }
+    }
+
+    /**
+     * Allocates the name of a new instance of the scaling group. This is the only step of creating instances which is
+     * serialised across the domain: names are allocated one at a time under a single lock, and are checked against the
+     * domain config as well as the names allocated to creations still in progress, so instances being created
+     * concurrently can never be given the same name. The lowest free name of the form
+     * <code>&lt;scaling group&gt;-&lt;n&gt;</code> is used.
+     *
+     * @param scalingGroup The scaling group the instance is being created for
+     * @return The name to create the instance with, which must be released with {@link #releaseInstanceName(String)}
+     * once the instance has been created or has failed to be
+     */
+    private String reserveInstanceName(ScalingGroup scalingGroup) {
+        Domain domain = serviceLocator.getService(Domain.class);
+        synchronized (reservedInstanceNames) {
+            for (int instanceNumber = 1; ; instanceNumber++) {
+                String instanceName = scalingGroup.getName() + "-" + instanceNumber;
+                // Instances without a config of their own get a copy of the default config named after them
+                if (domain.getServerNamed(instanceName) == null && domain.getClusterNamed(instanceName) == null &&
+                        domain.getConfigNamed(instanceName) == null &&
+                        domain.getConfigNamed(instanceName + "-config") == null &&
+                        reservedInstanceNames.add(instanceName)) {
+                    return instanceName;
                 }
-            } else {
-                throw new CommandException(
-                        "Encountered an error scaling up instances. Could not determine instance name");
             }
-
-            // Adjust the node balance
-            scalingGroupBalance.put(minNodeEntry.getKey(), minNodeEntry.getValue() + 1);
-
-            // Increment the counter for our loop
-            instanceCounter++;
         }
+    }
 
-        return instanceNames;
+    private void releaseInstanceName(String instanceName) {
+        synchronized (reservedInstanceNames) {
+            reservedInstanceNames.remove(instanceName);
+        }
     }
 
     /**
      * Starts the instances in parallel using {@link ScaleCommandHelper}.
      * @param instanceNames The names of the instances to start
+     * @param scalingGroup The scaling group the instances belong to
      * @param actionReport The {@link ActionReport} we want to add out command outputs to
+     * @param progressStatus The progress status to report each started instance to, may be null
      */
-    private void startInstances(List<String> instanceNames, ActionReport actionReport) {
+    private void startInstances(List<String> instanceNames, ScalingGroup scalingGroup, ActionReport actionReport,
+            ProgressStatus progressStatus) {
+        if (instanceNames.isEmpty()) {
+            return;
+        }
+
         ScaleCommandHelper scaleCommandHelper = new ScaleCommandHelper(serviceLocator.getService(Domain.class),
-                commandRunner, internalSystemAdministrator.getSubject());
+                commandRunner, internalSystemAdministrator.getSubject(), scalingExecutorService, scalingPhaseMetrics,
+                scalingGroup.getName());
         scaleCommandHelper.runCommandInParallelAcrossInstances("start-instance", new ParameterMap(),
-                instanceNames, actionReport.addSubActionsReport());
+                instanceNames, actionReport.addSubActionsReport(), progressStatus);
     }
 
     @Override
     public ActionReport scaleDown(int numberOfInstancesToRemove, ScalingGroup scalingGroup) {
+        return scaleDown(numberOfInstancesToRemove, scalingGroup, null);
+    }
+
+    @Override
+    public ActionReport scaleDown(int numberOfInstancesToRemove, ScalingGroup scalingGroup,
+            ProgressStatus progressStatus) {
         ActionReport actionReport = commandRunner.getActionReport("plain");
+        long scaleDownStartTime = System.nanoTime();
         try {
             validate(numberOfInstancesToRemove, scalingGroup);
+            recordPhase("validate", scalingGroup, null, scaleDownStartTime, true);
         } catch (CommandValidationException commandValidationException) {
+            recordPhase("validate", scalingGroup, null, scaleDownStartTime, false);
             actionReport.setMessage("Scale down operation cancelled: an error was encountered during validation");
             actionReport.setFailureCause(commandValidationException);
             actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
@@ -285,24 +531,140 @@ public class NodesScaler extends Scaler {
         }
 
         // Determine which instances to stop, attempting to keep the nodes balanced
-        List<String> instanceNames = determineInstancesToStop(numberOfInstancesToRemove, scalingGroup);
+        long phaseStartTime = System.nanoTime();
+        List<String> instanceNames = determineInstancesToStop(numberOfInstancesToRemove, scalingGroup, true);
+        recordPhase("determine-instances-to-stop", scalingGroup, null, phaseStartTime, true);
+
+        // Let the instances finish their in-flight requests, if configured to
+        phaseStartTime = System.nanoTime();
+        ActionReport drainActionReport = actionReport.addSubActionsReport();
+        List<String> drainedInstanceNames = drainInstances(instanceNames, (NodesScalingGroup) scalingGroup,
+                drainActionReport, progressStatus);
+        recordPhase("drain-instances", scalingGroup, null, phaseStartTime, !drainActionReport.hasFailures());
+
         // Stop the instances in parallel
-        stopInstances(instanceNames, actionReport.addSubActionsReport());
-        // Delete the instances sequentially
-        deleteInstances(instanceNames, actionReport.addSubActionsReport());
+        phaseStartTime = System.nanoTime();
+        ActionReport stopActionReport = actionReport.addSubActionsReport();
+        stopInstances(instanceNames, scalingGroup, stopActionReport, progressStatus);
+        recordPhase("stop-instances", scalingGroup, null, phaseStartTime, !stopActionReport.hasFailures());
 
+        // Park what we can in the warm pool, and delete the rest in parallel
+        phaseStartTime = System.nanoTime();
+        ActionReport parkActionReport = actionReport.addSubActionsReport();
+        List<String> parkedInstanceNames = parkInstances(instanceNames, drainedInstanceNames,
+                (NodesScalingGroup) scalingGroup, parkActionReport, progressStatus);
+        recordPhase("park-instances", scalingGroup, null, phaseStartTime, !parkActionReport.hasFailures());
+
+        phaseStartTime = System.nanoTime();
+        List<String> instancesToDelete = new ArrayList<>(instanceNames);
+        instancesToDelete.removeAll(parkedInstanceNames);
+        ActionReport deleteActionReport = actionReport.addSubActionsReport();
+        deleteInstances(instancesToDelete, scalingGroup, deleteActionReport, progressStatus);
+        recordPhase("delete-instances", scalingGroup, null, phaseStartTime, !deleteActionReport.hasFailures());
+
+        recordPhase("scale-down", scalingGroup, null, scaleDownStartTime, !actionReport.hasFailures());
         return actionReport;
     }
 
+    /**
+     * Plans a scale up or down using the same placement and balancing as {@link #scaleUp(int, ScalingGroup)} and
+     * {@link #scaleDown(int, ScalingGroup)}, without running any commands or changing any config. To keep it cheap, the
+     * instances to remove from each node are chosen using the load last collected by the
+     * {@link ScalingMetricsCollector} rather than probing the instances, so may differ from those picked by a scale
+     * down run shortly afterwards if the load of the instances has changed.
+     */
+    @Override
+    public ScalingPlan plan(int instanceDelta, ScalingGroup scalingGroup) throws CommandValidationException {
+        validate(Math.abs(instanceDelta), scalingGroup);
+
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroup;
+        DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+        ScalingPlan scalingPlan = new ScalingPlan(scalingGroup.getName(), instanceDelta);
+        if (instanceDelta > 0) {
+            planScaleUp(instanceDelta, nodesScalingGroup, deploymentGroup, scalingPlan);
+        } else {
+            planScaleDown(-instanceDelta, nodesScalingGroup, deploymentGroup, scalingPlan);
+        }
+        return scalingPlan;
+    }
+
+    private void planScaleUp(int numberOfNewInstances, NodesScalingGroup scalingGroup,
+            DeploymentGroup deploymentGroup, ScalingPlan scalingPlan) {
+        Map<String, Integer> scalingGroupBalance = getNodesInstanceBalance(deploymentGroup.getInstances(),
+                scalingGroup.getNodeRefs());
+
+        // Pooled instances are taken first, and count towards the balance of the instances created afterwards
+        int plannedInstances = 0;
+        List<Server> pooledInstances = getPooledInstances(scalingGroup);
+        if (!pooledInstances.isEmpty()) {
+            Map<String, List<String>> chosenInstances = choosePooledInstances(numberOfNewInstances, scalingGroup,
+                    pooledInstances, scalingGroupBalance);
+            for (Map.Entry<String, List<String>> nodeChosenInstances : chosenInstances.entrySet()) {
+                for (String instanceName : nodeChosenInstances.getValue()) {
+                    scalingPlan.addInstance(ScalingPlan.Action.TAKE_FROM_POOL, instanceName,
+                            nodeChosenInstances.getKey());
+                }
+                scalingGroupBalance.merge(nodeChosenInstances.getKey(), nodeChosenInstances.getValue().size(),
+                        Integer::sum);
+                plannedInstances += nodeChosenInstances.getValue().size();
+            }
+        }
+
+        if (plannedInstances < numberOfNewInstances) {
+            Map<String, Integer> nodeInstanceCounts = planNewInstances(numberOfNewInstances - plannedInstances,
+                    scalingGroup, scalingGroupBalance, true);
+            for (Map.Entry<String, Integer> nodeInstanceCount : nodeInstanceCounts.entrySet()) {
+                for (int i = 0; i < nodeInstanceCount.getValue(); i++) {
+                    scalingPlan.addInstance(ScalingPlan.Action.CREATE, null, nodeInstanceCount.getKey());
+                }
+                plannedInstances += nodeInstanceCount.getValue();
+            }
+        }
+
+        if (plannedInstances < numberOfNewInstances) {
+            scalingPlan.addWarning("Only " + plannedInstances + " of " + numberOfNewInstances +
+                    " instances can be added, since all nodes are at their maximum number of instances");
+        }
+    }
+
+    private void planScaleDown(int numberOfInstancesToRemove, NodesScalingGroup scalingGroup,
+            DeploymentGroup deploymentGroup, ScalingPlan scalingPlan) {
+        List<String> instanceNames = determineInstancesToStop(numberOfInstancesToRemove, scalingGroup, false);
+
+        Map<String, String> instanceNodes = new HashMap<>();
+        for (Server instance : deploymentGroup.getInstances()) {
+            instanceNodes.put(instance.getName(), instance.getNodeRef());
+        }
+
+        // Instances are parked in the order they were chosen until the warm pool is full, as in parkInstances
+        int freeSpace = 0;
+        if (Boolean.parseBoolean(scalingGroup.getParkOnScaleDown())) {
+            freeSpace = Integer.parseInt(scalingGroup.getWarmPoolSize()) - getPooledInstances(scalingGroup).size();
+        }
+        for (int i = 0; i < instanceNames.size(); i++) {
+            scalingPlan.addInstance(i < freeSpace ? ScalingPlan.Action.PARK : ScalingPlan.Action.DELETE,
+                    instanceNames.get(i), instanceNodes.get(instanceNames.get(i)));
+        }
+
+        if (instanceNames.size() < numberOfInstancesToRemove) {
+            scalingPlan.addWarning("Only " + instanceNames.size() + " of " + numberOfInstancesToRemove +
+                    " instances can be removed, since that's all the instances Deployment Group " +
+                    deploymentGroup.getName() + " has");
+        }
+    }
+
     /**
      * Determines the names of which instances to stop in the scaling group, attempting to keep the number of instances
-     * on nodes balanced.
+     * on nodes balanced. Within each node, the least loaded instances are stopped first.
      *
      * @param numberOfInstancesToRemove The number of instances to remove
      * @param scalingGroup The scaling group to remove the instances from
+     * @param probeLoad Whether to probe the instances for their current load, or use the load last collected by the
+     *                  {@link ScalingMetricsCollector}
      * @return A list of names of the instances to stop
      */
-    private List<String> determineInstancesToStop(int numberOfInstancesToRemove, ScalingGroup scalingGroup) {
+    private List<String> determineInstancesToStop(int numberOfInstancesToRemove, ScalingGroup scalingGroup,
+            boolean probeLoad) {
         List<String> instanceNames = new ArrayList<>();
 
         // Quick check: will we just be removing all instances? If so we can skip trying to figure out the balance
@@ -321,30 +683,52 @@ public class NodesScaler extends Scaler {
             return instanceNames;
         }
 
-        // Get the balance of instances across the nodes within this Deployment Group and Scaling Group
-        List<String> nodeRefs = ((NodesScalingGroup) scalingGroup).getNodeRefs();
-        Map<String, Integer> scalingGroupBalance = getNodesInstanceBalance(instances, nodeRefs);
-
-        // Loop until we've removed the requested number of instances
-        int instanceCounter = numberOfInstancesToRemove;
-        while (instanceCounter > 0) {
-            // Get the node with the most instances
-            Map.Entry<String, Integer> maxNodeEntry = Collections.max(
-                    scalingGroupBalance.entrySet(), Comparator.comparing(Map.Entry::getValue));
+        // Get the instances on each of the nodes within this Deployment Group and Scaling Group, and remove from the
+        // nodes with the most instances
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroup;
+        Map<String, String> nodesFailureDomains = getNodesFailureDomains(nodesScalingGroup);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Removing " + numberOfInstancesToRemove + " instances from Scaling Group " +
+                    scalingGroup.getName() + ", current failure domain balance: " + getFailureDomainsInstanceBalance(
+                            getNodesInstanceBalance(instances, nodesScalingGroup.getNodeRefs()), nodesFailureDomains));
+        }
+        Map<String, List<String>> nodesInstances = getNodesInstances(instances, nodesScalingGroup.getNodeRefs());
+        sortByLoad(nodesInstances, probeLoad);
+        return NodesPlacementPlanner.planRemoval(numberOfInstancesToRemove, nodesInstances,
+                getNodesWeights(nodesScalingGroup), getNodesMaxInstances(nodesScalingGroup), nodesFailureDomains);
+    }
 
-            // Pick an instance from that node
-            for (Server server : instances) {
-                if (!instanceNames.contains(server.getName()) && server.getNodeRef().equals(maxNodeEntry.getKey())) {
-                    instanceNames.add(server.getName());
-                    scalingGroupBalance.put(maxNodeEntry.getKey(), maxNodeEntry.getValue() - 1);
-                    break;
-                }
-            }
+    /**
+     * Sorts the instances of each node by their current load, least loaded first, so that the planner removes the
+     * least loaded instances from whichever nodes it picks. Instances with an unknown load are sorted first, since
+     * they're either not serving traffic or not responding; if no load could be collected at all the original order is
+     * kept, as the sort is stable.
+     *
+     * @param nodesInstances A Map of node name to the names of the instances on it, sorted in place.
+     * @param probeLoad Whether to probe the instances for their current load, or use the load last collected by the
+     *                  {@link ScalingMetricsCollector}
+     */
+    private void sortByLoad(Map<String, List<String>> nodesInstances, boolean probeLoad) {
+        Map<String, InstanceLoad> instanceLoads;
+        if (probeLoad) {
+            List<String> instanceNames = new ArrayList<>();
+            nodesInstances.values().forEach(instanceNames::addAll);
+            instanceLoads = instanceLoadProbe.getLoad(instanceNames);
+        } else {
+            ScalingMetricsCollector scalingMetricsCollector = serviceLocator.getService(ScalingMetricsCollector.class);
+            instanceLoads = scalingMetricsCollector == null ? Collections.emptyMap() :
+                    scalingMetricsCollector.getLatestInstanceLoads();
+        }
 
-            instanceCounter--;
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Current instance load: " + instanceLoads.values());
         }
 
-        return instanceNames;
+        Comparator<String> byLoad = Comparator.comparingLong(instanceName -> instanceLoads.getOrDefault(instanceName,
+                InstanceLoad.unknown(instanceName)).getScore());
+        for (List<String> nodeInstances : nodesInstances.values()) {
+            nodeInstances.sort(byLoad);
+        }
     }
 
     /**
@@ -355,51 +739,613 @@ public class NodesScaler extends Scaler {
      * @return A Map containing how many of the given instances are on each node.
      */
     private Map<String, Integer> getNodesInstanceBalance(List<Server> instances, List<String> nodeRefs) {
-        Map<String, Integer> scalingGroupBalance = new HashMap<>();
+        Map<String, Integer> scalingGroupBalance = new LinkedHashMap<>();
         for (String nodeRef : nodeRefs) {
             scalingGroupBalance.put(nodeRef, 0);
         }
 
         for (Server instance : instances) {
             // We only care about the balance of instances on nodes in our current config
-            if (nodeRefs.contains(instance.getNodeRef())) {
-                scalingGroupBalance.put(instance.getNodeRef(), scalingGroupBalance.get(instance.getNodeRef()) + 1);
-            }
+            scalingGroupBalance.computeIfPresent(instance.getNodeRef(), (nodeRef, count) -> count + 1);
         }
 
         return scalingGroupBalance;
     }
 
+    /**
+     * Returns the number of instances in each failure domain, given the number of instances on each node. Nodes
+     * without a failure domain are counted as their own failure domain.
+     *
+     * @param nodesInstanceBalance The number of instances on each node, as from
+     *                             {@link #getNodesInstanceBalance(List, List)}
+     * @param nodesFailureDomains The failure domain of each node which has one
+     * @return A Map containing how many of the instances are in each failure domain.
+     */
+    private Map<String, Integer> getFailureDomainsInstanceBalance(Map<String, Integer> nodesInstanceBalance,
+            Map<String, String> nodesFailureDomains) {
+        Map<String, Integer> failureDomainsBalance = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> nodeBalance : nodesInstanceBalance.entrySet()) {
+            failureDomainsBalance.merge(nodesFailureDomains.getOrDefault(nodeBalance.getKey(), nodeBalance.getKey()),
+                    nodeBalance.getValue(), Integer::sum);
+        }
+        return failureDomainsBalance;
+    }
+
+    /**
+     * Returns the failure domain of each node of the scaling group which has one configured.
+     *
+     * @param scalingGroup The scaling group to get the node failure domains of
+     * @return A Map of node name to failure domain
+     */
+    private Map<String, String> getNodesFailureDomains(NodesScalingGroup scalingGroup) {
+        Map<String, String> nodesFailureDomains = new HashMap<>();
+        for (NodeRefConfiguration nodeRefConfiguration : scalingGroup.getNodeRefConfigurations()) {
+            if (StringUtils.ok(nodeRefConfiguration.getFailureDomain())) {
+                nodesFailureDomains.put(nodeRefConfiguration.getNodeRef(), nodeRefConfiguration.getFailureDomain());
+            }
+        }
+        return nodesFailureDomains;
+    }
+
+    /**
+     * Returns the capacity weight of each node of the scaling group which has one configured.
+     *
+     * @param scalingGroup The scaling group to get the node weights of
+     * @return A Map of node name to weight
+     */
+    private Map<String, Integer> getNodesWeights(NodesScalingGroup scalingGroup) {
+        Map<String, Integer> nodesWeights = new HashMap<>();
+        for (NodeRefConfiguration nodeRefConfiguration : scalingGroup.getNodeRefConfigurations()) {
+            nodesWeights.put(nodeRefConfiguration.getNodeRef(), Integer.parseInt(nodeRefConfiguration.getWeight()));
+        }
+        return nodesWeights;
+    }
+
+    /**
+     * Returns the maximum number of instances of each node of the scaling group which has one configured.
+     *
+     * @param scalingGroup The scaling group to get the node maximums of
+     * @return A Map of node name to maximum number of instances
+     */
+    private Map<String, Integer> getNodesMaxInstances(NodesScalingGroup scalingGroup) {
+        Map<String, Integer> nodesMaxInstances = new HashMap<>();
+        for (NodeRefConfiguration nodeRefConfiguration : scalingGroup.getNodeRefConfigurations()) {
+            if (StringUtils.ok(nodeRefConfiguration.getMaxInstances())) {
+                nodesMaxInstances.put(nodeRefConfiguration.getNodeRef(),
+                        Integer.parseInt(nodeRefConfiguration.getMaxInstances()));
+            }
+        }
+        return nodesMaxInstances;
+    }
+
+    /**
+     * Returns how many more instances can be placed on each node of the scaling group which has a maximum number of
+     * instances configured.
+     *
+     * @param scalingGroup The scaling group to get the node limits of
+     * @param scalingGroupBalance The current number of instances on each node
+     * @return A Map of node name to the number of instances which can still be placed on it
+     */
+    private Map<String, Integer> getNodesInstanceLimits(NodesScalingGroup scalingGroup,
+            Map<String, Integer> scalingGroupBalance) {
+        Map<String, Integer> nodesInstanceLimits = getNodesMaxInstances(scalingGroup);
+        nodesInstanceLimits.replaceAll((nodeRef, maxInstances) ->
+                Math.max(0, maxInstances - scalingGroupBalance.getOrDefault(nodeRef, 0)));
+        return nodesInstanceLimits;
+    }
+
+    /**
+     * Returns the names of the instances on each node within the scaling group config.
+     *
+     * @param instances The list of {@link Server Servers} to group by node.
+     * @param nodeRefs The nodes to group the instances by.
+     * @return A Map containing the names of the given instances on each node, in the order of the node refs.
+     */
+    private Map<String, List<String>> getNodesInstances(List<Server> instances, List<String> nodeRefs) {
+        Map<String, List<String>> nodesInstances = new LinkedHashMap<>();
+        for (String nodeRef : nodeRefs) {
+            nodesInstances.put(nodeRef, new ArrayList<>());
+        }
+
+        for (Server instance : instances) {
+            // We only care about instances on nodes in our current config
+            List<String> nodeInstances = nodesInstances.get(instance.getNodeRef());
+            if (nodeInstances != null) {
+                nodeInstances.add(instance.getName());
+            }
+        }
+
+        return nodesInstances;
+    }
+
+    /**
+     * Drains the instances before they're stopped, if the scaling group has a drain timeout configured. The instances
+     * are first removed from the Deployment Group so that they stop being given new work, and are then polled in
+     * parallel until their busy request processing threads fall to the drain threshold or the drain timeout expires.
+     * Busy threads are used rather than open connections, since idle keep-alive connections hold a connection open
+     * without any request in flight. How long each instance took to drain is added to the action report.
+     *
+     * Instances whose load can't be collected, for example because monitoring is disabled, are treated as drained.
+     *
+     * @param instanceNames The names of the instances to drain
+     * @param scalingGroup The scaling group the instances are being removed from
+     * @param actionReport The action report to add the drain results to
+     * @param progressStatus The progress status to report each drained instance to, may be null
+     * @return The names of the instances which were removed from the Deployment Group
+     */
+    private List<String> drainInstances(List<String> instanceNames, NodesScalingGroup scalingGroup,
+            ActionReport actionReport, ProgressStatus progressStatus) {
+        List<String> removedInstanceNames = new ArrayList<>();
+        int drainTimeout = Integer.parseInt(scalingGroup.getDrainTimeout());
+        if (drainTimeout < 1 || instanceNames.isEmpty()) {
+            return removedInstanceNames;
+        }
+        long drainThreshold = Long.parseLong(scalingGroup.getDrainThreshold());
+
+        if (progressStatus != null) {
+            progressStatus.setTotalStepCount(Math.max(0, progressStatus.getTotalStepCount()) + instanceNames.size());
+        }
+
+        // Stop routing new work to the instances
+        for (String instanceName : instanceNames) {
+            ActionReport subActionReport = actionReport.addSubActionsReport();
+            runDeploymentGroupCommand("remove-instance-from-deployment-group", instanceName,
+                    scalingGroup.getDeploymentGroupRef(), subActionReport);
+            if (!subActionReport.hasFailures()) {
+                removedInstanceNames.add(instanceName);
+            }
+        }
+
+        // Wait for the in-flight requests to finish, which is when their request processing threads are no longer busy
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.SECONDS.toNanos(drainTimeout);
+        List<String> drainingInstanceNames = new ArrayList<>(instanceNames);
+        Map<String, InstanceLoad> instanceLoads = new HashMap<>();
+        while (!drainingInstanceNames.isEmpty()) {
+            instanceLoads = instanceLoadProbe.getLoad(drainingInstanceNames);
+            long drainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            Iterator<String> drainingInstanceNamesIterator = drainingInstanceNames.iterator();
+            while (drainingInstanceNamesIterator.hasNext()) {
+                String instanceName = drainingInstanceNamesIterator.next();
+                InstanceLoad instanceLoad = instanceLoads.get(instanceName);
+                if (instanceLoad.getBusyThreads() > drainThreshold) {
+                    continue;
+                }
+
+                drainingInstanceNamesIterator.remove();
+                String message = instanceLoad.getBusyThreads() < 0 ?
+                        instanceName + ": load unknown, not waiting for it to drain" :
+                        instanceName + ": drained in " + drainTime + "ms";
+                actionReport.addSubActionsReport().setMessage(message);
+                if (progressStatus != null) {
+                    progressStatus.progress(1, message);
+                }
+            }
+
+            long remainingTime = deadline - System.nanoTime();
+            if (drainingInstanceNames.isEmpty() || remainingTime <= 0) {
+                break;
+            }
+
+            try {
+                Thread.sleep(Math.min(DRAIN_POLL_INTERVAL, TimeUnit.NANOSECONDS.toMillis(remainingTime) + 1));
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // Anything left didn't drain in time, it'll be stopped regardless
+        long drainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        for (String instanceName : drainingInstanceNames) {
+            ActionReport subActionReport = actionReport.addSubActionsReport();
+            subActionReport.setMessage(instanceName + ": not drained after " + drainTime + "ms, " +
+                    instanceLoads.get(instanceName).getBusyThreads() + " busy threads remaining");
+            subActionReport.setActionExitCode(ActionReport.ExitCode.WARNING);
+            if (progressStatus != null) {
+                progressStatus.progress(1, subActionReport.getMessage());
+            }
+        }
+
+        return removedInstanceNames;
+    }
+
     /**
      * Stops the instances in parallel using {@link ScaleCommandHelper}.
      *
      * @param instanceNames The names of the instances to stop
+     * @param scalingGroup The scaling group the instances are being removed from
      * @param actionReport The action report to add the command outputs to
+     * @param progressStatus The progress status to report each stopped instance to, may be null
      */
-    private void stopInstances(List<String> instanceNames, ActionReport actionReport) {
+    private void stopInstances(List<String> instanceNames, ScalingGroup scalingGroup, ActionReport actionReport,
+            ProgressStatus progressStatus) {
+        if (instanceNames.isEmpty()) {
+            return;
+        }
+
         ScaleCommandHelper scaleCommandHelper = new ScaleCommandHelper(serviceLocator.getService(Domain.class),
-                commandRunner, internalSystemAdministrator.getSubject());
+                commandRunner, internalSystemAdministrator.getSubject(), scalingExecutorService, scalingPhaseMetrics,
+                scalingGroup.getName());
         scaleCommandHelper.runCommandInParallelAcrossInstances("stop-instance", new ParameterMap(),
-                instanceNames, actionReport.addSubActionsReport());
+                instanceNames, actionReport.addSubActionsReport(), progressStatus);
     }
 
     /**
-     * Deletes instances sequentially.
+     * Deletes the instances in parallel using {@link ScaleCommandHelper}, so that the time taken to clean up the
+     * instances on their nodes doesn't grow with the number of instances removed.
      *
-     * @param instanceNames The names of the instances to stop.
-     * @param actionReport The action report to add the command outputs to.
+     * @param instanceNames The names of the instances to delete
+     * @param scalingGroup The scaling group the instances are being removed from
+     * @param actionReport The action report to add the command outputs to
+     * @param progressStatus The progress status to report each deleted instance to, may be null
      */
-    private void deleteInstances(List<String> instanceNames, ActionReport actionReport) {
-        for (String instanceName : instanceNames) {
-            CommandRunner.CommandInvocation deleteInstanceCommand = commandRunner.getCommandInvocation(
-                    "delete-instance", actionReport.addSubActionsReport(), internalSystemAdministrator.getSubject());
+    private void deleteInstances(List<String> instanceNames, ScalingGroup scalingGroup, ActionReport actionReport,
+            ProgressStatus progressStatus) {
+        if (instanceNames.isEmpty()) {
+            return;
+        }
 
-            ParameterMap parameterMap = new ParameterMap();
-            // Primary parameter is called DEFAULT, regardless of its actual name
-            parameterMap.add("DEFAULT", instanceName);
+        ScaleCommandHelper scaleCommandHelper = new ScaleCommandHelper(serviceLocator.getService(Domain.class),
+                commandRunner, internalSystemAdministrator.getSubject(), scalingExecutorService, scalingPhaseMetrics,
+                scalingGroup.getName());
+        scaleCommandHelper.runCommandInParallelAcrossInstances("delete-instance", new ParameterMap(),
+                instanceNames, actionReport.addSubActionsReport(), progressStatus);
+    }
+
+    /**
+     * Takes up to the requested number of instances out of the warm pool of the scaling group and adds them to its
+     * Deployment Group, preferring pooled instances on the nodes with the fewest instances in the Deployment Group.
+     *
+     * @param numberOfInstances The maximum number of instances to take
+     * @param scalingGroup The scaling group to take the instances from
+     * @param actionReport The action report to add the command outputs to
+     * @param progressStatus The progress status to report each taken instance to, may be null
+     * @return The names of the instances taken from the warm pool and added to the Deployment Group
+     * @throws CommandException If an instance could not be added to the Deployment Group
+     */
+    private List<String> takePooledInstances(int numberOfInstances, NodesScalingGroup scalingGroup,
+            ActionReport actionReport, ProgressStatus progressStatus) throws CommandException {
+        List<String> takenInstanceNames = new ArrayList<>();
+
+        synchronized (getWarmPoolLock(scalingGroup)) {
+            List<Server> pooledInstances = getPooledInstances(scalingGroup);
+            if (pooledInstances.isEmpty()) {
+                return takenInstanceNames;
+            }
+
+            DeploymentGroup deploymentGroup = deploymentGroups.getDeploymentGroup(scalingGroup.getDeploymentGroupRef());
+            choosePooledInstances(numberOfInstances, scalingGroup, pooledInstances,
+                    getNodesInstanceBalance(deploymentGroup.getInstances(), scalingGroup.getNodeRefs()))
+                    .values().forEach(takenInstanceNames::addAll);
+
+            // Remove them from the pool before adding them to the Deployment Group, so a failure can't leave an
+            // instance in both
+            try {
+                updatePooledInstanceRefs(scalingGroup, Collections.emptyList(), takenInstanceNames);
+            } catch (TransactionFailure transactionFailure) {
+                throw new CommandException("Could not take instances from the warm pool", transactionFailure);
+            }
+        }
+
+        if (progressStatus != null) {
+            progressStatus.setTotalStepCount(Math.max(0, progressStatus.getTotalStepCount()) +
+                    takenInstanceNames.size());
+        }
+
+        for (String instanceName : takenInstanceNames) {
+            ActionReport subActionReport = actionReport.addSubActionsReport();
+            runDeploymentGroupCommand("add-instance-to-deployment-group", instanceName,
+                    scalingGroup.getDeploymentGroupRef(), subActionReport);
+
+            if (subActionReport.hasFailures()) {
+                throw new CommandException("Encountered an error adding pooled instance " + instanceName +
+                        " to Deployment Group " + scalingGroup.getDeploymentGroupRef(),
+                        subActionReport.getFailureCause());
+            }
+
+            if (progressStatus != null) {
+                progressStatus.progress(1, instanceName + ": taken from warm pool");
+            }
+        }
+
+        return takenInstanceNames;
+    }
+
+    /**
+     * Chooses which pooled instances to take into the Deployment Group, taking from the nodes with the fewest instances
+     * in the Deployment Group first, limited by how many are pooled on each node and the node limits.
+     *
+     * @param numberOfInstances The maximum number of instances to take
+     * @param scalingGroup The scaling group to take the instances from
+     * @param pooledInstances The instances in the warm pool of the scaling group
+     * @param scalingGroupBalance The current number of instances in the Deployment Group on each node
+     * @return A Map of node name to the names of the pooled instances to take from it
+     */
+    private Map<String, List<String>> choosePooledInstances(int numberOfInstances, NodesScalingGroup scalingGroup,
+            List<Server> pooledInstances, Map<String, Integer> scalingGroupBalance) {
+        // Group the pooled instances by node, ignoring any on nodes no longer used by the scaling group
+        Map<String, List<String>> pooledInstancesByNode = getNodesInstances(pooledInstances,
+                scalingGroup.getNodeRefs());
+
+        Map<String, Integer> nodesInstanceLimits = getNodesInstanceLimits(scalingGroup, scalingGroupBalance);
+        for (Map.Entry<String, List<String>> nodePooledInstances : pooledInstancesByNode.entrySet()) {
+            nodesInstanceLimits.merge(nodePooledInstances.getKey(), nodePooledInstances.getValue().size(),
+                    Math::min);
+        }
+        Map<String, Integer> nodeInstanceCounts = NodesPlacementPlanner.planPlacement(numberOfInstances,
+                scalingGroupBalance, nodesInstanceLimits, getNodesWeights(scalingGroup),
+                getNodesFailureDomains(scalingGroup));
+
+        Map<String, List<String>> chosenInstances = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> nodeInstanceCount : nodeInstanceCounts.entrySet()) {
+            chosenInstances.put(nodeInstanceCount.getKey(), pooledInstancesByNode.get(nodeInstanceCount.getKey())
+                    .subList(0, nodeInstanceCount.getValue()));
+        }
+        return chosenInstances;
+    }
+
+    /**
+     * Parks stopped instances in the warm pool of the scaling group, removing them from its Deployment Group, until the
+     * warm pool is full.
+     *
+     * @param instanceNames The names of the stopped instances which could be parked
+     * @param removedInstanceNames The names of the instances already removed from the Deployment Group
+     * @param scalingGroup The scaling group to park the instances in
+     * @param actionReport The action report to add the command outputs to
+     * @param progressStatus The progress status to report each parked instance to, may be null
+     * @return The names of the instances which were parked
+     */
+    private List<String> parkInstances(List<String> instanceNames, List<String> removedInstanceNames,
+            NodesScalingGroup scalingGroup, ActionReport actionReport, ProgressStatus progressStatus) {
+        List<String> parkedInstanceNames = new ArrayList<>();
+        if (!Boolean.parseBoolean(scalingGroup.getParkOnScaleDown())) {
+            return parkedInstanceNames;
+        }
+
+        synchronized (getWarmPoolLock(scalingGroup)) {
+            int freeSpace = Integer.parseInt(scalingGroup.getWarmPoolSize()) -
+                    getPooledInstances(scalingGroup).size();
 
-            deleteInstanceCommand.parameters(parameterMap);
-            deleteInstanceCommand.execute();
+            for (String instanceName : instanceNames) {
+                if (parkedInstanceNames.size() >= freeSpace) {
+                    break;
+                }
+
+                ActionReport subActionReport = actionReport.addSubActionsReport();
+                if (!removedInstanceNames.contains(instanceName)) {
+                    runDeploymentGroupCommand("remove-instance-from-deployment-group", instanceName,
+                            scalingGroup.getDeploymentGroupRef(), subActionReport);
+                }
+                if (!subActionReport.hasFailures()) {
+                    parkedInstanceNames.add(instanceName);
+                    if (progressStatus != null) {
+                        progressStatus.progress(instanceName + ": parked in warm pool");
+                    }
+                }
+            }
+
+            try {
+                updatePooledInstanceRefs(scalingGroup, parkedInstanceNames, Collections.emptyList());
+            } catch (TransactionFailure transactionFailure) {
+                // The instances are no longer in the Deployment Group, so fall back to deleting them
+                LOGGER.log(Level.WARNING, "Could not park instances in the warm pool of Scaling Group " +
+                        scalingGroup.getName() + ", deleting them instead", transactionFailure);
+                parkedInstanceNames.clear();
+            }
+        }
+
+        return parkedInstanceNames;
+    }
+
+    /**
+     * Tops up or trims the warm pool of the given scaling group to its configured size in the background, using the
+     * operation pool of the {@link ScalingExecutorService}. If a resize is already pending for the scaling group, this
+     * method does nothing.
+     *
+     * @param scalingGroup The scaling group to resize the warm pool of
+     */
+    public void resizeWarmPool(NodesScalingGroup scalingGroup) {
+        String scalingGroupName = scalingGroup.getName();
+        if (Integer.parseInt(scalingGroup.getWarmPoolSize()) < 1 && scalingGroup.getPooledInstanceRefs().isEmpty()) {
+            return;
+        }
+
+        if (!resizingWarmPools.add(scalingGroupName)) {
+            return;
+        }
+
+        try {
+            scalingExecutorService.executeOperation(() -> resizeWarmPool(scalingGroupName));
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            resizingWarmPools.remove(scalingGroupName);
+            LOGGER.log(Level.WARNING, "Could not resize the warm pool of Scaling Group " + scalingGroupName,
+                    rejectedExecutionException);
+        }
+    }
+
+    private void resizeWarmPool(String scalingGroupName) {
+        try {
+            // Get the latest version of the config, since it may have changed while we were queued
+            ScalingGroup latestScalingGroup = scalingGroupsIndex.getScalingGroup(scalingGroupName);
+            if (!(latestScalingGroup instanceof NodesScalingGroup)) {
+                return;
+            }
+            NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) latestScalingGroup;
+
+            List<Server> pooledInstances;
+            synchronized (getWarmPoolLock(nodesScalingGroup)) {
+                pooledInstances = getPooledInstances(nodesScalingGroup);
+            }
+
+            int missingInstances = Integer.parseInt(nodesScalingGroup.getWarmPoolSize()) - pooledInstances.size();
+            if (missingInstances < 0) {
+                trimWarmPool(-missingInstances, nodesScalingGroup);
+                return;
+            }
+            if (missingInstances == 0) {
+                return;
+            }
+
+            LOGGER.info("Refilling warm pool of Scaling Group " + scalingGroupName + " with " +
+                    missingInstances + " instance(s)");
+            ActionReport createActionReport = commandRunner.getActionReport("plain");
+            List<String> createdInstanceNames = createInstances(missingInstances, nodesScalingGroup,
+                    pooledInstances, false, createActionReport, null);
+            if (createActionReport.hasFailures()) {
+                LOGGER.warning("Only " + createdInstanceNames.size() + " of " + missingInstances +
+                        " instances could be created for the warm pool of Scaling Group " + scalingGroupName);
+            }
+
+            // Pool whatever was created, even if some instances failed, so that none are left behind
+            synchronized (getWarmPoolLock(nodesScalingGroup)) {
+                updatePooledInstanceRefs(nodesScalingGroup, createdInstanceNames, Collections.emptyList());
+            }
+        } catch (TransactionFailure | RuntimeException exception) {
+            LOGGER.log(Level.WARNING, "Encountered an error resizing the warm pool of Scaling Group " +
+                    scalingGroupName, exception);
+        } finally {
+            resizingWarmPools.remove(scalingGroupName);
+        }
+    }
+
+    /**
+     * Deletes the given number of instances from the warm pool of the scaling group. The instances are taken out of
+     * the pool before being deleted so that no scale up can take them in the meantime, and any which could not be
+     * deleted are put back.
+     *
+     * @param numberOfInstances The number of instances to delete from the warm pool
+     * @param scalingGroup The scaling group to trim the warm pool of
+     * @throws TransactionFailure If the pooled instance refs of the scaling group could not be updated
+     */
+    private void trimWarmPool(int numberOfInstances, NodesScalingGroup scalingGroup) throws TransactionFailure {
+        List<String> excessInstanceNames = new ArrayList<>();
+        synchronized (getWarmPoolLock(scalingGroup)) {
+            List<Server> pooledInstances = getPooledInstances(scalingGroup);
+            for (int i = pooledInstances.size() - numberOfInstances; i < pooledInstances.size(); i++) {
+                excessInstanceNames.add(pooledInstances.get(i).getName());
+            }
+            updatePooledInstanceRefs(scalingGroup, Collections.emptyList(), excessInstanceNames);
+        }
+
+        LOGGER.info("Trimming warm pool of Scaling Group " + scalingGroup.getName() + " by " +
+                excessInstanceNames.size() + " instance(s)");
+        ActionReport deleteActionReport = commandRunner.getActionReport("plain");
+        deleteInstances(excessInstanceNames, scalingGroup, deleteActionReport, null);
+        if (!deleteActionReport.hasFailures()) {
+            return;
+        }
+
+        Domain domain = serviceLocator.getService(Domain.class);
+        List<String> undeletedInstanceNames = new ArrayList<>();
+        for (String instanceName : excessInstanceNames) {
+            if (domain.getServerNamed(instanceName) != null) {
+                undeletedInstanceNames.add(instanceName);
+            }
+        }
+        LOGGER.warning("Could not delete " + undeletedInstanceNames.size() + " instance(s) from the warm pool of " +
+                "Scaling Group " + scalingGroup.getName() + ", returning them to the pool");
+        synchronized (getWarmPoolLock(scalingGroup)) {
+            updatePooledInstanceRefs(scalingGroup, undeletedInstanceNames, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Deletes the instances held in the warm pool of the scaling group, so that they aren't left behind when the
+     * scaling group is deleted. Fails if the warm pool is being resized, since the resize could otherwise create
+     * instances after the pool has been emptied.
+     *
+     * @param scalingGroup The scaling group about to be deleted
+     * @param actionReport The action report to add the command outputs and any failure to
+     */
+    @Override
+    public void cleanUp(ScalingGroup scalingGroup, ActionReport actionReport) {
+        if (!(scalingGroup instanceof NodesScalingGroup)) {
+            return;
+        }
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroup;
+
+        String scalingGroupName = nodesScalingGroup.getName();
+        if (!resizingWarmPools.add(scalingGroupName)) {
+            actionReport.setMessage("The warm pool of Scaling Group " + scalingGroupName + " is being resized, " +
+                    "try again once it has finished");
+            actionReport.setActionExitCode(ActionReport.ExitCode.FAILURE);
+            return;
+        }
+
+        try {
+            List<String> pooledInstanceNames = new ArrayList<>();
+            synchronized (getWarmPoolLock(nodesScalingGroup)) {
+                for (Server pooledInstance : getPooledInstances(nodesScalingGroup)) {
+                    pooledInstanceNames.add(pooledInstance.getName());
+                }
+            }
+
+            if (!pooledInstanceNames.isEmpty()) {
+                LOGGER.info("Deleting " + pooledInstanceNames.size() + " instance(s) from the warm pool of " +
+                        "Scaling Group " + scalingGroupName);
+                deleteInstances(pooledInstanceNames, nodesScalingGroup, actionReport, null);
+            }
+            warmPoolLocks.remove(scalingGroupName);
+        } finally {
+            resizingWarmPools.remove(scalingGroupName);
         }
     }
+
+    /**
+     * Gets the instances in the warm pool of the scaling group which still exist.
+     *
+     * @param scalingGroup The scaling group to get the pooled instances of
+     * @return The {@link Server Servers} in the warm pool
+     */
+    private List<Server> getPooledInstances(NodesScalingGroup scalingGroup) {
+        Domain domain = serviceLocator.getService(Domain.class);
+        List<Server> pooledInstances = new ArrayList<>();
+        for (String pooledInstanceRef : scalingGroup.getPooledInstanceRefs()) {
+            Server pooledInstance = domain.getServerNamed(pooledInstanceRef);
+            if (pooledInstance != null) {
+                pooledInstances.add(pooledInstance);
+            }
+        }
+        return pooledInstances;
+    }
+
+    private void updatePooledInstanceRefs(NodesScalingGroup scalingGroup, List<String> instancesToAdd,
+            List<String> instancesToRemove) throws TransactionFailure {
+        ConfigSupport.apply(scalingGroupProxy -> {
+            for (String instanceName : instancesToRemove) {
+                scalingGroupProxy.getPooledInstanceRefs().remove(instanceName);
+            }
+            for (String instanceName : instancesToAdd) {
+                if (!scalingGroupProxy.getPooledInstanceRefs().contains(instanceName)) {
+                    scalingGroupProxy.getPooledInstanceRefs().add(instanceName);
+                }
+            }
+            return scalingGroupProxy;
+        }, scalingGroup);
+    }
+
+    private Object getWarmPoolLock(NodesScalingGroup scalingGroup) {
+        return warmPoolLocks.computeIfAbsent(scalingGroup.getName(), scalingGroupName -> new Object());
+    }
+
+    private void recordPhase(String phase, ScalingGroup scalingGroup, String nodeName, long startTime,
+            boolean success) {
+        if (scalingPhaseMetrics != null) {
+            scalingPhaseMetrics.record(phase, scalingGroup.getName(), nodeName, startTime, success);
+        }
+    }
+
+    private void runDeploymentGroupCommand(String commandName, String instanceName, String deploymentGroupName,
+            ActionReport subActionReport) {
+        ParameterMap parameterMap = new ParameterMap();
+        parameterMap.add("instance", instanceName);
+        parameterMap.add("deploymentgroup", deploymentGroupName);
+
+        CommandRunner.CommandInvocation commandInvocation = commandRunner.getCommandInvocation(
+                commandName, subActionReport, internalSystemAdministrator.getSubject());
+        commandInvocation.parameters(parameterMap);
+        commandInvocation.execute();
+    }
 }
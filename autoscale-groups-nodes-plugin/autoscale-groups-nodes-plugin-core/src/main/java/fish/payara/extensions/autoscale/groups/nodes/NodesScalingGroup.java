@@ -41,9 +41,13 @@
 package fish.payara.extensions.autoscale.groups.nodes;
 
 import fish.payara.extensions.autoscale.groups.ScalingGroup;
+import org.jvnet.hk2.config.Attribute;
 import org.jvnet.hk2.config.Configured;
+import org.jvnet.hk2.config.DuckTyped;
 import org.jvnet.hk2.config.Element;
 
+import javax.validation.constraints.Min;
+import java.beans.PropertyVetoException;
 import java.util.List;
 
 /**
@@ -56,4 +60,87 @@ public interface NodesScalingGroup extends ScalingGroup {
 
     @Element("node-ref")
     List<String> getNodeRefs();
+
+    /**
+     * The placement settings of the nodes of this scaling group, such as their capacity weight and instance limit.
+     *
+     * @return The list of node configurations
+     */
+    @Element("node-ref-configuration")
+    List<NodeRefConfiguration> getNodeRefConfigurations();
+
+    /**
+     * Return the {@link NodeRefConfiguration} for the specified node.
+     *
+     * @param nodeRef The name of the node
+     * @return The configuration of the node, or null if it doesn't have one
+     */
+    @DuckTyped
+    NodeRefConfiguration getNodeRefConfiguration(String nodeRef);
+
+    /**
+     * The number of instances to keep created but stopped on the nodes of this scaling group, ready to be added to the
+     * Deployment Group when scaling up.
+     *
+     * @return The size of the warm pool
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getWarmPoolSize();
+    void setWarmPoolSize(String warmPoolSize) throws PropertyVetoException;
+
+    /**
+     * Whether instances removed when scaling down should be parked in the warm pool, rather than being deleted, if
+     * the warm pool isn't already full.
+     *
+     * @return true if instances should be parked in the warm pool when scaling down
+     */
+    @Attribute(defaultValue = "false", dataType = Boolean.class)
+    String getParkOnScaleDown();
+    void setParkOnScaleDown(String parkOnScaleDown) throws PropertyVetoException;
+
+    /**
+     * The maximum time in seconds to wait for instances to finish their in-flight requests before stopping them when
+     * scaling down. A value of 0 disables draining, stopping instances straight away.
+     *
+     * @return The drain timeout in seconds
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getDrainTimeout();
+    void setDrainTimeout(String drainTimeout) throws PropertyVetoException;
+
+    /**
+     * The number of busy request processing threads at or below which an instance being drained is considered
+     * drained. This is the {@code currentthreadsbusy-count} of the thread pools of the instance, so thread pool
+     * monitoring needs to be enabled for instances to be drained. Idle keep-alive connections don't count towards it.
+     *
+     * @return The drain threshold
+     */
+    @Attribute(defaultValue = "0", dataType = Integer.class)
+    @Min(value = 0)
+    String getDrainThreshold();
+    void setDrainThreshold(String drainThreshold) throws PropertyVetoException;
+
+    /**
+     * The names of the stopped instances currently held in the warm pool. These instances are not part of the
+     * Deployment Group.
+     *
+     * @return The names of the instances in the warm pool
+     */
+    @Element("pooled-instance-ref")
+    List<String> getPooledInstanceRefs();
+
+    class Duck {
+        public static NodeRefConfiguration getNodeRefConfiguration(NodesScalingGroup nodesScalingGroup,
+                String nodeRef) {
+            for (NodeRefConfiguration nodeRefConfiguration : nodesScalingGroup.getNodeRefConfigurations()) {
+                if (nodeRefConfiguration.getNodeRef().equals(nodeRef)) {
+                    return nodeRefConfiguration;
+                }
+            }
+
+            return null;
+        }
+    }
 }
@@ -59,7 +59,10 @@ import org.jvnet.hk2.config.ConfigSupport;
 import org.jvnet.hk2.config.TransactionFailure;
 
 import javax.inject.Inject;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * Creates a {@link NodesScalingGroup}.
@@ -81,6 +84,27 @@ public class CreateNodesScalingGroupCommand extends CreateScalingGroupCommand {
     @Param(name = "nodes")
     private List<String> nodeRefs;
 
+    @Param(name = "warmPoolSize", alias = "warmpoolsize", optional = true)
+    private Integer warmPoolSize;
+
+    @Param(name = "parkOnScaleDown", alias = "parkonscaledown", optional = true)
+    private Boolean parkOnScaleDown;
+
+    @Param(name = "drainTimeout", alias = "draintimeout", optional = true)
+    private Integer drainTimeout;
+
+    @Param(name = "drainThreshold", alias = "drainthreshold", optional = true)
+    private Integer drainThreshold;
+
+    @Param(name = "nodeWeights", alias = "nodeweights", optional = true)
+    private Properties nodeWeights;
+
+    @Param(name = "nodeMaxInstances", alias = "nodemaxinstances", optional = true)
+    private Properties nodeMaxInstances;
+
+    @Param(name = "nodeFailureDomains", alias = "nodefailuredomains", optional = true)
+    private Properties nodeFailureDomains;
+
     @Inject
     protected Nodes nodes;
 
@@ -108,6 +132,26 @@ public class CreateNodesScalingGroupCommand extends CreateScalingGroupCommand {
                     nodesScalingGroupProxy.getNodeRefs().add(nodeRef);
                 }
 
+                applyScalingAttributes(nodesScalingGroupProxy);
+
+                if (warmPoolSize != null) {
+                    nodesScalingGroupProxy.setWarmPoolSize(warmPoolSize.toString());
+                }
+
+                if (parkOnScaleDown != null) {
+                    nodesScalingGroupProxy.setParkOnScaleDown(parkOnScaleDown.toString());
+                }
+
+                if (drainTimeout != null) {
+                    nodesScalingGroupProxy.setDrainTimeout(drainTimeout.toString());
+                }
+
+                if (drainThreshold != null) {
+                    nodesScalingGroupProxy.setDrainThreshold(drainThreshold.toString());
+                }
+
+                NodeRefConfigurations.apply(nodesScalingGroupProxy, getNodeSettings());
+
                 scalingGroupsProxy.getScalingGroups().add(nodesScalingGroupProxy);
                 return scalingGroupsProxy;
             }, scalingGroups);
@@ -126,5 +170,29 @@ public class CreateNodesScalingGroupCommand extends CreateScalingGroupCommand {
                 throw new CommandValidationException("Node name " + nodeRef + " is not valid or doesn't exist");
             }
         }
+
+        if (warmPoolSize != null && warmPoolSize < 0) {
+            throw new CommandValidationException("Warm pool size cannot be negative");
+        }
+
+        if (drainTimeout != null && drainTimeout < 0) {
+            throw new CommandValidationException("Drain timeout cannot be negative");
+        }
+
+        if (drainThreshold != null && drainThreshold < 0) {
+            throw new CommandValidationException("Drain threshold cannot be negative");
+        }
+
+        NodeRefConfigurations.validate(nodeWeights, "weight", 1, nodeRefs);
+        NodeRefConfigurations.validate(nodeMaxInstances, "maximum instances", 0, nodeRefs);
+        NodeRefConfigurations.validate(nodeFailureDomains, "failure domain", nodeRefs);
+    }
+
+    private Map<String, Properties> getNodeSettings() {
+        Map<String, Properties> nodeSettings = new HashMap<>();
+        nodeSettings.put(NodeRefConfigurations.WEIGHT, nodeWeights);
+        nodeSettings.put(NodeRefConfigurations.MAX_INSTANCES, nodeMaxInstances);
+        nodeSettings.put(NodeRefConfigurations.FAILURE_DOMAIN, nodeFailureDomains);
+        return nodeSettings;
     }
 }
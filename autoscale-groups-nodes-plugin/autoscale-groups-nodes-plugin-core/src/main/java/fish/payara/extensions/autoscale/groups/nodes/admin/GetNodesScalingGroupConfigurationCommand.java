@@ -54,7 +54,6 @@ import org.glassfish.hk2.api.PerLookup;
 import org.jvnet.hk2.annotations.Service;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -88,20 +87,32 @@ public class GetNodesScalingGroupConfigurationCommand extends GetScalingGroupCon
             return;
         }
 
-        NodesScalingGroup nodesScalingGroup = null;
-
-        // Search through the scaling groups, checking for the one with a reference to our requested deployment group
-        for (NodesScalingGroup nodesScalingGroupIterator : scalingGroups.getScalingGroupsOfType(NodesScalingGroup.class)) {
-            if (nodesScalingGroupIterator.getName().equals(name)) {
-                nodesScalingGroup = nodesScalingGroupIterator;
-                break;
-            }
-        }
+        NodesScalingGroup nodesScalingGroup = (NodesScalingGroup) scalingGroupsIndex.getScalingGroup(name);
 
         adminCommandContext.getActionReport().setMessage("Nodes Scaling Group: " + nodesScalingGroup.getName());
         adminCommandContext.getActionReport().appendMessage("\nConfig Ref: " + nodesScalingGroup.getConfigRef());
         adminCommandContext.getActionReport().appendMessage("\nDeployment Group Ref: " + nodesScalingGroup.getDeploymentGroupRef());
         adminCommandContext.getActionReport().appendMessage("\nNode Refs: " + String.join(", ", nodesScalingGroup.getNodeRefs()));
+        adminCommandContext.getActionReport().appendMessage("\nAuto Scaling Enabled: " + nodesScalingGroup.getAutoScalingEnabled());
+        adminCommandContext.getActionReport().appendMessage("\nMin Instances: " + nodesScalingGroup.getMinInstances());
+        adminCommandContext.getActionReport().appendMessage("\nMax Instances: " + nodesScalingGroup.getMaxInstances());
+        adminCommandContext.getActionReport().appendMessage("\nDesired Instances: " + nodesScalingGroup.getDesiredInstances());
+        adminCommandContext.getActionReport().appendMessage("\nScale Up Threshold: " + nodesScalingGroup.getScaleUpThreshold());
+        adminCommandContext.getActionReport().appendMessage("\nScale Down Threshold: " + nodesScalingGroup.getScaleDownThreshold());
+        adminCommandContext.getActionReport().appendMessage("\nHysteresis Band: " + nodesScalingGroup.getHysteresisBand());
+        adminCommandContext.getActionReport().appendMessage("\nScale Up Cooldown: " + nodesScalingGroup.getScaleUpCooldown());
+        adminCommandContext.getActionReport().appendMessage("\nScale Down Cooldown: " + nodesScalingGroup.getScaleDownCooldown());
+        adminCommandContext.getActionReport().appendMessage("\nPredictive Scaling Enabled: " + nodesScalingGroup.getPredictiveScalingEnabled());
+        adminCommandContext.getActionReport().appendMessage("\nPrediction Lead Time: " + nodesScalingGroup.getPredictionLeadTime());
+        adminCommandContext.getActionReport().appendMessage("\nSeason Length: " + nodesScalingGroup.getSeasonLength());
+        adminCommandContext.getActionReport().appendMessage("\nWarm Pool Size: " + nodesScalingGroup.getWarmPoolSize());
+        adminCommandContext.getActionReport().appendMessage("\nPark On Scale Down: " + nodesScalingGroup.getParkOnScaleDown());
+        adminCommandContext.getActionReport().appendMessage("\nDrain Timeout: " + nodesScalingGroup.getDrainTimeout());
+        adminCommandContext.getActionReport().appendMessage("\nDrain Threshold: " + nodesScalingGroup.getDrainThreshold());
+        adminCommandContext.getActionReport().appendMessage("\nNode Weights: " + NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.WEIGHT));
+        adminCommandContext.getActionReport().appendMessage("\nNode Max Instances: " + NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.MAX_INSTANCES));
+        adminCommandContext.getActionReport().appendMessage("\nNode Failure Domains: " + NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.FAILURE_DOMAIN));
+        adminCommandContext.getActionReport().appendMessage("\nPooled Instance Refs: " + String.join(", ", nodesScalingGroup.getPooledInstanceRefs()));
 
         Properties extraProps = new Properties();
         Map<String, Object> configMap = new HashMap<>();
@@ -109,6 +120,36 @@ public class GetNodesScalingGroupConfigurationCommand extends GetScalingGroupCon
         configMap.put("config", nodesScalingGroup.getConfigRef());
         configMap.put("deploymentGroup", nodesScalingGroup.getDeploymentGroupRef());
         configMap.put("nodes", nodesScalingGroup.getNodeRefs());
+        configMap.put("autoScalingEnabled", nodesScalingGroup.getAutoScalingEnabled());
+        configMap.put("minInstances", nodesScalingGroup.getMinInstances());
+        configMap.put("maxInstances", nodesScalingGroup.getMaxInstances());
+        if (nodesScalingGroup.getDesiredInstances() != null) {
+            configMap.put("desiredInstances", nodesScalingGroup.getDesiredInstances());
+        }
+        configMap.put("scaleUpThreshold", nodesScalingGroup.getScaleUpThreshold());
+        configMap.put("scaleDownThreshold", nodesScalingGroup.getScaleDownThreshold());
+        configMap.put("hysteresisBand", nodesScalingGroup.getHysteresisBand());
+        configMap.put("scaleUpCooldown", nodesScalingGroup.getScaleUpCooldown());
+        configMap.put("scaleDownCooldown", nodesScalingGroup.getScaleDownCooldown());
+        configMap.put("predictiveScalingEnabled", nodesScalingGroup.getPredictiveScalingEnabled());
+        configMap.put("predictionLeadTime", nodesScalingGroup.getPredictionLeadTime());
+        configMap.put("seasonLength", nodesScalingGroup.getSeasonLength());
+        configMap.put("warmPoolSize", nodesScalingGroup.getWarmPoolSize());
+        configMap.put("parkOnScaleDown", nodesScalingGroup.getParkOnScaleDown());
+        configMap.put("drainTimeout", nodesScalingGroup.getDrainTimeout());
+        configMap.put("drainThreshold", nodesScalingGroup.getDrainThreshold());
+        String nodeWeights = NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.WEIGHT);
+        if (!nodeWeights.isEmpty()) {
+            configMap.put("nodeWeights", nodeWeights);
+        }
+        String nodeMaxInstances = NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.MAX_INSTANCES);
+        if (!nodeMaxInstances.isEmpty()) {
+            configMap.put("nodeMaxInstances", nodeMaxInstances);
+        }
+        String nodeFailureDomains = NodeRefConfigurations.format(nodesScalingGroup, NodeRefConfigurations.FAILURE_DOMAIN);
+        if (!nodeFailureDomains.isEmpty()) {
+            configMap.put("nodeFailureDomains", nodeFailureDomains);
+        }
 
         extraProps.put("scalingGroupConfig", configMap);
         adminCommandContext.getActionReport().setExtraProperties(extraProps);
@@ -118,21 +159,7 @@ public class GetNodesScalingGroupConfigurationCommand extends GetScalingGroupCon
     protected void validateParams() throws CommandValidationException {
         super.validateParams();
 
-        List<NodesScalingGroup> nodesScalingGroups = scalingGroups.getScalingGroupsOfType(NodesScalingGroup.class);
-
-        if (nodesScalingGroups.isEmpty()) {
-            throw new CommandValidationException("Scaling Group " + name + " is not a Nodes Scaling Group.");
-        }
-
-        boolean exists = false;
-        for (NodesScalingGroup nodesScalingGroup : nodesScalingGroups) {
-            if (nodesScalingGroup.getName().equals(name)) {
-                exists = true;
-                break;
-            }
-        }
-
-        if (!exists) {
+        if (!(scalingGroupsIndex.getScalingGroup(name) instanceof NodesScalingGroup)) {
             throw new CommandValidationException("Scaling Group " + name + " is not a Nodes Scaling Group.");
         }
     }
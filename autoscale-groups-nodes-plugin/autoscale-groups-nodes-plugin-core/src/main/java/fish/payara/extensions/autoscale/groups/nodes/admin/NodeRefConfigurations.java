@@ -0,0 +1,217 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package fish.payara.extensions.autoscale.groups.nodes.admin;
+
+import com.sun.enterprise.util.StringUtils;
+import fish.payara.extensions.autoscale.groups.nodes.NodeRefConfiguration;
+import fish.payara.extensions.autoscale.groups.nodes.NodesScalingGroup;
+import org.glassfish.api.admin.CommandValidationException;
+import org.jvnet.hk2.config.TransactionFailure;
+
+import java.beans.PropertyVetoException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+
+/**
+ * Helper for the Nodes Scaling Group commands to validate and apply the per-node settings, which are passed as
+ * properties of node name to value, e.g. {@code --nodeWeights node1=4:node2=1}.
+ */
+final class NodeRefConfigurations {
+
+    static final String WEIGHT = "weight";
+    static final String MAX_INSTANCES = "maxInstances";
+    static final String FAILURE_DOMAIN = "failureDomain";
+
+    private NodeRefConfigurations() {
+    }
+
+    /**
+     * Validates that each property refers to one of the given nodes and has a whole number value of at least the
+     * given minimum.
+     *
+     * @param properties The properties to validate, may be null
+     * @param setting The name of the setting, for error messages
+     * @param minimum The minimum allowed value
+     * @param nodeRefs The nodes of the scaling group
+     * @throws CommandValidationException If any of the properties are invalid
+     */
+    static void validate(Properties properties, String setting, int minimum, Collection<String> nodeRefs)
+            throws CommandValidationException {
+        if (properties == null) {
+            return;
+        }
+
+        validate(properties, setting, nodeRefs);
+        for (String nodeRef : properties.stringPropertyNames()) {
+            int value;
+            try {
+                value = Integer.parseInt(properties.getProperty(nodeRef));
+            } catch (NumberFormatException numberFormatException) {
+                throw new CommandValidationException("The " + setting + " of node " + nodeRef +
+                        " must be a whole number");
+            }
+
+            if (value < minimum) {
+                throw new CommandValidationException("The " + setting + " of node " + nodeRef +
+                        " must be at least " + minimum);
+            }
+        }
+    }
+
+    /**
+     * Validates that each property refers to one of the given nodes and has a value.
+     *
+     * @param properties The properties to validate, may be null
+     * @param setting The name of the setting, for error messages
+     * @param nodeRefs The nodes of the scaling group
+     * @throws CommandValidationException If any of the properties are invalid
+     */
+    static void validate(Properties properties, String setting, Collection<String> nodeRefs)
+            throws CommandValidationException {
+        if (properties == null) {
+            return;
+        }
+
+        for (String nodeRef : properties.stringPropertyNames()) {
+            if (!nodeRefs.contains(nodeRef)) {
+                throw new CommandValidationException("Cannot set " + setting + " of node " + nodeRef +
+                        " since it isn't one of the nodes of the Scaling Group");
+            }
+
+            if (!StringUtils.ok(properties.getProperty(nodeRef))) {
+                throw new CommandValidationException("The " + setting + " of node " + nodeRef + " cannot be empty");
+            }
+        }
+    }
+
+    /**
+     * Sets the given value of each property on the matching {@link NodeRefConfiguration} of the scaling group,
+     * creating it if it doesn't exist, and removes the configuration of any nodes no longer in the scaling group. Must
+     * be called within a transaction on the scaling group.
+     *
+     * @param nodesScalingGroupProxy The writeable scaling group
+     * @param settings A map of setting name ({@link #WEIGHT}, {@link #MAX_INSTANCES} or {@link #FAILURE_DOMAIN}) to
+     *                 properties of node name to value. Null properties are ignored.
+     * @throws PropertyVetoException If a value is rejected
+     * @throws TransactionFailure If a configuration can't be created
+     */
+    static void apply(NodesScalingGroup nodesScalingGroupProxy, Map<String, Properties> settings)
+            throws PropertyVetoException, TransactionFailure {
+        List<NodeRefConfiguration> nodeRefConfigurations = nodesScalingGroupProxy.getNodeRefConfigurations();
+
+        // Child beans can't be edited through the parent proxy, so replace any we need to change with a copy
+        Map<String, NodeRefConfiguration> updatedConfigurations = new HashMap<>();
+        for (Map.Entry<String, Properties> setting : settings.entrySet()) {
+            if (setting.getValue() == null) {
+                continue;
+            }
+
+            for (String nodeRef : setting.getValue().stringPropertyNames()) {
+                NodeRefConfiguration nodeRefConfiguration = updatedConfigurations.get(nodeRef);
+                if (nodeRefConfiguration == null) {
+                    nodeRefConfiguration = nodesScalingGroupProxy.createChild(NodeRefConfiguration.class);
+                    nodeRefConfiguration.setNodeRef(nodeRef);
+
+                    NodeRefConfiguration existingConfiguration =
+                            nodesScalingGroupProxy.getNodeRefConfiguration(nodeRef);
+                    if (existingConfiguration != null) {
+                        nodeRefConfiguration.setWeight(existingConfiguration.getWeight());
+                        nodeRefConfiguration.setMaxInstances(existingConfiguration.getMaxInstances());
+                        nodeRefConfiguration.setFailureDomain(existingConfiguration.getFailureDomain());
+                    }
+                    updatedConfigurations.put(nodeRef, nodeRefConfiguration);
+                }
+
+                String value = setting.getValue().getProperty(nodeRef);
+                if (WEIGHT.equals(setting.getKey())) {
+                    nodeRefConfiguration.setWeight(value);
+                } else if (MAX_INSTANCES.equals(setting.getKey())) {
+                    nodeRefConfiguration.setMaxInstances(value);
+                } else if (FAILURE_DOMAIN.equals(setting.getKey())) {
+                    nodeRefConfiguration.setFailureDomain(value);
+                }
+            }
+        }
+
+        List<NodeRefConfiguration> staleConfigurations = new ArrayList<>();
+        for (NodeRefConfiguration nodeRefConfiguration : nodeRefConfigurations) {
+            if (updatedConfigurations.containsKey(nodeRefConfiguration.getNodeRef())
+                    || !nodesScalingGroupProxy.getNodeRefs().contains(nodeRefConfiguration.getNodeRef())) {
+                staleConfigurations.add(nodeRefConfiguration);
+            }
+        }
+
+        for (NodeRefConfiguration staleConfiguration : staleConfigurations) {
+            nodeRefConfigurations.remove(staleConfiguration);
+        }
+        nodeRefConfigurations.addAll(updatedConfigurations.values());
+    }
+
+    /**
+     * Formats a setting of every configured node in the same form the commands accept it.
+     *
+     * @param nodesScalingGroup The scaling group
+     * @param setting The name of the setting, {@link #WEIGHT}, {@link #MAX_INSTANCES} or {@link #FAILURE_DOMAIN}
+     * @return The setting of each configured node, e.g. {@code node1=4:node2=1}, or an empty String if none are set
+     */
+    static String format(NodesScalingGroup nodesScalingGroup, String setting) {
+        StringJoiner stringJoiner = new StringJoiner(":");
+        for (NodeRefConfiguration nodeRefConfiguration : nodesScalingGroup.getNodeRefConfigurations()) {
+            String value;
+            if (WEIGHT.equals(setting)) {
+                value = nodeRefConfiguration.getWeight();
+            } else if (MAX_INSTANCES.equals(setting)) {
+                value = nodeRefConfiguration.getMaxInstances();
+            } else {
+                value = nodeRefConfiguration.getFailureDomain();
+            }
+            if (value != null) {
+                stringJoiner.add(nodeRefConfiguration.getNodeRef() + "=" + value);
+            }
+        }
+        return stringJoiner.toString();
+    }
+}
@@ -43,6 +43,7 @@ package fish.payara.extensions.autoscale.groups.nodes.admin;
 import com.sun.enterprise.config.serverbeans.Nodes;
 import com.sun.enterprise.util.StringUtils;
 import fish.payara.extensions.autoscale.groups.admin.SetScalingGroupConfigurationCommand;
+import fish.payara.extensions.autoscale.groups.nodes.NodesScaler;
 import fish.payara.extensions.autoscale.groups.nodes.NodesScalingGroup;
 import org.glassfish.api.ActionReport;
 import org.glassfish.api.Param;
@@ -59,7 +60,10 @@ import org.jvnet.hk2.config.ConfigSupport;
 import org.jvnet.hk2.config.TransactionFailure;
 
 import javax.inject.Inject;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 /**
  * Sets the configuration of a {@link NodesScalingGroup}.
@@ -84,9 +88,33 @@ public class SetNodesScalingGroupConfigurationCommand extends SetScalingGroupCon
     @Param(name = "nodes", optional = true)
     private List<String> nodeRefs;
 
+    @Param(name = "warmPoolSize", alias = "warmpoolsize", optional = true)
+    private Integer warmPoolSize;
+
+    @Param(name = "parkOnScaleDown", alias = "parkonscaledown", optional = true)
+    private Boolean parkOnScaleDown;
+
+    @Param(name = "drainTimeout", alias = "draintimeout", optional = true)
+    private Integer drainTimeout;
+
+    @Param(name = "drainThreshold", alias = "drainthreshold", optional = true)
+    private Integer drainThreshold;
+
+    @Param(name = "nodeWeights", alias = "nodeweights", optional = true)
+    private Properties nodeWeights;
+
+    @Param(name = "nodeMaxInstances", alias = "nodemaxinstances", optional = true)
+    private Properties nodeMaxInstances;
+
+    @Param(name = "nodeFailureDomains", alias = "nodefailuredomains", optional = true)
+    private Properties nodeFailureDomains;
+
     @Inject
     protected Nodes nodes;
 
+    @Inject
+    private NodesScaler nodesScaler;
+
     @Override
     public void execute(AdminCommandContext adminCommandContext) {
         try {
@@ -118,6 +146,26 @@ public class SetNodesScalingGroupConfigurationCommand extends SetScalingGroupCon
                         }
                     }
 
+                    applyScalingAttributes(nodesScalingGroupProxy);
+
+                    if (warmPoolSize != null) {
+                        nodesScalingGroupProxy.setWarmPoolSize(warmPoolSize.toString());
+                    }
+
+                    if (parkOnScaleDown != null) {
+                        nodesScalingGroupProxy.setParkOnScaleDown(parkOnScaleDown.toString());
+                    }
+
+                    if (drainTimeout != null) {
+                        nodesScalingGroupProxy.setDrainTimeout(drainTimeout.toString());
+                    }
+
+                    if (drainThreshold != null) {
+                        nodesScalingGroupProxy.setDrainThreshold(drainThreshold.toString());
+                    }
+
+                    NodeRefConfigurations.apply(nodesScalingGroupProxy, getNodeSettings());
+
                     return nodesScalingGroupProxy;
                 }, (NodesScalingGroup) scalingGroupsProxy.getScalingGroup(name));
 
@@ -126,6 +174,12 @@ public class SetNodesScalingGroupConfigurationCommand extends SetScalingGroupCon
         } catch (TransactionFailure transactionFailure) {
             adminCommandContext.getActionReport().setActionExitCode(ActionReport.ExitCode.FAILURE);
             adminCommandContext.getActionReport().setFailureCause(transactionFailure);
+            return;
+        }
+
+        // Top up or trim the warm pool in the background if it's been resized
+        if (warmPoolSize != null) {
+            nodesScaler.resizeWarmPool((NodesScalingGroup) scalingGroupsIndex.getScalingGroup(name));
         }
     }
 
@@ -133,21 +187,7 @@ public class SetNodesScalingGroupConfigurationCommand extends SetScalingGroupCon
     protected void validateParams() throws CommandValidationException {
         super.validateParams();
 
-        List<NodesScalingGroup> nodesScalingGroups = scalingGroups.getScalingGroupsOfType(NodesScalingGroup.class);
-
-        if (nodesScalingGroups.isEmpty()) {
-            throw new CommandValidationException("Scaling Group " + name + " is not a Nodes Scaling Group.");
-        }
-
-        boolean exists = false;
-        for (NodesScalingGroup nodesScalingGroup : nodesScalingGroups) {
-            if (nodesScalingGroup.getName().equals(name)) {
-                exists = true;
-                break;
-            }
-        }
-
-        if (!exists) {
+        if (!(scalingGroupsIndex.getScalingGroup(name) instanceof NodesScalingGroup)) {
             throw new CommandValidationException("Scaling Group " + name + " is not a Nodes Scaling Group.");
         }
 
@@ -165,5 +205,32 @@ public class SetNodesScalingGroupConfigurationCommand extends SetScalingGroupCon
                 }
             }
         }
+
+        if (warmPoolSize != null && warmPoolSize < 0) {
+            throw new CommandValidationException("Warm pool size cannot be negative");
+        }
+
+        if (drainTimeout != null && drainTimeout < 0) {
+            throw new CommandValidationException("Drain timeout cannot be negative");
+        }
+
+        if (drainThreshold != null && drainThreshold < 0) {
+            throw new CommandValidationException("Drain threshold cannot be negative");
+        }
+
+        // Node settings must refer to the nodes the scaling group will have after this command
+        List<String> resultingNodeRefs = nodeRefs != null && !nodeRefs.isEmpty() ?
+                nodeRefs : ((NodesScalingGroup) scalingGroupsIndex.getScalingGroup(name)).getNodeRefs();
+        NodeRefConfigurations.validate(nodeWeights, "weight", 1, resultingNodeRefs);
+        NodeRefConfigurations.validate(nodeMaxInstances, "maximum instances", 0, resultingNodeRefs);
+        NodeRefConfigurations.validate(nodeFailureDomains, "failure domain", resultingNodeRefs);
+    }
+
+    private Map<String, Properties> getNodeSettings() {
+        Map<String, Properties> nodeSettings = new HashMap<>();
+        nodeSettings.put(NodeRefConfigurations.WEIGHT, nodeWeights);
+        nodeSettings.put(NodeRefConfigurations.MAX_INSTANCES, nodeMaxInstances);
+        nodeSettings.put(NodeRefConfigurations.FAILURE_DOMAIN, nodeFailureDomains);
+        return nodeSettings;
     }
 }
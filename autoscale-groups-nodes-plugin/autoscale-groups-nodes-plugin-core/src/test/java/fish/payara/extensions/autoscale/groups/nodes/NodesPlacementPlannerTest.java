@@ -0,0 +1,176 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2021 Payara Foundation and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://github.com/payara/Payara/blob/master/LICENSE.txt
+ * See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at glassfish/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * The Payara Foundation designates this particular file as subject to the "Classpath"
+ * exception as provided by the Payara Foundation in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+package fish.payara.extensions.autoscale.groups.nodes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NodesPlacementPlannerTest {
+
+    @Test
+    public void placementSpreadsEvenlyInNodeOrder() {
+        assertEquals(counts("a", 2, "b", 2, "c", 1),
+                NodesPlacementPlanner.planPlacement(5, counts("a", 0, "b", 0, "c", 0), null));
+    }
+
+    @Test
+    public void placementFillsTheLeastLoadedNodesFirst() {
+        assertEquals(counts("b", 2, "c", 1),
+                NodesPlacementPlanner.planPlacement(3, counts("a", 3, "b", 0, "c", 1), null));
+    }
+
+    @Test
+    public void placementRespectsNodeLimits() {
+        assertEquals(counts("a", 1, "b", 3),
+                NodesPlacementPlanner.planPlacement(4, counts("a", 0, "b", 0), counts("a", 1)));
+        // A node without space is never used
+        assertEquals(counts("b", 4),
+                NodesPlacementPlanner.planPlacement(4, counts("a", 0, "b", 0), counts("a", 0)));
+    }
+
+    @Test
+    public void placementStopsOnceEveryNodeIsFull() {
+        assertEquals(counts("a", 1, "b", 1),
+                NodesPlacementPlanner.planPlacement(5, counts("a", 0, "b", 0), counts("a", 1, "b", 1)));
+        assertTrue(NodesPlacementPlanner.planPlacement(5, new LinkedHashMap<>(), null).isEmpty());
+    }
+
+    @Test
+    public void placementIsProportionalToNodeWeights() {
+        assertEquals(counts("a", 6, "b", 2), NodesPlacementPlanner.planPlacement(8, counts("a", 0, "b", 0), null,
+                counts("a", 3, "b", 1), null));
+        // Nodes without a weight, or with an invalid one, have a weight of 1
+        assertEquals(counts("a", 2, "b", 2), NodesPlacementPlanner.planPlacement(4, counts("a", 0, "b", 0), null,
+                counts("a", 0), null));
+    }
+
+    @Test
+    public void placementSpreadsAcrossFailureDomainsFirst() {
+        Map<String, String> failureDomains = new LinkedHashMap<>();
+        failureDomains.put("a", "rack1");
+        failureDomains.put("b", "rack1");
+
+        // c is unlabelled, so is a failure domain of its own
+        assertEquals(counts("a", 1, "c", 2, "b", 1), NodesPlacementPlanner.planPlacement(4,
+                counts("a", 0, "b", 0, "c", 0), null, null, failureDomains));
+
+        // An unlabelled node doesn't share a failure domain with a label of the same name
+        failureDomains.put("b", "c");
+        assertEquals(counts("a", 1, "b", 1, "c", 1), NodesPlacementPlanner.planPlacement(3,
+                counts("a", 0, "b", 0, "c", 0), null, null, failureDomains));
+    }
+
+    @Test
+    public void removalTakesFromTheMostLoadedNodeInOrder() {
+        Map<String, List<String>> nodesInstances = instances("a", 3, "b", 1);
+        assertEquals(Arrays.asList("a1", "a2"), NodesPlacementPlanner.planRemoval(2, nodesInstances));
+
+        nodesInstances = instances("a", 2, "b", 2);
+        assertEquals(Arrays.asList("a1", "b1", "a2"), NodesPlacementPlanner.planRemoval(3, nodesInstances));
+    }
+
+    @Test
+    public void removalStopsOnceThereAreNoInstancesLeft() {
+        Map<String, List<String>> nodesInstances = instances("a", 1, "b", 0);
+        assertEquals(Collections.singletonList("a1"), NodesPlacementPlanner.planRemoval(3, nodesInstances));
+        assertTrue(NodesPlacementPlanner.planRemoval(0, nodesInstances).isEmpty());
+    }
+
+    @Test
+    public void removalTrimsNodesOverTheirMaximumFirst() {
+        Map<String, List<String>> nodesInstances = instances("a", 2, "b", 3);
+        assertEquals(Arrays.asList("a1", "b1"), NodesPlacementPlanner.planRemoval(2, nodesInstances, null,
+                counts("a", 1), null));
+    }
+
+    @Test
+    public void removalIsProportionalToNodeWeights() {
+        Map<String, List<String>> nodesInstances = instances("a", 4, "b", 2);
+        assertEquals(Arrays.asList("b1", "a1", "b2"), NodesPlacementPlanner.planRemoval(3, nodesInstances,
+                counts("a", 4, "b", 1), null, null));
+    }
+
+    @Test
+    public void removalTakesFromTheLargestFailureDomainFirst() {
+        Map<String, List<String>> nodesInstances = instances("a", 2, "b", 2, "c", 2);
+        Map<String, String> failureDomains = new LinkedHashMap<>();
+        failureDomains.put("a", "rack1");
+        failureDomains.put("b", "rack1");
+        failureDomains.put("c", "rack2");
+
+        assertEquals(Arrays.asList("a1", "b1", "a2", "c1"), NodesPlacementPlanner.planRemoval(4, nodesInstances,
+                null, null, failureDomains));
+    }
+
+    /**
+     * @param namesAndCounts Alternating node names and counts
+     */
+    private static Map<String, Integer> counts(Object... namesAndCounts) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndCounts.length; i += 2) {
+            counts.put((String) namesAndCounts[i], (Integer) namesAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    /**
+     * @param namesAndCounts Alternating node names and instance counts, the instances of each node being named after it
+     */
+    private static Map<String, List<String>> instances(Object... namesAndCounts) {
+        Map<String, List<String>> nodesInstances = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> nodeCount : counts(namesAndCounts).entrySet()) {
+            List<String> instances = new ArrayList<>();
+            for (int i = 1; i <= nodeCount.getValue(); i++) {
+                instances.add(nodeCount.getKey() + i);
+            }
+            nodesInstances.put(nodeCount.getKey(), instances);
+        }
+        return nodesInstances;
+    }
+}